@@ -2,8 +2,31 @@ package com.collectibles;
 
 import com.collectibles.config.ServerConfig;
 import com.collectibles.controller.RouteConfig;
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+import com.collectibles.replication.ReplicationFollower;
+import com.collectibles.replication.ReplicationLeader;
+import com.collectibles.replication.ReplicationNode;
+import com.collectibles.service.ItemCatalogPersister;
 import com.collectibles.service.ItemService;
+import com.collectibles.service.MappedCatalogBuilder;
+import com.collectibles.service.StoreSnapshot;
 import com.collectibles.service.UserService;
+import com.collectibles.storage.KeyValueRepository;
+import com.collectibles.storage.LsmRepository;
+import com.collectibles.storage.ModelCodecs;
+import com.collectibles.storage.ValueCodec;
+import com.collectibles.storage.WriteBehindRepository;
+import spark.Spark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Main class for the Collectibles Store application.
@@ -17,6 +40,19 @@ public class Main {
     // Service instances
     private static ItemService itemService;
     private static UserService userService;
+    private static ReplicationNode replicationNode;
+
+    // Routes; kept to release parked long polls on shutdown
+    private static RouteConfig routeConfig;
+
+    // Saves item changes to disk; null for the read-only catalog or with ITEM_DATA_FILE=none
+    private static ItemCatalogPersister catalogPersister;
+
+    // Stores as saved by the last graceful shutdown; null if there is none to use
+    private static StoreSnapshot snapshot;
+
+    // Embedded on-disk stores, closed on shutdown
+    private static final List<Closeable> repositories = new CopyOnWriteArrayList<>();
 
     /**
      * Main entry point for the application.
@@ -29,9 +65,15 @@ public class Main {
         // Initialize services
         initializeServices();
 
+        // Start replication (leader or follower) if configured
+        initializeReplication();
+
         // Configure routes
         configureRoutes();
 
+        // Drain requests and save the stores when the JVM is asked to stop
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::shutdown, "shutdown"));
+
         // Log startup completion
         logStartupInfo();
     }
@@ -41,21 +83,278 @@ public class Main {
      */
     private static void initializeServices() {
         System.out.println("--- Initializing Services ---");
-        itemService = new ItemService();
-        userService = new UserService();
+        snapshot = loadSnapshot();
+        itemService = createItemService();
+        itemService.setParallelThreshold(ServerConfig.getParallelScanThreshold());
+        initializePersistence();
+        userService = createUserService();
+        snapshot = null;
         System.out.println("--- Services Initialized ---\n");
     }
 
+    /**
+     * Loads the snapshot written by the last graceful shutdown.
+     * Its items are skipped when the item data file changed after it was
+     * written (the saved items are newer); its users are still used, since
+     * the snapshot is the only place they are saved. When it cannot be read,
+     * startup falls back to the JSON catalog and the sample users.
+     *
+     * @return The snapshot, or null if there is none to use
+     */
+    private static StoreSnapshot loadSnapshot() {
+        String snapshotFile = ServerConfig.getSnapshotFile();
+        if (snapshotFile == null || !Files.exists(Paths.get(snapshotFile))) {
+            return null;
+        }
+        Path path = Paths.get(snapshotFile);
+        try {
+            long start = System.currentTimeMillis();
+            StoreSnapshot loaded = StoreSnapshot.load(path);
+
+            // A newer item file means item changes were saved after the snapshot
+            String dataFile = ServerConfig.getItemDataFile();
+            if (loaded.getItems() != null && dataFile != null && Files.exists(Paths.get(dataFile))
+                    && Files.getLastModifiedTime(Paths.get(dataFile)).compareTo(Files.getLastModifiedTime(path)) > 0) {
+                System.out.println("Snapshot " + snapshotFile + " is older than " + dataFile
+                        + ", using its users only");
+                loaded = loaded.withoutItems();
+            }
+            System.out.println("Loaded snapshot " + snapshotFile + ": "
+                    + (loaded.getItems() != null ? loaded.getItems().size() + " items, " : "")
+                    + (loaded.getUsers() != null ? loaded.getUsers().size() + " users, " : "")
+                    + "read in " + (System.currentTimeMillis() - start) + " ms");
+            return loaded;
+        } catch (IOException e) {
+            System.out.println("Cannot load snapshot " + snapshotFile + ", starting from JSON: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates the item service with the backend chosen by ITEM_STORE.
+     * For the memory-mapped catalog, the catalog files are built from JSON
+     * first if they do not exist yet (or a rebuild was requested).
+     *
+     * @return The item service
+     */
+    private static ItemService createItemService() {
+        if (ServerConfig.ITEM_STORE_LSM.equals(ServerConfig.getItemStore())) {
+            KeyValueRepository<Item> repository = openRepository("items", ModelCodecs.ITEMS);
+            repositories.add(repository);
+            return new ItemService(repository);
+        }
+        if (!ServerConfig.ITEM_STORE_MAPPED.equals(ServerConfig.getItemStore())) {
+            return createInMemoryItemService();
+        }
+
+        Path catalog = Paths.get(ServerConfig.getItemCatalogPath());
+        try {
+            if (ServerConfig.isItemCatalogRebuild() || !Files.exists(MappedCatalogBuilder.indexPath(catalog))) {
+                String source = ServerConfig.getItemCatalogSource();
+                long start = System.currentTimeMillis();
+                long count;
+                if (source != null) {
+                    count = MappedCatalogBuilder.build(Paths.get(source), catalog);
+                } else {
+                    try (InputStream in = Main.class.getClassLoader().getResourceAsStream("data/items.json")) {
+                        if (in == null) {
+                            throw new IOException("Resource not found: data/items.json");
+                        }
+                        count = MappedCatalogBuilder.build(in, catalog);
+                    }
+                }
+                System.out.println("Built item catalog " + catalog + " with " + count + " items in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+            return new ItemService(catalog);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open item catalog " + catalog, e);
+        }
+    }
+
+    /**
+     * Creates the on-heap item service from the shutdown snapshot or the saved
+     * catalog file, or from the bundled items when nothing has been saved yet.
+     *
+     * @return The item service
+     */
+    private static ItemService createInMemoryItemService() {
+        if (snapshot != null && snapshot.getItems() != null) {
+            return new ItemService(snapshot.getItems());
+        }
+        String dataFile = ServerConfig.getItemDataFile();
+        if (dataFile == null || !Files.exists(Paths.get(dataFile))) {
+            return new ItemService();
+        }
+        try {
+            List<Item> items = ItemCatalogPersister.load(Paths.get(dataFile));
+            System.out.println("Loaded " + items.size() + " items from " + dataFile);
+            return new ItemService(items);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load item catalog " + dataFile, e);
+        }
+    }
+
+    /**
+     * Creates the user service with the backend chosen by USER_STORE, starting
+     * from the shutdown snapshot's users when the store is in memory. Writes to
+     * the LSM store go through the write-behind layer unless USER_WRITE_BEHIND=false.
+     *
+     * @return The user service
+     */
+    private static UserService createUserService() {
+        if (ServerConfig.USER_STORE_LSM.equals(ServerConfig.getUserStore())) {
+            KeyValueRepository<User> repository = openRepository("users", ModelCodecs.USERS);
+            if (ServerConfig.isUserWriteBehind()) {
+                repository = new WriteBehindRepository<>(repository, ModelCodecs.USERS,
+                        ServerConfig.getUserFlushIntervalMs(), ServerConfig.getUserFlushBatchSize(),
+                        ServerConfig.getUserMaxDirty());
+                System.out.println("User writes are written behind every "
+                        + ServerConfig.getUserFlushIntervalMs() + " ms");
+            }
+            // Closing the write-behind layer flushes it and then closes the store
+            repositories.add(repository);
+            return new UserService(repository);
+        }
+        return new UserService(ServerConfig.getUserShards(), snapshot != null ? snapshot.getUsers() : null);
+    }
+
+    /**
+     * Opens an embedded on-disk store in a subdirectory of STORAGE_DIR.
+     *
+     * @param <V> Value type
+     * @param name Subdirectory name
+     * @param codec Value codec
+     * @return The opened repository; the caller registers it to be closed on shutdown
+     */
+    private static <V> KeyValueRepository<V> openRepository(String name, ValueCodec<V> codec) {
+        Path directory = Paths.get(ServerConfig.getStorageDir(), name);
+        try {
+            LsmRepository<V> repository = new LsmRepository<>(directory, codec,
+                    ServerConfig.getLsmMemtableBytes(), ServerConfig.getLsmCompactionSegments(),
+                    ServerConfig.isLsmSyncWrites());
+            return repository;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open storage directory " + directory, e);
+        }
+    }
+
+    /**
+     * Saves item changes to ITEM_DATA_FILE in the background.
+     * Not used when the item store keeps its own files.
+     */
+    private static void initializePersistence() {
+        String dataFile = ServerConfig.getItemDataFile();
+        if (itemService.isReadOnly() || itemService.isPersistent() || dataFile == null) {
+            return;
+        }
+        catalogPersister = new ItemCatalogPersister(
+                itemService, Paths.get(dataFile), ServerConfig.getItemFlushDelayMs());
+        itemService.addChangeListener(catalogPersister);
+        System.out.println("Item changes are saved to " + dataFile);
+    }
+
+    /**
+     * Starts user-store replication according to REPLICATION_ROLE.
+     * A leader streams user changes to followers; a follower applies them
+     * and serves user reads.
+     */
+    private static void initializeReplication() {
+        String role = ServerConfig.getReplicationRole();
+        if (ServerConfig.ROLE_STANDALONE.equals(role)) {
+            return;
+        }
+
+        System.out.println("--- Initializing Replication (" + role + ") ---");
+        if (ServerConfig.ROLE_LEADER.equals(role)) {
+            ReplicationLeader leader = new ReplicationLeader(
+                    userService, ServerConfig.getReplicationPort(), ServerConfig.getReplicationLogCapacity());
+            try {
+                leader.start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open replication port " + ServerConfig.getReplicationPort(), e);
+            }
+            replicationNode = leader;
+        } else if (ServerConfig.ROLE_FOLLOWER.equals(role)) {
+            ReplicationFollower follower = new ReplicationFollower(userService, ServerConfig.getReplicationLeader());
+            follower.start();
+            replicationNode = follower;
+        } else {
+            throw new IllegalArgumentException("Unknown REPLICATION_ROLE: " + role);
+        }
+        System.out.println("--- Replication Initialized ---\n");
+    }
+
     /**
      * Configures all API routes using RouteConfig.
      */
     private static void configureRoutes() {
         System.out.println("--- Configuring Routes ---");
-        RouteConfig routeConfig = new RouteConfig(itemService, userService);
+        routeConfig = new RouteConfig(itemService, userService, replicationNode);
         routeConfig.configureRoutes();
         System.out.println("--- Routes Configured ---\n");
     }
 
+    /**
+     * Stops the server gracefully and saves the stores.
+     * Runs on JVM shutdown (SIGTERM, Ctrl+C): the server stops accepting and
+     * lets running requests finish (up to SHUTDOWN_DRAIN_MS), replication
+     * stops, pending item changes are saved, a snapshot of the in-memory stores
+     * is written for the next start, and the on-disk stores are closed.
+     */
+    private static void shutdown() {
+        System.out.println("\n=== Shutting Down ===");
+        long start = System.currentTimeMillis();
+
+        // Parked long polls are idle, not running: answer them so the drain only waits for real work
+        if (routeConfig != null) {
+            System.out.println("Released " + routeConfig.releaseLongPolls() + " parked long polls");
+        }
+
+        // Stop accepting requests and drain the running ones
+        Spark.stop();
+        Spark.awaitStop();
+        System.out.println("HTTP server stopped after " + (System.currentTimeMillis() - start) + " ms");
+
+        // No more changes from followers or the leader
+        if (replicationNode != null) {
+            replicationNode.stop();
+        }
+
+        // Save pending item changes
+        if (catalogPersister != null) {
+            try {
+                catalogPersister.close();
+            } catch (IOException e) {
+                System.out.println("Cannot save item catalog: " + e.getMessage());
+            }
+        }
+
+        // Write the snapshot for a fast restart
+        String snapshotFile = ServerConfig.getSnapshotFile();
+        if (snapshotFile != null && itemService != null && userService != null
+                && !(itemService.isPersistent() && userService.isPersistent())) {
+            try {
+                long snapshotStart = System.currentTimeMillis();
+                long bytes = StoreSnapshot.write(Paths.get(snapshotFile), itemService, userService);
+                System.out.println("Snapshot saved to " + snapshotFile + ": " + bytes + " bytes in "
+                        + (System.currentTimeMillis() - snapshotStart) + " ms");
+            } catch (IOException e) {
+                System.out.println("Cannot write snapshot " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+
+        // Flush the on-disk stores' memtables so the next start replays no log
+        for (Closeable repository : repositories) {
+            try {
+                repository.close();
+            } catch (IOException e) {
+                System.out.println("Cannot close storage: " + e.getMessage());
+            }
+        }
+        System.out.println("=== Shutdown Complete in " + (System.currentTimeMillis() - start) + " ms ===");
+    }
+
     /**
      * Logs startup information to console.
      */
@@ -68,12 +367,27 @@ public class Main {
         System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/health");
         System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items");
         System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items/:id");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items?ids=a,b,c");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items?sort=price&order=desc&limit=20");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items/search?q=guitar");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items/suggest?prefix=gui");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/items/stats");
+        System.out.println("  POST   http://localhost:" + ServerConfig.getPort() + "/items/:id");
+        System.out.println("  PUT    http://localhost:" + ServerConfig.getPort() + "/items/:id");
+        System.out.println("  DELETE http://localhost:" + ServerConfig.getPort() + "/items/:id");
         System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/users");
         System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/users/:id");
+        System.out.println("  POST   http://localhost:" + ServerConfig.getPort() + "/users/_mget");
         System.out.println("  POST   http://localhost:" + ServerConfig.getPort() + "/users/:id");
         System.out.println("  PUT    http://localhost:" + ServerConfig.getPort() + "/users/:id");
         System.out.println("  DELETE http://localhost:" + ServerConfig.getPort() + "/users/:id");
         System.out.println("  OPTIONS http://localhost:" + ServerConfig.getPort() + "/users/:id");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/changes?since=0");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/cache/stats");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/replication/status");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/debug/runtime");
+        System.out.println("  POST   http://localhost:" + ServerConfig.getPort() + "/debug/runtime/recording?seconds=60");
+        System.out.println("  GET    http://localhost:" + ServerConfig.getPort() + "/debug/runtime/recording");
         System.out.println("\n=== Ready to Accept Requests ===\n");
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.collectibles.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent blocked Bloom filter over string keys.
+ *
+ * The bit array is split into 512-bit blocks (one cache line). A key picks
+ * one block and sets all of its bits inside it, so a lookup reads a single
+ * cache line instead of one per hash function. Bits are set with a
+ * compare-and-set loop on an AtomicLongArray and read without locking, so
+ * any number of threads can add and query at the same time.
+ *
+ * A key that was added is always reported as possibly present; a key that
+ * was not may be too (a false positive). Keys cannot be removed.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class BloomFilter {
+
+    // 64-bit words per block: 512 bits, one cache line
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * 64;
+
+    // Bit offsets within a block take 9 bits of the second hash each
+    private static final int MAX_HASHES = 7;
+
+    private final AtomicLongArray words;
+    private final int blockCount;
+    private final int hashCount;
+    private final long capacity;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param capacity Number of keys the filter is sized for
+     * @param bitsPerKey Bits per key (10 gives about 1% false positives at capacity)
+     */
+    public BloomFilter(long capacity, int bitsPerKey) {
+        if (capacity <= 0 || bitsPerKey <= 0) {
+            throw new IllegalArgumentException("Capacity and bits per key must be positive");
+        }
+        long blocks = (capacity * bitsPerKey + BLOCK_BITS - 1) / BLOCK_BITS;
+        if (blocks > Integer.MAX_VALUE / BLOCK_WORDS) {
+            throw new IllegalArgumentException("Bloom filter too large: " + capacity + " keys");
+        }
+        this.blockCount = (int) blocks;
+        this.words = new AtomicLongArray(blockCount * BLOCK_WORDS);
+        // The optimal count is bitsPerKey * ln 2
+        this.hashCount = Math.max(1, Math.min(MAX_HASHES, (int) Math.round(bitsPerKey * Math.log(2))));
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key
+     */
+    public void add(String key) {
+        long hash = hash(key);
+        int base = blockOf(hash) * BLOCK_WORDS;
+        long bits = mix(hash ^ 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < hashCount; i++, bits >>>= 9) {
+            int bit = (int) (bits & (BLOCK_BITS - 1));
+            int index = base + (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a key may have been added.
+     *
+     * @param key The key
+     * @return false if the key was definitely never added
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int base = blockOf(hash) * BLOCK_WORDS;
+        long bits = mix(hash ^ 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < hashCount; i++, bits >>>= 9) {
+            int bit = (int) (bits & (BLOCK_BITS - 1));
+            if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of keys the filter was sized for.
+     *
+     * @return Capacity
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the size of the bit array.
+     *
+     * @return Size in bytes
+     */
+    public long getSizeBytes() {
+        return (long) words.length() * 8;
+    }
+
+    /**
+     * Estimates the false-positive rate from the share of bits set. Scans
+     * the whole array, so it is meant for statistics, not for every lookup.
+     * Blocks fill unevenly, so the real rate is somewhat higher (about 20%
+     * at 10 bits per key).
+     *
+     * @return Estimated probability that an absent key is reported as present
+     */
+    public double estimateFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / ((long) words.length() * 64), hashCount);
+    }
+
+    /**
+     * Picks the block of a hash (multiply-shift instead of a modulo).
+     */
+    private int blockOf(long hash) {
+        return (int) (((hash >>> 32) * blockCount) >>> 32);
+    }
+
+    /**
+     * Hashes a key to 64 bits (FNV-1a over the characters, then mixed), so
+     * the filter does not depend on the 32-bit String.hashCode.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3's 64-bit finalizer
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,139 @@
+package com.collectibles.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Point-in-time statistics of a {@link TinyLfuCache}.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+    private final long entries;
+    private final long weightedSize;
+    private final long maximumWeight;
+
+    /**
+     * Creates a statistics snapshot.
+     *
+     * @param hits Lookups that found a value
+     * @param misses Lookups that found nothing
+     * @param evictions Entries removed to stay within the budget
+     * @param rejections New entries refused because they were less popular than the eviction victim
+     * @param entries Current number of entries
+     * @param weightedSize Current weight in bytes
+     * @param maximumWeight Budget in bytes
+     */
+    public CacheStats(long hits, long misses, long evictions, long rejections,
+                      long entries, long weightedSize, long maximumWeight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.entries = entries;
+        this.weightedSize = weightedSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     *
+     * @return Hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return Miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries removed to stay within the budget.
+     *
+     * @return Eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of new entries refused by the admission policy.
+     *
+     * @return Rejection count
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Gets the current number of entries.
+     *
+     * @return Entry count
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the current weight of all entries.
+     *
+     * @return Weight in bytes
+     */
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Gets the weight budget.
+     *
+     * @return Budget in bytes
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Gets the share of lookups that were hits.
+     *
+     * @return Hit ratio between 0 and 1 (1 when there were no lookups)
+     */
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * Converts the statistics to a map for JSON responses.
+     *
+     * @return Ordered map of statistic names to values
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("hitRatio", Math.round(getHitRatio() * 10000) / 10000.0);
+        map.put("evictions", evictions);
+        map.put("rejections", rejections);
+        map.put("entries", entries);
+        map.put("weightedSizeBytes", weightedSize);
+        map.put("maximumWeightBytes", maximumWeight);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats" + toMap();
+    }
+}
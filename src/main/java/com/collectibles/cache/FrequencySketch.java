@@ -0,0 +1,134 @@
+package com.collectibles.cache;
+
+/**
+ * Approximate access-frequency counter (a count-min sketch with 4-bit counters).
+ *
+ * Each key maps to four counters, one in each of four 16-counter groups packed
+ * into a long. The estimate is the smallest of the four, which bounds the error
+ * caused by hash collisions. Counters saturate at 15. After a sample of
+ * increments every counter is halved, so the sketch favours recent popularity
+ * over all-time popularity.
+ *
+ * Not thread-safe; the owning cache guards it with its own lock.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class FrequencySketch {
+
+    // Multipliers that give each of the four counters an independent index
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    // Clears the bit each counter receives from its neighbour when the table is shifted right
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    // Lowest bit of every counter, used to count the remainders lost when halving
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Creates a sketch sized for the expected number of distinct cached keys.
+     *
+     * @param expectedEntries Expected number of entries the cache holds
+     */
+    FrequencySketch(int expectedEntries) {
+        int length = Integer.highestOneBit(Math.max(16, expectedEntries) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * Returns the estimated number of recent accesses of a key.
+     *
+     * @param key The key
+     * @return Estimated frequency, 0 to 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int group = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((group + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one access of a key, aging the whole sketch when the sample is full.
+     *
+     * @param key The key
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int group = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), group + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Increments one 4-bit counter unless it is saturated.
+     *
+     * @param index Slot in the table
+     * @param counter Counter within the slot (0-15)
+     * @return true if the counter was incremented
+     */
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter so old popularity fades.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    /**
+     * Picks the table slot for one of a key's four counters.
+     *
+     * @param hash Spread hash of the key
+     * @param i Counter number (0-3)
+     * @return Slot index
+     */
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Mixes the bits of a hash code so nearby keys land far apart.
+     *
+     * @param h Hash code
+     * @return Spread hash
+     */
+    private static int spread(int h) {
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+}
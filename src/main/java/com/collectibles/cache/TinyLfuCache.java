@@ -0,0 +1,331 @@
+package com.collectibles.cache;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Size-bounded cache with W-TinyLFU admission and eviction, budgeted in bytes.
+ *
+ * Entries live in three LRU segments:
+ * <ul>
+ *   <li>window (1% of the budget) - every new entry starts here, so bursts of
+ *       new keys get a chance to prove themselves;</li>
+ *   <li>probation - entries that left the window, or were demoted from protected;</li>
+ *   <li>protected (80% of the main space) - entries hit again while on probation.</li>
+ * </ul>
+ * When the cache is over budget, the oldest window entries compete with the
+ * oldest probation entry: a {@link FrequencySketch} estimates how often each
+ * was requested recently and the less popular one is evicted. One-hit wonders
+ * therefore cannot flush out the small set of hot entries.
+ *
+ * All operations take the cache's lock and are short. The window and
+ * protected segments are access-ordered, so a hit there moves its entry to
+ * the back without allocating; only a promotion from probation allocates.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class TinyLfuCache<K, V> {
+
+    // Rough per-entry bookkeeping cost (node, map slots, key) added to each weight
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Map<K, Node<V>> data = new HashMap<>();
+    // Access-ordered: get() moves an entry to the back
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch sketch;
+    private final ToIntFunction<V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maximumWeight Budget in bytes
+     * @param expectedEntrySize Typical entry size in bytes, used to size the frequency sketch
+     * @param weigher Returns the size of a value in bytes
+     */
+    public TinyLfuCache(long maximumWeight, int expectedEntrySize, ToIntFunction<V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 80 / 100;
+        this.weigher = weigher;
+
+        long expectedEntries = maximumWeight / Math.max(1, expectedEntrySize + ENTRY_OVERHEAD_BYTES);
+        this.sketch = new FrequencySketch((int) Math.min(1 << 24, Math.max(16, expectedEntries)));
+    }
+
+    /**
+     * Looks up a value and records the access.
+     *
+     * @param key The key
+     * @return The cached value, or null on a miss
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onHit(key, node);
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces a value. New entries enter the window and may be evicted
+     * right away if they lose the admission contest.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    public synchronized void put(K key, V value) {
+        long weight = (long) weigher.applyAsInt(value) + ENTRY_OVERHEAD_BYTES;
+        if (weight > maximumWeight) {
+            // Never worth evicting the whole cache for one entry
+            invalidate(key);
+            return;
+        }
+
+        Node<V> node = data.get(key);
+        if (node != null) {
+            // Replace in place and treat it as an access
+            adjustWeight(node, weight - node.weight);
+            node.value = value;
+            node.weight = weight;
+            onHit(key, node);
+        } else {
+            node = new Node<>(value, weight, Segment.WINDOW);
+            data.put(key, node);
+            window.put(key, node);
+            windowWeight += weight;
+            totalWeight += weight;
+        }
+        evict();
+    }
+
+    /**
+     * Removes a key if present.
+     *
+     * @param key The key
+     */
+    public synchronized void invalidate(K key) {
+        Node<V> node = data.remove(key);
+        if (node != null) {
+            segmentOf(node).remove(key);
+            adjustWeight(node, -node.weight);
+        }
+    }
+
+    /**
+     * Removes every entry. Statistics and frequency history are kept.
+     */
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        protectedWeight = 0;
+        totalWeight = 0;
+    }
+
+    /**
+     * Takes a snapshot of the cache statistics.
+     *
+     * @return Current statistics
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, rejections, data.size(), totalWeight, maximumWeight);
+    }
+
+    /**
+     * Moves an entry forward after an access: to the back of the window or of
+     * protected, or from probation up to protected.
+     *
+     * @param key The key
+     * @param node The entry
+     */
+    private void onHit(K key, Node<V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.get(key);
+                break;
+            case PROBATION:
+                probation.remove(key);
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(key, node);
+                protectedWeight += node.weight;
+                demoteProtectedOverflow();
+                break;
+            default:
+                protectedSegment.get(key);
+                break;
+        }
+    }
+
+    /**
+     * Moves the oldest protected entries back to probation while protected is over its share.
+     */
+    private void demoteProtectedOverflow() {
+        Iterator<Map.Entry<K, Node<V>>> it = protectedSegment.entrySet().iterator();
+        while (protectedWeight > protectedMaximum && it.hasNext()) {
+            Map.Entry<K, Node<V>> oldest = it.next();
+            it.remove();
+            Node<V> node = oldest.getValue();
+            protectedWeight -= node.weight;
+            node.segment = Segment.PROBATION;
+            probation.put(oldest.getKey(), node);
+        }
+    }
+
+    /**
+     * Restores the budget: overflowing window entries move to probation as
+     * candidates, then candidates and the oldest probation entries compete
+     * on frequency until the total weight fits.
+     */
+    private void evict() {
+        Deque<K> candidates = new ArrayDeque<>();
+        Iterator<Map.Entry<K, Node<V>>> it = window.entrySet().iterator();
+        while (windowWeight > windowMaximum && it.hasNext()) {
+            Map.Entry<K, Node<V>> oldest = it.next();
+            it.remove();
+            Node<V> node = oldest.getValue();
+            windowWeight -= node.weight;
+            node.segment = Segment.PROBATION;
+            probation.put(oldest.getKey(), node);
+            candidates.add(oldest.getKey());
+        }
+
+        while (totalWeight > maximumWeight) {
+            K victim = firstKey(probation);
+            K candidate = candidates.peekFirst();
+
+            if (victim == null) {
+                // Probation is empty: fall back to the oldest protected, then window, entry
+                victim = firstKey(protectedSegment);
+                if (victim == null) {
+                    victim = firstKey(window);
+                }
+                remove(victim);
+                evictions++;
+            } else if (candidate == null || candidate.equals(victim)) {
+                // No contest left: the oldest probation entry goes
+                candidates.remove(victim);
+                remove(victim);
+                evictions++;
+            } else if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                // The newcomer is more popular: admit it, evict the old entry
+                remove(victim);
+                evictions++;
+            } else {
+                // The old entry is at least as popular: reject the newcomer
+                candidates.pollFirst();
+                remove(candidate);
+                rejections++;
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from the index and its segment.
+     *
+     * @param key The key
+     */
+    private void remove(K key) {
+        Node<V> node = data.remove(key);
+        segmentOf(node).remove(key);
+        adjustWeight(node, -node.weight);
+    }
+
+    /**
+     * Applies a weight change to the entry's segment and the total.
+     *
+     * @param node The entry
+     * @param delta Weight change in bytes
+     */
+    private void adjustWeight(Node<V> node, long delta) {
+        if (node.segment == Segment.WINDOW) {
+            windowWeight += delta;
+        } else if (node.segment == Segment.PROTECTED) {
+            protectedWeight += delta;
+        }
+        totalWeight += delta;
+    }
+
+    /**
+     * Returns the segment map an entry currently lives in.
+     *
+     * @param node The entry
+     * @return Its segment
+     */
+    private LinkedHashMap<K, Node<V>> segmentOf(Node<V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    /**
+     * Returns the least recently used key of a segment.
+     *
+     * @param segment The segment
+     * @return Its oldest key, or null if empty
+     */
+    private static <K, N> K firstKey(LinkedHashMap<K, N> segment) {
+        Iterator<K> it = segment.keySet().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * The LRU segment an entry is in.
+     */
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    /**
+     * A cached value with its weight and segment.
+     *
+     * @param <V> Value type
+     */
+    private static final class Node<V> {
+        V value;
+        long weight;
+        Segment segment;
+
+        Node(V value, long weight, Segment segment) {
+            this.value = value;
+            this.weight = weight;
+            this.segment = segment;
+        }
+    }
+}
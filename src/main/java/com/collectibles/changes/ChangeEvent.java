@@ -0,0 +1,98 @@
+package com.collectibles.changes;
+
+/**
+ * One entry of the change feed: a user or item mutation with its sequence number.
+ * Serialized as-is in GET /changes responses.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ChangeEvent {
+
+    public static final String ENTITY_USER = "user";
+    public static final String ENTITY_ITEM = "item";
+
+    public static final String TYPE_PUT = "put";
+    public static final String TYPE_DELETE = "delete";
+    public static final String TYPE_CLEAR = "clear";
+
+    private final long seq;
+    private final String entity;
+    private final String type;
+    private final String id;
+    private final Object data;
+    private final long timestamp;
+
+    /**
+     * Creates a change event.
+     *
+     * @param seq Sequence number in the feed
+     * @param entity "user" or "item"
+     * @param type "put", "delete" or "clear"
+     * @param id ID of the affected entity (null for clear)
+     * @param data New entity state for put (null otherwise)
+     * @param timestamp When the change was applied, in epoch milliseconds
+     */
+    public ChangeEvent(long seq, String entity, String type, String id, Object data, long timestamp) {
+        this.seq = seq;
+        this.entity = entity;
+        this.type = type;
+        this.id = id;
+        this.data = data;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Gets the sequence number.
+     *
+     * @return Sequence number
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Gets the kind of entity that changed.
+     *
+     * @return "user" or "item"
+     */
+    public String getEntity() {
+        return entity;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return "put", "delete" or "clear"
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ID of the affected entity.
+     *
+     * @return Entity ID, or null for clear
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the new state of the entity.
+     *
+     * @return The user or item for put, null otherwise
+     */
+    public Object getData() {
+        return data;
+    }
+
+    /**
+     * Gets when the change was applied.
+     *
+     * @return Epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,252 @@
+package com.collectibles.changes;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+import com.collectibles.service.ItemChangeListener;
+import com.collectibles.service.UserChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sequence-numbered log of every user and item change, behind GET /changes.
+ *
+ * Each change gets the next sequence number and goes into a fixed-size ring
+ * buffer, so memory stays bounded no matter how many changes are made.
+ * Clients read everything after the last sequence number they saw. A client
+ * that falls further behind than the buffer holds is told to reload
+ * ("reset") instead of silently missing changes.
+ *
+ * Long-polling clients register a callback instead of holding a thread;
+ * the callbacks run once, on the thread that appends the next change. On
+ * shutdown {@link #close()} fires them all, so parked polls are answered
+ * with an empty page instead of holding up the drain.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ChangeFeed implements UserChangeListener, ItemChangeListener {
+
+    private final ChangeEvent[] ring;
+    private long lastSeq;
+
+    // Callbacks of parked long-poll requests, fired (and dropped) on the next change
+    private Set<Runnable> waiters = new LinkedHashSet<>();
+
+    // Set on shutdown: nothing is parked any more
+    private boolean closed;
+
+    /**
+     * Creates a feed that retains the given number of recent changes.
+     *
+     * @param capacity Number of changes kept
+     */
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Change feed capacity must be positive");
+        }
+        this.ring = new ChangeEvent[capacity];
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        append(ChangeEvent.ENTITY_USER, ChangeEvent.TYPE_PUT, user.getId(), user);
+    }
+
+    @Override
+    public void onUserDeleted(String id) {
+        append(ChangeEvent.ENTITY_USER, ChangeEvent.TYPE_DELETE, id, null);
+    }
+
+    @Override
+    public void onUsersCleared() {
+        append(ChangeEvent.ENTITY_USER, ChangeEvent.TYPE_CLEAR, null, null);
+    }
+
+    @Override
+    public void onItemSaved(Item item, Item previous) {
+        append(ChangeEvent.ENTITY_ITEM, ChangeEvent.TYPE_PUT, item.getId(), item);
+    }
+
+    @Override
+    public void onItemDeleted(Item item) {
+        append(ChangeEvent.ENTITY_ITEM, ChangeEvent.TYPE_DELETE, item.getId(), null);
+    }
+
+    @Override
+    public void onItemsCleared() {
+        append(ChangeEvent.ENTITY_ITEM, ChangeEvent.TYPE_CLEAR, null, null);
+    }
+
+    /**
+     * Appends a change and fires the parked long-poll callbacks.
+     *
+     * @param entity "user" or "item"
+     * @param type "put", "delete" or "clear"
+     * @param id ID of the affected entity
+     * @param data New entity state for put
+     */
+    private void append(String entity, String type, String id, Object data) {
+        Collection<Runnable> toWake;
+        synchronized (this) {
+            lastSeq++;
+            ring[(int) (lastSeq % ring.length)] =
+                    new ChangeEvent(lastSeq, entity, type, id, data, System.currentTimeMillis());
+            if (waiters.isEmpty()) {
+                return;
+            }
+            toWake = waiters;
+            waiters = new LinkedHashSet<>();
+        }
+
+        // Outside the lock: callbacks hand off to other threads and must not block appends
+        for (Runnable waiter : toWake) {
+            waiter.run();
+        }
+    }
+
+    /**
+     * Gets the sequence number of the latest change.
+     *
+     * @return Latest sequence number, 0 if nothing changed yet
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Reads the changes after a sequence number.
+     *
+     * @param since Last sequence number the client has seen
+     * @param limit Maximum number of changes to return
+     * @return The changes and the position to resume from
+     */
+    public synchronized Page read(long since, int limit) {
+        long firstRetained = Math.max(1, lastSeq - ring.length + 1);
+
+        // Ahead of the feed (e.g. after a restart): start over from the current position
+        if (since > lastSeq) {
+            return new Page(Collections.<ChangeEvent>emptyList(), lastSeq, true);
+        }
+
+        // Changes the client never saw were overwritten: it has to reload
+        boolean reset = since < firstRetained - 1;
+        long from = reset ? firstRetained : since + 1;
+        long to = Math.min(lastSeq, from + limit - 1);
+
+        List<ChangeEvent> changes = new ArrayList<>((int) Math.max(0, to - from + 1));
+        for (long seq = from; seq <= to; seq++) {
+            changes.add(ring[(int) (seq % ring.length)]);
+        }
+        return new Page(changes, changes.isEmpty() ? lastSeq : to, reset);
+    }
+
+    /**
+     * Parks a callback until a change after the given sequence number exists.
+     *
+     * @param since Last sequence number the client has seen
+     * @param callback Runs once, on the appending thread, when the next change arrives
+     * @return true if parked; false if changes are already available or the feed is
+     *         closed (callback not registered)
+     */
+    public synchronized boolean awaitAfter(long since, Runnable callback) {
+        if (closed || lastSeq > since) {
+            return false;
+        }
+        waiters.add(callback);
+        return true;
+    }
+
+    /**
+     * Removes a parked callback (e.g. after the poll timed out).
+     *
+     * @param callback The callback given to {@link #awaitAfter}
+     */
+    public synchronized void cancel(Runnable callback) {
+        waiters.remove(callback);
+    }
+
+    /**
+     * Fires every parked callback and stops parking new ones, so long-poll
+     * requests complete right away. Changes are still recorded and readable.
+     *
+     * @return Number of callbacks fired
+     */
+    public int close() {
+        Collection<Runnable> toWake;
+        synchronized (this) {
+            closed = true;
+            toWake = waiters;
+            waiters = new LinkedHashSet<>();
+        }
+
+        // Outside the lock, as in append
+        for (Runnable waiter : toWake) {
+            waiter.run();
+        }
+        return toWake.size();
+    }
+
+    /**
+     * Gets the number of parked long-poll requests.
+     *
+     * @return Number of waiting callbacks
+     */
+    public synchronized int getWaiterCount() {
+        return waiters.size();
+    }
+
+    /**
+     * A batch of changes read from the feed.
+     */
+    public static final class Page {
+
+        private final List<ChangeEvent> changes;
+        private final long lastSeq;
+        private final boolean reset;
+
+        /**
+         * Creates a page.
+         *
+         * @param changes Changes in sequence order
+         * @param lastSeq Sequence number to pass as "since" on the next read
+         * @param reset true if the client missed changes and must reload its data
+         */
+        Page(List<ChangeEvent> changes, long lastSeq, boolean reset) {
+            this.changes = changes;
+            this.lastSeq = lastSeq;
+            this.reset = reset;
+        }
+
+        /**
+         * Gets the changes.
+         *
+         * @return Changes in sequence order
+         */
+        public List<ChangeEvent> getChanges() {
+            return changes;
+        }
+
+        /**
+         * Gets the position to resume from.
+         *
+         * @return Sequence number for the next "since"
+         */
+        public long getLastSeq() {
+            return lastSeq;
+        }
+
+        /**
+         * Checks whether the client missed changes.
+         *
+         * @return true if the client must reload its data before following the feed
+         */
+        public boolean isReset() {
+            return reset;
+        }
+    }
+}
@@ -19,11 +19,13 @@ public class ServerConfig {
     // CORS configuration
     public static final String ALLOWED_ORIGINS = "*";
     public static final String ALLOWED_METHODS = "GET, POST, PUT, DELETE, OPTIONS";
-    public static final String ALLOWED_HEADERS = "Content-Type, Authorization, X-Requested-With";
+    public static final String ALLOWED_HEADERS = "Content-Type, Authorization, X-Requested-With, X-Request-ID, Idempotency-Key";
+    public static final String EXPOSED_HEADERS = "X-Request-ID, Server-Timing, Idempotent-Replayed";
     public static final String MAX_AGE = "3600";
 
     // Response configuration
     public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String CBOR_CONTENT_TYPE = "application/cbor";
     public static final String CHARSET = "UTF-8";
 
     // --- FROM PHASE 9 ---
@@ -36,25 +38,640 @@ public class ServerConfig {
     // Cache control
     public static final String CACHE_CONTROL_NO_CACHE = "no-cache, no-store, must-revalidate";
     public static final String CACHE_CONTROL_PUBLIC = "public, max-age=3600";
+    // Item reads of a writable store: a write shows up in shared caches within 10 seconds
+    public static final String CACHE_CONTROL_SHORT = "public, max-age=10";
 
     // Server identification
     public static final String SERVER_NAME = "Collectibles-Store-API";
 
+    // --- REQUEST TRACING ---
+
+    // Propagated from the client when present, generated otherwise; echoed on every response
+    public static final String REQUEST_ID_HEADER = "X-Request-ID";
+
+    // --- CONNECTOR TUNING ---
+
+    // Defaults for the embedded Jetty connector (-1 lets Jetty size by CPU count)
+    public static final int DEFAULT_ACCEPTORS = -1;
+    public static final int DEFAULT_SELECTORS = -1;
+    public static final int DEFAULT_IDLE_TIMEOUT_MS = 30000;
+    public static final int DEFAULT_HTTP2_STREAM_IDLE_TIMEOUT_MS = 30000;
+    public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 32768;
+    public static final int DEFAULT_MAX_REQUEST_HEADER_SIZE = 8192;
+    public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 128;
+
+    // --- REPLICATION ---
+
+    public static final String ROLE_STANDALONE = "standalone";
+    public static final String ROLE_LEADER = "leader";
+    public static final String ROLE_FOLLOWER = "follower";
+    public static final int DEFAULT_REPLICATION_PORT = 7070;
+    public static final int DEFAULT_REPLICATION_LOG_CAPACITY = 100000;
+
+    // --- BATCH READS ---
+
+    // Upper bound on IDs resolved by one multi-get request
+    public static final int MAX_BATCH_IDS = 100;
+
+    // --- RESPONSE CACHE ---
+
+    // Byte budget for serialized GET /users/:id bodies (0 disables the cache)
+    public static final int DEFAULT_USER_CACHE_BYTES = 1024 * 1024;
+
+    // --- IDEMPOTENCY KEYS ---
+
+    // Stored responses for retried user writes: byte budget (0 disables), lifetime, and
+    // how long a retry waits for the original request (kept below the idle timeout)
+    public static final int DEFAULT_IDEMPOTENCY_CACHE_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_IDEMPOTENCY_TTL_SECONDS = 24 * 60 * 60;
+    public static final int DEFAULT_IDEMPOTENCY_WAIT_MS = 10000;
+
+    // --- ITEM STORE ---
+
+    public static final String ITEM_STORE_MEMORY = "memory";
+    public static final String ITEM_STORE_MAPPED = "mapped";
+    public static final String ITEM_STORE_LSM = "lsm";
+    public static final String DEFAULT_ITEM_CATALOG_PATH = "target/catalog/items";
+
+    // --- EMBEDDED STORAGE ---
+
+    public static final String USER_STORE_MEMORY = "memory";
+    public static final String USER_STORE_LSM = "lsm";
+    // Each LSM store keeps its files in a subdirectory ("items", "users")
+    public static final String DEFAULT_STORAGE_DIR = "target/data/lsm";
+    // Heap size of the memtable before it is flushed to a segment file
+    public static final int DEFAULT_LSM_MEMTABLE_BYTES = 4 * 1024 * 1024;
+    // Segment count that triggers a compaction into one segment
+    public static final int DEFAULT_LSM_COMPACTION_SEGMENTS = 4;
+
+    // --- USER WRITE-BEHIND ---
+
+    // Longest time an acknowledged user write waits in memory before it is written to the LSM store
+    public static final int DEFAULT_USER_FLUSH_INTERVAL_MS = 100;
+    // Dirty users that start a flush early; also the number written per batch
+    public static final int DEFAULT_USER_FLUSH_BATCH_SIZE = 512;
+    // Dirty users at which writers wait for a flush (backpressure)
+    public static final int DEFAULT_USER_MAX_DIRTY = 10000;
+
+    // --- ITEM PERSISTENCE ---
+
+    // Where item changes are saved (ITEM_DATA_FILE=none keeps them in memory only)
+    public static final String DEFAULT_ITEM_DATA_FILE = "target/data/items.json";
+    // Item changes are collected for this long before the catalog file is rewritten
+    public static final int DEFAULT_ITEM_FLUSH_DELAY_MS = 500;
+
+    // --- GRACEFUL SHUTDOWN ---
+
+    // How long running requests may finish after the server stops accepting new ones
+    public static final int DEFAULT_SHUTDOWN_DRAIN_MS = 10000;
+    // Binary snapshot of both stores written on shutdown (SNAPSHOT_FILE=none disables it)
+    public static final String DEFAULT_SNAPSHOT_FILE = "target/data/snapshot.bin";
+
+    // --- SORTED QUERIES ---
+
+    public static final int DEFAULT_SORT_LIMIT = 20;
+    public static final int MAX_SORT_LIMIT = 1000;
+    // Catalogs with at least this many items are scanned on all cores
+    public static final int DEFAULT_PARALLEL_SCAN_THRESHOLD = 50000;
+
+    // --- FULL-TEXT SEARCH ---
+
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    // Item changes within this window are folded into one index rebuild
+    public static final int DEFAULT_SEARCH_REBUILD_DELAY_MS = 1000;
+
+    // --- TYPEAHEAD ---
+
+    public static final int DEFAULT_SUGGEST_LIMIT = 10;
+    public static final int MAX_SUGGEST_LIMIT = 20;
+    public static final int MAX_SUGGEST_PREFIX_LENGTH = 100;
+    // Trie nodes one lookup may expand, which bounds its latency
+    public static final int SUGGEST_MAX_VISITS = 2000;
+
+    // --- DIAGNOSTICS ---
+
+    // On-demand flight recordings: default and longest duration, and data kept on disk
+    public static final int DEFAULT_RECORDING_SECONDS = 60;
+    public static final int MAX_RECORDING_SECONDS = 600;
+    public static final int DEFAULT_RECORDING_MAX_BYTES = 64 * 1024 * 1024;
+
+    // --- CHANGE FEED ---
+
+    public static final int DEFAULT_CHANGE_FEED_CAPACITY = 10000;
+    public static final int DEFAULT_CHANGES_LIMIT = 500;
+    public static final int MAX_CHANGES_LIMIT = 1000;
+    public static final int DEFAULT_CHANGES_MAX_WAIT_SECONDS = 25;
+
+    // --- EXISTENCE FILTERS ---
+
+    // Bloom filter bits per user or item ID (about 1% false positives at 10)
+    public static final int DEFAULT_EXISTENCE_FILTER_BITS_PER_ID = 10;
+    // Deletes or growth within this window are folded into one filter rebuild
+    public static final int DEFAULT_EXISTENCE_FILTER_REBUILD_DELAY_MS = 1000;
+
+    // --- AUTHENTICATION ---
+
+    // Signed bearer tokens are required only when AUTH_SECRET is set
+    public static final String AUTHORIZATION_HEADER = "Authorization";
+    // Lifetime of tokens issued by POST /auth/tokens/:id and the token tool
+    public static final int DEFAULT_AUTH_TOKEN_TTL_SECONDS = 3600;
+    public static final int MAX_AUTH_TOKEN_TTL_SECONDS = 30 * 24 * 3600;
+    // Recently verified tokens kept so a repeated token skips the HMAC
+    public static final int DEFAULT_AUTH_CACHE_SIZE = 4096;
+
     /**
-     * Gets the server port from environment variable or returns default.
+     * Gets the server port from the PORT setting or returns default.
      *
      * @return The port number to use
      */
     public static int getPort() {
-        String portEnv = System.getenv("PORT");
-        if (portEnv != null && !portEnv.isEmpty()) {
+        return getIntSetting("PORT", DEFAULT_PORT);
+    }
+
+    /**
+     * Gets the number of connector acceptor threads.
+     *
+     * @return Acceptor count, or -1 to let Jetty decide
+     */
+    public static int getAcceptors() {
+        return getIntSetting("CONNECTOR_ACCEPTORS", DEFAULT_ACCEPTORS);
+    }
+
+    /**
+     * Gets the number of connector selector threads.
+     *
+     * @return Selector count, or -1 to let Jetty decide
+     */
+    public static int getSelectors() {
+        return getIntSetting("CONNECTOR_SELECTORS", DEFAULT_SELECTORS);
+    }
+
+    /**
+     * Gets the idle timeout for client connections.
+     *
+     * @return Connection idle timeout in milliseconds
+     */
+    public static int getIdleTimeoutMs() {
+        return getIntSetting("CONNECTOR_IDLE_TIMEOUT_MS", DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    /**
+     * Gets the idle timeout for a single HTTP/2 stream.
+     *
+     * @return Stream idle timeout in milliseconds
+     */
+    public static int getHttp2StreamIdleTimeoutMs() {
+        return getIntSetting("HTTP2_STREAM_IDLE_TIMEOUT_MS", DEFAULT_HTTP2_STREAM_IDLE_TIMEOUT_MS);
+    }
+
+    /**
+     * Gets the response output buffer size.
+     *
+     * @return Output buffer size in bytes
+     */
+    public static int getOutputBufferSize() {
+        return getIntSetting("OUTPUT_BUFFER_SIZE", DEFAULT_OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Gets the maximum accepted size of the request headers.
+     *
+     * @return Maximum request header size in bytes
+     */
+    public static int getMaxRequestHeaderSize() {
+        return getIntSetting("MAX_REQUEST_HEADER_SIZE", DEFAULT_MAX_REQUEST_HEADER_SIZE);
+    }
+
+    /**
+     * Gets the maximum number of concurrent streams per HTTP/2 connection.
+     *
+     * @return Maximum concurrent streams
+     */
+    public static int getHttp2MaxConcurrentStreams() {
+        return getIntSetting("HTTP2_MAX_CONCURRENT_STREAMS", DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS);
+    }
+
+    /**
+     * Checks whether h2c (cleartext HTTP/2) is offered next to HTTP/1.1.
+     *
+     * @return true unless HTTP2_ENABLED is set to false
+     */
+    public static boolean isHttp2Enabled() {
+        return !"false".equalsIgnoreCase(getSetting("HTTP2_ENABLED"));
+    }
+
+    /**
+     * Gets the number of single-writer shards for the user store.
+     *
+     * @return Shard count; 0 keeps a single map
+     */
+    public static int getUserShards() {
+        return getIntSetting("USER_SHARDS", 0);
+    }
+
+    /**
+     * Gets the byte budget of the GET /users/:id response cache.
+     *
+     * @return Budget in bytes; 0 disables the cache
+     */
+    public static int getUserCacheBytes() {
+        return getIntSetting("USER_CACHE_BYTES", DEFAULT_USER_CACHE_BYTES);
+    }
+
+    /**
+     * Gets the byte budget for responses stored per Idempotency-Key.
+     *
+     * @return Budget in bytes; 0 disables Idempotency-Key support
+     */
+    public static int getIdempotencyCacheBytes() {
+        return getIntSetting("IDEMPOTENCY_CACHE_BYTES", DEFAULT_IDEMPOTENCY_CACHE_BYTES);
+    }
+
+    /**
+     * Gets how long a response is replayed for retries with the same Idempotency-Key.
+     *
+     * @return Lifetime in seconds
+     */
+    public static int getIdempotencyTtlSeconds() {
+        return getIntSetting("IDEMPOTENCY_TTL_SECONDS", DEFAULT_IDEMPOTENCY_TTL_SECONDS);
+    }
+
+    /**
+     * Gets how long a retry waits for the original request with the same Idempotency-Key.
+     *
+     * @return Wait in milliseconds
+     */
+    public static int getIdempotencyWaitMs() {
+        return getIntSetting("IDEMPOTENCY_WAIT_MS", DEFAULT_IDEMPOTENCY_WAIT_MS);
+    }
+
+    /**
+     * Gets the item storage backend.
+     *
+     * @return "memory" (default, on-heap map), "mapped" (memory-mapped catalog) or "lsm" (embedded on-disk store)
+     */
+    public static String getItemStore() {
+        String store = getSetting("ITEM_STORE");
+        return store == null || store.isEmpty() ? ITEM_STORE_MEMORY : store.trim().toLowerCase();
+    }
+
+    /**
+     * Gets the user storage backend.
+     *
+     * @return "memory" (default, on-heap map or shards) or "lsm" (embedded on-disk store)
+     */
+    public static String getUserStore() {
+        String store = getSetting("USER_STORE");
+        return store == null || store.isEmpty() ? USER_STORE_MEMORY : store.trim().toLowerCase();
+    }
+
+    /**
+     * Gets the directory of the embedded on-disk stores.
+     *
+     * @return Directory path
+     */
+    public static String getStorageDir() {
+        String dir = getSetting("STORAGE_DIR");
+        return dir == null || dir.isEmpty() ? DEFAULT_STORAGE_DIR : dir.trim();
+    }
+
+    /**
+     * Gets the memtable size at which an LSM store writes a new segment.
+     *
+     * @return Size in bytes
+     */
+    public static int getLsmMemtableBytes() {
+        return getIntSetting("LSM_MEMTABLE_BYTES", DEFAULT_LSM_MEMTABLE_BYTES);
+    }
+
+    /**
+     * Gets the segment count at which an LSM store compacts.
+     *
+     * @return Segment count (at least 2)
+     */
+    public static int getLsmCompactionSegments() {
+        return Math.max(2, getIntSetting("LSM_COMPACTION_SEGMENTS", DEFAULT_LSM_COMPACTION_SEGMENTS));
+    }
+
+    /**
+     * Checks whether user writes to the LSM store are acknowledged from memory
+     * and written behind in batches.
+     *
+     * @return true unless USER_WRITE_BEHIND is set to false (write-through)
+     */
+    public static boolean isUserWriteBehind() {
+        return !"false".equalsIgnoreCase(getSetting("USER_WRITE_BEHIND"));
+    }
+
+    /**
+     * Gets the interval of the user write-behind flusher.
+     *
+     * @return Interval in milliseconds
+     */
+    public static int getUserFlushIntervalMs() {
+        return Math.max(1, getIntSetting("USER_FLUSH_INTERVAL_MS", DEFAULT_USER_FLUSH_INTERVAL_MS));
+    }
+
+    /**
+     * Gets the user write-behind batch size.
+     *
+     * @return Dirty users per batch
+     */
+    public static int getUserFlushBatchSize() {
+        return Math.max(1, getIntSetting("USER_FLUSH_BATCH_SIZE", DEFAULT_USER_FLUSH_BATCH_SIZE));
+    }
+
+    /**
+     * Gets the number of unflushed user writes at which writers wait for a flush.
+     *
+     * @return Dirty user limit (at least the batch size)
+     */
+    public static int getUserMaxDirty() {
+        return Math.max(getUserFlushBatchSize(), getIntSetting("USER_MAX_DIRTY", DEFAULT_USER_MAX_DIRTY));
+    }
+
+    /**
+     * Checks whether LSM stores force every write to disk before acknowledging it.
+     *
+     * @return true if LSM_SYNC_WRITES is set to true
+     */
+    public static boolean isLsmSyncWrites() {
+        return "true".equalsIgnoreCase(getSetting("LSM_SYNC_WRITES"));
+    }
+
+    /**
+     * Gets the path prefix of the memory-mapped item catalog files.
+     *
+     * @return Catalog path prefix (".data" and ".index" are appended)
+     */
+    public static String getItemCatalogPath() {
+        String path = getSetting("ITEM_CATALOG_PATH");
+        return path == null || path.isEmpty() ? DEFAULT_ITEM_CATALOG_PATH : path.trim();
+    }
+
+    /**
+     * Gets the JSON file the memory-mapped catalog is built from.
+     *
+     * @return Path of a JSON array of items, or null to use the bundled data/items.json
+     */
+    public static String getItemCatalogSource() {
+        String source = getSetting("ITEM_CATALOG_SOURCE");
+        return source == null || source.isEmpty() ? null : source.trim();
+    }
+
+    /**
+     * Checks whether the memory-mapped catalog is rebuilt on startup even if it exists.
+     *
+     * @return true if ITEM_CATALOG_REBUILD is set to true
+     */
+    public static boolean isItemCatalogRebuild() {
+        return "true".equalsIgnoreCase(getSetting("ITEM_CATALOG_REBUILD"));
+    }
+
+    /**
+     * Gets the JSON file item changes are saved to and loaded from on startup.
+     *
+     * @return Path of the file, or null if ITEM_DATA_FILE is "none"
+     */
+    public static String getItemDataFile() {
+        String file = getSetting("ITEM_DATA_FILE");
+        if (file == null || file.isEmpty()) {
+            return DEFAULT_ITEM_DATA_FILE;
+        }
+        return "none".equalsIgnoreCase(file.trim()) ? null : file.trim();
+    }
+
+    /**
+     * Gets the delay between an item change and the catalog save it triggers.
+     *
+     * @return Delay in milliseconds
+     */
+    public static int getItemFlushDelayMs() {
+        return getIntSetting("ITEM_FLUSH_DELAY_MS", DEFAULT_ITEM_FLUSH_DELAY_MS);
+    }
+
+    /**
+     * Gets how long shutdown waits for running requests to finish.
+     *
+     * @return Drain timeout in milliseconds
+     */
+    public static int getShutdownDrainMs() {
+        return getIntSetting("SHUTDOWN_DRAIN_MS", DEFAULT_SHUTDOWN_DRAIN_MS);
+    }
+
+    /**
+     * Gets the snapshot file written on shutdown and loaded on startup.
+     *
+     * @return Path of the file, or null if SNAPSHOT_FILE is "none"
+     */
+    public static String getSnapshotFile() {
+        String file = getSetting("SNAPSHOT_FILE");
+        if (file == null || file.isEmpty()) {
+            return DEFAULT_SNAPSHOT_FILE;
+        }
+        return "none".equalsIgnoreCase(file.trim()) ? null : file.trim();
+    }
+
+    /**
+     * Gets the catalog size from which sorted item queries run in parallel.
+     *
+     * @return Minimum item count for a parallel scan
+     */
+    public static int getParallelScanThreshold() {
+        return getIntSetting("PARALLEL_SCAN_THRESHOLD", DEFAULT_PARALLEL_SCAN_THRESHOLD);
+    }
+
+    /**
+     * Gets the delay between an item change and the search index rebuild it triggers.
+     *
+     * @return Delay in milliseconds
+     */
+    public static int getSearchRebuildDelayMs() {
+        return getIntSetting("SEARCH_REBUILD_DELAY_MS", DEFAULT_SEARCH_REBUILD_DELAY_MS);
+    }
+
+    /**
+     * Gets the number of recent changes kept by the change feed.
+     *
+     * @return Change feed capacity
+     */
+    public static int getChangeFeedCapacity() {
+        return getIntSetting("CHANGE_FEED_CAPACITY", DEFAULT_CHANGE_FEED_CAPACITY);
+    }
+
+    /**
+     * Gets the longest time a GET /changes long-poll is parked.
+     * Kept below the connector idle timeout so the connection is not closed mid-wait.
+     *
+     * @return Maximum wait in seconds
+     */
+    public static int getChangesMaxWaitSeconds() {
+        int configured = getIntSetting("CHANGES_MAX_WAIT_SECONDS", DEFAULT_CHANGES_MAX_WAIT_SECONDS);
+        int idleLimit = Math.max(1, getIdleTimeoutMs() / 1000 - 1);
+        return Math.max(0, Math.min(configured, idleLimit));
+    }
+
+    /**
+     * Gets the replication role of this node.
+     *
+     * @return "standalone" (default), "leader" or "follower"
+     */
+    public static String getReplicationRole() {
+        String role = getSetting("REPLICATION_ROLE");
+        return role == null || role.isEmpty() ? ROLE_STANDALONE : role.trim().toLowerCase();
+    }
+
+    /**
+     * Gets the TCP port a leader accepts followers on.
+     *
+     * @return The replication port
+     */
+    public static int getReplicationPort() {
+        return getIntSetting("REPLICATION_PORT", DEFAULT_REPLICATION_PORT);
+    }
+
+    /**
+     * Gets the leader address a follower connects to.
+     *
+     * @return Address as "host:port"
+     */
+    public static String getReplicationLeader() {
+        String leader = getSetting("REPLICATION_LEADER");
+        return leader == null || leader.isEmpty() ? "localhost:" + DEFAULT_REPLICATION_PORT : leader.trim();
+    }
+
+    /**
+     * Gets the number of recent changes a leader keeps for follower catch-up.
+     *
+     * @return Replication log capacity
+     */
+    public static int getReplicationLogCapacity() {
+        return getIntSetting("REPLICATION_LOG_CAPACITY", DEFAULT_REPLICATION_LOG_CAPACITY);
+    }
+
+    /**
+     * Checks whether the /debug routes (runtime snapshot and flight recordings) are enabled.
+     * They are admin-only, so by default they exist only when authentication is configured.
+     *
+     * @return DEBUG_ENDPOINTS if set, otherwise true only when AUTH_SECRET is set
+     */
+    public static boolean isDebugEndpointsEnabled() {
+        String setting = getSetting("DEBUG_ENDPOINTS");
+        if (setting == null || setting.trim().isEmpty()) {
+            return getAuthSecret() != null;
+        }
+        return !"false".equalsIgnoreCase(setting.trim());
+    }
+
+    /**
+     * Gets the most data an on-demand flight recording keeps on disk.
+     *
+     * @return Size limit in bytes
+     */
+    public static int getRecordingMaxBytes() {
+        return getIntSetting("RECORDING_MAX_BYTES", DEFAULT_RECORDING_MAX_BYTES);
+    }
+
+    /**
+     * Checks whether every request is logged to the console.
+     *
+     * @return true unless REQUEST_LOGGING is set to false
+     */
+    public static boolean isRequestLoggingEnabled() {
+        return !"false".equalsIgnoreCase(getSetting("REQUEST_LOGGING"));
+    }
+
+    /**
+     * Checks whether lookups of user and item IDs go through a Bloom filter first.
+     *
+     * @return true unless EXISTENCE_FILTER is set to false
+     */
+    public static boolean isExistenceFilterEnabled() {
+        return !"false".equalsIgnoreCase(getSetting("EXISTENCE_FILTER"));
+    }
+
+    /**
+     * Gets the Bloom filter size per ID.
+     *
+     * @return Bits per ID (1 to 32)
+     */
+    public static int getExistenceFilterBitsPerId() {
+        int bits = getIntSetting("EXISTENCE_FILTER_BITS_PER_ID", DEFAULT_EXISTENCE_FILTER_BITS_PER_ID);
+        return Math.max(1, Math.min(bits, 32));
+    }
+
+    /**
+     * Gets the delay before a due existence filter rebuild.
+     *
+     * @return Delay in milliseconds
+     */
+    public static int getExistenceFilterRebuildDelayMs() {
+        return Math.max(0, getIntSetting("EXISTENCE_FILTER_REBUILD_DELAY_MS", DEFAULT_EXISTENCE_FILTER_REBUILD_DELAY_MS));
+    }
+
+    /**
+     * Gets the secret that signs and verifies bearer tokens.
+     *
+     * @return The AUTH_SECRET setting, or null when authentication is disabled
+     */
+    public static String getAuthSecret() {
+        String secret = getSetting("AUTH_SECRET");
+        return secret == null || secret.isEmpty() ? null : secret;
+    }
+
+    /**
+     * Gets the lifetime of issued tokens.
+     *
+     * @return Lifetime in seconds
+     */
+    public static int getAuthTokenTtlSeconds() {
+        int ttl = getIntSetting("AUTH_TOKEN_TTL_SECONDS", DEFAULT_AUTH_TOKEN_TTL_SECONDS);
+        return Math.max(1, Math.min(ttl, MAX_AUTH_TOKEN_TTL_SECONDS));
+    }
+
+    /**
+     * Gets the number of verified tokens kept in the verification cache.
+     *
+     * @return Cache size (0 disables the cache)
+     */
+    public static int getAuthCacheSize() {
+        return Math.max(0, getIntSetting("AUTH_CACHE_SIZE", DEFAULT_AUTH_CACHE_SIZE));
+    }
+
+    /**
+     * Reads a setting from a system property, falling back to the environment.
+     * System properties make it possible to tune an in-process server (e.g. from
+     * the benchmark tools) without touching the environment.
+     *
+     * @param name Name of the setting
+     * @return The configured value, or null if not set
+     */
+    public static String getSetting(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(name);
+        }
+        return value;
+    }
+
+    /**
+     * Reads an integer setting, falling back to a default when missing or invalid.
+     *
+     * @param name Name of the setting
+     * @param defaultValue Value to use when the setting is missing or invalid
+     * @return The configured integer value
+     */
+    public static int getIntSetting(String name, int defaultValue) {
+        String value = getSetting(name);
+        if (value != null && !value.isEmpty()) {
             try {
-                return Integer.parseInt(portEnv);
+                return Integer.parseInt(value.trim());
             } catch (NumberFormatException e) {
-                System.err.println("Invalid PORT environment variable, using default: " + DEFAULT_PORT);
+                System.err.println("Invalid " + name + " setting, using default: " + defaultValue);
             }
         }
-        return DEFAULT_PORT;
+        return defaultValue;
     }
 
     /**
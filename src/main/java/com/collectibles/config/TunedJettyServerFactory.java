@@ -0,0 +1,171 @@
+package com.collectibles.config;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.ForwardedRequestCustomizer;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Jetty server factory that replaces Spark's default embedded server.
+ * It builds a single connector that speaks HTTP/1.1 and h2c (cleartext HTTP/2)
+ * on the same port, with the connector settings taken from ServerConfig.
+ *
+ * Spark keeps any connectors already present on the server it receives from
+ * the factory, so the connector created here is the one that gets started.
+ *
+ * Stopping the server is graceful: the connector stops accepting, and the
+ * server waits up to SHUTDOWN_DRAIN_MS for running requests to finish before
+ * closing connections.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class TunedJettyServerFactory implements JettyServerFactory {
+
+    // Same defaults Spark uses for its own thread pool
+    private static final int DEFAULT_MIN_THREADS = 8;
+    private static final int DEFAULT_THREAD_IDLE_TIMEOUT_MS = 60000;
+
+    // Last server created, for runtime diagnostics
+    private static volatile Server createdServer;
+
+    /**
+     * Registers this factory as Spark's embedded Jetty server.
+     * Must be called before the first route or port() is declared.
+     */
+    public static void register() {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory(new TunedJettyServerFactory()));
+    }
+
+    /**
+     * Gets the request thread pool of the server created by this factory.
+     *
+     * @return The thread pool, or null if no server was created yet
+     */
+    public static ThreadPool getThreadPool() {
+        Server server = createdServer;
+        return server != null ? server.getThreadPool() : null;
+    }
+
+    /**
+     * Creates a server with a thread pool built from Spark's threadPool() settings.
+     *
+     * @param maxThreads Maximum number of threads (-1 for Jetty's default)
+     * @param minThreads Minimum number of threads (-1 for the default)
+     * @param threadTimeoutMillis Thread idle timeout (-1 for the default)
+     * @return The configured Jetty server
+     */
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        Server server;
+        if (maxThreads > 0) {
+            int min = minThreads > 0 ? minThreads : DEFAULT_MIN_THREADS;
+            int idleTimeout = threadTimeoutMillis > 0 ? threadTimeoutMillis : DEFAULT_THREAD_IDLE_TIMEOUT_MS;
+            server = new DrainingServer(new QueuedThreadPool(maxThreads, min, idleTimeout));
+        } else {
+            server = new DrainingServer(null);
+        }
+        return configure(server);
+    }
+
+    /**
+     * Creates a server that uses the given thread pool.
+     *
+     * @param threadPool Thread pool to run requests on
+     * @return The configured Jetty server
+     */
+    @Override
+    public Server create(ThreadPool threadPool) {
+        return configure(new DrainingServer(threadPool));
+    }
+
+    /**
+     * Attaches the tuned HTTP/1.1 + h2c connector to the server.
+     *
+     * @param server The server to configure
+     * @return The same server, for chaining
+     */
+    private Server configure(Server server) {
+        ServerConnector connector = new ServerConnector(
+                server,
+                ServerConfig.getAcceptors(),
+                ServerConfig.getSelectors(),
+                createConnectionFactories());
+
+        connector.setPort(ServerConfig.getPort());
+        connector.setIdleTimeout(ServerConfig.getIdleTimeoutMs());
+        connector.setReuseAddress(true);
+
+        server.setConnectors(new Connector[] {connector});
+        server.setStopTimeout(ServerConfig.getShutdownDrainMs());
+        createdServer = server;
+
+        System.out.println("Jetty connector: acceptors=" + connector.getAcceptors()
+                + ", selectors=" + connector.getSelectorManager().getSelectorCount()
+                + ", protocols=" + connector.getProtocols());
+        return server;
+    }
+
+    /**
+     * Builds the connection factories for the connector.
+     * HTTP/1.1 comes first so plain clients keep working; h2c is used when a
+     * client sends the HTTP/2 preface or asks to upgrade.
+     *
+     * @return Connection factories in negotiation order
+     */
+    private ConnectionFactory[] createConnectionFactories() {
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        httpConfig.setOutputBufferSize(ServerConfig.getOutputBufferSize());
+        httpConfig.setRequestHeaderSize(ServerConfig.getMaxRequestHeaderSize());
+        httpConfig.setSendServerVersion(false);
+        httpConfig.setSendXPoweredBy(false);
+        httpConfig.addCustomizer(new ForwardedRequestCustomizer());
+
+        HttpConnectionFactory http11 = new HttpConnectionFactory(httpConfig);
+
+        if (!ServerConfig.isHttp2Enabled()) {
+            return new ConnectionFactory[] {http11};
+        }
+
+        HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfig);
+        h2c.setMaxConcurrentStreams(ServerConfig.getHttp2MaxConcurrentStreams());
+        h2c.setStreamIdleTimeout(ServerConfig.getHttp2StreamIdleTimeoutMs());
+
+        return new ConnectionFactory[] {http11, h2c};
+    }
+
+    /**
+     * Server that wraps the handler Spark installs in a StatisticsHandler.
+     * Jetty only waits for running requests on stop if a handler tracks them.
+     */
+    private static final class DrainingServer extends Server {
+
+        /**
+         * Creates the server.
+         *
+         * @param threadPool Thread pool to run requests on, or null for Jetty's default
+         */
+        DrainingServer(ThreadPool threadPool) {
+            super(threadPool);
+        }
+
+        @Override
+        public void setHandler(Handler handler) {
+            StatisticsHandler statistics = new StatisticsHandler();
+            statistics.setHandler(handler);
+            super.setHandler(statistics);
+        }
+    }
+}
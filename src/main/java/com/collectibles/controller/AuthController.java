@@ -0,0 +1,126 @@
+package com.collectibles.controller;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.model.User;
+import com.collectibles.security.TokenAuthenticator;
+import com.collectibles.service.UserService;
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controller class for bearer tokens.
+ *
+ * Tokens are issued here for stored users, carrying the role the user has
+ * at that moment, and are verified by the {@link RouteDispatcher} on every
+ * request without looking the user up again. The first admin token comes
+ * from {@link com.collectibles.security.TokenTool}.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class AuthController {
+
+    private final UserService userService;
+    private final TokenAuthenticator authenticator;
+
+    /**
+     * Constructor that receives the user service and the authenticator.
+     *
+     * @param userService Service for user operations (roles are read from it)
+     * @param authenticator Signs and verifies the tokens
+     */
+    public AuthController(UserService userService, TokenAuthenticator authenticator) {
+        this.userService = userService;
+        this.authenticator = authenticator;
+    }
+
+    /**
+     * Handles POST /auth/tokens/:id request to issue a token for a user.
+     * Admin only (declared in RouteConfig).
+     *
+     * @param request Spark request object containing the user ID and an optional ttl query parameter
+     * @param response Spark response object
+     * @return JSON string with the token or error message
+     */
+    public String issueToken(Request request, Response response) {
+        try {
+            // Extract user ID from URL parameter
+            String userId = RouteDispatcher.param(request, ":id");
+
+            // Validate that ID was provided
+            if (userId == null || userId.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("User ID is required");
+            }
+
+            // Validate the optional lifetime
+            int ttlSeconds = ServerConfig.getAuthTokenTtlSeconds();
+            String ttl = request.queryParams("ttl");
+            if (ttl != null) {
+                try {
+                    ttlSeconds = Integer.parseInt(ttl.trim());
+                } catch (NumberFormatException e) {
+                    ttlSeconds = -1;
+                }
+                if (ttlSeconds <= 0 || ttlSeconds > ServerConfig.MAX_AUTH_TOKEN_TTL_SECONDS) {
+                    response.status(400);
+                    return createErrorResponse("ttl must be between 1 and "
+                            + ServerConfig.MAX_AUTH_TOKEN_TTL_SECONDS + " seconds");
+                }
+            }
+
+            // The token carries the role the user has now
+            User user = userService.getUserById(userId);
+            if (user == null) {
+                response.status(404);
+                return createErrorResponse("User not found with ID: " + userId);
+            }
+            String token = authenticator.issue(user.getId(), user.getRoleEnum(), ttlSeconds);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("token", token);
+            result.put("tokenType", "Bearer");
+            result.put("userId", user.getId());
+            result.put("role", user.getRole());
+            result.put("expiresIn", ttlSeconds);
+            response.status(201);
+            return JsonUtil.toJson(result);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error issuing token: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /auth/stats request to report the token verification statistics.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the statistics
+     */
+    public String getStats(Request request, Response response) {
+        response.status(200);
+        return JsonUtil.toJson(authenticator.getStats());
+    }
+
+    /**
+     * Creates a standardized error response in JSON format.
+     *
+     * @param message The error message
+     * @return JSON string with error details
+     */
+    private String createErrorResponse(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return JsonUtil.toJson(errorResponse);
+    }
+}
@@ -0,0 +1,216 @@
+package com.collectibles.controller;
+
+import com.collectibles.changes.ChangeFeed;
+import com.collectibles.config.ServerConfig;
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Controller class for the change feed (GET /changes).
+ *
+ * GET /changes?since=N returns the user and item changes after sequence
+ * number N. When there are none yet, the request is long-polled: it is put
+ * into async mode and parked on the feed, so no Jetty thread is held while
+ * it waits. The response is written when the next change arrives or when
+ * the wait time runs out (with an empty list).
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ChangeController {
+
+    private final ChangeFeed changeFeed;
+
+    /**
+     * Constructor that receives the change feed.
+     *
+     * @param changeFeed Feed of user and item changes
+     */
+    public ChangeController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Handles GET /changes?since=N[&amp;limit=L][&amp;wait=S].
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the changes, or null when the request was parked
+     */
+    public String getChanges(Request request, Response response) {
+        long since;
+        int limit;
+        int waitSeconds;
+        try {
+            since = parseLong(request.queryParams("since"), 0);
+            limit = (int) parseLong(request.queryParams("limit"), ServerConfig.DEFAULT_CHANGES_LIMIT);
+            waitSeconds = (int) parseLong(request.queryParams("wait"), ServerConfig.getChangesMaxWaitSeconds());
+        } catch (NumberFormatException e) {
+            response.status(400);
+            return createErrorResponse("since, limit and wait must be numbers");
+        }
+        if (since < 0 || limit <= 0) {
+            response.status(400);
+            return createErrorResponse("since must be >= 0 and limit must be positive");
+        }
+        limit = Math.min(limit, ServerConfig.MAX_CHANGES_LIMIT);
+        waitSeconds = Math.max(0, Math.min(waitSeconds, ServerConfig.getChangesMaxWaitSeconds()));
+
+        response.status(200);
+        response.type("application/json");
+
+        // Answer right away when there is something to send or the client does not want to wait
+        ChangeFeed.Page page = changeFeed.read(since, limit);
+        if (!page.getChanges().isEmpty() || page.isReset() || waitSeconds == 0) {
+            return toJson(page);
+        }
+
+        return park(request, response, since, limit, waitSeconds);
+    }
+
+    /**
+     * Parks the request until the next change or the wait time runs out.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @param since Last sequence number the client has seen
+     * @param limit Maximum number of changes to return
+     * @param waitSeconds How long to wait for a change
+     * @return null (the response is written asynchronously), or the JSON if a change raced in
+     */
+    private String park(Request request, Response response, long since, int limit, int waitSeconds) {
+        AsyncContext async = request.raw().startAsync();
+        async.setTimeout(waitSeconds * 1000L);
+        AtomicBoolean done = new AtomicBoolean();
+
+        // Completes the request once, from whichever of change or timeout comes first
+        Runnable onChange = () -> async.start(() -> complete(async, done, since, limit));
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                changeFeed.cancel(onChange);
+                complete(async, done, since, limit);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                changeFeed.cancel(onChange);
+                done.set(true);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                changeFeed.cancel(onChange);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                // Not used
+            }
+        });
+
+        // Commit status and headers now: Spark treats a route that returns no body as not found
+        try {
+            response.raw().flushBuffer();
+        } catch (IOException e) {
+            async.complete();
+            return null;
+        }
+
+        if (!changeFeed.awaitAfter(since, onChange)) {
+            // A change arrived between the read and parking, or the server is shutting down
+            complete(async, done, since, limit);
+        }
+        return null;
+    }
+
+    /**
+     * Writes the changes after since to a parked request and completes it.
+     *
+     * @param async The parked request
+     * @param done Set once the request has been completed
+     * @param since Last sequence number the client has seen
+     * @param limit Maximum number of changes to return
+     */
+    private void complete(AsyncContext async, AtomicBoolean done, long since, int limit) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            byte[] body = toJson(changeFeed.read(since, limit)).getBytes(StandardCharsets.UTF_8);
+            HttpServletResponse raw = (HttpServletResponse) async.getResponse();
+            raw.getOutputStream().write(body);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; nothing left to deliver
+        } finally {
+            async.complete();
+        }
+    }
+
+    /**
+     * Handles GET /changes/status request: feed position and parked pollers.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the feed status
+     */
+    public String getStatus(Request request, Response response) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("lastSeq", changeFeed.getLastSeq());
+        status.put("waitingPollers", changeFeed.getWaiterCount());
+        response.status(200);
+        response.type("application/json");
+        return JsonUtil.toJson(status);
+    }
+
+    /**
+     * Converts a page of changes to the response body.
+     *
+     * @param page Changes read from the feed
+     * @return JSON string with "changes", "lastSeq" and "reset"
+     */
+    private String toJson(ChangeFeed.Page page) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("changes", page.getChanges());
+        body.put("lastSeq", page.getLastSeq());
+        body.put("reset", page.isReset());
+        return JsonUtil.toJson(body);
+    }
+
+    /**
+     * Parses an optional numeric query parameter.
+     *
+     * @param value Raw parameter value, may be null
+     * @param defaultValue Value used when the parameter is missing
+     * @return The parsed number
+     */
+    private static long parseLong(String value, long defaultValue) {
+        return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Creates a standardized error response in JSON format.
+     *
+     * @param message The error message
+     * @return JSON string with error details
+     */
+    private String createErrorResponse(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return JsonUtil.toJson(errorResponse);
+    }
+}
@@ -0,0 +1,125 @@
+package com.collectibles.controller;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.diagnostics.RequestPhaseEvent;
+import com.collectibles.diagnostics.RequestPhases;
+import com.collectibles.util.CborUtil;
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Picks the wire format for request and response bodies.
+ * JSON is the default; clients that send "Accept: application/cbor" get CBOR
+ * responses, and bodies sent with "Content-Type: application/cbor" are decoded
+ * as CBOR. Error responses are always JSON.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class ContentNegotiator {
+
+    /**
+     * Checks whether the client asked for CBOR responses.
+     *
+     * @param request Spark request object
+     * @return true if the Accept header lists application/cbor
+     */
+    static boolean acceptsCbor(Request request) {
+        String accept = request.headers("Accept");
+        return accept != null && accept.contains(ServerConfig.CBOR_CONTENT_TYPE);
+    }
+
+    /**
+     * Checks whether the request body is CBOR.
+     *
+     * @param request Spark request object
+     * @return true if the Content-Type is application/cbor
+     */
+    static boolean isCborBody(Request request) {
+        String contentType = request.contentType();
+        return contentType != null && contentType.startsWith(ServerConfig.CBOR_CONTENT_TYPE);
+    }
+
+    /**
+     * Checks whether the request carries a non-blank body.
+     *
+     * @param request Spark request object
+     * @return true if there is a body to parse
+     */
+    static boolean hasBody(Request request) {
+        if (isCborBody(request)) {
+            byte[] body = request.bodyAsBytes();
+            return body != null && body.length > 0;
+        }
+        String body = request.body();
+        return body != null && !body.trim().isEmpty();
+    }
+
+    /**
+     * Parses the request body in the format given by its Content-Type.
+     *
+     * @param <T> The type of object to create
+     * @param request Spark request object
+     * @param classOfT The class of the object to create
+     * @return The parsed object (may be null for a JSON "null" body)
+     */
+    static <T> T parseBody(Request request, Class<T> classOfT) {
+        RequestPhaseEvent phase = RequestPhases.begin(RequestPhases.PARSE);
+        T parsed = isCborBody(request)
+                ? CborUtil.fromCbor(request.bodyAsBytes(), classOfT)
+                : JsonUtil.fromJson(request.body(), classOfT);
+        RequestPhases.end(phase, request);
+        return parsed;
+    }
+
+    /**
+     * Serializes a response body in the format the client accepts and sets the content type.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @param data The object to serialize
+     * @return A JSON string or CBOR bytes, ready to be returned from a route
+     */
+    static Object render(Request request, Response response, Object data) {
+        boolean cbor = acceptsCbor(request);
+        setResponseType(response, cbor);
+        RequestPhaseEvent phase = RequestPhases.begin(RequestPhases.SERIALIZE);
+        Object body = cbor ? CborUtil.toCbor(data) : JsonUtil.toJson(data);
+        RequestPhases.end(phase, request);
+        return body;
+    }
+
+    /**
+     * Sets the content type of a negotiated response.
+     *
+     * @param response Spark response object
+     * @param cbor true for CBOR, false for JSON
+     */
+    static void setResponseType(Response response, boolean cbor) {
+        // Responses differ by Accept header, so shared caches must key on it
+        response.header("Vary", "Accept");
+        response.type(cbor ? ServerConfig.CBOR_CONTENT_TYPE : ServerConfig.JSON_CONTENT_TYPE);
+    }
+
+    /**
+     * Serializes an object to bytes in the given format.
+     * Used where the encoded body is kept (e.g. response caches).
+     *
+     * @param data The object to serialize
+     * @param cbor true for CBOR, false for JSON
+     * @return The encoded body
+     */
+    static byte[] encode(Object data, boolean cbor) {
+        return cbor ? CborUtil.toCbor(data) : JsonUtil.toJson(data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ContentNegotiator() {
+        // Utility class, should not be instantiated
+    }
+}
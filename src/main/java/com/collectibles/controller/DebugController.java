@@ -0,0 +1,180 @@
+package com.collectibles.controller;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.diagnostics.FlightRecordings;
+import com.collectibles.diagnostics.RuntimeDiagnostics;
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller class for runtime diagnostics requests.
+ * Reports memory, GC, thread and thread pool state, and starts and
+ * downloads on-demand Flight Recorder recordings.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class DebugController {
+
+    private final RuntimeDiagnostics diagnostics;
+
+    // Null when the JVM has no Flight Recorder
+    private final FlightRecordings recordings;
+
+    /**
+     * Constructor that receives the diagnostics sources.
+     *
+     * @param diagnostics Runtime snapshot collector
+     * @param recordings Flight recording control, or null if Flight Recorder is unavailable
+     */
+    public DebugController(RuntimeDiagnostics diagnostics, FlightRecordings recordings) {
+        this.diagnostics = diagnostics;
+        this.recordings = recordings;
+    }
+
+    /**
+     * Handles GET /debug/runtime request.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with heap, GC, thread pool and recording status
+     */
+    public String getRuntime(Request request, Response response) {
+        try {
+            // Take the snapshot and add the recording status
+            Map<String, Object> runtime = diagnostics.snapshot();
+            runtime.put("recording", recordingStatus());
+
+            response.status(200);
+            response.type("application/json");
+            return JsonUtil.toJson(runtime);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error reading runtime state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles POST /debug/runtime/recording request to start a flight recording.
+     * Query parameter: seconds (default 60, at most 600).
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the recording status
+     */
+    public String startRecording(Request request, Response response) {
+        try {
+            // Check that recordings are possible on this JVM
+            if (recordings == null) {
+                response.status(503);
+                return createErrorResponse("Flight Recorder is not available in this JVM");
+            }
+
+            // Validate duration
+            int seconds = ServerConfig.DEFAULT_RECORDING_SECONDS;
+            String secondsParam = request.queryParams("seconds");
+            if (secondsParam != null) {
+                try {
+                    seconds = Integer.parseInt(secondsParam.trim());
+                } catch (NumberFormatException e) {
+                    seconds = -1;
+                }
+                if (seconds < 1 || seconds > ServerConfig.MAX_RECORDING_SECONDS) {
+                    response.status(400);
+                    return createErrorResponse("Invalid seconds. Must be between 1 and "
+                            + ServerConfig.MAX_RECORDING_SECONDS);
+                }
+            }
+
+            // Start the recording
+            Map<String, Object> status = recordings.start(Duration.ofSeconds(seconds));
+
+            response.status(201);
+            response.type("application/json");
+            return JsonUtil.toJson(status);
+
+        } catch (IllegalStateException e) {
+            // Handle a recording that is still running
+            response.status(409);
+            return createErrorResponse(e.getMessage());
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error starting recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /debug/runtime/recording request to download the recording as a .jfr file.
+     * Works while the recording runs (data so far) and after it stopped.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return Empty string (the file is streamed to the response), or JSON error
+     */
+    public String dumpRecording(Request request, Response response) {
+        try {
+            // Check that recordings are possible on this JVM
+            if (recordings == null) {
+                response.status(503);
+                return createErrorResponse("Flight Recorder is not available in this JVM");
+            }
+
+            // Headers first: the file is streamed straight to the client
+            response.status(200);
+            response.type("application/octet-stream");
+            response.header("Content-Disposition", "attachment; filename=\"collectibles.jfr\"");
+            // Replaces the fixed value instead of adding a second header
+            response.raw().setHeader("Cache-Control", ServerConfig.CACHE_CONTROL_NO_CACHE);
+
+            if (!recordings.dump(response.raw().getOutputStream())) {
+                response.status(404);
+                response.type("application/json");
+                response.raw().setHeader("Content-Disposition", null);
+                return createErrorResponse("No recording. Start one with POST /debug/runtime/recording");
+            }
+            return "";
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            response.type("application/json");
+            return createErrorResponse("Error dumping recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the recording status for the runtime snapshot.
+     *
+     * @return Status fields
+     */
+    private Map<String, Object> recordingStatus() {
+        if (recordings == null) {
+            Map<String, Object> status = new HashMap<>();
+            status.put("available", false);
+            return status;
+        }
+        return recordings.getStatus();
+    }
+
+    /**
+     * Creates a standardized error response in JSON format.
+     *
+     * @param message The error message
+     * @return JSON string with error details
+     */
+    private String createErrorResponse(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return JsonUtil.toJson(errorResponse);
+    }
+}
@@ -0,0 +1,306 @@
+package com.collectibles.controller;
+
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the first response to a request carrying an Idempotency-Key header
+ * to every retry with the same key.
+ *
+ * The first request with a new key runs normally and its response (status,
+ * content type and body) is stored. Retries get the stored response with an
+ * "Idempotent-Replayed: true" header and never reach the route. A retry
+ * that arrives while the first request is still running waits for its
+ * result instead of running again. Reusing a key for a different request
+ * (other method, path or body) is answered with 422.
+ *
+ * Responses are kept for a fixed time and within a byte budget; when the
+ * budget is full the oldest entries go first. Server errors (5xx) are not
+ * stored, so a retry after one runs again. Requests without the header are
+ * not affected.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class IdempotencyCache {
+
+    static final String KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    // Keys longer than this are rejected (and would make entries unbounded)
+    static final int MAX_KEY_LENGTH = 255;
+
+    // Approximate bytes per entry besides the key and body (objects, map node, digest)
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final long maximumBytes;
+    private final long ttlNanos;
+    private final long waitMillis;
+
+    // Insertion order = expiry order (same TTL for all entries), guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private long bytes;
+
+    private long replays;
+    private long waits;
+    private long conflicts;
+    private long evictions;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maximumBytes Budget for stored responses, in bytes
+     * @param ttlSeconds How long a response is replayed
+     * @param waitMillis How long a concurrent retry waits for the first request
+     */
+    IdempotencyCache(long maximumBytes, long ttlSeconds, long waitMillis) {
+        this.maximumBytes = maximumBytes;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Wraps a route so that requests with an Idempotency-Key are deduplicated.
+     *
+     * @param route The route handling the first request per key
+     * @return The wrapping route
+     */
+    Route wrap(Route route) {
+        return (request, response) -> {
+            String key = request.headers(KEY_HEADER);
+            if (key == null) {
+                return route.handle(request, response);
+            }
+
+            // Validate key
+            if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+                response.status(400);
+                return createErrorResponse("Invalid " + KEY_HEADER + ". Must be 1 to " + MAX_KEY_LENGTH + " characters");
+            }
+
+            byte[] fingerprint = fingerprint(request.requestMethod(), request.pathInfo(),
+                    request.contentType(), request.bodyAsBytes());
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            while (true) {
+                Entry entry;
+                boolean owner = false;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    expire(now);
+                    entry = entries.get(key);
+                    if (entry != null && entry.isDone() && entry.expiresAt - now <= 0) {
+                        // Expired, but not yet reached by expire(): treat the key as new
+                        entries.remove(key);
+                        bytes -= entry.size(key);
+                        entry = null;
+                    }
+                    if (entry == null) {
+                        entry = new Entry(fingerprint);
+                        entries.put(key, entry);
+                        bytes += entry.size(key);
+                        owner = true;
+                    } else if (!Arrays.equals(entry.fingerprint, fingerprint)) {
+                        conflicts++;
+                        response.status(422);
+                        return createErrorResponse(KEY_HEADER + " was already used for a different request");
+                    }
+                }
+
+                if (owner) {
+                    return runFirst(key, entry, route, request, response);
+                }
+
+                // Wait for the first request with this key to finish
+                if (!entry.isDone()) {
+                    synchronized (this) {
+                        waits++;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !entry.done.await(remaining, TimeUnit.NANOSECONDS)) {
+                        response.status(409);
+                        return createErrorResponse("A request with this " + KEY_HEADER + " is still in progress");
+                    }
+                }
+                if (entry.body != null) {
+                    synchronized (this) {
+                        replays++;
+                    }
+                    response.status(entry.status);
+                    if (entry.contentType != null) {
+                        response.type(entry.contentType);
+                    }
+                    response.header(REPLAYED_HEADER, "true");
+                    return entry.body;
+                }
+                // The first request failed and released the key: try to run it ourselves
+            }
+        };
+    }
+
+    /**
+     * Gets the cache statistics.
+     *
+     * @return Entries, bytes, replays, waits, key conflicts and evictions
+     */
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maximumBytes", maximumBytes);
+        stats.put("replays", replays);
+        stats.put("waits", waits);
+        stats.put("conflicts", conflicts);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    /**
+     * Runs the route for the first request with a key and stores its response.
+     */
+    private Object runFirst(String key, Entry entry, Route route, Request request,
+                            Response response) throws Exception {
+        Object result = null;
+        boolean stored = false;
+        try {
+            result = route.handle(request, response);
+            int status = response.status();
+            if (status < 500) {
+                byte[] body = result instanceof byte[] ? (byte[]) result
+                        : String.valueOf(result == null ? "" : result).getBytes(StandardCharsets.UTF_8);
+                synchronized (this) {
+                    entry.complete(status, response.type(), body, System.nanoTime() + ttlNanos);
+                    bytes += body.length;
+                    evictOverBudget();
+                }
+                stored = true;
+            }
+            return result;
+        } finally {
+            if (!stored) {
+                // Not replayable: forget the key so a retry runs again
+                synchronized (this) {
+                    if (entries.get(key) == entry) {
+                        entries.remove(key);
+                        bytes -= entry.size(key);
+                    }
+                }
+            }
+            entry.done.countDown();
+        }
+    }
+
+    /**
+     * Drops completed entries whose time is up. Entries expire in insertion
+     * order, so this stops at the first one that is still valid.
+     */
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> oldest = iterator.next();
+            Entry entry = oldest.getValue();
+            if (!entry.isDone() || entry.expiresAt - now > 0) {
+                return;
+            }
+            iterator.remove();
+            bytes -= entry.size(oldest.getKey());
+        }
+    }
+
+    /**
+     * Drops the oldest completed entries until the budget is met.
+     * Requests still running are skipped; they are bounded by the request threads.
+     */
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maximumBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> oldest = iterator.next();
+            Entry entry = oldest.getValue();
+            if (entry.isDone()) {
+                iterator.remove();
+                bytes -= entry.size(oldest.getKey());
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Creates a standardized error response in JSON format.
+     *
+     * @param message The error message
+     * @return JSON string with error details
+     */
+    private static String createErrorResponse(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return JsonUtil.toJson(errorResponse);
+    }
+
+    /**
+     * Hashes what identifies a request, so a key reused for another request is detected.
+     */
+    private static byte[] fingerprint(String method, String path, String contentType, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(method.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (contentType != null) {
+                digest.update(contentType.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            if (body != null) {
+                digest.update(body);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A key's request fingerprint and, once the first request finished, its response.
+     */
+    private static final class Entry {
+        final byte[] fingerprint;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile byte[] body;
+        int status;
+        String contentType;
+        long expiresAt;
+
+        Entry(byte[] fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void complete(int status, String contentType, byte[] body, long expiresAt) {
+            this.status = status;
+            this.contentType = contentType;
+            this.expiresAt = expiresAt;
+            this.body = body;
+        }
+
+        boolean isDone() {
+            return body != null;
+        }
+
+        long size(String key) {
+            return ENTRY_OVERHEAD_BYTES + 2L * key.length() + (body != null ? body.length : 0);
+        }
+    }
+}
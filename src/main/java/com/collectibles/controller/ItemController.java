@@ -1,12 +1,25 @@
 package com.collectibles.controller;
 
+import com.collectibles.config.ServerConfig;
+import com.collectibles.diagnostics.RequestPhaseEvent;
+import com.collectibles.diagnostics.RequestPhases;
 import com.collectibles.model.Item;
+import com.collectibles.search.ItemSearchIndex;
+import com.collectibles.search.ItemSuggester;
+import com.collectibles.search.PrefixTrie;
+import com.collectibles.search.SearchHit;
+import com.collectibles.search.SearchResult;
+import com.collectibles.service.ExistenceFilter;
 import com.collectibles.service.ItemService;
+import com.collectibles.service.ItemSort;
 import com.collectibles.util.JsonUtil;
+import com.google.gson.JsonParseException;
 import spark.Request;
 import spark.Response;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +34,11 @@ import java.util.Map;
 public class ItemController {
 
     private final ItemService itemService;
+    private final ItemSearchIndex searchIndex;
+    private final ItemSuggester suggester;
+
+    // Bloom filter over the item IDs, consulted before the store; null when disabled
+    private final ExistenceFilter itemFilter;
 
     /**
      * Constructor that receives the ItemService dependency.
@@ -28,27 +46,71 @@ public class ItemController {
      * @param itemService Service for item operations
      */
     public ItemController(ItemService itemService) {
+        this(itemService, null, null);
+    }
+
+    /**
+     * Constructor that receives the ItemService, the full-text index and the typeahead suggester.
+     *
+     * @param itemService Service for item operations
+     * @param searchIndex Full-text index over the items, or null if search is disabled
+     * @param suggester Typeahead completions, or null if suggestions are disabled
+     */
+    public ItemController(ItemService itemService, ItemSearchIndex searchIndex, ItemSuggester suggester) {
+        this(itemService, searchIndex, suggester, null);
+    }
+
+    /**
+     * Constructor that also receives the filter over the item IDs.
+     *
+     * @param itemService Service for item operations
+     * @param searchIndex Full-text index over the items, or null if search is disabled
+     * @param suggester Typeahead completions, or null if suggestions are disabled
+     * @param itemFilter Filter that answers lookups of missing item IDs without the store, or null
+     */
+    public ItemController(ItemService itemService, ItemSearchIndex searchIndex, ItemSuggester suggester,
+                          ExistenceFilter itemFilter) {
         this.itemService = itemService;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.itemFilter = itemFilter;
     }
 
     /**
      * Handles GET /items request to retrieve all items.
+     * With an "ids" query parameter (GET /items?ids=a,b,c) only those items are
+     * returned, together with the IDs that were not found.
+     * With a "sort" parameter (e.g. GET /items?sort=price with order=desc and limit=20) the
+     * first items in that order are returned.
      *
      * @param request Spark request object
      * @param response Spark response object
-     * @return JSON string containing all items
+     * @return JSON string (or CBOR bytes) containing all items
      */
-    public String getAllItems(Request request, Response response) {
+    public Object getAllItems(Request request, Response response) {
         try {
+            // Batch lookup when specific IDs were requested
+            String idsParam = request.queryParams("ids");
+            if (idsParam != null) {
+                return getItemsByIds(MultiGet.parseIds(idsParam), request, response);
+            }
+
+            // Top-k selection when a sort order was requested
+            String sortParam = request.queryParams("sort");
+            if (sortParam != null) {
+                return getSortedItems(sortParam, request, response);
+            }
+
             // Get all items from service
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             List<Item> items = itemService.getAllItems();
+            RequestPhases.end(servicePhase, request);
 
-            // Set response status and type
+            // Set response status
             response.status(200);
-            response.type("application/json");
 
-            // Convert items list to JSON and return
-            return JsonUtil.toJson(items);
+            // Convert items list to the negotiated format and return
+            return ContentNegotiator.render(request, response, items);
 
         } catch (Exception e) {
             // Handle unexpected errors
@@ -62,12 +124,12 @@ public class ItemController {
      *
      * @param request Spark request object containing the item ID parameter
      * @param response Spark response object
-     * @return JSON string containing the item or error message
+     * @return JSON string (or CBOR bytes) containing the item or error message
      */
-    public String getItemById(Request request, Response response) {
+    public Object getItemById(Request request, Response response) {
         try {
             // Extract item ID from URL parameter
-            String itemId = request.params(":id");
+            String itemId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (itemId == null || itemId.trim().isEmpty()) {
@@ -75,21 +137,45 @@ public class ItemController {
                 return createErrorResponse("Item ID is required");
             }
 
+            // Definite miss: answer without the store
+            if (itemFilter != null && !itemFilter.mightContain(itemId)) {
+                response.status(404);
+                return createErrorResponse("Item not found with ID: " + itemId);
+            }
+
+            // JSON: take the serialized item straight from the store
+            // (copied out of the mapped catalog without creating an Item)
+            if (!ContentNegotiator.acceptsCbor(request)) {
+                RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+                byte[] json = itemService.getItemJson(itemId);
+                RequestPhases.end(servicePhase, request);
+                if (json == null) {
+                    recordFalsePositive();
+                    response.status(404);
+                    return createErrorResponse("Item not found with ID: " + itemId);
+                }
+                response.status(200);
+                ContentNegotiator.setResponseType(response, false);
+                return json;
+            }
+
             // Get item from service
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             Item item = itemService.getItemById(itemId);
+            RequestPhases.end(servicePhase, request);
 
             // Check if item was found
             if (item == null) {
+                recordFalsePositive();
                 response.status(404);
                 return createErrorResponse("Item not found with ID: " + itemId);
             }
 
-            // Set response status and type
+            // Set response status
             response.status(200);
-            response.type("application/json");
 
-            // Convert item to JSON and return
-            return JsonUtil.toJson(item);
+            // Convert item to the negotiated format and return
+            return ContentNegotiator.render(request, response, item);
 
         } catch (Exception e) {
             // Handle unexpected errors
@@ -98,6 +184,507 @@ public class ItemController {
         }
     }
 
+    /**
+     * Selects the first items in the requested order.
+     * Query parameters: sort (price or name), order (asc or desc, default asc),
+     * limit (default 20, at most 1000) and an optional name filter.
+     *
+     * @param sortParam Value of the sort parameter
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with the selected items
+     */
+    private Object getSortedItems(String sortParam, Request request, Response response) {
+        // Validate sort field
+        ItemSort sort = ItemSort.fromValue(sortParam);
+        if (sort == null) {
+            response.status(400);
+            return createErrorResponse("Invalid sort field. Must be one of: price, name");
+        }
+
+        // Validate order
+        String order = request.queryParams("order");
+        if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            response.status(400);
+            return createErrorResponse("Invalid order. Must be one of: asc, desc");
+        }
+        boolean descending = "desc".equalsIgnoreCase(order);
+
+        // Validate limit
+        int limit = ServerConfig.DEFAULT_SORT_LIMIT;
+        String limitParam = request.queryParams("limit");
+        if (limitParam != null) {
+            try {
+                limit = Integer.parseInt(limitParam.trim());
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > ServerConfig.MAX_SORT_LIMIT) {
+                response.status(400);
+                return createErrorResponse("Invalid limit. Must be between 1 and " + ServerConfig.MAX_SORT_LIMIT);
+            }
+        }
+
+        // Select the first items in one scan
+        RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+        List<Item> items = itemService.findTopItems(sort, descending, limit, request.queryParams("name"));
+        RequestPhases.end(servicePhase, request);
+
+        // Set response status
+        response.status(200);
+
+        // Convert items list to the negotiated format and return
+        return ContentNegotiator.render(request, response, items);
+    }
+
+    /**
+     * Handles GET /items/search request for ranked full-text search over item
+     * names and descriptions (BM25). Query parameters: q (required),
+     * limit (default 20, at most 100) and fuzzy (true to tolerate typos).
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with the ranked items and their scores
+     */
+    public Object searchItems(Request request, Response response) {
+        try {
+            // Validate that a query was provided
+            String query = request.queryParams("q");
+            if (query == null || query.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("Query parameter q is required");
+            }
+
+            // Validate limit
+            int limit = ServerConfig.DEFAULT_SEARCH_LIMIT;
+            String limitParam = request.queryParams("limit");
+            if (limitParam != null) {
+                try {
+                    limit = Integer.parseInt(limitParam.trim());
+                } catch (NumberFormatException e) {
+                    limit = -1;
+                }
+                if (limit < 1 || limit > ServerConfig.MAX_SEARCH_LIMIT) {
+                    response.status(400);
+                    return createErrorResponse("Invalid limit. Must be between 1 and " + ServerConfig.MAX_SEARCH_LIMIT);
+                }
+            }
+
+            // Validate fuzzy flag
+            String fuzzyParam = request.queryParams("fuzzy");
+            if (fuzzyParam != null && !fuzzyParam.equalsIgnoreCase("true") && !fuzzyParam.equalsIgnoreCase("false")) {
+                response.status(400);
+                return createErrorResponse("Invalid fuzzy value. Must be true or false");
+            }
+            boolean fuzzy = "true".equalsIgnoreCase(fuzzyParam);
+
+            // The index is built in the background at startup
+            if (searchIndex == null || !searchIndex.isReady()) {
+                response.status(503);
+                return createErrorResponse("Search index is not available yet");
+            }
+
+            // Rank items, then load the current version of each hit
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+            SearchResult result = searchIndex.search(query, limit, fuzzy);
+            List<String> ids = new ArrayList<>();
+            for (SearchHit hit : result.getHits()) {
+                ids.add(hit.getKey());
+            }
+            Map<String, Item> items = itemService.getItemsByIds(ids);
+            RequestPhases.end(servicePhase, request);
+
+            // Items deleted since the last index build are left out
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (SearchHit hit : result.getHits()) {
+                Item item = items.get(hit.getKey());
+                if (item != null) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("score", Math.round(hit.getScore() * 1000) / 1000.0);
+                    entry.put("item", item);
+                    results.add(entry);
+                }
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("query", query);
+            body.put("fuzzy", fuzzy);
+            body.put("totalMatches", result.getTotalMatches());
+            body.put("results", results);
+
+            // Set response status
+            response.status(200);
+
+            // Convert results to the negotiated format and return
+            return ContentNegotiator.render(request, response, body);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error searching items: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /items/suggest request for typeahead completions of the last
+     * word typed, ranked by how many item names contain the word.
+     * Query parameters: prefix (required) and limit (default 10, at most 20).
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with the suggested terms
+     */
+    public Object suggestItems(Request request, Response response) {
+        try {
+            // Validate prefix
+            String prefix = request.queryParams("prefix");
+            if (prefix == null || prefix.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("Query parameter prefix is required");
+            }
+            if (prefix.length() > ServerConfig.MAX_SUGGEST_PREFIX_LENGTH) {
+                response.status(400);
+                return createErrorResponse("Prefix must be at most " + ServerConfig.MAX_SUGGEST_PREFIX_LENGTH + " characters");
+            }
+
+            // Validate limit
+            int limit = ServerConfig.DEFAULT_SUGGEST_LIMIT;
+            String limitParam = request.queryParams("limit");
+            if (limitParam != null) {
+                try {
+                    limit = Integer.parseInt(limitParam.trim());
+                } catch (NumberFormatException e) {
+                    limit = -1;
+                }
+                if (limit < 1 || limit > ServerConfig.MAX_SUGGEST_LIMIT) {
+                    response.status(400);
+                    return createErrorResponse("Invalid limit. Must be between 1 and " + ServerConfig.MAX_SUGGEST_LIMIT);
+                }
+            }
+
+            if (suggester == null) {
+                response.status(503);
+                return createErrorResponse("Suggestions are not available");
+            }
+
+            // Complete the last word from the trie
+            List<Map<String, Object>> suggestions = new ArrayList<>();
+            for (PrefixTrie.Completion completion : suggester.suggest(prefix, limit)) {
+                Map<String, Object> suggestion = new LinkedHashMap<>();
+                suggestion.put("term", completion.getTerm());
+                suggestion.put("items", completion.getWeight());
+                suggestions.add(suggestion);
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("prefix", prefix);
+            body.put("suggestions", suggestions);
+
+            // Set response status
+            response.status(200);
+
+            // Convert suggestions to the negotiated format and return
+            return ContentNegotiator.render(request, response, body);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error suggesting items: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /items/stats request to retrieve catalog statistics:
+     * item count, and per currency the min, max and mean price plus a price histogram.
+     * The statistics are maintained as items change, so this does not scan the catalog.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with the statistics
+     */
+    public Object getItemStats(Request request, Response response) {
+        try {
+            // Read the incrementally maintained aggregates
+            Map<String, Object> stats = itemService.getStatistics().toMap();
+
+            // Set response status
+            response.status(200);
+
+            // Convert statistics to the negotiated format and return
+            return ContentNegotiator.render(request, response, stats);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error retrieving item statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles POST /items/:id request to add a new item.
+     *
+     * @param request Spark request object containing the item ID and body
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) containing the created item or error message
+     */
+    public Object addItem(Request request, Response response) {
+        try {
+            // Extract item ID from URL parameter
+            String itemId = RouteDispatcher.param(request, ":id");
+
+            // Validate that ID was provided
+            if (itemId == null || itemId.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("Item ID is required");
+            }
+
+            // Validate that body is not empty
+            if (!ContentNegotiator.hasBody(request)) {
+                response.status(400);
+                return createErrorResponse("Request body is required");
+            }
+
+            // Parse JSON (or CBOR) body to Item object
+            Item newItem = ContentNegotiator.parseBody(request, Item.class);
+
+            // Validate item object and required fields
+            RequestPhaseEvent validationPhase = RequestPhases.begin(RequestPhases.VALIDATE);
+            String error = validateItem(newItem);
+            RequestPhases.end(validationPhase, request);
+            if (error != null) {
+                response.status(400);
+                return createErrorResponse(error);
+            }
+
+            // Set the ID from URL parameter (override any ID in body)
+            newItem.setId(itemId);
+
+            // Try to add the item
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+            Item createdItem = itemService.addItem(newItem);
+            RequestPhases.end(servicePhase, request);
+
+            // Set response status to 201 Created
+            response.status(201);
+
+            // Return created item in the negotiated format
+            return ContentNegotiator.render(request, response, createdItem);
+
+        } catch (JsonParseException e) {
+            // Handle malformed JSON or CBOR bodies
+            response.status(400);
+            return createErrorResponse("Invalid item data: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Handle duplicate item error
+            response.status(409);
+            return createErrorResponse(e.getMessage());
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error adding item: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles PUT /items/:id request to update an existing item.
+     *
+     * @param request Spark request object containing the item ID and body
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) containing the updated item or error message
+     */
+    public Object updateItem(Request request, Response response) {
+        try {
+            // Extract item ID from URL parameter
+            String itemId = RouteDispatcher.param(request, ":id");
+
+            // Validate that ID was provided
+            if (itemId == null || itemId.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("Item ID is required");
+            }
+
+            // Check if item exists (the filter answers most missing IDs)
+            if (!itemExists(itemId)) {
+                response.status(404);
+                return createErrorResponse("Item not found with ID: " + itemId);
+            }
+
+            // Validate that body is not empty
+            if (!ContentNegotiator.hasBody(request)) {
+                response.status(400);
+                return createErrorResponse("Request body is required");
+            }
+
+            // Parse JSON (or CBOR) body to Item object
+            Item updatedItem = ContentNegotiator.parseBody(request, Item.class);
+
+            // Validate item object and required fields
+            RequestPhaseEvent validationPhase = RequestPhases.begin(RequestPhases.VALIDATE);
+            String error = validateItem(updatedItem);
+            RequestPhases.end(validationPhase, request);
+            if (error != null) {
+                response.status(400);
+                return createErrorResponse(error);
+            }
+
+            // Update the item
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+            Item result = itemService.updateItem(itemId, updatedItem);
+            RequestPhases.end(servicePhase, request);
+
+            // Set response status
+            response.status(200);
+
+            // Return updated item in the negotiated format
+            return ContentNegotiator.render(request, response, result);
+
+        } catch (JsonParseException e) {
+            // Handle malformed JSON or CBOR bodies
+            response.status(400);
+            return createErrorResponse("Invalid item data: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // Handle item not found error
+            response.status(404);
+            return createErrorResponse(e.getMessage());
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error updating item: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles DELETE /items/:id request to delete an item.
+     *
+     * @param request Spark request object containing the item ID
+     * @param response Spark response object
+     * @return JSON string with success message or error
+     */
+    public String deleteItem(Request request, Response response) {
+        try {
+            // Extract item ID from URL parameter
+            String itemId = RouteDispatcher.param(request, ":id");
+
+            // Validate that ID was provided
+            if (itemId == null || itemId.trim().isEmpty()) {
+                response.status(400);
+                return createErrorResponse("Item ID is required");
+            }
+
+            // Definite miss: answer without locking the catalog
+            if (itemFilter != null && !itemFilter.mightContain(itemId)) {
+                response.status(404);
+                return createErrorResponse("Item not found with ID: " + itemId);
+            }
+
+            // Delete the item
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+            boolean deleted = itemService.deleteItem(itemId);
+            RequestPhases.end(servicePhase, request);
+
+            if (deleted) {
+                // Set response status to 204 No Content (successful deletion)
+                response.status(204);
+                return ""; // 204 responses should have empty body
+            } else {
+                recordFalsePositive();
+                response.status(404);
+                return createErrorResponse("Item not found with ID: " + itemId);
+            }
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error deleting item: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether an item exists, asking the existence filter before the store.
+     *
+     * @param itemId The item ID
+     * @return true if the item exists
+     */
+    private boolean itemExists(String itemId) {
+        if (itemFilter != null && !itemFilter.mightContain(itemId)) {
+            return false;
+        }
+        boolean exists = itemService.itemExists(itemId);
+        if (!exists) {
+            recordFalsePositive();
+        }
+        return exists;
+    }
+
+    /**
+     * Records a store lookup that found nothing for an ID the filter passed.
+     */
+    private void recordFalsePositive() {
+        if (itemFilter != null) {
+            itemFilter.recordFalsePositive();
+        }
+    }
+
+    /**
+     * Handles POST, PUT and DELETE /items/:id when serving the read-only
+     * memory-mapped catalog.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the error message
+     */
+    public String rejectReadOnlyWrite(Request request, Response response) {
+        response.status(405);
+        response.header("Allow", "GET");
+        response.type("application/json");
+        return createErrorResponse("The item catalog is read-only (ITEM_STORE=mapped).");
+    }
+
+    /**
+     * Checks the fields of an item sent in a request body.
+     *
+     * @param item The parsed item, may be null
+     * @return Error message, or null if the item is valid
+     */
+    private String validateItem(Item item) {
+        if (item == null) {
+            return "Invalid item data";
+        }
+        if (item.getName() == null || item.getName().trim().isEmpty()) {
+            return "Item name is required";
+        }
+        if (item.getPrice() == null || item.getPrice().trim().isEmpty()) {
+            return "Item price is required";
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a batch of item IDs in one pass and renders found items plus missing IDs.
+     *
+     * @param ids The normalized item IDs
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with "items" and "missing"
+     */
+    private Object getItemsByIds(List<String> ids, Request request, Response response) {
+        // Validate batch size
+        String error = MultiGet.validate(ids);
+        if (error != null) {
+            response.status(400);
+            return createErrorResponse(error);
+        }
+
+        // Look up all items at once
+        Map<String, Item> found = itemService.getItemsByIds(ids);
+
+        // Set response status
+        response.status(200);
+
+        // Convert found items and missing IDs to the negotiated format and return
+        return ContentNegotiator.render(request, response, MultiGet.toResponse("items", ids, found));
+    }
+
     /**
      * Creates a standardized error response in JSON format.
      *
@@ -0,0 +1,109 @@
+package com.collectibles.controller;
+
+import com.collectibles.config.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared parsing and response shape for the batch multi-get endpoints
+ * (GET /items?ids=a,b,c and POST /users/_mget).
+ *
+ * A batch response lists the entities that were found, in request order,
+ * plus the IDs that were not:
+ * <pre>
+ * { "items": [ ... ], "missing": ["item99"] }
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class MultiGet {
+
+    /**
+     * Body of POST /users/_mget: { "ids": ["user1", "user2"] }.
+     */
+    static final class Body {
+        List<String> ids;
+    }
+
+    /**
+     * Splits a comma-separated ID list, dropping blanks and duplicates.
+     *
+     * @param csv The raw query parameter value
+     * @return Distinct IDs in the order given
+     */
+    static List<String> parseIds(String csv) {
+        List<String> ids = new ArrayList<>();
+        for (String id : csv.split(",")) {
+            ids.add(id);
+        }
+        return normalize(ids);
+    }
+
+    /**
+     * Trims IDs and drops blanks, nulls and duplicates.
+     *
+     * @param rawIds The IDs as sent by the client
+     * @return Distinct IDs in the order given
+     */
+    static List<String> normalize(Collection<String> rawIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : rawIds) {
+            if (id != null && !id.trim().isEmpty()) {
+                ids.add(id.trim());
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Checks the batch size against the configured limit.
+     *
+     * @param ids The normalized IDs
+     * @return An error message, or null if the batch is acceptable
+     */
+    static String validate(List<String> ids) {
+        if (ids.isEmpty()) {
+            return "At least one ID is required";
+        }
+        if (ids.size() > ServerConfig.MAX_BATCH_IDS) {
+            return "Too many IDs: " + ids.size() + " (maximum " + ServerConfig.MAX_BATCH_IDS + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Builds the batch response body.
+     *
+     * @param key Name of the found-entities field ("items" or "users")
+     * @param ids The requested IDs
+     * @param found Entities that were found, keyed by ID
+     * @return Response map with the found entities and the missing IDs
+     */
+    static Map<String, Object> toResponse(String key, List<String> ids, Map<String, ?> found) {
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(key, new ArrayList<>(found.values()));
+        result.put("missing", missing);
+        return result;
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MultiGet() {
+        // Utility class, should not be instantiated
+    }
+}
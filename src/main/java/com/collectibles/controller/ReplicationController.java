@@ -0,0 +1,73 @@
+package com.collectibles.controller;
+
+import com.collectibles.replication.ReplicationNode;
+import com.collectibles.util.JsonUtil;
+import spark.Request;
+import spark.Response;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller class for replication status requests.
+ * Reports the role of this node and, for leaders and followers,
+ * sequence numbers, connected followers and replication lag.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ReplicationController {
+
+    private final ReplicationNode replicationNode;
+
+    /**
+     * Constructor that receives the replication node of this server.
+     *
+     * @param replicationNode Leader or follower, or null when running standalone
+     */
+    public ReplicationController(ReplicationNode replicationNode) {
+        this.replicationNode = replicationNode;
+    }
+
+    /**
+     * Handles GET /replication/status request.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the replication status
+     */
+    public String getStatus(Request request, Response response) {
+        try {
+            Map<String, Object> status;
+            if (replicationNode == null) {
+                status = new HashMap<>();
+                status.put("role", "standalone");
+            } else {
+                status = replicationNode.getStatus();
+            }
+
+            response.status(200);
+            response.type("application/json");
+            return JsonUtil.toJson(status);
+
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return JsonUtil.toJson(createError("Error retrieving replication status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Creates a standardized error body.
+     *
+     * @param message The error message
+     * @return Error fields
+     */
+    private Map<String, Object> createError(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return errorResponse;
+    }
+}
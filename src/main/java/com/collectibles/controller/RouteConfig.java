@@ -1,10 +1,30 @@
 package com.collectibles.controller;
 
+import com.collectibles.changes.ChangeFeed;
 import com.collectibles.config.ServerConfig;
+import com.collectibles.config.TunedJettyServerFactory;
+import com.collectibles.diagnostics.FlightRecordings;
+import com.collectibles.diagnostics.RuntimeDiagnostics;
+import com.collectibles.model.Role;
+import com.collectibles.replication.ReplicationNode;
+import com.collectibles.search.ItemSearchIndex;
+import com.collectibles.search.ItemSuggester;
+import com.collectibles.security.TokenAuthenticator;
+import com.collectibles.service.ExistenceFilter;
 import com.collectibles.service.ItemService;
 import com.collectibles.service.UserService;
+import com.collectibles.util.JsonUtil;
 
-import static spark.Spark.*;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import spark.Spark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Route configuration class that sets up all API routes and groups.
@@ -16,8 +36,28 @@ import static spark.Spark.*;
  */
 public class RouteConfig {
 
+    // Fixed headers of every response, built once: item reads may be cached, nothing else
+    private static final HttpField[] PUBLIC_HEADERS = createFixedHeaders(ServerConfig.CACHE_CONTROL_PUBLIC);
+    private static final HttpField[] SHORT_CACHE_HEADERS = createFixedHeaders(ServerConfig.CACHE_CONTROL_SHORT);
+    private static final HttpField[] NO_CACHE_HEADERS = createFixedHeaders(ServerConfig.CACHE_CONTROL_NO_CACHE);
+
     private final ItemService itemService;
     private final UserService userService;
+    private final ReplicationNode replicationNode;
+
+    // Bloom filters over the item and user IDs; null when EXISTENCE_FILTER=false
+    private ExistenceFilter itemFilter;
+    private ExistenceFilter userFilter;
+
+    // Change log behind GET /changes; set by configureChangeRoutes
+    private ChangeFeed changeFeed;
+
+    // Verifies bearer tokens; null when AUTH_SECRET is not set
+    private final TokenAuthenticator authenticator = createAuthenticator();
+
+    // Prefix tree of all routes, with the filters' work (and authentication) folded in
+    private final RouteDispatcher routes = new RouteDispatcher(
+            this::fixedHeaders, NO_CACHE_HEADERS, ServerConfig.isRequestLoggingEnabled(), authenticator);
 
     /**
      * Constructor that receives service dependencies.
@@ -26,8 +66,20 @@ public class RouteConfig {
      * @param userService Service for user operations
      */
     public RouteConfig(ItemService itemService, UserService userService) {
+        this(itemService, userService, null);
+    }
+
+    /**
+     * Constructor that receives service dependencies and the replication node.
+     *
+     * @param itemService Service for item operations
+     * @param userService Service for user operations
+     * @param replicationNode Leader or follower, or null when running standalone
+     */
+    public RouteConfig(ItemService itemService, UserService userService, ReplicationNode replicationNode) {
         this.itemService = itemService;
         this.userService = userService;
+        this.replicationNode = replicationNode;
     }
 
     /**
@@ -38,15 +90,18 @@ public class RouteConfig {
         // Configure server settings
         configureServer();
 
-        // Set up global filters (CORS, content-type, etc.)
-        configureFilters();
-
         // Set up route groups
         configureItemRoutes();
         configureUserRoutes();
+        configureChangeRoutes();
+        configureAuthRoutes();
 
         // Set up utility routes
         configureUtilityRoutes();
+        configureDebugRoutes();
+
+        // Hand every request to the dispatcher (last, so the tree is complete when Spark starts)
+        configureDispatch();
 
         System.out.println("Routes configured successfully");
     }
@@ -55,8 +110,11 @@ public class RouteConfig {
      * Configures basic server settings.
      */
     private void configureServer() {
+        // Replace Spark's default Jetty with the tuned HTTP/1.1 + h2c server
+        TunedJettyServerFactory.register();
+
         // Set server port
-        port(ServerConfig.getPort());
+        Spark.port(ServerConfig.getPort());
 
         // Enable CORS for all routes
         enableCORS();
@@ -70,69 +128,89 @@ public class RouteConfig {
      */
     private void enableCORS() {
         // Handle OPTIONS preflight requests
-        options("/*", (request, response) -> {
-            String accessControlRequestHeaders = request.headers("Access-Control-Request-Headers");
-            if (accessControlRequestHeaders != null) {
-                response.header("Access-Control-Allow-Headers", accessControlRequestHeaders);
-            }
+        routes.options("/*", RouteConfig::handlePreflight);
 
-            String accessControlRequestMethod = request.headers("Access-Control-Request-Method");
-            if (accessControlRequestMethod != null) {
-                response.header("Access-Control-Allow-Methods", accessControlRequestMethod);
-            }
-
-            return "OK";
-        });
-
-        // NOTE: CORS headers are now set in configureFilters() before filter
+        // NOTE: CORS headers are part of the fixed headers the dispatcher adds to every response
     }
 
     /**
-     * Configures global filters that apply to all routes.
-     * Filters run before and after route handlers.
+     * Answers a CORS preflight request by allowing the requested headers and method.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return "OK"
      */
-    private void configureFilters() {
-        // Before filter - runs before every request
-        before((request, response) -> {
-            // CORS headers (from Phase 4)
-            response.header("Access-Control-Allow-Origin", ServerConfig.ALLOWED_ORIGINS);
-            response.header("Access-Control-Allow-Methods", ServerConfig.ALLOWED_METHODS);
-            response.header("Access-Control-Allow-Headers", ServerConfig.ALLOWED_HEADERS);
-            response.header("Access-Control-Max-Age", ServerConfig.MAX_AGE);
-
-            // Set default content type
-            response.type(ServerConfig.JSON_CONTENT_TYPE);
-
-            // Log incoming request
-            System.out.println(request.requestMethod() + " " + request.pathInfo());
-
-            // Security headers (from Phase 9)
-            response.header("X-Content-Type-Options", ServerConfig.X_CONTENT_TYPE_OPTIONS);
-            response.header("X-Frame-Options", ServerConfig.X_FRAME_OPTIONS);
-            response.header("X-XSS-Protection", ServerConfig.X_XSS_PROTECTION);
+    private static Object handlePreflight(Request request, Response response) {
+        String accessControlRequestHeaders = request.headers("Access-Control-Request-Headers");
+        if (accessControlRequestHeaders != null) {
+            // Replaces the fixed value instead of adding a second header
+            response.raw().setHeader("Access-Control-Allow-Headers", accessControlRequestHeaders);
+        }
+
+        String accessControlRequestMethod = request.headers("Access-Control-Request-Method");
+        if (accessControlRequestMethod != null) {
+            response.raw().setHeader("Access-Control-Allow-Methods", accessControlRequestMethod);
+        }
+
+        return "OK";
+    }
 
-            // Server identification
-            response.header("Server", ServerConfig.SERVER_NAME);
-        });
+    /**
+     * Registers the dispatcher with Spark as the only route of each method.
+     * Spark then matches one catch-all route instead of the full route list
+     * plus the global filters.
+     */
+    private void configureDispatch() {
+        Spark.get("/*", routes);
+        Spark.head("/*", routes);
+        Spark.post("/*", routes);
+        Spark.put("/*", routes);
+        Spark.delete("/*", routes);
+        Spark.options("/*", routes);
+        Spark.patch("/*", routes);
+    }
 
-        // After filter - runs after every request
-        after((request, response) -> {
-            // Ensure content type is set
-            if (response.type() == null) {
-                response.type(ServerConfig.JSON_CONTENT_TYPE);
-            }
+    /**
+     * Chooses the fixed headers of a route. Called once per route.
+     *
+     * @param method HTTP method of the route
+     * @param path Full route path
+     * @return The headers to add to every response of the route
+     */
+    private HttpField[] fixedHeaders(String method, String path) {
+        // Add cache control based on method: item reads may be cached, everything else must not.
+        // Items only stay unchanged for an hour when the catalog is read-only
+        if ("GET".equals(method) && path.startsWith("/items")) {
+            return itemService.isReadOnly() ? PUBLIC_HEADERS : SHORT_CACHE_HEADERS;
+        }
+        return NO_CACHE_HEADERS;
+    }
 
-            // Add cache control based on method
-            if (request.requestMethod().equals("GET")) {
-                if (request.pathInfo().startsWith("/items")) {
-                    response.header("Cache-Control", ServerConfig.CACHE_CONTROL_PUBLIC);
-                } else {
-                    response.header("Cache-Control", ServerConfig.CACHE_CONTROL_NO_CACHE);
-                }
-            } else {
-                response.header("Cache-Control", ServerConfig.CACHE_CONTROL_NO_CACHE);
-            }
-        });
+    /**
+     * Builds the headers every response gets, encoded once.
+     *
+     * @param cacheControl Cache-Control value
+     * @return CORS, security, server and cache headers
+     */
+    private static HttpField[] createFixedHeaders(String cacheControl) {
+        return new HttpField[] {
+                // CORS headers (from Phase 4)
+                new PreEncodedHttpField("Access-Control-Allow-Origin", ServerConfig.ALLOWED_ORIGINS),
+                new PreEncodedHttpField("Access-Control-Allow-Methods", ServerConfig.ALLOWED_METHODS),
+                new PreEncodedHttpField("Access-Control-Allow-Headers", ServerConfig.ALLOWED_HEADERS),
+                new PreEncodedHttpField("Access-Control-Expose-Headers", ServerConfig.EXPOSED_HEADERS),
+                new PreEncodedHttpField("Access-Control-Max-Age", ServerConfig.MAX_AGE),
+
+                // Security headers (from Phase 9)
+                new PreEncodedHttpField("X-Content-Type-Options", ServerConfig.X_CONTENT_TYPE_OPTIONS),
+                new PreEncodedHttpField("X-Frame-Options", ServerConfig.X_FRAME_OPTIONS),
+                new PreEncodedHttpField("X-XSS-Protection", ServerConfig.X_XSS_PROTECTION),
+
+                // Server identification
+                new PreEncodedHttpField("Server", ServerConfig.SERVER_NAME),
+
+                new PreEncodedHttpField("Cache-Control", cacheControl)
+        };
     }
 
     /**
@@ -140,19 +218,60 @@ public class RouteConfig {
      * Groups all /items endpoints together.
      */
     private void configureItemRoutes() {
+        // Full-text index, rebuilt in the background when items change
+        ItemSearchIndex searchIndex = new ItemSearchIndex(itemService, ServerConfig.getSearchRebuildDelayMs());
+        itemService.addChangeListener(searchIndex);
+        searchIndex.start();
+
+        // Typeahead trie, updated in place when items change
+        ItemSuggester suggester = new ItemSuggester(itemService, ServerConfig.SUGGEST_MAX_VISITS);
+        itemService.addChangeListener(suggester);
+
+        // Filter that answers lookups of missing item IDs without the store
+        if (ServerConfig.isExistenceFilterEnabled()) {
+            itemFilter = ExistenceFilter.forItems(itemService, ServerConfig.getExistenceFilterBitsPerId(),
+                    ServerConfig.getExistenceFilterRebuildDelayMs());
+        }
+
         // Create ItemController instance
-        ItemController itemController = new ItemController(itemService);
+        ItemController itemController = new ItemController(itemService, searchIndex, suggester, itemFilter);
 
         // Path group for all item-related routes
-        path("/items", () -> {
-            // GET /items - Retrieve all items
-            get("", itemController::getAllItems);
+        routes.path("/items", () -> {
+            // GET /items - Retrieve all items (or a batch with ?ids=a,b,c, or the top items with ?sort=price)
+            routes.get("", itemController::getAllItems);
+
+            // GET /items/stats - Count, price range and histogram (registered before /:id)
+            routes.get("/stats", itemController::getItemStats);
+
+            // GET /items/search?q= - Ranked full-text search (registered before /:id)
+            routes.get("/search", itemController::searchItems);
+
+            // GET /items/suggest?prefix= - Typeahead completions (registered before /:id)
+            routes.get("/suggest", itemController::suggestItems);
 
             // GET /items/:id - Retrieve specific item
-            get("/:id", itemController::getItemById);
+            routes.get("/:id", itemController::getItemById);
+
+            if (itemService.isReadOnly()) {
+                routes.post("/:id", itemController::rejectReadOnlyWrite);
+                routes.put("/:id", itemController::rejectReadOnlyWrite);
+                routes.delete("/:id", itemController::rejectReadOnlyWrite);
+            } else {
+                routes.requireRole(Role.ADMIN, () -> {
+                    // POST /items/:id - Add new item (admin)
+                    routes.post("/:id", itemController::addItem);
+
+                    // PUT /items/:id - Update existing item (admin)
+                    routes.put("/:id", itemController::updateItem);
+
+                    // DELETE /items/:id - Delete item (admin)
+                    routes.delete("/:id", itemController::deleteItem);
+                });
+            }
         });
 
-        System.out.println("Item routes configured: /items");
+        System.out.println("Item routes configured: /items, /items/:id, /items/stats, /items/search, /items/suggest");
     }
 
     /**
@@ -160,31 +279,139 @@ public class RouteConfig {
      * Groups all /users endpoints together.
      */
     private void configureUserRoutes() {
-        // Create UserController instance
-        UserController userController = new UserController(userService);
+        // Create UserController instance, with a response cache kept in sync with user changes
+        UserResponseCache responseCache = null;
+        long cacheBytes = ServerConfig.getUserCacheBytes();
+        if (cacheBytes > 0) {
+            responseCache = new UserResponseCache(cacheBytes);
+            userService.addChangeListener(responseCache);
+        }
+
+        // Responses replayed to retried writes that carry an Idempotency-Key
+        IdempotencyCache idempotencyCache = null;
+        long idempotencyBytes = ServerConfig.getIdempotencyCacheBytes();
+        if (idempotencyBytes > 0) {
+            idempotencyCache = new IdempotencyCache(idempotencyBytes,
+                    ServerConfig.getIdempotencyTtlSeconds(), ServerConfig.getIdempotencyWaitMs());
+        }
+
+        // Filter that answers lookups of missing user IDs without the store
+        if (ServerConfig.isExistenceFilterEnabled()) {
+            userFilter = ExistenceFilter.forUsers(userService, ServerConfig.getExistenceFilterBitsPerId(),
+                    ServerConfig.getExistenceFilterRebuildDelayMs());
+        }
+        UserController userController = new UserController(userService, responseCache, idempotencyCache, userFilter);
+        Route addUser = idempotencyCache != null ? idempotencyCache.wrap(userController::addUser) : userController::addUser;
+        Route updateUser = idempotencyCache != null
+                ? idempotencyCache.wrap(userController::updateUser) : userController::updateUser;
+
+        // Followers only serve reads; writes go to the leader
+        boolean readOnly = replicationNode != null && replicationNode.isReadOnly();
 
         // Path group for all user-related routes
-        path("/users", () -> {
+        routes.path("/users", () -> {
             // GET /users - Retrieve all users
-            get("", userController::getAllUsers);
+            routes.get("", userController::getAllUsers);
 
             // GET /users/:id - Retrieve specific user
-            get("/:id", userController::getUserById);
+            routes.get("/:id", userController::getUserById);
+
+            // POST /users/_mget - Retrieve a batch of users (a read, so followers serve it too).
+            // Registered before POST /:id, which would otherwise match "_mget" as an ID
+            routes.post("/_mget", userController::getUsersByIds);
 
-            // POST /users/:id - Add new user
-            post("/:id", userController::addUser);
+            if (readOnly) {
+                routes.post("/:id", userController::rejectReadOnlyWrite);
+                routes.put("/:id", userController::rejectReadOnlyWrite);
+                routes.delete("/:id", userController::rejectReadOnlyWrite);
+            } else {
+                // POST /users/:id - Sign up (admin users only by admins; retries with the same
+                // Idempotency-Key are replayed)
+                routes.post("/:id", addUser);
 
-            // PUT /users/:id - Update existing user
-            put("/:id", userController::updateUser);
+                // PUT /users/:id - Update a user: admins any user, others themselves without
+                // changing their role (retries are replayed)
+                routes.requireAuthentication(() -> routes.put("/:id", updateUser));
 
-            // DELETE /users/:id - Delete user
-            delete("/:id", userController::deleteUser);
+                // DELETE /users/:id - Delete user (admin)
+                routes.requireRole(Role.ADMIN, () -> routes.delete("/:id", userController::deleteUser));
+            }
 
-            // OPTIONS /users/:id - Check if user exists
-            options("/:id", userController::checkUserExists);
+            // OPTIONS /users/:id - Check if user exists (CORS preflights get the preflight answer)
+            routes.options("/:id", (request, response) -> request.headers("Access-Control-Request-Method") != null
+                    ? handlePreflight(request, response)
+                    : userController.checkUserExists(request, response));
         });
 
-        System.out.println("User routes configured: /users");
+        // GET /cache/stats - Response cache hit ratio and evictions
+        routes.get("/cache/stats", userController::getCacheStats);
+
+        System.out.println("User routes configured: /users, /cache/stats");
+    }
+
+    /**
+     * Configures the token routes (only when authentication is enabled).
+     */
+    private void configureAuthRoutes() {
+        if (authenticator == null) {
+            System.out.println("Authentication disabled: admin routes answer 503 until AUTH_SECRET is set");
+            return;
+        }
+
+        AuthController authController = new AuthController(userService, authenticator);
+        routes.path("/auth", () -> {
+            // POST /auth/tokens/:id?ttl=S - Issue a token carrying the user's role (admin)
+            routes.requireRole(Role.ADMIN, () -> routes.post("/tokens/:id", authController::issueToken));
+
+            // GET /auth/stats - Token verification cache hits, verifications and rejections
+            routes.get("/stats", authController::getStats);
+        });
+
+        System.out.println("Auth routes configured: /auth/tokens/:id, /auth/stats");
+    }
+
+    /**
+     * Creates the token authenticator from AUTH_SECRET.
+     *
+     * @return The authenticator, or null when AUTH_SECRET is not set
+     */
+    private static TokenAuthenticator createAuthenticator() {
+        String secret = ServerConfig.getAuthSecret();
+        if (secret == null) {
+            return null;
+        }
+        return new TokenAuthenticator(secret.getBytes(StandardCharsets.UTF_8), ServerConfig.getAuthCacheSize());
+    }
+
+    /**
+     * Answers the parked GET /changes long polls with an empty page and stops
+     * parking new ones. Called on shutdown before the server drains, so the
+     * drain does not wait out the pollers' wait time.
+     *
+     * @return Number of long polls released
+     */
+    public int releaseLongPolls() {
+        return changeFeed != null ? changeFeed.close() : 0;
+    }
+
+    /**
+     * Configures the change feed and its routes.
+     * The feed listens to both services, so every user and item mutation is logged.
+     */
+    private void configureChangeRoutes() {
+        changeFeed = new ChangeFeed(ServerConfig.getChangeFeedCapacity());
+        userService.addChangeListener(changeFeed);
+        itemService.addChangeListener(changeFeed);
+
+        ChangeController changeController = new ChangeController(changeFeed);
+
+        // GET /changes?since=N - Changes after N, long-polled when there are none yet
+        routes.get("/changes", changeController::getChanges);
+
+        // GET /changes/status - Feed position and parked pollers
+        routes.get("/changes/status", changeController::getStatus);
+
+        System.out.println("Change feed routes configured: /changes");
     }
 
     /**
@@ -193,14 +420,14 @@ public class RouteConfig {
     private void configureUtilityRoutes() {
 
         /*/ ---  NEW TEST ROUTE ---
-        get("/test-headers", (request, response) -> {
+        routes.get("/test-headers", (request, response) -> {
             response.type(ServerConfig.JSON_CONTENT_TYPE);
             return "{ \"message\": \"Header test successful\" }";
         });
         // --- END OF NEW ROUTE ---*/
 
         // Root route - API information
-        get("/", (request, response) -> {
+        routes.get("/", (request, response) -> {
             response.type(ServerConfig.JSON_CONTENT_TYPE);
             return "{ " +
                     "\"message\": \"Collectibles Store API\", " +
@@ -210,11 +437,60 @@ public class RouteConfig {
         });
 
         // Health check endpoint
-        get("/health", (request, response) -> {
+        routes.get("/health", (request, response) -> {
             response.type(ServerConfig.JSON_CONTENT_TYPE);
             return "{ \"status\": \"OK\" }";
         });
 
-        System.out.println("Utility routes configured: /, /health");
+        // Replication status (role, sequence numbers, lag)
+        ReplicationController replicationController = new ReplicationController(replicationNode);
+        routes.get("/replication/status", replicationController::getStatus);
+
+        // Existence filters: lookups answered without the store and the measured false-positive rate
+        routes.get("/cache/existence", (request, response) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("enabled", itemFilter != null || userFilter != null);
+            if (itemFilter != null) {
+                result.put("items", itemFilter.getStats());
+            }
+            if (userFilter != null) {
+                result.put("users", userFilter.getStats());
+            }
+            return JsonUtil.toJson(result);
+        });
+
+        System.out.println("Utility routes configured: /, /health, /replication/status, /cache/existence");
+    }
+
+    /**
+     * Configures the runtime diagnostics routes (by default only when AUTH_SECRET is set).
+     */
+    private void configureDebugRoutes() {
+        if (!ServerConfig.isDebugEndpointsEnabled()) {
+            return;
+        }
+
+        FlightRecordings recordings = FlightRecordings.isAvailable()
+                ? new FlightRecordings(ServerConfig.getRecordingMaxBytes()) : null;
+        DebugController debugController = new DebugController(
+                new RuntimeDiagnostics(TunedJettyServerFactory::getThreadPool), recordings);
+
+        // Recordings and runtime details describe the process, so they are admin-only
+        routes.path("/debug/runtime", () -> routes.requireRole(Role.ADMIN, () -> {
+            // GET /debug/runtime - Heap, GC, threads and thread pool utilization
+            routes.get("", debugController::getRuntime);
+
+            // A recording holds heap, thread and request data: never serve it without authentication
+            if (authenticator != null) {
+                // POST /debug/runtime/recording?seconds=60 - Start a bounded flight recording
+                routes.post("/recording", debugController::startRecording);
+
+                // GET /debug/runtime/recording - Download the recording as a .jfr file
+                routes.get("/recording", debugController::dumpRecording);
+            }
+        }));
+
+        System.out.println("Debug routes configured: /debug/runtime"
+                + (authenticator != null ? ", /debug/runtime/recording" : " (recordings need AUTH_SECRET)"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,609 @@
+package com.collectibles.controller;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.diagnostics.RequestTiming;
+import com.collectibles.model.Role;
+import com.collectibles.security.Principal;
+import com.collectibles.security.TokenAuthenticator;
+import com.collectibles.util.JsonUtil;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.util.URIUtil;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Dispatches requests through a prefix tree of path segments instead of
+ * Spark's route list.
+ *
+ * Spark matches a request by trying every registered route and filter in
+ * turn, splitting the route and request paths for each. Here the routes are
+ * compiled into a tree once: each node is one path segment, with children
+ * for literal segments, one ":param" child and one "*" child (the rest of
+ * the path). A request walks the tree one segment at a time; a literal
+ * segment wins over a parameter, and a parameter over "*", independent of
+ * registration order. Spark only sees one catch-all route per method that
+ * points here.
+ *
+ * The dispatcher also replaces the global before and after filters. The
+ * headers every response gets (CORS, security, server name and the cache
+ * policy, which depends only on the route) are built once per route as
+ * Jetty header fields and added in one loop, without per-request string
+ * checks. Only the request ID and Server-Timing are set per request.
+ *
+ * Path parameters are URL-decoded and stored as request attributes under
+ * their declared name; read them with {@link #param(Request, String)}.
+ *
+ * With a token authenticator, the dispatcher also authenticates: a bearer
+ * token in the Authorization header is verified before the route runs (a
+ * bad token is answered with 401), routes declared inside
+ * {@link #requireRole(Role, Runnable)} get 401 without a token and 403 with
+ * a token of another role, and routes declared inside
+ * {@link #requireAuthentication(Runnable)} get 401 without a token. The caller is available to routes through
+ * {@link #principal(Request)}. Without an authenticator, routes that
+ * require a token fail closed with 503: nobody can prove who they are.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class RouteDispatcher implements Route {
+
+    // Methods with their own route table; HEAD is served by the GET routes
+    static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"};
+
+    // Request attribute holding the authenticated Principal
+    private static final String PRINCIPAL_ATTRIBUTE = "principal";
+
+    private final Node root = new Node();
+
+    // Builds the fixed headers for a method and full route path
+    private final BiFunction<String, String, HttpField[]> headerPolicy;
+
+    // Fixed headers of responses that match no route
+    private final HttpField[] notFoundHeaders;
+
+    private final boolean requestLogging;
+
+    // Verifies bearer tokens; null when authentication is disabled
+    private final TokenAuthenticator authenticator;
+
+    // Prefixes of the enclosing path(...) groups while routes are declared
+    private final Deque<String> prefixes = new ArrayDeque<>();
+
+    // Roles of the enclosing requireRole(...) groups while routes are declared
+    private final Deque<Role> requiredRoles = new ArrayDeque<>();
+
+    // Depth of the enclosing requireAuthentication(...) groups while routes are declared
+    private int authenticatedGroups;
+
+    /**
+     * Creates an empty dispatcher.
+     *
+     * @param headerPolicy Fixed response headers for a method and route path, called once per route
+     * @param notFoundHeaders Fixed response headers when no route matches
+     * @param requestLogging Whether to print an access log line per request
+     */
+    public RouteDispatcher(BiFunction<String, String, HttpField[]> headerPolicy, HttpField[] notFoundHeaders,
+                           boolean requestLogging) {
+        this(headerPolicy, notFoundHeaders, requestLogging, null);
+    }
+
+    /**
+     * Creates an empty dispatcher that authenticates requests.
+     *
+     * @param headerPolicy Fixed response headers for a method and route path, called once per route
+     * @param notFoundHeaders Fixed response headers when no route matches
+     * @param requestLogging Whether to print an access log line per request
+     * @param authenticator Verifies bearer tokens, or null to serve every route without authentication
+     */
+    public RouteDispatcher(BiFunction<String, String, HttpField[]> headerPolicy, HttpField[] notFoundHeaders,
+                           boolean requestLogging, TokenAuthenticator authenticator) {
+        this.headerPolicy = headerPolicy;
+        this.notFoundHeaders = notFoundHeaders;
+        this.requestLogging = requestLogging;
+        this.authenticator = authenticator;
+    }
+
+    /**
+     * Gets a path parameter of the matched route.
+     *
+     * @param request Spark request object
+     * @param name Parameter name as declared, e.g. ":id"
+     * @return The URL-decoded value, or null if the route has no such parameter
+     */
+    public static String param(Request request, String name) {
+        return request.attribute(name);
+    }
+
+    /**
+     * Gets the caller authenticated by the request's bearer token.
+     *
+     * @param request Spark request object
+     * @return The principal, or null if the request carried no token or authentication is disabled
+     */
+    public static Principal principal(Request request) {
+        return request.attribute(PRINCIPAL_ATTRIBUTE);
+    }
+
+    /**
+     * Declares routes that only callers with a role (or admins) may call.
+     * Without an authenticator they answer every request with 503.
+     *
+     * @param role The required role
+     * @param group Declares the routes of the group
+     */
+    public void requireRole(Role role, Runnable group) {
+        requiredRoles.push(role);
+        try {
+            group.run();
+        } finally {
+            requiredRoles.pop();
+        }
+    }
+
+    /**
+     * Declares routes that any authenticated caller may call; the route
+     * decides what the caller may do, using {@link #principal(Request)}.
+     * Without an authenticator they answer every request with 503.
+     *
+     * @param group Declares the routes of the group
+     */
+    public void requireAuthentication(Runnable group) {
+        authenticatedGroups++;
+        try {
+            group.run();
+        } finally {
+            authenticatedGroups--;
+        }
+    }
+
+    /**
+     * Declares routes under a common prefix, like Spark's path().
+     *
+     * @param prefix Path prefix, e.g. "/items"
+     * @param group Declares the routes of the group
+     */
+    public void path(String prefix, Runnable group) {
+        prefixes.push(currentPrefix() + prefix);
+        try {
+            group.run();
+        } finally {
+            prefixes.pop();
+        }
+    }
+
+    /**
+     * Adds a GET route (also used for HEAD).
+     *
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     */
+    public void get(String path, Route route) {
+        add("GET", path, route);
+    }
+
+    /**
+     * Adds a POST route.
+     *
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     */
+    public void post(String path, Route route) {
+        add("POST", path, route);
+    }
+
+    /**
+     * Adds a PUT route.
+     *
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     */
+    public void put(String path, Route route) {
+        add("PUT", path, route);
+    }
+
+    /**
+     * Adds a DELETE route.
+     *
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     */
+    public void delete(String path, Route route) {
+        add("DELETE", path, route);
+    }
+
+    /**
+     * Adds an OPTIONS route.
+     *
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     */
+    public void options(String path, Route route) {
+        add("OPTIONS", path, route);
+    }
+
+    /**
+     * Adds a route. Segments starting with ':' are parameters; a final "*"
+     * matches the rest of the path.
+     *
+     * @param method HTTP method, upper case
+     * @param path Route path relative to the enclosing groups
+     * @param route The handler
+     * @throws IllegalArgumentException if the method is not supported or the route already exists
+     */
+    public void add(String method, String path, Route route) {
+        int methodIndex = methodIndex(method);
+        if (methodIndex < 0) {
+            throw new IllegalArgumentException("Unsupported method: " + method);
+        }
+        String fullPath = currentPrefix() + path;
+        if (fullPath.isEmpty()) {
+            fullPath = "/";
+        }
+
+        // Walk down, creating nodes as needed
+        Node node = root;
+        String[] segments = fullPath.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() && i == segments.length - 1) {
+                break;
+            }
+            if (segment.equals("*")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'*' must be the last segment: " + fullPath);
+                }
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else if (segment.startsWith(":")) {
+                if (node.param == null) {
+                    node.param = new Node();
+                    node.param.paramName = segment;
+                } else if (!node.param.paramName.equals(segment)) {
+                    throw new IllegalArgumentException("Parameter " + segment + " conflicts with "
+                            + node.param.paramName + " in " + fullPath);
+                }
+                node = node.param;
+            } else {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        if (node.targets[methodIndex] != null) {
+            throw new IllegalArgumentException("Route already declared: " + method + " " + fullPath);
+        }
+        node.targets[methodIndex] = new Target(route, headerPolicy.apply(method, fullPath), fullPath,
+                requiredRoles.peek(), authenticatedGroups > 0);
+    }
+
+    /**
+     * Finds the route for a method and raw (not decoded) request path.
+     *
+     * @param method HTTP method
+     * @param path Request URI path
+     * @param params Receives the raw values of the path parameters, in path order; at least 8 slots
+     * @return The match, or null if no route matches
+     */
+    public Match find(String method, String path, String[] params) {
+        int methodIndex = methodIndex("HEAD".equals(method) ? "GET" : method);
+        if (methodIndex < 0 || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        // Like Spark, "/items/" is not "/items"
+        if (path.length() > 1 && path.charAt(path.length() - 1) == '/') {
+            return null;
+        }
+        return match(root, path, path.length() > 1 ? 1 : path.length(), methodIndex, params, 0);
+    }
+
+    /**
+     * Handles a request: starts the request timing, applies the route's fixed
+     * headers, authenticates the caller, runs the route, then sets
+     * Server-Timing and writes the access log.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return The route's response body
+     * @throws Exception if the route fails
+     */
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        // The filter time starts with the total, so the phases never add up to more than it
+        RequestTiming timing = RequestTiming.start(request.headers(ServerConfig.REQUEST_ID_HEADER));
+        long filterStart = timing.getStartNanos();
+        response.header(ServerConfig.REQUEST_ID_HEADER, timing.getRequestId());
+
+        String[] params = new String[Match.MAX_PARAMS];
+        Match match = find(request.requestMethod(), request.raw().getRequestURI(), params);
+        addHeaders(response.raw(), match != null ? match.target.headers : notFoundHeaders);
+        response.type(ServerConfig.JSON_CONTENT_TYPE);
+
+        try {
+            if (match == null) {
+                timing.addFilterTime(filterStart);
+                response.status(404);
+                return createErrorResponse("Route not found: " + request.requestMethod() + " " + request.pathInfo());
+            }
+
+            // Path parameters, decoded only when they contain escapes
+            for (int i = 0; i < match.paramCount; i++) {
+                String value = params[i];
+                request.attribute(match.target.paramNames[i], value.indexOf('%') >= 0 ? URIUtil.decodePath(value) : value);
+            }
+
+            // Bearer token and role check, without a store lookup
+            if (authenticator != null || match.target.authenticationRequired) {
+                String rejection = authenticate(request, response, match.target);
+                if (rejection != null) {
+                    timing.addFilterTime(filterStart);
+                    return rejection;
+                }
+            }
+            timing.addFilterTime(filterStart);
+            return match.target.route.handle(request, response);
+        } finally {
+            finish(request, response, timing);
+        }
+    }
+
+    /**
+     * Verifies the request's bearer token, if any, and the route's required role.
+     *
+     * @param request Spark request object; receives the principal
+     * @param response Spark response object; gets the status of a rejection
+     * @param target The matched route, with the role or authentication it requires
+     * @return The error body of a rejected request, or null to run the route
+     */
+    private String authenticate(Request request, Response response, Target target) {
+        if (authenticator == null) {
+            // Only reached for routes that require a token: fail closed
+            response.status(503);
+            return createErrorResponse("Authentication is not configured; set AUTH_SECRET to enable this route");
+        }
+
+        String authorization = request.raw().getHeader(ServerConfig.AUTHORIZATION_HEADER);
+        Principal principal = null;
+        if (authorization != null) {
+            principal = authenticator.authenticate(authorization);
+            if (principal == null) {
+                response.status(401);
+                response.header("WWW-Authenticate", "Bearer error=\"invalid_token\"");
+                return createErrorResponse("Invalid or expired bearer token");
+            }
+            request.attribute(PRINCIPAL_ATTRIBUTE, principal);
+        }
+
+        Role requiredRole = target.requiredRole;
+        if (target.authenticationRequired) {
+            if (principal == null) {
+                response.status(401);
+                response.header("WWW-Authenticate", "Bearer");
+                return createErrorResponse("A bearer token is required");
+            }
+            if (requiredRole != null && !principal.hasRole(requiredRole)) {
+                response.status(403);
+                return createErrorResponse("Role '" + requiredRole.getValue() + "' is required");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets Server-Timing and writes the access log line.
+     */
+    private void finish(Request request, Response response, RequestTiming timing) {
+        long filterStart = System.nanoTime();
+
+        // Ensure content type is set
+        if (response.type() == null) {
+            response.type(ServerConfig.JSON_CONTENT_TYPE);
+        }
+
+        // Where the time went: filters, parse, validate, service, serialize, total
+        timing.addFilterTime(filterStart);
+        String serverTiming = timing.toServerTiming();
+        response.header("Server-Timing", serverTiming);
+
+        // Access log
+        if (requestLogging) {
+            System.out.println(request.requestMethod() + " " + request.pathInfo() + " "
+                    + response.status() + " id=" + timing.getRequestId() + " " + serverTiming);
+        }
+    }
+
+    /**
+     * Adds prebuilt header fields. On Jetty they go straight into the
+     * response's header list; otherwise through the servlet API.
+     *
+     * @param response The servlet response
+     * @param headers The fields to add
+     */
+    static void addHeaders(HttpServletResponse response, HttpField[] headers) {
+        if (response instanceof org.eclipse.jetty.server.Response) {
+            HttpFields fields = ((org.eclipse.jetty.server.Response) response).getHttpFields();
+            for (HttpField header : headers) {
+                fields.add(header);
+            }
+        } else {
+            for (HttpField header : headers) {
+                response.addHeader(header.getName(), header.getValue());
+            }
+        }
+    }
+
+    /**
+     * Matches the path from {@code start} against the subtree of {@code node}.
+     * Tries the literal child first, then the parameter, then "*".
+     */
+    private static Match match(Node node, String path, int start, int methodIndex, String[] params, int paramCount) {
+        if (start >= path.length()) {
+            Target target = node.targets[methodIndex];
+            if (target != null) {
+                return new Match(target, paramCount);
+            }
+            // "*" also matches an empty rest
+            return node.wildcard != null && node.wildcard.targets[methodIndex] != null
+                    ? new Match(node.wildcard.targets[methodIndex], paramCount) : null;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = end < path.length() ? end + 1 : end;
+
+        // Literal segment
+        if (!node.children.isEmpty()) {
+            Node child = node.children.get(path.substring(start, end));
+            if (child != null) {
+                Match found = match(child, path, next, methodIndex, params, paramCount);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        // Parameter
+        if (node.param != null && end > start && paramCount < params.length) {
+            params[paramCount] = path.substring(start, end);
+            Match found = match(node.param, path, next, methodIndex, params, paramCount + 1);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        // Rest of the path
+        if (node.wildcard != null && node.wildcard.targets[methodIndex] != null) {
+            return new Match(node.wildcard.targets[methodIndex], paramCount);
+        }
+        return null;
+    }
+
+    private static int methodIndex(String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String currentPrefix() {
+        return prefixes.isEmpty() ? "" : prefixes.peek();
+    }
+
+    /**
+     * Creates a standardized error response in JSON format.
+     *
+     * @param message The error message
+     * @return JSON string with error details
+     */
+    private static String createErrorResponse(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", System.currentTimeMillis());
+        return JsonUtil.toJson(errorResponse);
+    }
+
+    /**
+     * One path segment of the tree.
+     */
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final Target[] targets = new Target[METHODS.length];
+        Node param;
+        Node wildcard;
+        // For parameter nodes: the declared name, e.g. ":id"
+        String paramName;
+    }
+
+    /**
+     * A route with its precomputed fixed headers, parameter names and required role.
+     */
+    private static final class Target {
+        final Route route;
+        final HttpField[] headers;
+        final String path;
+        // Declared parameter names in path order, e.g. {":id"}
+        final String[] paramNames;
+        // Role a caller needs, or null for any caller
+        final Role requiredRole;
+        // Whether the caller needs a valid token (always true with a required role)
+        final boolean authenticationRequired;
+
+        Target(Route route, HttpField[] headers, String path, Role requiredRole, boolean authenticated) {
+            this.route = route;
+            this.headers = headers;
+            this.path = path;
+            this.requiredRole = requiredRole;
+            this.authenticationRequired = authenticated || requiredRole != null;
+            int count = 0;
+            String[] names = new String[Match.MAX_PARAMS];
+            for (String segment : path.split("/")) {
+                if (segment.startsWith(":")) {
+                    if (count == names.length) {
+                        throw new IllegalArgumentException("More than " + Match.MAX_PARAMS + " parameters: " + path);
+                    }
+                    names[count++] = segment;
+                }
+            }
+            this.paramNames = Arrays.copyOf(names, count);
+        }
+    }
+
+    /**
+     * Result of {@link #find}: the route and how many parameters it captured.
+     */
+    public static final class Match {
+
+        // Most path parameters a route may have
+        public static final int MAX_PARAMS = 8;
+
+        private final Target target;
+        private final int paramCount;
+
+        private Match(Target target, int paramCount) {
+            this.target = target;
+            this.paramCount = paramCount;
+        }
+
+        /**
+         * Gets the route path as declared, e.g. "/items/:id".
+         *
+         * @return The route path
+         */
+        public String getPath() {
+            return target.path;
+        }
+
+        /**
+         * Gets the route's precomputed fixed headers.
+         *
+         * @return Header fields, shared by all requests of the route
+         */
+        public HttpField[] getHeaders() {
+            return target.headers;
+        }
+
+        /**
+         * Gets the number of captured path parameters.
+         *
+         * @return Parameter count
+         */
+        public int getParamCount() {
+            return paramCount;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.collectibles.controller;
 
+import com.collectibles.diagnostics.RequestPhaseEvent;
+import com.collectibles.diagnostics.RequestPhases;
+import com.collectibles.model.Role;
 import com.collectibles.model.User;
+import com.collectibles.security.Principal;
+import com.collectibles.service.ExistenceFilter;
 import com.collectibles.service.UserService;
 import com.collectibles.util.JsonUtil;
+import com.google.gson.JsonParseException;
 import spark.Request;
 import spark.Response;
 
@@ -22,13 +28,38 @@ public class UserController {
 
     private final UserService userService;
 
+    // Serialized GET /users/:id bodies; null when caching is disabled
+    private final UserResponseCache responseCache;
+
+    // Responses replayed for retried writes; null when Idempotency-Key support is disabled
+    private final IdempotencyCache idempotencyCache;
+
+    // Bloom filter over the user IDs, consulted before the store; null when disabled
+    private final ExistenceFilter userFilter;
+
     /**
      * Constructor that receives the UserService dependency.
      *
      * @param userService Service for user operations
      */
     public UserController(UserService userService) {
+        this(userService, null, null, null);
+    }
+
+    /**
+     * Constructor that also receives the response cache for GET /users/:id.
+     *
+     * @param userService Service for user operations
+     * @param responseCache Cache of serialized user bodies, or null to disable caching
+     * @param idempotencyCache Responses stored per Idempotency-Key (reported in the cache stats), or null
+     * @param userFilter Filter that answers lookups of missing user IDs without the store, or null
+     */
+    UserController(UserService userService, UserResponseCache responseCache, IdempotencyCache idempotencyCache,
+                   ExistenceFilter userFilter) {
         this.userService = userService;
+        this.responseCache = responseCache;
+        this.idempotencyCache = idempotencyCache;
+        this.userFilter = userFilter;
     }
 
     /**
@@ -36,19 +67,20 @@ public class UserController {
      *
      * @param request Spark request object
      * @param response Spark response object
-     * @return JSON string containing all users
+     * @return JSON string (or CBOR bytes) containing all users
      */
-    public String getAllUsers(Request request, Response response) {
+    public Object getAllUsers(Request request, Response response) {
         try {
             // Get all users from service
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             List<User> users = userService.getAllUsers();
+            RequestPhases.end(servicePhase, request);
 
-            // Set response status and type
+            // Set response status
             response.status(200);
-            response.type("application/json");
 
-            // Convert users list to JSON and return
-            return JsonUtil.toJson(users);
+            // Convert users list to the negotiated format and return
+            return ContentNegotiator.render(request, response, users);
 
         } catch (Exception e) {
             // Handle unexpected errors
@@ -62,12 +94,12 @@ public class UserController {
      *
      * @param request Spark request object containing the user ID parameter
      * @param response Spark response object
-     * @return JSON string containing the user or error message
+     * @return JSON string (or CBOR bytes) containing the user or error message
      */
-    public String getUserById(Request request, Response response) {
+    public Object getUserById(Request request, Response response) {
         try {
             // Extract user ID from URL parameter
-            String userId = request.params(":id");
+            String userId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (userId == null || userId.trim().isEmpty()) {
@@ -75,21 +107,44 @@ public class UserController {
                 return createErrorResponse("User ID is required");
             }
 
-            // Get user from service
+            // Definite miss: answer without the cache or the store
+            if (userFilter != null && !userFilter.mightContain(userId)) {
+                response.status(404);
+                return createErrorResponse("User not found with ID: " + userId);
+            }
+
+            if (responseCache == null) {
+                return renderUser(userId, request, response);
+            }
+
+            // Serve the cached body if this user has not changed since it was serialized
+            boolean cbor = ContentNegotiator.acceptsCbor(request);
+            byte[] cached = responseCache.get(userId, cbor);
+            if (cached != null) {
+                response.status(200);
+                ContentNegotiator.setResponseType(response, cbor);
+                return cached;
+            }
+
+            // Read the version before the user so a concurrent update cannot be cached over
+            long version = responseCache.version(userId);
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             User user = userService.getUserById(userId);
+            RequestPhases.end(servicePhase, request);
 
             // Check if user was found
             if (user == null) {
+                recordFalsePositive();
                 response.status(404);
                 return createErrorResponse("User not found with ID: " + userId);
             }
 
-            // Set response status and type
+            // Serialize once, cache, and return
+            byte[] body = ContentNegotiator.encode(user, cbor);
+            responseCache.put(userId, cbor, version, body);
             response.status(200);
-            response.type("application/json");
-
-            // Convert user to JSON and return
-            return JsonUtil.toJson(user);
+            ContentNegotiator.setResponseType(response, cbor);
+            return body;
 
         } catch (Exception e) {
             // Handle unexpected errors
@@ -98,6 +153,107 @@ public class UserController {
         }
     }
 
+    /**
+     * Looks up a user and renders it without the response cache.
+     *
+     * @param userId The user ID
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) containing the user or error message
+     */
+    private Object renderUser(String userId, Request request, Response response) {
+        // Get user from service
+        RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
+        User user = userService.getUserById(userId);
+        RequestPhases.end(servicePhase, request);
+
+        // Check if user was found
+        if (user == null) {
+            recordFalsePositive();
+            response.status(404);
+            return createErrorResponse("User not found with ID: " + userId);
+        }
+
+        // Set response status
+        response.status(200);
+
+        // Convert user to the negotiated format and return
+        return ContentNegotiator.render(request, response, user);
+    }
+
+    /**
+     * Handles GET /cache/stats request to report the user response cache statistics
+     * and the responses stored per Idempotency-Key.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with hit ratio, evictions and size
+     */
+    public String getCacheStats(Request request, Response response) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", responseCache != null);
+        if (responseCache != null) {
+            result.put("users", responseCache.stats().toMap());
+        }
+        if (idempotencyCache != null) {
+            result.put("idempotency", idempotencyCache.stats());
+        }
+        response.status(200);
+        response.type("application/json");
+        return JsonUtil.toJson(result);
+    }
+
+    /**
+     * Handles POST /users/_mget request to retrieve several users at once.
+     * The body lists the IDs: { "ids": ["user1", "user3"] }.
+     *
+     * @param request Spark request object containing the ID list
+     * @param response Spark response object
+     * @return JSON string (or CBOR bytes) with "users" and "missing"
+     */
+    public Object getUsersByIds(Request request, Response response) {
+        try {
+            // Validate that body is not empty
+            if (!ContentNegotiator.hasBody(request)) {
+                response.status(400);
+                return createErrorResponse("Request body is required");
+            }
+
+            // Parse JSON (or CBOR) body to the ID list
+            MultiGet.Body body = ContentNegotiator.parseBody(request, MultiGet.Body.class);
+            if (body == null || body.ids == null) {
+                response.status(400);
+                return createErrorResponse("Request body must contain an \"ids\" array");
+            }
+
+            // Validate batch size
+            List<String> ids = MultiGet.normalize(body.ids);
+            String error = MultiGet.validate(ids);
+            if (error != null) {
+                response.status(400);
+                return createErrorResponse(error);
+            }
+
+            // Look up all users at once
+            Map<String, User> found = userService.getUsersByIds(ids);
+
+            // Set response status
+            response.status(200);
+
+            // Convert found users and missing IDs to the negotiated format and return
+            return ContentNegotiator.render(request, response, MultiGet.toResponse("users", ids, found));
+
+        } catch (JsonParseException e) {
+            // Handle malformed JSON or CBOR bodies
+            response.status(400);
+            return createErrorResponse("Invalid multi-get request: " + e.getMessage());
+        } catch (Exception e) {
+            // Handle unexpected errors
+            response.status(500);
+            return createErrorResponse("Error retrieving users: " + e.getMessage());
+        }
+    }
+
     /**
      * Creates a standardized error response in JSON format.
      *
@@ -130,12 +286,12 @@ public class UserController {
      *
      * @param request Spark request object containing the user ID and body
      * @param response Spark response object
-     * @return JSON string containing the created user or error message
+     * @return JSON string (or CBOR bytes) containing the created user or error message
      */
-    public String addUser(Request request, Response response) {
+    public Object addUser(Request request, Response response) {
         try {
             // Extract user ID from URL parameter
-            String userId = request.params(":id");
+            String userId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (userId == null || userId.trim().isEmpty()) {
@@ -143,17 +299,17 @@ public class UserController {
                 return createErrorResponse("User ID is required");
             }
 
-            // Get request body
-            String requestBody = request.body();
-
             // Validate that body is not empty
-            if (requestBody == null || requestBody.trim().isEmpty()) {
+            if (!ContentNegotiator.hasBody(request)) {
                 response.status(400);
                 return createErrorResponse("Request body is required");
             }
 
-            // Parse JSON body to User object
-            User newUser = JsonUtil.fromJson(requestBody, User.class);
+            // Parse JSON (or CBOR) body to User object
+            User newUser = ContentNegotiator.parseBody(request, User.class);
+
+            // Validation runs until the service call (requests rejected on the way are not recorded)
+            RequestPhaseEvent validationPhase = RequestPhases.begin(RequestPhases.VALIDATE);
 
             // Validate user object
             if (newUser == null) {
@@ -192,15 +348,24 @@ public class UserController {
                 return createErrorResponse("Invalid role. Must be: admin, buyer, or seller");
             }
 
+            // Sign-up is open, but only an admin can create another admin
+            if (newUser.getRoleEnum() == Role.ADMIN && !isAdmin(RouteDispatcher.principal(request))) {
+                response.status(403);
+                return createErrorResponse("Only admins can create admin users");
+            }
+
+            RequestPhases.end(validationPhase, request);
+
             // Try to add the user
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             User createdUser = userService.addUser(newUser);
+            RequestPhases.end(servicePhase, request);
 
             // Set response status to 201 Created
             response.status(201);
-            response.type("application/json");
 
-            // Return created user as JSON
-            return JsonUtil.toJson(createdUser);
+            // Return created user in the negotiated format
+            return ContentNegotiator.render(request, response, createdUser);
 
         } catch (IllegalArgumentException e) {
             // Handle duplicate user error
@@ -218,12 +383,12 @@ public class UserController {
      *
      * @param request Spark request object containing the user ID and body
      * @param response Spark response object
-     * @return JSON string containing the updated user or error message
+     * @return JSON string (or CBOR bytes) containing the updated user or error message
      */
-    public String updateUser(Request request, Response response) {
+    public Object updateUser(Request request, Response response) {
         try {
             // Extract user ID from URL parameter
-            String userId = request.params(":id");
+            String userId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (userId == null || userId.trim().isEmpty()) {
@@ -231,23 +396,30 @@ public class UserController {
                 return createErrorResponse("User ID is required");
             }
 
-            // Check if user exists
-            if (!userService.userExists(userId)) {
+            // Admins may update anyone; other callers only their own record
+            Principal caller = RouteDispatcher.principal(request);
+            if (!isAdmin(caller) && (caller == null || !caller.getUserId().equals(userId))) {
+                response.status(403);
+                return createErrorResponse("Users can only update their own record");
+            }
+
+            // Check if user exists (the filter answers most missing IDs)
+            if (!userExists(userId)) {
                 response.status(404);
                 return createErrorResponse("User not found with ID: " + userId);
             }
 
-            // Get request body
-            String requestBody = request.body();
-
             // Validate that body is not empty
-            if (requestBody == null || requestBody.trim().isEmpty()) {
+            if (!ContentNegotiator.hasBody(request)) {
                 response.status(400);
                 return createErrorResponse("Request body is required");
             }
 
-            // Parse JSON body to User object
-            User updatedUser = JsonUtil.fromJson(requestBody, User.class);
+            // Parse JSON (or CBOR) body to User object
+            User updatedUser = ContentNegotiator.parseBody(request, User.class);
+
+            // Validation runs until the service call (requests rejected on the way are not recorded)
+            RequestPhaseEvent validationPhase = RequestPhases.begin(RequestPhases.VALIDATE);
 
             // Validate user object
             if (updatedUser == null) {
@@ -283,15 +455,27 @@ public class UserController {
                 return createErrorResponse("Invalid role. Must be: admin, buyer, or seller");
             }
 
+            // Users keep their role; only an admin can change it
+            if (!isAdmin(caller)) {
+                User current = userService.getUserById(userId);
+                if (current != null && !current.getRole().equals(updatedUser.getRole())) {
+                    response.status(403);
+                    return createErrorResponse("Only admins can change a user's role");
+                }
+            }
+
+            RequestPhases.end(validationPhase, request);
+
             // Update the user
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             User result = userService.updateUser(userId, updatedUser);
+            RequestPhases.end(servicePhase, request);
 
-            // Set response status and type
+            // Set response status
             response.status(200);
-            response.type("application/json");
 
-            // Return updated user as JSON
-            return JsonUtil.toJson(result);
+            // Return updated user in the negotiated format
+            return ContentNegotiator.render(request, response, result);
 
         } catch (IllegalArgumentException e) {
             // Handle user not found error
@@ -304,6 +488,16 @@ public class UserController {
         }
     }
 
+    /**
+     * Checks whether the caller is authenticated as an admin.
+     *
+     * @param caller The authenticated caller, or null
+     * @return true for an admin token
+     */
+    private static boolean isAdmin(Principal caller) {
+        return caller != null && caller.getRole() == Role.ADMIN;
+    }
+
     /**
      * Validates if the role is one of the allowed values.
      *
@@ -311,7 +505,7 @@ public class UserController {
      * @return true if role is valid, false otherwise
      */
     private boolean isValidRole(String role) {
-        return role.equals("admin") || role.equals("buyer") || role.equals("seller");
+        return Role.fromValue(role) != null;
     }
 
     /**
@@ -324,7 +518,7 @@ public class UserController {
     public String deleteUser(Request request, Response response) {
         try {
             // Extract user ID from URL parameter
-            String userId = request.params(":id");
+            String userId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (userId == null || userId.trim().isEmpty()) {
@@ -332,14 +526,16 @@ public class UserController {
                 return createErrorResponse("User ID is required");
             }
 
-            // Check if user exists before attempting deletion
-            if (!userService.userExists(userId)) {
+            // Check if user exists before attempting deletion (the filter answers most missing IDs)
+            if (!userExists(userId)) {
                 response.status(404);
                 return createErrorResponse("User not found with ID: " + userId);
             }
 
             // Delete the user
+            RequestPhaseEvent servicePhase = RequestPhases.begin(RequestPhases.SERVICE);
             boolean deleted = userService.deleteUser(userId);
+            RequestPhases.end(servicePhase, request);
 
             if (deleted) {
                 // Set response status to 204 No Content (successful deletion)
@@ -369,7 +565,7 @@ public class UserController {
     public String checkUserExists(Request request, Response response) {
         try {
             // Extract user ID from URL parameter
-            String userId = request.params(":id");
+            String userId = RouteDispatcher.param(request, ":id");
 
             // Validate that ID was provided
             if (userId == null || userId.trim().isEmpty()) {
@@ -377,8 +573,8 @@ public class UserController {
                 return createErrorResponse("User ID is required");
             }
 
-            // Check if user exists
-            boolean exists = userService.userExists(userId);
+            // Check if user exists (the filter answers most missing IDs)
+            boolean exists = userExists(userId);
 
             // Set response status based on existence
             if (exists) {
@@ -403,4 +599,45 @@ public class UserController {
             return createErrorResponse("Error checking user existence: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks whether a user exists, asking the existence filter before the store.
+     *
+     * @param userId The user ID
+     * @return true if the user exists
+     */
+    private boolean userExists(String userId) {
+        if (userFilter != null && !userFilter.mightContain(userId)) {
+            return false;
+        }
+        boolean exists = userService.userExists(userId);
+        if (!exists) {
+            recordFalsePositive();
+        }
+        return exists;
+    }
+
+    /**
+     * Records a store lookup that found nothing for an ID the filter passed.
+     */
+    private void recordFalsePositive() {
+        if (userFilter != null) {
+            userFilter.recordFalsePositive();
+        }
+    }
+
+    /**
+     * Handles POST, PUT and DELETE /users/:id on a read-only replication follower.
+     * Writes must go to the leader, which streams them to the followers.
+     *
+     * @param request Spark request object
+     * @param response Spark response object
+     * @return JSON string with the error message
+     */
+    public String rejectReadOnlyWrite(Request request, Response response) {
+        response.status(405);
+        response.header("Allow", "GET, OPTIONS");
+        response.type("application/json");
+        return createErrorResponse("This node is a read-only follower. Send user writes to the leader.");
+    }
+}
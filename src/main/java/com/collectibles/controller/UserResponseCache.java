@@ -0,0 +1,163 @@
+package com.collectibles.controller;
+
+import com.collectibles.cache.CacheStats;
+import com.collectibles.cache.TinyLfuCache;
+import com.collectibles.model.User;
+import com.collectibles.service.UserChangeListener;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache of serialized GET /users/:id response bodies (JSON or CBOR bytes).
+ *
+ * Entries are keyed by format and user ID and stamped with the user's version
+ * when they are filled. Every user change bumps the version and drops the
+ * cached bodies, so a body serialized from data read before an update can
+ * never be stored over the invalidation. Versions are kept in a fixed array
+ * of stripes, so deleted users leave nothing behind.
+ *
+ * Registered as a {@link UserChangeListener}, so updates and deletes made
+ * through any path (routes, replication) invalidate exactly the affected user.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class UserResponseCache implements UserChangeListener {
+
+    // Number of version stripes; IDs sharing a stripe only cause extra misses
+    private static final int VERSION_STRIPES = 1024;
+
+    // First character of the cache key of each format
+    private static final char JSON_KEY_PREFIX = 'j';
+    private static final char CBOR_KEY_PREFIX = 'c';
+
+    // Typical serialized user size, used to size the frequency sketch
+    private static final int EXPECTED_BODY_BYTES = 128;
+
+    private final TinyLfuCache<String, Entry> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /**
+     * Creates a cache with the given byte budget.
+     *
+     * @param maximumBytes Budget for cached bodies in bytes
+     */
+    UserResponseCache(long maximumBytes) {
+        this.cache = new TinyLfuCache<>(maximumBytes, EXPECTED_BODY_BYTES, entry -> entry.body.length);
+    }
+
+    /**
+     * Reads the current version of a user, to be passed to {@link #put} later.
+     *
+     * @param userId The user ID
+     * @return Version stamp
+     */
+    long version(String userId) {
+        return versions.get(stripe(userId));
+    }
+
+    /**
+     * Looks up a cached body.
+     *
+     * @param userId The user ID
+     * @param cbor true for the CBOR body, false for JSON
+     * @return The serialized body, or null on a miss
+     */
+    byte[] get(String userId, boolean cbor) {
+        Entry entry = cache.get(key(userId, cbor));
+        if (entry == null || entry.version != version(userId)) {
+            return null;
+        }
+        return entry.body;
+    }
+
+    /**
+     * Stores a body serialized from data read at the given version.
+     * Ignored if the user changed since then.
+     *
+     * @param userId The user ID
+     * @param cbor true for the CBOR body, false for JSON
+     * @param version Version read before loading the user
+     * @param body The serialized body
+     */
+    void put(String userId, boolean cbor, long version, byte[] body) {
+        if (version == version(userId)) {
+            cache.put(key(userId, cbor), new Entry(version, body));
+        }
+    }
+
+    /**
+     * Takes a snapshot of the cache statistics.
+     *
+     * @return Hit ratio, evictions and size
+     */
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        invalidate(user.getId());
+    }
+
+    @Override
+    public void onUserDeleted(String id) {
+        invalidate(id);
+    }
+
+    @Override
+    public void onUsersCleared() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * Bumps the user's version, then drops both cached bodies.
+     *
+     * @param userId The user ID
+     */
+    private void invalidate(String userId) {
+        versions.incrementAndGet(stripe(userId));
+        cache.invalidate(key(userId, false));
+        cache.invalidate(key(userId, true));
+    }
+
+    /**
+     * Builds the cache key for a user and format. Every key starts with a
+     * format character, so the two formats never share a key, whatever
+     * characters the ID contains.
+     *
+     * @param userId The user ID
+     * @param cbor true for CBOR
+     * @return Cache key
+     */
+    private static String key(String userId, boolean cbor) {
+        return (cbor ? CBOR_KEY_PREFIX : JSON_KEY_PREFIX) + userId;
+    }
+
+    /**
+     * Picks the version stripe of a user ID.
+     *
+     * @param userId The user ID
+     * @return Stripe index
+     */
+    private static int stripe(String userId) {
+        int h = userId.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    /**
+     * A cached body and the version it was serialized from.
+     */
+    private static final class Entry {
+        final long version;
+        final byte[] body;
+
+        Entry(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.collectibles.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts and dumps on-demand Flight Recorder recordings.
+ *
+ * At most one recording exists at a time. It uses the low-overhead "default"
+ * settings plus the request phase events, minus the events that copy the
+ * environment, system properties or command lines (they hold secrets such
+ * as AUTH_SECRET). It stops by itself after its duration and never keeps
+ * more than a fixed number of bytes, so a forgotten recording cannot fill
+ * the disk. It can be dumped while running or after it stopped; starting a
+ * new one discards the previous one.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class FlightRecordings {
+
+    private static final String RECORDING_NAME = "collectibles-on-demand";
+
+    // Events of the "default" settings that copy the environment, system
+    // properties or command lines (JVM arguments include -D settings)
+    private static final String[] SENSITIVE_EVENTS = {
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess"
+    };
+
+    private final long maxBytes;
+    private Recording recording;
+
+    /**
+     * Creates the recording control.
+     *
+     * @param maxBytes Largest amount of recorded data kept on disk
+     */
+    public FlightRecordings(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Checks whether this JVM has Flight Recorder.
+     *
+     * @return true if recordings can be made
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts a recording unless one is running.
+     *
+     * @param duration How long to record before stopping automatically
+     * @return Status of the new recording
+     * @throws IllegalStateException if a recording is already running
+     * @throws IOException if the recording settings cannot be loaded
+     */
+    public synchronized Map<String, Object> start(Duration duration) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running until "
+                    + recording.getStartTime().plus(recording.getDuration()));
+        }
+        if (recording != null) {
+            recording.close();
+        }
+
+        Recording created;
+        try {
+            created = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Invalid Flight Recorder settings: " + e.getMessage(), e);
+        }
+        created.setName(RECORDING_NAME);
+        created.setToDisk(true);
+        created.setDuration(duration);
+        created.setMaxSize(maxBytes);
+        created.enable(RequestPhaseEvent.class).withoutStackTrace();
+        // The process environment and system properties hold secrets such as AUTH_SECRET
+        for (String event : SENSITIVE_EVENTS) {
+            created.disable(event);
+        }
+        created.start();
+        recording = created;
+
+        System.out.println("Flight recording started for " + duration.getSeconds() + " s");
+        return getStatus();
+    }
+
+    /**
+     * Writes the data recorded so far to a stream as a .jfr file.
+     *
+     * @param out Destination
+     * @return true if written, false if there is no recording to dump
+     * @throws IOException if writing fails
+     */
+    public synchronized boolean dump(OutputStream out) throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return false;
+        }
+        Path file = Files.createTempFile("collectibles-", ".jfr");
+        try {
+            recording.dump(file);
+            Files.copy(file, out);
+            return true;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Describes the current recording.
+     *
+     * @return Status fields; only "available" and "maxBytes" when there is no recording
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("available", true);
+        status.put("maxBytes", maxBytes);
+        if (recording != null) {
+            status.put("state", recording.getState().name().toLowerCase());
+            status.put("startTime", recording.getStartTime() != null ? recording.getStartTime().toString() : null);
+            status.put("durationSeconds", recording.getDuration() != null ? recording.getDuration().getSeconds() : null);
+            status.put("sizeBytes", recording.getSize());
+        }
+        return status;
+    }
+}
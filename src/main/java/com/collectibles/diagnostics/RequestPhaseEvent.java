@@ -0,0 +1,36 @@
+package com.collectibles.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one phase of handling an HTTP request
+ * (body parse, validation, service call or serialization).
+ *
+ * Created through {@link RequestPhases}, which skips it entirely on JVMs
+ * without Flight Recorder. Stack traces are off to keep the cost per event low.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+@Name("com.collectibles.RequestPhase")
+@Label("Request Phase")
+@Category({"Collectibles Store", "HTTP"})
+@Description("Time spent in one phase of handling an HTTP request")
+@StackTrace(false)
+@Threshold("0 ms")
+public class RequestPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+}
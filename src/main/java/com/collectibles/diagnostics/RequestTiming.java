@@ -0,0 +1,187 @@
+package com.collectibles.diagnostics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request ID and phase timings, reported in the Server-Timing response
+ * header and the access log.
+ *
+ * Spark runs the before filters, the route and the after filters of a
+ * request on one thread, so each request thread keeps one RequestTiming and
+ * reuses it: {@link #start} resets it in the before filter, the phase hooks
+ * add to fixed slots, and the after filter reads it. Nothing is allocated per
+ * request except the header string. All times come from System.nanoTime().
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class RequestTiming {
+
+    // Longest accepted X-Request-ID; longer or unusual values are replaced
+    private static final int MAX_REQUEST_ID_LENGTH = 128;
+
+    // Generated IDs: a random prefix per process plus a counter
+    private static final String ID_PREFIX = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    private static final AtomicLong ID_COUNTER = new AtomicLong();
+
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private final long[] phaseNanos = new long[RequestPhases.NAMES.length];
+    private final StringBuilder header = new StringBuilder(128);
+    private String requestId;
+    private long startNanos;
+    private long filterNanos;
+    private int openPhase = -1;
+    private long openSince;
+
+    /**
+     * Gets the timing of the request running on this thread.
+     *
+     * @return The thread's timing (reset by {@link #start} for each request)
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts timing a new request on this thread.
+     *
+     * @param incomingId Value of the X-Request-ID request header, may be null
+     * @return The reset timing
+     */
+    public static RequestTiming start(String incomingId) {
+        RequestTiming timing = CURRENT.get();
+        timing.startNanos = System.nanoTime();
+        timing.requestId = isValidRequestId(incomingId) ? incomingId : nextRequestId();
+        timing.filterNanos = 0;
+        timing.openPhase = -1;
+        for (int i = 0; i < timing.phaseNanos.length; i++) {
+            timing.phaseNanos[i] = 0;
+        }
+        return timing;
+    }
+
+    /**
+     * Gets the ID of the request.
+     *
+     * @return The propagated or generated request ID
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Adds time spent in the before and after filters.
+     *
+     * @param sinceNanos System.nanoTime() when the filter started
+     */
+    public void addFilterTime(long sinceNanos) {
+        filterNanos += System.nanoTime() - sinceNanos;
+    }
+
+    /**
+     * Gets the System.nanoTime() at which the request started, so the first
+     * filter can be timed from the same instant as the total.
+     *
+     * @return Start time in nanoseconds
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Gets the time since {@link #start}.
+     *
+     * @return Elapsed nanoseconds
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Builds the Server-Timing header value: filters, each phase that ran, and
+     * the total so far, in milliseconds.
+     *
+     * @return e.g. "filters;dur=0.041, service;dur=0.210, serialize;dur=0.388, total;dur=0.702"
+     */
+    public String toServerTiming() {
+        header.setLength(0);
+        appendMetric("filters", filterNanos);
+        for (int i = 0; i < phaseNanos.length; i++) {
+            if (phaseNanos[i] > 0) {
+                appendMetric(RequestPhases.NAMES[i], phaseNanos[i]);
+            }
+        }
+        appendMetric("total", getElapsedNanos());
+        return header.toString();
+    }
+
+    /**
+     * Starts a phase. Phases do not nest; starting one drops an unfinished one.
+     *
+     * @param phase Phase index (a RequestPhases constant)
+     */
+    void beginPhase(int phase) {
+        openPhase = phase;
+        openSince = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase and adds its duration.
+     */
+    void endPhase() {
+        if (openPhase >= 0) {
+            phaseNanos[openPhase] += System.nanoTime() - openSince;
+            openPhase = -1;
+        }
+    }
+
+    /**
+     * Appends "name;dur=millis" with microsecond precision, without String.format.
+     */
+    private void appendMetric(String name, long nanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        long micros = nanos / 1000;
+        long fraction = micros % 1000;
+        header.append(name).append(";dur=").append(micros / 1000).append('.');
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+
+    /**
+     * Accepts client request IDs of reasonable length made of letters, digits and -_.:
+     * so they can be logged and echoed safely.
+     */
+    private static boolean isValidRequestId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_REQUEST_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == ':';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nextRequestId() {
+        return ID_PREFIX + "-" + Long.toHexString(ID_COUNTER.incrementAndGet());
+    }
+
+    /**
+     * Private constructor: one instance per thread, through {@link #current()}.
+     */
+    private RequestTiming() {
+    }
+}
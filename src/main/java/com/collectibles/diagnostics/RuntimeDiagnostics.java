@@ -0,0 +1,122 @@
+package com.collectibles.diagnostics;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Collects a snapshot of the JVM state for the /debug/runtime endpoint:
+ * heap and non-heap memory, collection counts and total pause time per
+ * garbage collector, JVM threads and the utilization of the Jetty request
+ * thread pool.
+ *
+ * Everything is read from the platform MXBeans and the thread pool's own
+ * counters, so taking a snapshot does not pause the application.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class RuntimeDiagnostics {
+
+    private final Supplier<ThreadPool> threadPool;
+
+    /**
+     * Creates the collector.
+     *
+     * @param threadPool Supplies the server's request thread pool (may supply null before the server starts)
+     */
+    public RuntimeDiagnostics(Supplier<ThreadPool> threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Takes a snapshot.
+     *
+     * @return Nested maps ready to be serialized
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> runtime = new LinkedHashMap<>();
+        runtime.put("uptimeMs", ManagementFactory.getRuntimeMXBean().getUptime());
+        runtime.put("processors", Runtime.getRuntime().availableProcessors());
+
+        // Memory
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        runtime.put("heap", memoryUsage(memory.getHeapMemoryUsage()));
+        runtime.put("nonHeap", memoryUsage(memory.getNonHeapMemoryUsage()));
+
+        // Garbage collection, per collector and in total
+        List<Map<String, Object>> collectors = new ArrayList<>();
+        long totalCount = 0;
+        long totalTime = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            Map<String, Object> gc = new LinkedHashMap<>();
+            gc.put("name", collector.getName());
+            gc.put("collections", collector.getCollectionCount());
+            gc.put("timeMs", collector.getCollectionTime());
+            collectors.add(gc);
+            totalCount += Math.max(0, collector.getCollectionCount());
+            totalTime += Math.max(0, collector.getCollectionTime());
+        }
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", totalCount);
+        gc.put("timeMs", totalTime);
+        gc.put("collectors", collectors);
+        runtime.put("gc", gc);
+
+        // JVM threads
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Map<String, Object> threads = new LinkedHashMap<>();
+        threads.put("live", threadBean.getThreadCount());
+        threads.put("daemon", threadBean.getDaemonThreadCount());
+        threads.put("peak", threadBean.getPeakThreadCount());
+        runtime.put("threads", threads);
+
+        // Request thread pool
+        ThreadPool pool = threadPool.get();
+        if (pool != null) {
+            runtime.put("threadPool", threadPool(pool));
+        }
+        return runtime;
+    }
+
+    private static Map<String, Object> memoryUsage(MemoryUsage usage) {
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("usedBytes", usage.getUsed());
+        memory.put("committedBytes", usage.getCommitted());
+        if (usage.getMax() >= 0) {
+            memory.put("maxBytes", usage.getMax());
+        }
+        return memory;
+    }
+
+    /**
+     * Describes the request thread pool. Utilization is busy threads over the
+     * maximum; a full pool with queued jobs means requests wait for a thread.
+     */
+    private static Map<String, Object> threadPool(ThreadPool pool) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", pool.getThreads());
+        stats.put("idle", pool.getIdleThreads());
+        stats.put("lowOnThreads", pool.isLowOnThreads());
+        if (pool instanceof QueuedThreadPool) {
+            QueuedThreadPool queued = (QueuedThreadPool) pool;
+            int busy = queued.getBusyThreads();
+            stats.put("busy", busy);
+            stats.put("queued", queued.getQueueSize());
+            stats.put("minThreads", queued.getMinThreads());
+            stats.put("maxThreads", queued.getMaxThreads());
+            stats.put("utilization", queued.getMaxThreads() > 0 ? busy / (double) queued.getMaxThreads() : 0.0);
+        }
+        return stats;
+    }
+}
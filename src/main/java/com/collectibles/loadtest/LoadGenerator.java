@@ -0,0 +1,387 @@
+package com.collectibles.loadtest;
+
+import com.collectibles.Main;
+import com.collectibles.config.ServerConfig;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.StringContentProvider;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import spark.Spark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator that replays the Postman collection at a fixed rate.
+ *
+ * Requests are scheduled on a fixed timetable (one every 1/rate seconds) and
+ * are sent whether or not earlier requests have completed. Latency is measured
+ * from the time a request was <em>supposed</em> to be sent, so a stalled server
+ * cannot hide its own queueing delay (coordinated omission). The service time
+ * measured from the actual send is reported next to it for comparison.
+ *
+ * The generator starts the server in-process and stops it when done.
+ *
+ * Usage:
+ * <pre>
+ * mvn -Ploadtest compile exec:java -Dloadtest.args="--rate=2000 --duration=30 --mix=items:90,users:10"
+ * </pre>
+ *
+ * Options (all optional): --rate, --duration, --warmup (seconds), --mix,
+ * --protocol (http1|h2c), --connections, --port, --collection, --report-dir.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class LoadGenerator {
+
+    // Latencies are recorded in microseconds, up to one minute, with 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    // Jetty allocates the request queue up front, so keep it bounded
+    private static final int MAX_QUEUED_REQUESTS = 65536;
+
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final String protocol;
+    private final int connections;
+    private final WorkloadMix mix;
+    private final File reportDir;
+
+    private final Recorder correctedRecorder = newRecorder();
+    private final Recorder serviceTimeRecorder = newRecorder();
+    private final Map<String, Recorder> groupRecorders = new HashMap<>();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+
+    /**
+     * Creates a generator from parsed options.
+     *
+     * @param options Option values keyed by name (without the leading "--")
+     * @param mix Workload mix to replay
+     */
+    LoadGenerator(Map<String, String> options, WorkloadMix mix) {
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "2000"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.protocol = options.getOrDefault("protocol", "http1");
+        this.connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        this.reportDir = new File(options.getOrDefault("report-dir", "target/loadtest"));
+        this.mix = mix;
+
+        if (rate <= 0 || durationSeconds <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("rate and duration must be positive, warmup non-negative");
+        }
+        for (String group : mix.getGroups()) {
+            groupRecorders.put(group, newRecorder());
+        }
+    }
+
+    /**
+     * Entry point: starts the server, runs warmup and measurement, prints the report.
+     *
+     * @param args Options in "--name=value" form
+     * @throws Exception if the server or the client fails to start
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        List<ScenarioRequest> requests = PostmanCollection.load(Paths.get(
+                options.getOrDefault("collection", "postman/Collectibles-Store-API-Sprint1.postman_collection.json")));
+        WorkloadMix mix = new WorkloadMix(options.getOrDefault("mix", "items:90,users:10"), requests);
+
+        // Start the server in this JVM, without per-request console logging
+        if (options.containsKey("port")) {
+            System.setProperty("PORT", options.get("port"));
+        }
+        System.setProperty("REQUEST_LOGGING", "false");
+        Main.main(new String[0]);
+        Spark.awaitInitialization();
+
+        try {
+            new LoadGenerator(options, mix).run("http://localhost:" + ServerConfig.getPort());
+        } finally {
+            Spark.stop();
+            Spark.awaitStop();
+        }
+    }
+
+    /**
+     * Runs the warmup and measurement phases and writes the reports.
+     *
+     * @param baseUrl Server base URL
+     * @throws Exception if the client fails
+     */
+    void run(String baseUrl) throws Exception {
+        HttpClient client = createClient();
+        client.start();
+
+        System.out.println("=== Load test: " + rate + " req/s, " + durationSeconds + "s (+" + warmupSeconds
+                + "s warmup), " + protocol + " ===");
+        System.out.println("Mix: " + mix);
+
+        try {
+            if (warmupSeconds > 0) {
+                drive(client, baseUrl, warmupSeconds, null);
+                awaitOutstanding();
+                resetRecorders();
+            }
+
+            Histogram corrected = newHistogram();
+            drive(client, baseUrl, durationSeconds, corrected);
+            awaitOutstanding();
+            corrected.add(correctedRecorder.getIntervalHistogram());
+
+            report(corrected);
+        } finally {
+            client.stop();
+        }
+    }
+
+    /**
+     * Sends requests on a fixed schedule for the given number of seconds.
+     *
+     * @param client HTTP client
+     * @param baseUrl Server base URL
+     * @param seconds How long to send for
+     * @param accumulator Histogram that collects per-second intervals, or null during warmup
+     */
+    private void drive(HttpClient client, String baseUrl, int seconds, Histogram accumulator) {
+        Random random = new Random(42);
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        int second = 0;
+
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * periodNanos;
+
+            // Wait for the scheduled send time; never wait for responses
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+
+            send(client, baseUrl, mix.next(random), intendedStart);
+
+            if (accumulator != null && now >= nextReport) {
+                second++;
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+                Histogram interval = correctedRecorder.getIntervalHistogram();
+                accumulator.add(interval);
+                System.out.printf("t=%3ds  done=%7d  p50=%8.3f ms  p99=%8.3f ms  max=%8.3f ms  outstanding=%d%n",
+                        second, interval.getTotalCount(),
+                        interval.getValueAtPercentile(50.0) / 1000.0,
+                        interval.getValueAtPercentile(99.0) / 1000.0,
+                        interval.getMaxValue() / 1000.0,
+                        outstanding.get());
+            }
+        }
+    }
+
+    /**
+     * Sends one request asynchronously and records its latency on completion.
+     *
+     * @param client HTTP client
+     * @param baseUrl Server base URL
+     * @param scenario Request to replay
+     * @param intendedStart Scheduled send time (System.nanoTime)
+     */
+    private void send(HttpClient client, String baseUrl, ScenarioRequest scenario, long intendedStart) {
+        Request request = client.newRequest(baseUrl + scenario.getPath())
+                .method(scenario.getMethod())
+                .timeout(30, TimeUnit.SECONDS);
+        if (scenario.getBody() != null) {
+            request.content(new StringContentProvider("application/json", scenario.getBody(), StandardCharsets.UTF_8));
+        }
+
+        final long sentAt = System.nanoTime();
+        final Recorder groupRecorder = groupRecorders.get(scenario.getGroup());
+        outstanding.incrementAndGet();
+
+        request.send(new BufferingResponseListener() {
+            @Override
+            public void onComplete(Result result) {
+                long end = System.nanoTime();
+                record(correctedRecorder, end - intendedStart);
+                record(groupRecorder, end - intendedStart);
+                record(serviceTimeRecorder, end - sentAt);
+
+                if (result.isFailed()) {
+                    failures.increment();
+                } else {
+                    statusCounts.computeIfAbsent(result.getResponse().getStatus(), s -> new LongAdder()).increment();
+                }
+                outstanding.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Records a latency in microseconds, clamped to the trackable range.
+     *
+     * @param recorder Recorder to update
+     * @param nanos Latency in nanoseconds
+     */
+    private static void record(Recorder recorder, long nanos) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * Waits until every sent request has completed (or timed out).
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void awaitOutstanding() throws InterruptedException {
+        while (outstanding.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Discards everything recorded so far (used after warmup).
+     */
+    private void resetRecorders() {
+        correctedRecorder.reset();
+        serviceTimeRecorder.reset();
+        for (Recorder recorder : groupRecorders.values()) {
+            recorder.reset();
+        }
+        statusCounts.clear();
+        failures.reset();
+    }
+
+    /**
+     * Prints the summary and writes the HDR percentile distributions.
+     *
+     * @param corrected Accumulated latency histogram (corrected for coordinated omission)
+     * @throws Exception if a report file cannot be written
+     */
+    private void report(Histogram corrected) throws Exception {
+        Histogram serviceTime = serviceTimeRecorder.getIntervalHistogram();
+
+        System.out.println("\n=== Results ===");
+        System.out.printf("Requests: %d  (target rate %d req/s, achieved %.0f req/s)%n",
+                corrected.getTotalCount(), rate, corrected.getTotalCount() / (double) durationSeconds);
+        System.out.println("Status codes: " + new TreeMap<>(statusCounts) + "  failures: " + failures.sum());
+
+        System.out.println("\nLatency by group (corrected, ms):");
+        printSummary("all", corrected);
+        for (String group : mix.getGroups()) {
+            printSummary(group, groupRecorders.get(group).getIntervalHistogram());
+        }
+        printSummary("service time", serviceTime);
+
+        reportDir.mkdirs();
+        writeDistribution(new File(reportDir, "latency-corrected.hgrm"), corrected);
+        writeDistribution(new File(reportDir, "latency-service-time.hgrm"), serviceTime);
+        System.out.println("\nHDR percentile distributions written to " + reportDir.getPath());
+    }
+
+    /**
+     * Prints one line of percentiles.
+     *
+     * @param label Row label
+     * @param histogram Latencies in microseconds
+     */
+    private static void printSummary(String label, Histogram histogram) {
+        System.out.printf("  %-13s count=%8d  p50=%8.3f  p90=%8.3f  p99=%8.3f  p99.9=%8.3f  max=%8.3f%n",
+                label, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50.0) / 1000.0,
+                histogram.getValueAtPercentile(90.0) / 1000.0,
+                histogram.getValueAtPercentile(99.0) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Writes an HDR percentile distribution file (values in milliseconds).
+     *
+     * @param file Target file
+     * @param histogram Latencies in microseconds
+     * @throws Exception if the file cannot be written
+     */
+    private static void writeDistribution(File file, Histogram histogram) throws Exception {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    /**
+     * Creates the HTTP client for the selected protocol.
+     *
+     * @return Unstarted client
+     */
+    private HttpClient createClient() {
+        HttpClient client;
+        if ("h2c".equalsIgnoreCase(protocol)) {
+            client = new HttpClient(new HttpClientTransportOverHTTP2(new HTTP2Client()), null);
+            client.setMaxConnectionsPerDestination(1);
+        } else {
+            client = new HttpClient(new HttpClientTransportOverHTTP(1), null);
+            client.setMaxConnectionsPerDestination(connections);
+        }
+        client.setMaxRequestsQueuedPerDestination(MAX_QUEUED_REQUESTS);
+        return client;
+    }
+
+    /**
+     * Parses "--name=value" arguments.
+     *
+     * @param args Command line arguments
+     * @return Options keyed by name
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Creates a latency recorder with the shared precision settings.
+     *
+     * @return New recorder
+     */
+    private static Recorder newRecorder() {
+        return new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a latency histogram with the shared precision settings.
+     *
+     * @return New histogram
+     */
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+}
@@ -0,0 +1,126 @@
+package com.collectibles.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the requests of a Postman v2.1 collection so they can be replayed under load.
+ * Folders are walked recursively; each request is assigned to a workload group
+ * based on the first segment of its path.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class PostmanCollection {
+
+    /**
+     * Loads every request from a Postman collection file.
+     *
+     * @param file Path to the collection JSON file
+     * @return Requests in collection order
+     * @throws IOException if the file cannot be read
+     */
+    public static List<ScenarioRequest> load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject collection = JsonParser.parseReader(reader).getAsJsonObject();
+            List<ScenarioRequest> requests = new ArrayList<>();
+            collect(collection.getAsJsonArray("item"), requests);
+            return requests;
+        }
+    }
+
+    /**
+     * Walks a list of collection entries, descending into folders.
+     *
+     * @param entries Collection entries (folders or requests)
+     * @param requests List the parsed requests are added to
+     */
+    private static void collect(JsonArray entries, List<ScenarioRequest> requests) {
+        if (entries == null) {
+            return;
+        }
+        for (JsonElement element : entries) {
+            JsonObject entry = element.getAsJsonObject();
+            if (entry.has("item")) {
+                collect(entry.getAsJsonArray("item"), requests);
+            } else if (entry.has("request")) {
+                requests.add(parseRequest(entry));
+            }
+        }
+    }
+
+    /**
+     * Converts one collection entry into a replayable request.
+     *
+     * @param entry Collection entry holding a "request" object
+     * @return The parsed request
+     */
+    private static ScenarioRequest parseRequest(JsonObject entry) {
+        JsonObject request = entry.getAsJsonObject("request");
+        String name = entry.has("name") ? entry.get("name").getAsString() : "";
+        String method = request.get("method").getAsString();
+
+        JsonElement url = request.get("url");
+        String raw = url.isJsonObject() ? url.getAsJsonObject().get("raw").getAsString() : url.getAsString();
+        String path = toPath(raw);
+
+        String body = null;
+        if (request.has("body") && request.getAsJsonObject("body").has("raw")) {
+            body = request.getAsJsonObject("body").get("raw").getAsString();
+            if (body.trim().isEmpty()) {
+                body = null;
+            }
+        }
+
+        return new ScenarioRequest(name, groupOf(path), method, path, body);
+    }
+
+    /**
+     * Strips scheme, host and port from a raw Postman URL.
+     *
+     * @param rawUrl URL as written in the collection
+     * @return Path starting with "/"
+     */
+    static String toPath(String rawUrl) {
+        String url = rawUrl;
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd >= 0) {
+            url = url.substring(schemeEnd + 3);
+        }
+        int pathStart = url.indexOf('/');
+        return pathStart >= 0 ? url.substring(pathStart) : "/";
+    }
+
+    /**
+     * Derives the workload group from the first path segment.
+     *
+     * @param path Request path
+     * @return "items", "users" or "utility"
+     */
+    static String groupOf(String path) {
+        if (path.startsWith("/items")) {
+            return "items";
+        }
+        if (path.startsWith("/users")) {
+            return "users";
+        }
+        return "utility";
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PostmanCollection() {
+        // Utility class, should not be instantiated
+    }
+}
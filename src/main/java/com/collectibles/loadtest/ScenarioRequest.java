@@ -0,0 +1,89 @@
+package com.collectibles.loadtest;
+
+/**
+ * A single HTTP request taken from the Postman collection.
+ * Only the parts needed to replay it are kept: method, path and body.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ScenarioRequest {
+
+    private final String name;
+    private final String group;
+    private final String method;
+    private final String path;
+    private final String body;
+
+    /**
+     * Creates a replayable request.
+     *
+     * @param name Name of the request in the collection
+     * @param group Workload group (e.g. "items", "users", "utility")
+     * @param method HTTP method
+     * @param path Request path relative to the server root
+     * @param body JSON body, or null when the request has none
+     */
+    public ScenarioRequest(String name, String group, String method, String path, String body) {
+        this.name = name;
+        this.group = group;
+        this.method = method;
+        this.path = path;
+        this.body = body;
+    }
+
+    /**
+     * Gets the request name from the collection.
+     *
+     * @return The request name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the workload group this request belongs to.
+     *
+     * @return The group name
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * Gets the HTTP method.
+     *
+     * @return The HTTP method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the request path.
+     *
+     * @return The path, starting with "/"
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the request body.
+     *
+     * @return The body, or null when the request has none
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Returns a short description of the request.
+     *
+     * @return Method and path
+     */
+    @Override
+    public String toString() {
+        return method + " " + path;
+    }
+}
@@ -0,0 +1,108 @@
+package com.collectibles.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted mix of request groups, e.g. "items:90,users:10".
+ * A group is picked by weight, then a request is picked uniformly among the
+ * collection requests of that group.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class WorkloadMix {
+
+    private final String[] groups;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+    private final Map<String, List<ScenarioRequest>> requestsByGroup;
+
+    /**
+     * Builds a mix from a specification and the available requests.
+     *
+     * @param spec Comma-separated "group:weight" pairs
+     * @param requests Requests loaded from the collection
+     * @throws IllegalArgumentException if the spec is malformed or names an empty group
+     */
+    public WorkloadMix(String spec, List<ScenarioRequest> requests) {
+        this.requestsByGroup = new LinkedHashMap<>();
+        for (ScenarioRequest request : requests) {
+            requestsByGroup.computeIfAbsent(request.getGroup(), g -> new ArrayList<>()).add(request);
+        }
+
+        String[] parts = spec.split(",");
+        this.groups = new String[parts.length];
+        this.cumulativeWeights = new int[parts.length];
+
+        int sum = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String[] pair = parts[i].trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + parts[i]);
+            }
+            String group = pair[0].trim();
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be positive: " + parts[i]);
+            }
+            if (!requestsByGroup.containsKey(group)) {
+                throw new IllegalArgumentException("No requests in collection for group: " + group);
+            }
+            sum += weight;
+            groups[i] = group;
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    /**
+     * Picks the next request to send.
+     *
+     * @param random Random source (one per sending thread)
+     * @return The request to send
+     */
+    public ScenarioRequest next(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        int index = 0;
+        while (ticket >= cumulativeWeights[index]) {
+            index++;
+        }
+        List<ScenarioRequest> candidates = requestsByGroup.get(groups[index]);
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    /**
+     * Gets the groups used by this mix, in spec order.
+     *
+     * @return Group names
+     */
+    public String[] getGroups() {
+        return groups.clone();
+    }
+
+    /**
+     * Describes the mix for the report header.
+     *
+     * @return Human-readable mix with request counts per group
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < groups.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            int weight = cumulativeWeights[i] - previous;
+            previous = cumulativeWeights[i];
+            sb.append(groups[i]).append(' ')
+                    .append(String.format("%.1f%%", 100.0 * weight / totalWeight))
+                    .append(" (").append(requestsByGroup.get(groups[i]).size()).append(" requests)");
+        }
+        return sb.toString();
+    }
+}
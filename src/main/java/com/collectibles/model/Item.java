@@ -1,20 +1,35 @@
 package com.collectibles.model;
 
+import com.collectibles.util.StringPool;
+import com.google.gson.annotations.JsonAdapter;
+
 /**
  * Entity class representing a collectible item in the store.
  * This class encapsulates all properties of an item including
  * its unique identifier, name, description, and price.
  *
+ * Prices in the catalog format ("$621.34 USD") are kept as a long amount in
+ * minor units (cents) plus a pooled currency code, and formatted back on
+ * output. Any other price text is kept verbatim. JSON is read and written by
+ * {@link ItemTypeAdapter}, so the wire format is unchanged.
+ *
  * @author Rafael
  * @version 1.0.0
  */
+@JsonAdapter(ItemTypeAdapter.class)
 public class Item {
 
     // Fields representing item properties
     private String id;
     private String name;
     private String description;
-    private String price;
+
+    // Price in minor units and its currency code (currency is null if the price is not structured)
+    private long priceMinor;
+    private String currency;
+
+    // Price text that does not follow the "$123.45 USD" format (null in the normal case)
+    private String rawPrice;
 
     /**
      * Default constructor.
@@ -36,7 +51,7 @@ public class Item {
         this.id = id;
         this.name = name;
         this.description = description;
-        this.price = price;
+        setPrice(price);
     }
 
     /**
@@ -99,16 +114,95 @@ public class Item {
      * @return The item's price in USD format
      */
     public String getPrice() {
-        return price;
+        if (currency == null) {
+            return rawPrice;
+        }
+        long major = priceMinor / 100;
+        int minor = (int) (priceMinor % 100);
+        return "$" + major + (minor < 10 ? ".0" : ".") + minor + " " + currency;
     }
 
     /**
      * Sets the price of the item.
+     * Prices in the "$123.45 USD" format are stored as minor units and currency.
      *
      * @param price The item's price to set
      */
     public void setPrice(String price) {
-        this.price = price;
+        this.currency = null;
+        this.priceMinor = 0;
+        this.rawPrice = null;
+        if (price != null && !parseStructuredPrice(price)) {
+            this.rawPrice = price;
+        }
+    }
+
+    /**
+     * Checks whether the price is in the structured "$123.45 USD" format.
+     *
+     * @return true if {@link #getPriceMinor()} and {@link #getCurrency()} are meaningful
+     */
+    public boolean hasStructuredPrice() {
+        return currency != null;
+    }
+
+    /**
+     * Gets the price in minor units (e.g. cents).
+     *
+     * @return Price in minor units; 0 if the price is not structured
+     */
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+
+    /**
+     * Gets the currency code of the price.
+     *
+     * @return Three-letter currency code, or null if the price is not structured
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Parses "$&lt;digits&gt;.&lt;2 digits&gt; &lt;3 upper-case letters&gt;" into minor units and currency.
+     * Only text that formats back to exactly the same string is accepted.
+     *
+     * @param price The price text
+     * @return true if the price was parsed and stored
+     */
+    private boolean parseStructuredPrice(String price) {
+        int length = price.length();
+        int dot = price.indexOf('.');
+        // "$" + major + "." + 2 digits + " " + 3 letters
+        if (length < 9 || price.charAt(0) != '$' || dot < 2 || dot != length - 7 || dot > 16
+                || price.charAt(length - 4) != ' ') {
+            return false;
+        }
+        // No leading zeros, so the formatted value matches the input
+        if (price.charAt(1) == '0' && dot != 2) {
+            return false;
+        }
+        long minor = 0;
+        for (int i = 1; i < length - 4; i++) {
+            if (i == dot) {
+                continue;
+            }
+            char c = price.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            minor = minor * 10 + (c - '0');
+        }
+        for (int i = length - 3; i < length; i++) {
+            char c = price.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        this.priceMinor = minor;
+        this.currency = StringPool.intern(price.substring(length - 3));
+        return true;
     }
 
     /**
@@ -123,7 +217,7 @@ public class Item {
                 "id='" + id + '\'' +
                 ", name='" + name + '\'' +
                 ", description='" + description + '\'' +
-                ", price='" + price + '\'' +
+                ", price='" + getPrice() + '\'' +
                 '}';
     }
 
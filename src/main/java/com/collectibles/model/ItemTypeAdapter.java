@@ -0,0 +1,76 @@
+package com.collectibles.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that keeps the JSON shape of {@link Item} unchanged
+ * ({"id", "name", "description", "price"} as strings) while the class stores
+ * the price as minor units plus currency. Unknown fields are ignored, as with
+ * reflective Gson.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class ItemTypeAdapter extends TypeAdapter<Item> {
+
+    @Override
+    public void write(JsonWriter out, Item item) throws IOException {
+        out.beginObject();
+        writeField(out, "id", item.getId());
+        writeField(out, "name", item.getName());
+        writeField(out, "description", item.getDescription());
+        writeField(out, "price", item.getPrice());
+        out.endObject();
+    }
+
+    @Override
+    public Item read(JsonReader in) throws IOException {
+        Item item = new Item();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    item.setId(in.nextString());
+                    break;
+                case "name":
+                    item.setName(in.nextString());
+                    break;
+                case "description":
+                    item.setDescription(in.nextString());
+                    break;
+                case "price":
+                    item.setPrice(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return item;
+    }
+
+    /**
+     * Writes a string field, skipping nulls like Gson's default.
+     *
+     * @param out The writer
+     * @param name Field name
+     * @param value Field value, may be null
+     * @throws IOException if writing fails
+     */
+    private static void writeField(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.collectibles.model;
+
+/**
+ * Roles a user can have. Stored on {@link User} as an enum constant, so a
+ * million users share three objects instead of holding a million role strings.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public enum Role {
+
+    ADMIN("admin"),
+    BUYER("buyer"),
+    SELLER("seller");
+
+    private final String value;
+
+    /**
+     * Creates a role with its wire value.
+     *
+     * @param value Value used in JSON
+     */
+    Role(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets the value used in JSON.
+     *
+     * @return Lower-case role name
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Looks up a role by its wire value (case-sensitive, like the original validation).
+     *
+     * @param value Role name, may be null
+     * @return The role, or null if the value is not a known role
+     */
+    public static Role fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case "admin":
+                return ADMIN;
+            case "buyer":
+                return BUYER;
+            case "seller":
+                return SELLER;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.collectibles.model;
 
+import com.collectibles.util.StringPool;
+import com.google.gson.annotations.JsonAdapter;
+
 /**
  * Entity class representing a user in the collectibles store system.
  * This class stores basic user information including identification,
  * contact details, and role information.
  *
+ * The role is kept as a {@link Role} constant rather than a string; a role
+ * value that is not recognized is kept as-is (pooled) so validation can still
+ * reject it. JSON is read and written by {@link UserTypeAdapter}, which keeps
+ * the wire format identical to the plain-string fields.
+ *
  * @author Rafael
  * @version 1.0.0
  */
+@JsonAdapter(UserTypeAdapter.class)
 public class User {
 
     // Fields representing user properties
     private String id;
     private String name;
     private String email;
-    private String role;
+    private Role role;
+
+    // Role value that is not a known Role (null in the normal case)
+    private String unknownRole;
 
     /**
      * Default constructor.
@@ -36,7 +48,7 @@ public class User {
         this.id = id;
         this.name = name;
         this.email = email;
-        this.role = role;
+        setRole(role);
     }
 
     /**
@@ -99,6 +111,15 @@ public class User {
      * @return The user's role
      */
     public String getRole() {
+        return role != null ? role.getValue() : unknownRole;
+    }
+
+    /**
+     * Gets the role of the user as an enum constant.
+     *
+     * @return The user's role, or null if missing or not a known role
+     */
+    public Role getRoleEnum() {
         return role;
     }
 
@@ -108,7 +129,8 @@ public class User {
      * @param role The user's role to set
      */
     public void setRole(String role) {
-        this.role = role;
+        this.role = Role.fromValue(role);
+        this.unknownRole = this.role == null ? StringPool.intern(role) : null;
     }
 
     /**
@@ -123,7 +145,7 @@ public class User {
                 "id='" + id + '\'' +
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
-                ", role='" + role + '\'' +
+                ", role='" + getRole() + '\'' +
                 '}';
     }
 
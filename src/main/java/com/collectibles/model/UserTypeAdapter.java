@@ -0,0 +1,75 @@
+package com.collectibles.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson adapter that keeps the JSON shape of {@link User} unchanged
+ * ({"id", "name", "email", "role"} as strings) while the class stores the
+ * role as an enum. Unknown fields are ignored, as with reflective Gson.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class UserTypeAdapter extends TypeAdapter<User> {
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        out.beginObject();
+        writeField(out, "id", user.getId());
+        writeField(out, "name", user.getName());
+        writeField(out, "email", user.getEmail());
+        writeField(out, "role", user.getRole());
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    user.setId(in.nextString());
+                    break;
+                case "name":
+                    user.setName(in.nextString());
+                    break;
+                case "email":
+                    user.setEmail(in.nextString());
+                    break;
+                case "role":
+                    user.setRole(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    /**
+     * Writes a string field, skipping nulls like Gson's default.
+     *
+     * @param out The writer
+     * @param name Field name
+     * @param value Field value, may be null
+     * @throws IOException if writing fails
+     */
+    private static void writeField(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.collectibles.replication;
+
+import com.collectibles.model.User;
+import com.collectibles.service.UserService;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follower side of user-store replication.
+ * Connects to the leader, installs a snapshot when needed, then applies the
+ * change stream to the local UserService, which serves reads. On disconnect it
+ * reconnects and resumes from the last applied sequence number.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ReplicationFollower implements ReplicationNode {
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int READ_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final UserService userService;
+    private final String leaderHost;
+    private final int leaderPort;
+    private final Gson gson = JsonUtil.getCompactGson();
+
+    // Replication progress (written by the replication thread, read by the status endpoint)
+    private volatile long epoch;
+    private volatile long appliedSeq;
+    private volatile long leaderSeq;
+    private volatile long lastAppliedLeaderTimestamp;
+    private volatile long lastApplyDelayMillis;
+    private volatile long lastContactMillis;
+    private volatile boolean connected;
+    private volatile int reconnects;
+    private volatile boolean running;
+    private volatile Socket socket;
+
+    /**
+     * Creates a follower for the given leader.
+     *
+     * @param userService Local user store that receives the changes
+     * @param leaderAddress Leader replication address as "host:port"
+     */
+    public ReplicationFollower(UserService userService, String leaderAddress) {
+        int colon = leaderAddress.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Leader address must be host:port, got: " + leaderAddress);
+        }
+        this.userService = userService;
+        this.leaderHost = leaderAddress.substring(0, colon);
+        this.leaderPort = Integer.parseInt(leaderAddress.substring(colon + 1));
+    }
+
+    /**
+     * Starts the replication thread.
+     */
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::replicateLoop, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Replication follower of " + leaderHost + ":" + leaderPort + " started");
+    }
+
+    /**
+     * Connects and applies changes, reconnecting after failures until stopped.
+     */
+    private void replicateLoop() {
+        while (running) {
+            try {
+                replicateOnce();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Replication connection lost: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            if (running) {
+                reconnects++;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one connection: subscribe from the last applied seq and apply the stream.
+     *
+     * @throws IOException if the connection fails
+     */
+    private void replicateOnce() throws IOException {
+        try (Socket s = new Socket()) {
+            socket = s;
+            s.connect(new InetSocketAddress(leaderHost, leaderPort), CONNECT_TIMEOUT_MS);
+            s.setSoTimeout(READ_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+
+            out.write(gson.toJson(ReplicationMessage.of(ReplicationMessage.SUBSCRIBE, epoch, appliedSeq)));
+            out.write('\n');
+            out.flush();
+
+            connected = true;
+            String line;
+            while (running && (line = in.readLine()) != null) {
+                lastContactMillis = System.currentTimeMillis();
+                apply(gson.fromJson(line, ReplicationMessage.class), in);
+            }
+        }
+    }
+
+    /**
+     * Applies one message from the leader.
+     *
+     * @param message The message
+     * @param in Leader stream (snapshot users follow the SNAPSHOT header)
+     * @throws IOException if the snapshot cannot be read
+     */
+    private void apply(ReplicationMessage message, BufferedReader in) throws IOException {
+        switch (message.type) {
+            case ReplicationMessage.SNAPSHOT:
+                List<User> users = new ArrayList<>(message.count);
+                for (int i = 0; i < message.count; i++) {
+                    users.add(gson.fromJson(in.readLine(), User.class));
+                }
+                userService.replaceAllUsers(users);
+                epoch = message.epoch;
+                markApplied(message);
+                System.out.println("Installed snapshot of " + users.size() + " users at seq " + message.seq);
+                return;
+            case ReplicationMessage.HEARTBEAT:
+                leaderSeq = Math.max(leaderSeq, message.seq);
+                return;
+            default:
+                break;
+        }
+
+        switch (UserChange.Type.valueOf(message.type)) {
+            case PUT:
+                userService.upsertUser(message.user);
+                break;
+            case DELETE:
+                userService.deleteUser(message.id);
+                break;
+            case CLEAR:
+                userService.clearAllUsers();
+                break;
+            default:
+                break;
+        }
+        markApplied(message);
+    }
+
+    /**
+     * Records that everything up to the message's sequence number is applied.
+     *
+     * @param message The last applied message
+     */
+    private void markApplied(ReplicationMessage message) {
+        appliedSeq = message.seq;
+        leaderSeq = Math.max(leaderSeq, message.seq);
+        lastAppliedLeaderTimestamp = message.timestamp;
+        lastApplyDelayMillis = Math.max(0, System.currentTimeMillis() - message.timestamp);
+    }
+
+    @Override
+    public String getRole() {
+        return "follower";
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        long now = System.currentTimeMillis();
+        long behind = Math.max(0, leaderSeq - appliedSeq);
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", getRole());
+        status.put("leader", leaderHost + ":" + leaderPort);
+        status.put("connected", connected);
+        status.put("epoch", epoch);
+        status.put("appliedSeq", appliedSeq);
+        status.put("leaderSeq", leaderSeq);
+        status.put("lagEntries", behind);
+        // Time since the newest applied change was made on the leader, while behind
+        status.put("lagMillis", behind == 0 ? 0 : Math.max(0, now - lastAppliedLeaderTimestamp));
+        status.put("lastApplyDelayMillis", lastApplyDelayMillis);
+        status.put("millisSinceLastContact", lastContactMillis == 0 ? -1 : now - lastContactMillis);
+        status.put("reconnects", reconnects);
+        return status;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            Socket s = socket;
+            if (s != null) {
+                s.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing replication connection: " + e.getMessage());
+        }
+    }
+}
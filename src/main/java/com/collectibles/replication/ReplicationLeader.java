@@ -0,0 +1,236 @@
+package com.collectibles.replication;
+
+import com.collectibles.model.User;
+import com.collectibles.service.UserService;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leader side of user-store replication.
+ * Records every user change in a ReplicationLog and streams it to followers
+ * that connect over TCP. Each follower gets its own session thread.
+ *
+ * A follower subscribes with the leader epoch and the last sequence number it
+ * applied. If the epoch matches and the log still holds every later change,
+ * the session resumes from there; otherwise the follower first receives a
+ * snapshot of all users. Changes are full-state upserts and deletes, so
+ * replaying changes already contained in a snapshot is harmless.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ReplicationLeader implements ReplicationNode {
+
+    private static final long HEARTBEAT_INTERVAL_MS = 1000;
+
+    private final UserService userService;
+    private final ReplicationLog log;
+    private final int port;
+    private final Gson gson = JsonUtil.getCompactGson();
+
+    // Random epoch: a restarted leader has a new history, so followers must resync
+    private final long epoch = new Random().nextLong() & Long.MAX_VALUE;
+
+    private final Map<String, Long> sentSeqByFollower = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private volatile ServerSocket serverSocket;
+    private volatile boolean running;
+
+    /**
+     * Creates a leader that replicates the given user store.
+     *
+     * @param userService User store to replicate
+     * @param port TCP port followers connect to
+     * @param logCapacity Number of recent changes kept for catch-up
+     */
+    public ReplicationLeader(UserService userService, int port, int logCapacity) {
+        this.userService = userService;
+        this.port = port;
+        this.log = new ReplicationLog(logCapacity);
+        userService.addChangeListener(log);
+    }
+
+    /**
+     * Opens the replication port and starts accepting followers.
+     *
+     * @throws IOException if the port cannot be opened
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        running = true;
+
+        Thread acceptor = new Thread(this::acceptLoop, "replication-leader-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        System.out.println("Replication leader listening on port " + port + " (epoch " + epoch + ")");
+    }
+
+    /**
+     * Accepts follower connections until stopped.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                String name = socket.getRemoteSocketAddress() + "#" + sessionCounter.incrementAndGet();
+                Thread session = new Thread(() -> serve(socket, name), "replication-session-" + name);
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Replication accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one follower session: handshake, optional snapshot, then the change stream.
+     *
+     * @param socket Follower connection
+     * @param name Session name used in logs and status
+     */
+    private void serve(Socket socket, String name) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            ReplicationMessage subscribe = gson.fromJson(in.readLine(), ReplicationMessage.class);
+            if (subscribe == null || !ReplicationMessage.SUBSCRIBE.equals(subscribe.type)) {
+                return;
+            }
+
+            long cursor;
+            if (subscribe.epoch == epoch && log.canCatchUpFrom(subscribe.seq)) {
+                cursor = subscribe.seq;
+                System.out.println("Follower " + name + " resuming from seq " + cursor);
+            } else {
+                cursor = sendSnapshot(out);
+                System.out.println("Follower " + name + " received snapshot at seq " + cursor);
+            }
+            sentSeqByFollower.put(name, cursor);
+
+            while (running) {
+                List<UserChange> changes = log.awaitAfter(cursor, HEARTBEAT_INTERVAL_MS);
+                if (changes == null) {
+                    // Follower fell behind the retained log; it will resync with a snapshot
+                    System.out.println("Follower " + name + " fell behind the log, disconnecting");
+                    return;
+                }
+                if (changes.isEmpty()) {
+                    writeLine(out, ReplicationMessage.of(ReplicationMessage.HEARTBEAT, epoch, log.getLastSeq()));
+                } else {
+                    for (UserChange change : changes) {
+                        writeLine(out, ReplicationMessage.of(epoch, change));
+                    }
+                    cursor = changes.get(changes.size() - 1).getSeq();
+                }
+                out.flush();
+                sentSeqByFollower.put(name, cursor);
+            }
+        } catch (IOException e) {
+            System.out.println("Follower " + name + " disconnected: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sentSeqByFollower.remove(name);
+        }
+    }
+
+    /**
+     * Sends a full snapshot of the user store.
+     * The sequence number is read before the users, so every change made while
+     * the snapshot is taken is replayed afterwards.
+     *
+     * @param out Follower stream
+     * @return Sequence number the follower is at after the snapshot
+     * @throws IOException if the follower cannot be written to
+     */
+    private long sendSnapshot(Writer out) throws IOException {
+        long seq = log.getLastSeq();
+        List<User> users = userService.getAllUsers();
+
+        ReplicationMessage header = ReplicationMessage.of(ReplicationMessage.SNAPSHOT, epoch, seq);
+        header.count = users.size();
+        writeLine(out, header);
+        for (User user : users) {
+            out.write(gson.toJson(user));
+            out.write('\n');
+        }
+        out.flush();
+        return seq;
+    }
+
+    /**
+     * Writes one message as a JSON line.
+     *
+     * @param out Follower stream
+     * @param message Message to write
+     * @throws IOException if the follower cannot be written to
+     */
+    private void writeLine(Writer out, ReplicationMessage message) throws IOException {
+        out.write(gson.toJson(message));
+        out.write('\n');
+    }
+
+    @Override
+    public String getRole() {
+        return "leader";
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        long lastSeq = log.getLastSeq();
+        Map<String, Object> followers = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : sentSeqByFollower.entrySet()) {
+            Map<String, Object> follower = new LinkedHashMap<>();
+            follower.put("sentSeq", entry.getValue());
+            follower.put("lagEntries", lastSeq - entry.getValue());
+            followers.put(entry.getKey(), follower);
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", getRole());
+        status.put("epoch", epoch);
+        status.put("lastSeq", lastSeq);
+        status.put("firstRetainedSeq", log.getFirstRetainedSeq());
+        status.put("replicationPort", port);
+        status.put("followers", followers);
+        return status;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing replication port: " + e.getMessage());
+        }
+    }
+}
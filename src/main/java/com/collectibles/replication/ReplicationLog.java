@@ -0,0 +1,116 @@
+package com.collectibles.replication;
+
+import com.collectibles.model.User;
+import com.collectibles.service.UserChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered, bounded log of user changes on the leader.
+ * Every change gets the next sequence number. The most recent entries are kept
+ * in a ring buffer so followers that reconnect can catch up from their last
+ * applied sequence number; followers that fall further behind get a snapshot.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ReplicationLog implements UserChangeListener {
+
+    private final UserChange[] ring;
+    private long lastSeq;
+
+    /**
+     * Creates a log that retains the given number of recent changes.
+     *
+     * @param capacity Number of changes kept for catch-up
+     */
+    public ReplicationLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Replication log capacity must be positive");
+        }
+        this.ring = new UserChange[capacity];
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        append(UserChange.Type.PUT, user.getId(), user);
+    }
+
+    @Override
+    public void onUserDeleted(String id) {
+        append(UserChange.Type.DELETE, id, null);
+    }
+
+    @Override
+    public void onUsersCleared() {
+        append(UserChange.Type.CLEAR, null, null);
+    }
+
+    /**
+     * Appends a change and wakes up waiting follower sessions.
+     *
+     * @param type Kind of change
+     * @param userId ID of the affected user
+     * @param user New user state for PUT
+     */
+    private synchronized void append(UserChange.Type type, String userId, User user) {
+        lastSeq++;
+        ring[(int) (lastSeq % ring.length)] = new UserChange(lastSeq, type, userId, user, System.currentTimeMillis());
+        notifyAll();
+    }
+
+    /**
+     * Gets the sequence number of the latest change.
+     *
+     * @return Latest sequence number, 0 if nothing was logged yet
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Gets the oldest sequence number still retained.
+     *
+     * @return Oldest retained sequence number
+     */
+    public synchronized long getFirstRetainedSeq() {
+        return Math.max(1, lastSeq - ring.length + 1);
+    }
+
+    /**
+     * Checks whether a follower at the given position can catch up from the log.
+     *
+     * @param seq Last sequence number the follower applied
+     * @return true if every later change is still retained
+     */
+    public synchronized boolean canCatchUpFrom(long seq) {
+        return seq <= lastSeq && seq >= getFirstRetainedSeq() - 1;
+    }
+
+    /**
+     * Waits for changes after the given sequence number.
+     *
+     * @param seq Last sequence number already sent
+     * @param timeoutMillis Maximum time to wait when there is nothing new
+     * @return Changes after seq (empty on timeout), or null if some were already overwritten
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized List<UserChange> awaitAfter(long seq, long timeoutMillis) throws InterruptedException {
+        if (lastSeq <= seq) {
+            wait(timeoutMillis);
+        }
+        if (lastSeq <= seq) {
+            return Collections.emptyList();
+        }
+        if (!canCatchUpFrom(seq)) {
+            return null;
+        }
+        List<UserChange> changes = new ArrayList<>((int) (lastSeq - seq));
+        for (long s = seq + 1; s <= lastSeq; s++) {
+            changes.add(ring[(int) (s % ring.length)]);
+        }
+        return changes;
+    }
+}
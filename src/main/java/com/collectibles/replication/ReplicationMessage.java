@@ -0,0 +1,60 @@
+package com.collectibles.replication;
+
+import com.collectibles.model.User;
+
+/**
+ * Message exchanged between leader and followers, one JSON object per line.
+ *
+ * Follower to leader: SUBSCRIBE (epoch and last applied seq).
+ * Leader to follower: SNAPSHOT (followed by "count" user lines), PUT, DELETE,
+ * CLEAR and HEARTBEAT (leader's latest seq).
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class ReplicationMessage {
+
+    static final String SUBSCRIBE = "SUBSCRIBE";
+    static final String SNAPSHOT = "SNAPSHOT";
+    static final String HEARTBEAT = "HEARTBEAT";
+
+    String type;
+    long epoch;
+    long seq;
+    long timestamp;
+    int count;
+    String id;
+    User user;
+
+    /**
+     * Creates a message of the given type.
+     *
+     * @param type Message type
+     * @param epoch Leader epoch
+     * @param seq Sequence number
+     * @return The message
+     */
+    static ReplicationMessage of(String type, long epoch, long seq) {
+        ReplicationMessage message = new ReplicationMessage();
+        message.type = type;
+        message.epoch = epoch;
+        message.seq = seq;
+        message.timestamp = System.currentTimeMillis();
+        return message;
+    }
+
+    /**
+     * Creates a message carrying one logged change.
+     *
+     * @param epoch Leader epoch
+     * @param change The change to send
+     * @return The message
+     */
+    static ReplicationMessage of(long epoch, UserChange change) {
+        ReplicationMessage message = of(change.getType().name(), epoch, change.getSeq());
+        message.timestamp = change.getTimestamp();
+        message.id = change.getUserId();
+        message.user = change.getUser();
+        return message;
+    }
+}
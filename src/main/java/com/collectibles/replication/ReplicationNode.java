@@ -0,0 +1,38 @@
+package com.collectibles.replication;
+
+import java.util.Map;
+
+/**
+ * Common view of a replication participant, used by the status endpoint.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public interface ReplicationNode {
+
+    /**
+     * Gets the role of this node ("leader" or "follower").
+     *
+     * @return The role name
+     */
+    String getRole();
+
+    /**
+     * Checks whether user writes must be rejected on this node.
+     *
+     * @return true on followers
+     */
+    boolean isReadOnly();
+
+    /**
+     * Reports replication progress (sequence numbers, lag, connections).
+     *
+     * @return Status fields, ready to be serialized
+     */
+    Map<String, Object> getStatus();
+
+    /**
+     * Stops replication threads and closes sockets.
+     */
+    void stop();
+}
@@ -0,0 +1,89 @@
+package com.collectibles.replication;
+
+import com.collectibles.model.User;
+
+/**
+ * One entry of the replication log: a single change to the user store.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class UserChange {
+
+    /**
+     * Kinds of changes that can be replicated.
+     */
+    public enum Type {
+        PUT,
+        DELETE,
+        CLEAR
+    }
+
+    private final long seq;
+    private final Type type;
+    private final String userId;
+    private final User user;
+    private final long timestamp;
+
+    /**
+     * Creates a log entry.
+     *
+     * @param seq Sequence number assigned by the log
+     * @param type Kind of change
+     * @param userId ID of the affected user (null for CLEAR)
+     * @param user New user state for PUT, null otherwise
+     * @param timestamp Wall-clock time the change was applied on the leader
+     */
+    public UserChange(long seq, Type type, String userId, User user, long timestamp) {
+        this.seq = seq;
+        this.type = type;
+        this.userId = userId;
+        this.user = user;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Gets the sequence number.
+     *
+     * @return The sequence number
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return The change type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ID of the affected user.
+     *
+     * @return The user ID, or null for CLEAR
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the new user state.
+     *
+     * @return The user for PUT, null otherwise
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the time the change was applied on the leader.
+     *
+     * @return Epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
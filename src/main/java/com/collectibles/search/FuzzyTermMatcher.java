@@ -0,0 +1,215 @@
+package com.collectibles.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds dictionary terms within a small edit distance of a query term,
+ * without comparing against the whole dictionary.
+ *
+ * Each term is split into padded trigrams ("$$snoop$" gives "$$s", "$sn",
+ * "sno", "noo", "oop", "op$"), and an index maps each trigram to the terms
+ * containing it. A single edit changes at most three trigrams, so a term
+ * within k edits of the query shares at least (trigrams of the query - 3k)
+ * of them. Only terms that pass that count and the length difference are
+ * verified with a bounded edit distance (insertions, deletions, substitutions
+ * and swaps of adjacent letters each count as one).
+ *
+ * The edit budget depends on the term length: exact below 3 letters,
+ * 1 edit up to 5 letters, 2 edits from 6 letters.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class FuzzyTermMatcher {
+
+    private final String[] dictionary;
+    private final Map<String, int[]> trigramIndex;
+
+    /**
+     * Indexes the alphabetic terms of a vocabulary.
+     *
+     * @param vocabulary All index terms
+     */
+    FuzzyTermMatcher(Collection<String> vocabulary) {
+        List<String> terms = new ArrayList<>();
+        for (String term : vocabulary) {
+            // Numbers (lot numbers, years) are never corrected
+            if (term.length() >= 3 && TextAnalyzer.isAlphabetic(term)) {
+                terms.add(term);
+            }
+        }
+        this.dictionary = terms.toArray(new String[0]);
+
+        Map<String, IntList> lists = new HashMap<>();
+        for (int ordinal = 0; ordinal < dictionary.length; ordinal++) {
+            for (String trigram : trigrams(dictionary[ordinal])) {
+                lists.computeIfAbsent(trigram, key -> new IntList()).add(ordinal);
+            }
+        }
+        this.trigramIndex = new HashMap<>(lists.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+            trigramIndex.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Finds the dictionary terms close to a query term, closest first.
+     *
+     * @param term Analyzed query term
+     * @param maxMatches Maximum number of terms to return
+     * @return Matching terms with their edit distance (the term itself, if present, at distance 0)
+     */
+    List<Match> match(String term, int maxMatches) {
+        List<Match> matches = new ArrayList<>();
+        int maxEdits = maxEdits(term.length());
+        if (maxEdits == 0 || !TextAnalyzer.isAlphabetic(term)) {
+            return matches;
+        }
+
+        // Count shared trigrams per candidate term
+        Set<String> queryTrigrams = trigrams(term);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            int[] ordinals = trigramIndex.get(trigram);
+            if (ordinals != null) {
+                for (int ordinal : ordinals) {
+                    shared.merge(ordinal, 1, Integer::sum);
+                }
+            }
+        }
+
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() < minShared) {
+                continue;
+            }
+            String candidate = dictionary[entry.getKey()];
+            if (Math.abs(candidate.length() - term.length()) > maxEdits) {
+                continue;
+            }
+            int distance = distance(term, candidate, maxEdits);
+            if (distance <= maxEdits) {
+                matches.add(new Match(candidate, distance));
+            }
+        }
+
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : a.term.compareTo(b.term));
+        return matches.size() > maxMatches ? new ArrayList<>(matches.subList(0, maxMatches)) : matches;
+    }
+
+    /**
+     * Gets the number of terms that can be matched.
+     *
+     * @return Dictionary size
+     */
+    int size() {
+        return dictionary.length;
+    }
+
+    /**
+     * Gets the edit budget for a term length.
+     *
+     * @param length Term length
+     * @return Maximum edits
+     */
+    static int maxEdits(int length) {
+        if (length < 3) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Splits a term into distinct padded trigrams.
+     *
+     * @param term The term
+     * @return Its trigrams
+     */
+    static Set<String> trigrams(String term) {
+        String padded = "$$" + term + "$";
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Computes the edit distance with adjacent swaps (optimal string alignment),
+     * giving up once it exceeds a bound.
+     *
+     * @param a First string
+     * @param b Second string
+     * @param bound Largest distance of interest
+     * @return The distance, or bound + 1 if it is larger than bound
+     */
+    static int distance(String a, String b, int bound) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+
+    /**
+     * A dictionary term and its distance from the query term.
+     */
+    static final class Match {
+        final String term;
+        final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Growable int array used while building the trigram lists.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
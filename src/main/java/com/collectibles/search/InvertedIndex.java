@@ -0,0 +1,356 @@
+package com.collectibles.search;
+
+import com.collectibles.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable inverted index with BM25 ranking.
+ *
+ * Each term maps to a compressed posting list: for every document containing
+ * the term, the gap to the previous document number and the term frequency,
+ * both as variable-length integers (1 byte for values below 128). Documents
+ * are added in increasing order, so gaps are small and most postings take
+ * two bytes. Per document only the external key and a precomputed BM25
+ * length normalization are kept.
+ *
+ * Queries are evaluated document-at-a-time: one cursor per query term
+ * decodes its list in step with the others, each matching document is scored
+ * once, and a bounded heap keeps the best k. Memory per query is O(terms + k),
+ * not O(documents).
+ *
+ * In fuzzy mode each query term is expanded to the indexed terms within a
+ * small edit distance (found through a trigram index, see
+ * {@link FuzzyTermMatcher}). A document scores the best of the expansions of
+ * each query term, and expansions count less the more edits they need.
+ *
+ * Instances are built with {@link Builder} and are safe to search from any
+ * number of threads.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class InvertedIndex {
+
+    // BM25 parameters (the usual defaults)
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+
+    // Most indexed terms a misspelled query term is expanded to
+    static final int MAX_FUZZY_EXPANSIONS = 16;
+
+    private static final Comparator<SearchHit> BEST_FIRST = Comparator
+            .comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(SearchHit::getKey);
+
+    private final Map<String, Postings> terms;
+    private final String[] keys;
+    private final float[] lengthNorms;
+    private final long postingBytes;
+    private final FuzzyTermMatcher fuzzyMatcher;
+
+    /**
+     * Creates an index from built parts.
+     *
+     * @param terms Term dictionary
+     * @param keys External key of each document number
+     * @param lengthNorms BM25 length normalization of each document number
+     */
+    private InvertedIndex(Map<String, Postings> terms, String[] keys, float[] lengthNorms) {
+        this.terms = terms;
+        this.keys = keys;
+        this.lengthNorms = lengthNorms;
+        this.fuzzyMatcher = new FuzzyTermMatcher(terms.keySet());
+        long bytes = 0;
+        for (Postings postings : terms.values()) {
+            bytes += postings.data.length;
+        }
+        this.postingBytes = bytes;
+    }
+
+    /**
+     * Searches the index.
+     *
+     * @param query Query text (analyzed like the documents)
+     * @param limit Maximum number of hits
+     * @return The best hits, highest score first, and the total number of matches
+     */
+    public SearchResult search(String query, int limit) {
+        return search(query, limit, false);
+    }
+
+    /**
+     * Searches the index, optionally tolerating typos.
+     *
+     * @param query Query text (analyzed like the documents)
+     * @param limit Maximum number of hits
+     * @param fuzzy true to also match indexed terms a few edits away from the query terms
+     * @return The best hits, highest score first, and the total number of matches
+     */
+    public SearchResult search(String query, int limit, boolean fuzzy) {
+        // One group of cursors per distinct query term: the term itself and, in fuzzy mode, its neighbors
+        List<Cursor> cursors = new ArrayList<>();
+        int groups = 0;
+        for (String term : new LinkedHashSet<>(TextAnalyzer.analyze(query))) {
+            int before = cursors.size();
+            Postings exact = terms.get(term);
+            if (exact != null) {
+                cursors.add(new Cursor(exact, idf(exact.documentFrequency), groups));
+            }
+            if (fuzzy) {
+                for (FuzzyTermMatcher.Match match : fuzzyMatcher.match(term, MAX_FUZZY_EXPANSIONS)) {
+                    if (match.distance > 0) {
+                        Postings postings = terms.get(match.term);
+                        float boost = 1f / (1 + match.distance);
+                        cursors.add(new Cursor(postings, boost * idf(postings.documentFrequency), groups));
+                    }
+                }
+            }
+            if (cursors.size() > before) {
+                groups++;
+            }
+        }
+
+        float[] groupScores = new float[groups];
+        TopK<SearchHit> best = new TopK<>(limit, BEST_FIRST);
+        long matches = 0;
+        while (true) {
+            // Next document: the smallest current document of all cursors
+            int doc = Integer.MAX_VALUE;
+            for (Cursor cursor : cursors) {
+                doc = Math.min(doc, cursor.doc);
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+
+            // Score it with every term that occurs in it, moving those cursors on.
+            // Within a group only the best-scoring term counts
+            Arrays.fill(groupScores, 0f);
+            for (Cursor cursor : cursors) {
+                if (cursor.doc == doc) {
+                    float tf = cursor.frequency;
+                    float termScore = cursor.weight * tf * (K1 + 1) / (tf + lengthNorms[doc]);
+                    groupScores[cursor.group] = Math.max(groupScores[cursor.group], termScore);
+                    cursor.next();
+                }
+            }
+            float score = 0;
+            for (float groupScore : groupScores) {
+                score += groupScore;
+            }
+            matches++;
+
+            // Only create a hit if it can enter the current top k
+            SearchHit worst = best.worstKept();
+            if (worst == null || score >= worst.getScore()) {
+                best.offer(new SearchHit(keys[doc], score));
+            }
+        }
+        return new SearchResult(best.toList(), matches);
+    }
+
+    /**
+     * Gets the number of documents.
+     *
+     * @return Document count
+     */
+    public int getDocumentCount() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the number of distinct terms.
+     *
+     * @return Term count
+     */
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Gets the number of terms that fuzzy queries can match (alphabetic terms of 3+ letters).
+     *
+     * @return Fuzzy dictionary size
+     */
+    public int getFuzzyTermCount() {
+        return fuzzyMatcher.size();
+    }
+
+    /**
+     * Gets the compressed size of all posting lists.
+     *
+     * @return Size in bytes
+     */
+    public long getPostingBytes() {
+        return postingBytes;
+    }
+
+    /**
+     * Computes the BM25 inverse document frequency of a term.
+     *
+     * @param documentFrequency Number of documents containing the term
+     * @return The IDF (always positive)
+     */
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (keys.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * The compressed posting list of one term.
+     */
+    private static final class Postings {
+        private final byte[] data;
+        private final int documentFrequency;
+
+        Postings(byte[] data, int documentFrequency) {
+            this.data = data;
+            this.documentFrequency = documentFrequency;
+        }
+    }
+
+    /**
+     * Decodes one posting list during a query.
+     */
+    private static final class Cursor {
+        private final byte[] data;
+        private final float weight;
+        private final int group;
+        private int position;
+        private int doc = -1;
+        private int frequency;
+
+        Cursor(Postings postings, float weight, int group) {
+            this.data = postings.data;
+            this.weight = weight;
+            this.group = group;
+            next();
+        }
+
+        /**
+         * Moves to the next posting (doc becomes Integer.MAX_VALUE at the end).
+         */
+        void next() {
+            if (position >= data.length) {
+                doc = Integer.MAX_VALUE;
+                return;
+            }
+            doc += readVarInt();
+            frequency = readVarInt();
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Builds an index one document at a time.
+     * Not thread-safe; build on one thread, then share the result.
+     */
+    public static final class Builder {
+
+        private final Map<String, PostingsWriter> writers = new HashMap<>();
+        private final Map<String, Integer> documentTerms = new HashMap<>();
+        private String[] keys = new String[1024];
+        private int[] lengths = new int[1024];
+        private int documents;
+        private long totalLength;
+
+        /**
+         * Adds a document. Terms of weighted fields count several times.
+         *
+         * @param key External key returned in search hits
+         * @param fields Field texts
+         * @param weights Weight of each field (term frequency multiplier)
+         * @return This builder
+         */
+        public Builder add(String key, String[] fields, int[] weights) {
+            documentTerms.clear();
+            int length = 0;
+            for (int f = 0; f < fields.length; f++) {
+                for (String term : TextAnalyzer.analyze(fields[f])) {
+                    documentTerms.merge(term, weights[f], Integer::sum);
+                    length += weights[f];
+                }
+            }
+
+            int doc = documents++;
+            if (doc == keys.length) {
+                keys = Arrays.copyOf(keys, doc * 2);
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            keys[doc] = key;
+            lengths[doc] = length;
+            totalLength += length;
+
+            for (Map.Entry<String, Integer> entry : documentTerms.entrySet()) {
+                writers.computeIfAbsent(entry.getKey(), term -> new PostingsWriter()).add(doc, entry.getValue());
+            }
+            return this;
+        }
+
+        /**
+         * Finishes the index.
+         *
+         * @return The immutable index
+         */
+        public InvertedIndex build() {
+            Map<String, Postings> terms = new HashMap<>(writers.size() * 4 / 3 + 1);
+            for (Map.Entry<String, PostingsWriter> entry : writers.entrySet()) {
+                PostingsWriter writer = entry.getValue();
+                terms.put(entry.getKey(), new Postings(Arrays.copyOf(writer.data, writer.size), writer.documentFrequency));
+            }
+
+            // Precompute the BM25 length normalization k1 * (1 - b + b * length / averageLength)
+            float averageLength = documents == 0 ? 1 : Math.max(1f, (float) totalLength / documents);
+            float[] lengthNorms = new float[documents];
+            for (int doc = 0; doc < documents; doc++) {
+                lengthNorms[doc] = K1 * (1 - B + B * lengths[doc] / averageLength);
+            }
+            return new InvertedIndex(terms, Arrays.copyOf(keys, documents), lengthNorms);
+        }
+    }
+
+    /**
+     * Appends postings of one term while building.
+     */
+    private static final class PostingsWriter {
+        private byte[] data = new byte[8];
+        private int size;
+        private int lastDoc = -1;
+        private int documentFrequency;
+
+        void add(int doc, int frequency) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            documentFrequency++;
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.collectibles.search;
+
+import com.collectibles.model.Item;
+import com.collectibles.service.ItemChangeListener;
+import com.collectibles.service.ItemService;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Full-text index over item names and descriptions.
+ *
+ * The index itself is an immutable {@link InvertedIndex} snapshot that is
+ * swapped in atomically, so searches never wait for indexing. Item changes
+ * schedule a rebuild on a background thread after a short delay; a burst of
+ * changes is folded into one rebuild. Until it completes, searches use the
+ * previous snapshot. Callers resolve hits against the live catalog, so
+ * deleted items drop out and updated items are shown as they are now.
+ *
+ * Name terms count twice as much as description terms.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemSearchIndex implements ItemChangeListener {
+
+    private static final int[] FIELD_WEIGHTS = {2, 1};
+
+    private final ItemService itemService;
+    private final long rebuildDelayMs;
+    private final ScheduledExecutorService indexer;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // Current snapshot, null until the first build finished
+    private volatile InvertedIndex index;
+    private volatile long lastBuildMillis;
+
+    /**
+     * Creates the index. Call {@link #start()} to build it in the background.
+     *
+     * @param itemService The catalog to index
+     * @param rebuildDelayMs Delay between the first change and the rebuild it triggers
+     */
+    public ItemSearchIndex(ItemService itemService, long rebuildDelayMs) {
+        this.itemService = itemService;
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.indexer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builds the first snapshot in the background.
+     */
+    public void start() {
+        rebuildScheduled.set(true);
+        indexer.execute(this::runScheduledRebuild);
+    }
+
+    /**
+     * Builds a new snapshot from the current catalog and swaps it in.
+     * Runs on the calling thread.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        itemService.forEachItem(item -> builder.add(item.getId(),
+                new String[] {item.getName(), item.getDescription()}, FIELD_WEIGHTS));
+        InvertedIndex built = builder.build();
+
+        index = built;
+        lastBuildMillis = System.currentTimeMillis() - start;
+        System.out.println("Item search index built: " + built.getDocumentCount() + " items, "
+                + built.getTermCount() + " terms, " + built.getPostingBytes() + " posting bytes in "
+                + lastBuildMillis + " ms");
+    }
+
+    /**
+     * Searches the current snapshot.
+     *
+     * @param query Query text
+     * @param limit Maximum number of hits
+     * @param fuzzy true to tolerate typos (a few edits per query term)
+     * @return Best hits (item IDs and scores) and the total number of matches
+     * @throws IllegalStateException if the first build has not finished yet
+     */
+    public SearchResult search(String query, int limit, boolean fuzzy) {
+        InvertedIndex snapshot = index;
+        if (snapshot == null) {
+            throw new IllegalStateException("Search index is still being built");
+        }
+        return snapshot.search(query, limit, fuzzy);
+    }
+
+    /**
+     * Checks whether a snapshot is available.
+     *
+     * @return true once the first build finished
+     */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Gets the duration of the last build.
+     *
+     * @return Build time in milliseconds
+     */
+    public long getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    @Override
+    public void onItemSaved(Item item, Item previous) {
+        scheduleRebuild();
+    }
+
+    @Override
+    public void onItemDeleted(Item item) {
+        scheduleRebuild();
+    }
+
+    @Override
+    public void onItemsCleared() {
+        scheduleRebuild();
+    }
+
+    /**
+     * Schedules a rebuild unless one is already waiting.
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            indexer.schedule(this::runScheduledRebuild, rebuildDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs a scheduled rebuild. Changes arriving while it runs schedule the next one.
+     */
+    private void runScheduledRebuild() {
+        rebuildScheduled.set(false);
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Error building item search index: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
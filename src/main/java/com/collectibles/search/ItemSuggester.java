@@ -0,0 +1,147 @@
+package com.collectibles.search;
+
+import com.collectibles.model.Item;
+import com.collectibles.service.ItemChangeListener;
+import com.collectibles.service.ItemService;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead completions for the search box, from the words of item names.
+ *
+ * Every distinct normalized word of an item name (lower-case, no accents,
+ * no stop words) is a term in a {@link PrefixTrie}, weighted by the number of
+ * items whose name contains it, so the most common words in the catalog are
+ * suggested first. The trie is updated in place as items are saved and
+ * deleted; no rebuild is needed.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemSuggester implements ItemChangeListener {
+
+    private final int maxVisits;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PrefixTrie trie = new PrefixTrie();
+
+    /**
+     * Creates the suggester from the current catalog.
+     *
+     * @param itemService The catalog
+     * @param maxVisits Node expansion budget per lookup
+     */
+    public ItemSuggester(ItemService itemService, int maxVisits) {
+        this.maxVisits = maxVisits;
+        long start = System.currentTimeMillis();
+        itemService.forEachItem(item -> apply(item, 1));
+        System.out.println("Item suggestions built: " + trie.size() + " terms in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Completes the last word of the typed text.
+     *
+     * @param prefix Text typed so far
+     * @param limit Maximum number of completions
+     * @return Completions, most common first; empty if the text ends with a separator
+     */
+    public List<PrefixTrie.Completion> suggest(String prefix, int limit) {
+        String word = lastWord(TextAnalyzer.normalize(prefix));
+        if (word.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return trie.complete(word, limit, maxVisits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct terms.
+     *
+     * @return Term count
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return trie.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onItemSaved(Item item, Item previous) {
+        if (previous != null && sameName(previous, item)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(item, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onItemDeleted(Item item) {
+        lock.writeLock().lock();
+        try {
+            apply(item, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onItemsCleared() {
+        lock.writeLock().lock();
+        try {
+            trie = new PrefixTrie();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or removes the name words of an item.
+     *
+     * @param item The item
+     * @param delta 1 to add, -1 to remove
+     */
+    private void apply(Item item, int delta) {
+        Set<String> words = new LinkedHashSet<>(TextAnalyzer.tokenize(item.getName()));
+        for (String word : words) {
+            trie.adjust(word, delta);
+        }
+    }
+
+    private static boolean sameName(Item a, Item b) {
+        return a.getName() == null ? b.getName() == null : a.getName().equals(b.getName());
+    }
+
+    /**
+     * Gets the trailing word of normalized text.
+     *
+     * @param text Normalized text
+     * @return The last run of letters and digits, or "" if the text ends with another character
+     */
+    private static String lastWord(String text) {
+        int end = text.length();
+        int start = end;
+        while (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            start--;
+        }
+        return text.substring(start, end);
+    }
+}
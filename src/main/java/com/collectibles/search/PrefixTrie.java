@@ -0,0 +1,337 @@
+package com.collectibles.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Weighted radix trie for prefix completion.
+ *
+ * Each term has a positive weight. Chains of single-child nodes are
+ * compressed into one node with a multi-character label, so the trie has at
+ * most about two nodes per term. Every node also stores the highest weight
+ * in its subtree; completion walks the trie best-first by that bound and
+ * stops as soon as it has enough terms, without visiting the rest of the
+ * subtree.
+ *
+ * Weights are adjusted in place: adding splits a label where needed,
+ * removing the last unit of a term prunes its node and merges a leftover
+ * single child back into its parent edge. Not thread-safe.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class PrefixTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node("");
+    private int termCount;
+
+    /**
+     * Adds to the weight of a term, inserting it if needed.
+     * A term whose weight drops to zero is removed.
+     *
+     * @param term The term (must not be empty)
+     * @param delta Weight change; negative to decrease
+     */
+    public void adjust(String term, int delta) {
+        if (term.isEmpty() || delta == 0) {
+            return;
+        }
+        adjust(root, term, 0, delta);
+    }
+
+    /**
+     * Gets the weight of a term.
+     *
+     * @param term The term
+     * @return Its weight, or 0 if absent
+     */
+    public int weight(String term) {
+        Node node = root;
+        int offset = 0;
+        while (offset < term.length()) {
+            int index = findChild(node, term.charAt(offset));
+            if (index < 0) {
+                return 0;
+            }
+            Node child = node.children[index];
+            if (!term.startsWith(child.label, offset)) {
+                return 0;
+            }
+            offset += child.label.length();
+            node = child;
+        }
+        return node.weight;
+    }
+
+    /**
+     * Finds the heaviest terms starting with a prefix.
+     *
+     * @param prefix The prefix
+     * @param limit Maximum number of completions
+     * @param maxVisits Maximum number of trie nodes to expand (bounds the latency)
+     * @return Completions, heaviest first (ties in alphabetical order)
+     */
+    public List<Completion> complete(String prefix, int limit, int maxVisits) {
+        List<Completion> completions = new ArrayList<>();
+
+        // Walk down to the node that covers the whole prefix
+        Node node = root;
+        StringBuilder path = new StringBuilder();
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int index = findChild(node, prefix.charAt(offset));
+            if (index < 0) {
+                return completions;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, prefix, offset);
+            if (offset + common < prefix.length() && common < child.label.length()) {
+                return completions;
+            }
+            path.append(child.label);
+            offset += common;
+            node = child;
+        }
+
+        // Best-first expansion by the subtree bound
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, path.toString(), node.maxWeight));
+        int visits = 0;
+        while (!queue.isEmpty() && completions.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.node == null) {
+                completions.add(new Completion(candidate.text, candidate.weight));
+                continue;
+            }
+            if (++visits > maxVisits) {
+                break;
+            }
+            Node current = candidate.node;
+            if (current.weight > 0) {
+                queue.add(new Candidate(null, candidate.text, current.weight));
+            }
+            for (Node child : current.children) {
+                queue.add(new Candidate(child, candidate.text + child.label, child.maxWeight));
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Gets the number of terms.
+     *
+     * @return Term count
+     */
+    public int size() {
+        return termCount;
+    }
+
+    /**
+     * Counts the nodes (for memory reports).
+     *
+     * @return Node count, including the root
+     */
+    public int nodeCount() {
+        return countNodes(root);
+    }
+
+    /**
+     * Adjusts a term below a node and restores the node's subtree bound.
+     */
+    private void adjust(Node node, String term, int offset, int delta) {
+        if (offset == term.length()) {
+            if (node.weight + delta < 0) {
+                return;
+            }
+            if (node.weight == 0 && delta > 0) {
+                termCount++;
+            } else if (node.weight + delta == 0) {
+                termCount--;
+            }
+            node.weight += delta;
+        } else {
+            int index = findChild(node, term.charAt(offset));
+            if (index < 0) {
+                if (delta < 0) {
+                    return;
+                }
+                Node leaf = new Node(term.substring(offset));
+                leaf.weight = delta;
+                leaf.maxWeight = delta;
+                insertChild(node, -index - 1, leaf);
+                termCount++;
+            } else {
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, term, offset);
+                if (common < child.label.length()) {
+                    if (delta < 0) {
+                        return;
+                    }
+                    // Split the edge where the term leaves it
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children = new Node[] {child};
+                    middle.maxWeight = child.maxWeight;
+                    node.children[index] = middle;
+                    child = middle;
+                }
+                adjust(child, term, offset + common, delta);
+                compact(node, index);
+            }
+        }
+        node.maxWeight = node.weight;
+        for (Node child : node.children) {
+            node.maxWeight = Math.max(node.maxWeight, child.maxWeight);
+        }
+    }
+
+    /**
+     * Removes an empty leaf child, or merges a non-term child with its only child.
+     */
+    private static void compact(Node node, int index) {
+        Node child = node.children[index];
+        if (child.weight > 0) {
+            return;
+        }
+        if (child.children.length == 0) {
+            Node[] children = new Node[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            System.arraycopy(node.children, index + 1, children, index, children.length - index);
+            node.children = children.length == 0 ? NO_CHILDREN : children;
+        } else if (child.children.length == 1) {
+            Node grandchild = child.children[0];
+            grandchild.label = child.label + grandchild.label;
+            node.children[index] = grandchild;
+        }
+    }
+
+    private static void insertChild(Node node, int position, Node child) {
+        Node[] children = Arrays.copyOf(node.children, node.children.length + 1);
+        System.arraycopy(children, position, children, position + 1, node.children.length - position);
+        children[position] = child;
+        node.children = children;
+    }
+
+    /**
+     * Binary search for the child whose label starts with a character.
+     *
+     * @return Child index, or -(insertion point) - 1 if there is none
+     */
+    private static int findChild(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char c = node.children[middle].label.charAt(0);
+            if (c < first) {
+                low = middle + 1;
+            } else if (c > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefixLength(String label, String text, int offset) {
+        int max = Math.min(label.length(), text.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == text.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (Node child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    /**
+     * A trie node. The label is the edge from the parent.
+     */
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private int weight;
+        private int maxWeight;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * A queued node (to expand) or term (to emit) during completion.
+     * Heavier first, then alphabetical. A node's text is a prefix of all its
+     * terms, so expanding nodes first at equal text keeps ties alphabetical.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Node node;
+        private final String text;
+        private final int weight;
+
+        Candidate(Node node, String text, int weight) {
+            this.node = node;
+            this.text = text;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (weight != other.weight) {
+                return Integer.compare(other.weight, weight);
+            }
+            int byText = text.compareTo(other.text);
+            if (byText != 0) {
+                return byText;
+            }
+            return node == null ? (other.node == null ? 0 : 1) : (other.node == null ? -1 : 0);
+        }
+    }
+
+    /**
+     * A completed term and its weight.
+     */
+    public static final class Completion {
+        private final String term;
+        private final int weight;
+
+        /**
+         * Creates a completion.
+         *
+         * @param term The full term
+         * @param weight Its weight
+         */
+        public Completion(String term, int weight) {
+            this.term = term;
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the full term.
+         *
+         * @return The term
+         */
+        public String getTerm() {
+            return term;
+        }
+
+        /**
+         * Gets the weight of the term.
+         *
+         * @return The weight
+         */
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
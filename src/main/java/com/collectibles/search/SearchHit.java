@@ -0,0 +1,47 @@
+package com.collectibles.search;
+
+/**
+ * One document found by a search, with its relevance score.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SearchHit {
+
+    private final String key;
+    private final float score;
+
+    /**
+     * Creates a hit.
+     *
+     * @param key External key of the document (the item ID)
+     * @param score BM25 score
+     */
+    public SearchHit(String key, float score) {
+        this.key = key;
+        this.score = score;
+    }
+
+    /**
+     * Gets the external key of the document.
+     *
+     * @return The key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the relevance score.
+     *
+     * @return BM25 score, higher is better
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return key + " (" + score + ")";
+    }
+}
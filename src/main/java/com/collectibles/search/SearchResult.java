@@ -0,0 +1,44 @@
+package com.collectibles.search;
+
+import java.util.List;
+
+/**
+ * Best hits of a search plus the total number of matching documents.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SearchResult {
+
+    private final List<SearchHit> hits;
+    private final long totalMatches;
+
+    /**
+     * Creates a result.
+     *
+     * @param hits Best hits, highest score first
+     * @param totalMatches Number of documents matching at least one query term
+     */
+    public SearchResult(List<SearchHit> hits, long totalMatches) {
+        this.hits = hits;
+        this.totalMatches = totalMatches;
+    }
+
+    /**
+     * Gets the best hits.
+     *
+     * @return Hits, highest score first
+     */
+    public List<SearchHit> getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of matching documents.
+     *
+     * @return Documents matching at least one query term
+     */
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+}
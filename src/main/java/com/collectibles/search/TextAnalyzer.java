@@ -0,0 +1,181 @@
+package com.collectibles.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Turns item text and search queries into index terms.
+ *
+ * Steps: lower-case, strip accents ("Edición" and "edicion" match), split on
+ * anything that is not a letter or digit, drop common English and Spanish
+ * stop words, then apply a light stemmer for both languages. The same
+ * analysis runs on documents and queries, so "guitars" finds "guitar" and
+ * "autografiada" finds "autografiado".
+ *
+ * The stemmer is deliberately light (plural, gender and a few verb
+ * suffixes, in the spirit of the Savoy light stemmers) rather than a full
+ * Snowball stemmer: it rarely conflates unrelated words, which matters more
+ * for product names than recall on rare inflections.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            // English
+            "a", "an", "and", "are", "as", "at", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "the", "this", "to", "with",
+            // Spanish
+            "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los", "para", "por", "que",
+            "se", "su", "un", "una", "unas", "unos", "y"));
+
+    /**
+     * Analyzes text into terms, in order (repeated terms are kept).
+     *
+     * @param text The text, may be null
+     * @return The stemmed terms
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = tokenize(text);
+        for (int i = 0; i < terms.size(); i++) {
+            terms.set(i, stem(terms.get(i)));
+        }
+        return terms;
+    }
+
+    /**
+     * Splits text into normalized words without stemming them
+     * (lower-case, accents stripped, stop words removed).
+     *
+     * @param text The text, may be null
+     * @return The words, in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = normalized.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Lower-cases text and strips accents.
+     *
+     * @param text The text
+     * @return Normalized text
+     */
+    public static String normalize(String text) {
+        return COMBINING_MARKS
+                .matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+    }
+
+    /**
+     * Reduces a lower-case, accent-free token to its stem.
+     *
+     * @param token The token
+     * @return The stem (the token itself for short or non-alphabetic tokens)
+     */
+    static String stem(String token) {
+        if (token.length() <= 3 || !isAlphabetic(token)) {
+            return token;
+        }
+        return stemSpanish(stemEnglish(token));
+    }
+
+    /**
+     * Light English stemming: plurals and -ed/-ing forms.
+     *
+     * @param word The word
+     * @return The stem
+     */
+    private static String stemEnglish(String word) {
+        int length = word.length();
+        if (length > 4 && word.endsWith("ies") && !word.endsWith("eies") && !word.endsWith("aies")) {
+            return word.substring(0, length - 3) + "y";
+        }
+        if (word.endsWith("sses")) {
+            return word.substring(0, length - 2);
+        }
+        if (length > 5 && word.endsWith("ing")) {
+            return word.substring(0, length - 3);
+        }
+        if (length > 4 && word.endsWith("ed") && !word.endsWith("eed")) {
+            return word.substring(0, length - 2);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return word.substring(0, length - 1);
+        }
+        return word;
+    }
+
+    /**
+     * Light Spanish stemming: adverbs in -mente, -ciones plurals and the final
+     * gender/number vowel.
+     *
+     * @param word The word
+     * @return The stem
+     */
+    private static String stemSpanish(String word) {
+        int length = word.length();
+        if (length > 7 && word.endsWith("mente")) {
+            return word.substring(0, length - 5);
+        }
+        if (length > 5 && word.endsWith("iones")) {
+            return word.substring(0, length - 2);
+        }
+        if (length > 4) {
+            char last = word.charAt(length - 1);
+            if (last == 'a' || last == 'o' || last == 'e') {
+                return word.substring(0, length - 1);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Checks whether a token consists of letters only.
+     *
+     * @param token The token
+     * @return true if there are no digits
+     */
+    static boolean isAlphabetic(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isLetter(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private TextAnalyzer() {
+        // Utility class, should not be instantiated
+    }
+}
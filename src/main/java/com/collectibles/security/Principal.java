@@ -0,0 +1,74 @@
+package com.collectibles.security;
+
+import com.collectibles.model.Role;
+
+/**
+ * The caller identified by a verified token: the user ID and role it was
+ * issued for, and when it expires. Built from the token alone, without a
+ * store lookup; a role change takes effect with the next token.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class Principal {
+
+    private final String userId;
+    private final Role role;
+    private final long expiresAt;
+
+    /**
+     * Creates a principal.
+     *
+     * @param userId The user ID
+     * @param role The role the token was issued for
+     * @param expiresAt Expiry in seconds since the epoch
+     */
+    public Principal(String userId, Role role, long expiresAt) {
+        this.userId = userId;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the user ID.
+     *
+     * @return The user ID
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the role the token was issued for.
+     *
+     * @return The role
+     */
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * Gets the token expiry.
+     *
+     * @return Seconds since the epoch
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Checks whether the principal may call a route restricted to a role.
+     * Admins may call every route.
+     *
+     * @param required The role the route requires
+     * @return true if the principal has the role or is an admin
+     */
+    public boolean hasRole(Role required) {
+        return role == required || role == Role.ADMIN;
+    }
+
+    @Override
+    public String toString() {
+        return "Principal{userId='" + userId + "', role=" + role.getValue() + ", expiresAt=" + expiresAt + "}";
+    }
+}
@@ -0,0 +1,376 @@
+package com.collectibles.security;
+
+import com.collectibles.model.Role;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues and verifies stateless bearer tokens signed with HMAC-SHA256.
+ *
+ * A token is the user ID, role and expiry, base64url-encoded, followed by
+ * the signature of that encoded text:
+ * <pre>
+ * base64url(userId "\n" role "\n" expiresAtSeconds) "." base64url(HMAC-SHA256(first part))
+ * </pre>
+ * Verifying needs only the shared secret, never the user store. Each thread
+ * keeps a Mac initialized once with the key (so the HMAC key blocks are
+ * computed once, not per request) and its own scratch buffers: checking the
+ * signature copies the token into a reused byte array, hashes it, encodes
+ * the digest into another reused array and compares it with the token's
+ * signature in constant time, allocating nothing. Only a token whose
+ * signature matches has its claims decoded.
+ *
+ * Verified tokens are kept in a small two-way set-associative cache: a
+ * fixed array of slot pairs, each slot holding one Authorization header
+ * value and its principal. The set is chosen by a tag built from the last
+ * characters of the signature, which are already uniformly distributed, so
+ * the header is not hashed. A repeated token costs the tag, a constant-time
+ * comparison and an expiry check, and allocates nothing. A new token takes
+ * the first slot of its set and moves the previous one to the second, so
+ * the cache never grows and needs no eviction bookkeeping.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class TokenAuthenticator {
+
+    // Scheme of the Authorization header value
+    public static final String BEARER_PREFIX = "Bearer ";
+
+    // Shortest secret accepted: one SHA-256 block of key material
+    public static final int MIN_SECRET_BYTES = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // Unpadded base64url length of a 32-byte digest
+    private static final int SIGNATURE_LENGTH = 43;
+
+    // Longer tokens are rejected before any work is done
+    private static final int MAX_TOKEN_LENGTH = 1024;
+
+    // Signature characters that make up the cache tag
+    private static final int TAG_CHARS = 8;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    // Per-thread Mac and buffers, so verification neither locks nor allocates
+    private final ThreadLocal<Signer> signers;
+
+    // Recently verified tokens in sets of two slots; null when caching is disabled
+    private final AtomicReferenceArray<CachedToken> cache;
+    private final int setMask;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates an authenticator.
+     *
+     * @param secret Signing key shared by every server that accepts the tokens
+     * @param cacheSize Verified tokens to cache (rounded up to a power of two), or 0 to verify every time
+     * @throws IllegalArgumentException if the secret is shorter than {@link #MIN_SECRET_BYTES}
+     * @throws IllegalStateException if the JVM has no HMAC-SHA256 implementation
+     */
+    public TokenAuthenticator(byte[] secret, int cacheSize) {
+        if (secret == null || secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Token secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+
+        // Fail at startup, not on the first request
+        Mac prototype = newMac();
+        this.signers = ThreadLocal.withInitial(() -> new Signer(copyOf(prototype)));
+
+        if (cacheSize > 0) {
+            int slots = Math.max(2, Integer.highestOneBit(Math.min(cacheSize, 1 << 20) * 2 - 1));
+            this.cache = new AtomicReferenceArray<>(slots);
+            this.setMask = slots / 2 - 1;
+        } else {
+            this.cache = null;
+            this.setMask = 0;
+        }
+    }
+
+    /**
+     * Issues a token.
+     *
+     * @param userId The user ID
+     * @param role The user's role
+     * @param ttlSeconds Lifetime of the token
+     * @return The signed token
+     */
+    public String issue(String userId, Role role, long ttlSeconds) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String claims = userId + "\n" + role.getValue() + "\n" + expiresAt;
+        String payload = ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+
+        Signer signer = signers.get();
+        int length = signer.sign(payload, 0, payload.length());
+        return payload + "." + new String(signer.encoded, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Authenticates the value of an Authorization header.
+     *
+     * @param authorization Header value, e.g. "Bearer eyJ1c2Vy..."
+     * @return The principal, or null if the header is not a valid, unexpired bearer token
+     */
+    public Principal authenticate(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            rejected.increment();
+            return null;
+        }
+        // The header value is the cache key, so a cached token needs no substring
+        return verify(authorization, BEARER_PREFIX.length());
+    }
+
+    /**
+     * Verifies a token.
+     *
+     * @param token The token
+     * @return The principal, or null if the token is malformed, forged or expired
+     */
+    public Principal verify(String token) {
+        return verify(token, 0);
+    }
+
+    /**
+     * Verifies the token at the end of a string, using the cache when the
+     * same string was verified recently.
+     *
+     * @param value Token, or header value ending with the token
+     * @param start Index of the token in the value
+     * @return The principal, or null if the token is malformed, forged or expired
+     */
+    private Principal verify(String value, int start) {
+        if (value == null || value.length() - start > MAX_TOKEN_LENGTH
+                || value.length() - start < SIGNATURE_LENGTH + 2) {
+            rejected.increment();
+            return null;
+        }
+        long now = System.currentTimeMillis() / 1000;
+
+        int tag = 0;
+        int set = 0;
+        if (cache != null) {
+            tag = tag(value);
+            set = (tag & setMask) * 2;
+            for (int slot = set; slot < set + 2; slot++) {
+                CachedToken cached = cache.get(slot);
+                if (cached != null && cached.tag == tag && sameToken(cached.value, value)) {
+                    if (cached.principal.getExpiresAt() > now) {
+                        cacheHits.increment();
+                        return cached.principal;
+                    }
+                    rejected.increment();
+                    return null;
+                }
+            }
+        }
+
+        Principal principal = verifySignature(value, start, now);
+        if (principal == null) {
+            rejected.increment();
+            return null;
+        }
+        verified.increment();
+        if (cache != null) {
+            // Racing inserts may drop an entry; it is verified again next time
+            CachedToken previous = cache.get(set);
+            if (previous != null) {
+                cache.set(set + 1, previous);
+            }
+            cache.set(set, new CachedToken(value, tag, principal));
+        }
+        return principal;
+    }
+
+    /**
+     * Checks the signature and, if it matches, decodes the claims.
+     *
+     * @param value Token, or header value ending with the token
+     * @param start Index of the token in the value
+     * @param now Current time in seconds since the epoch
+     * @return The principal, or null if the token is invalid or expired
+     */
+    private Principal verifySignature(String value, int start, long now) {
+        int dot = value.indexOf('.', start);
+        if (dot <= start || value.length() - dot - 1 != SIGNATURE_LENGTH) {
+            return null;
+        }
+
+        // Recompute the signature of the payload and compare it without an early exit
+        Signer signer = signers.get();
+        if (signer.sign(value, start, dot) != SIGNATURE_LENGTH) {
+            return null;
+        }
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            difference |= signer.encoded[i] ^ value.charAt(dot + 1 + i);
+        }
+        if (difference != 0) {
+            return null;
+        }
+
+        // Signed by us: decode "userId \n role \n expiresAt"
+        String claims;
+        try {
+            claims = new String(DECODER.decode(value.substring(start, dot)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int expirySeparator = claims.lastIndexOf('\n');
+        int roleSeparator = expirySeparator > 0 ? claims.lastIndexOf('\n', expirySeparator - 1) : -1;
+        if (roleSeparator <= 0) {
+            return null;
+        }
+        Role role = Role.fromValue(claims.substring(roleSeparator + 1, expirySeparator));
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(claims.substring(expirySeparator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (role == null || expiresAt <= now) {
+            return null;
+        }
+        return new Principal(claims.substring(0, roleSeparator), role, expiresAt);
+    }
+
+    /**
+     * Gets verification statistics since creation: tokens answered from the
+     * cache, tokens verified by signature, rejected headers and tokens, and
+     * the number of cache slots.
+     *
+     * @return Statistics by name
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("verified", verified.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("cacheSlots", cache != null ? (long) cache.length() : 0L);
+        return stats;
+    }
+
+    /**
+     * Compares two tokens, visiting every character when the lengths match,
+     * so the time taken does not reveal how much of a cached token a guess got right.
+     */
+    private static boolean sameToken(String cached, String token) {
+        if (cached.length() != token.length()) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < token.length(); i++) {
+            difference |= cached.charAt(i) ^ token.charAt(i);
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Builds the cache tag from the last characters of the signature, which
+     * are HMAC output and therefore evenly spread.
+     */
+    private static int tag(String value) {
+        int hash = 0;
+        for (int i = value.length() - TAG_CHARS; i < value.length(); i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Copies the initialized prototype; cloning skips the provider lookup and key setup.
+     */
+    private Mac copyOf(Mac prototype) {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    /**
+     * A thread's Mac with the buffers it signs into.
+     */
+    private static final class Signer {
+        private final Mac mac;
+        private final byte[] digest;
+        private final byte[] encoded = new byte[SIGNATURE_LENGTH];
+        private byte[] input = new byte[256];
+
+        Signer(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+        }
+
+        /**
+         * Signs part of a string, which must be ASCII (base64url).
+         *
+         * @param text Token, payload or header value
+         * @param start First character to sign
+         * @param end Index after the last character to sign
+         * @return Length of the encoded signature in {@link #encoded}, or -1 if the text is not ASCII
+         */
+        int sign(String text, int start, int end) {
+            int length = end - start;
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(start + i);
+                if (c > 127) {
+                    return -1;
+                }
+                input[i] = (byte) c;
+            }
+            try {
+                // doFinal leaves the Mac keyed and ready for the next token
+                mac.update(input, 0, length);
+                mac.doFinal(digest, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+            return ENCODER.encode(digest, encoded);
+        }
+    }
+
+    /**
+     * A verified token (or the header value carrying it) and its principal.
+     */
+    private static final class CachedToken {
+        private final String value;
+        private final int tag;
+        private final Principal principal;
+
+        CachedToken(String value, int tag, Principal principal) {
+            this.value = value;
+            this.tag = tag;
+            this.principal = principal;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.collectibles.security;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.model.Role;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Issues a bearer token from the command line with the server's AUTH_SECRET,
+ * e.g. the first admin token, which is needed to issue tokens through
+ * POST /auth/tokens/:id.
+ *
+ * Usage:
+ * <pre>
+ * AUTH_SECRET=... mvn -q compile exec:java -Dexec.mainClass=com.collectibles.security.TokenTool \
+ *     -Dexec.args="userId role [ttlSeconds]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class TokenTool {
+
+    /**
+     * Entry point.
+     *
+     * @param args User ID, role (admin, buyer or seller) and optional lifetime in seconds
+     */
+    public static void main(String[] args) {
+        String secret = ServerConfig.getAuthSecret();
+        Role role = args.length >= 2 ? Role.fromValue(args[1]) : null;
+        if (secret == null || role == null) {
+            System.err.println("Usage: AUTH_SECRET=... TokenTool userId admin|buyer|seller [ttlSeconds]");
+            System.exit(2);
+        }
+        int ttlSeconds = args.length > 2 ? Integer.parseInt(args[2]) : ServerConfig.getAuthTokenTtlSeconds();
+
+        TokenAuthenticator authenticator = new TokenAuthenticator(secret.getBytes(StandardCharsets.UTF_8), 0);
+        System.out.println(authenticator.issue(args[0], role, ttlSeconds));
+    }
+}
@@ -0,0 +1,328 @@
+package com.collectibles.service;
+
+import com.collectibles.cache.BloomFilter;
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Bloom filter over the IDs of one store, so lookups of IDs that do not
+ * exist (crawlers, stale links) can be answered without touching the store.
+ *
+ * The filter listens to the service it was created for. A saved ID is added
+ * at once, on the writing thread and before the write returns, so an ID is
+ * in the filter by the time anyone can know it exists. A Bloom filter cannot
+ * forget a key, so a deleted ID keeps passing the filter (and costs a store
+ * lookup) until the next rebuild. Rebuilds run on a background thread, from
+ * a scan of the store, when the deletes since the last build reach a tenth
+ * of the IDs, or when the store has outgrown the filter; the new filter is
+ * sized for twice the IDs found, so it grows with the store.
+ *
+ * While a rebuild scans, saves go to both the current and the new filter,
+ * and the new filter replaces the current one only after the scan, so no
+ * existing ID is ever reported missing. Until the first build finishes,
+ * every ID passes.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ExistenceFilter implements UserChangeListener, ItemChangeListener {
+
+    // Smallest capacity a filter is built for
+    private static final int MIN_CAPACITY = 1024;
+
+    // Saves between checks whether the store has outgrown the filter
+    private static final int GROWTH_CHECK_INTERVAL = 1024;
+
+    private final String name;
+    private final Consumer<Consumer<String>> idSource;
+    private final IntSupplier idCount;
+    private final int bitsPerId;
+    private final long rebuildDelayMs;
+    private final ScheduledExecutorService rebuilder;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // Filter used for lookups; null until the first build finished
+    private volatile BloomFilter filter;
+
+    // Filter being built; saves go here too while it is set
+    private volatile BloomFilter next;
+
+    private final AtomicLong deletesSinceBuild = new AtomicLong();
+    private final AtomicLong savesSinceCheck = new AtomicLong();
+    private volatile long idsAtBuild;
+    private volatile long lastBuildMillis;
+
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    /**
+     * Creates a filter. Register it with the service and call {@link #start()}.
+     *
+     * @param name Name used in the log and the thread name, e.g. "users"
+     * @param idSource Visits every ID currently in the store
+     * @param idCount Current number of IDs in the store
+     * @param bitsPerId Bits per ID (10 gives about 1% false positives)
+     * @param rebuildDelayMs Delay between the change that makes a rebuild due and the rebuild
+     */
+    public ExistenceFilter(String name, Consumer<Consumer<String>> idSource, IntSupplier idCount,
+                           int bitsPerId, long rebuildDelayMs) {
+        this.name = name;
+        this.idSource = idSource;
+        this.idCount = idCount;
+        this.bitsPerId = bitsPerId;
+        this.rebuildDelayMs = rebuildDelayMs;
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "existence-filter-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a filter over the user IDs and registers it with the service.
+     *
+     * @param userService The users to filter
+     * @param bitsPerId Bits per ID
+     * @param rebuildDelayMs Delay before a due rebuild
+     * @return The filter, building in the background
+     */
+    public static ExistenceFilter forUsers(UserService userService, int bitsPerId, long rebuildDelayMs) {
+        ExistenceFilter filter = new ExistenceFilter("users",
+                action -> userService.getAllUsers().forEach(user -> action.accept(user.getId())),
+                userService::getUserCount, bitsPerId, rebuildDelayMs);
+        userService.addChangeListener(filter);
+        filter.start();
+        return filter;
+    }
+
+    /**
+     * Creates a filter over the item IDs and registers it with the service.
+     *
+     * @param itemService The items to filter
+     * @param bitsPerId Bits per ID
+     * @param rebuildDelayMs Delay before a due rebuild
+     * @return The filter, building in the background
+     */
+    public static ExistenceFilter forItems(ItemService itemService, int bitsPerId, long rebuildDelayMs) {
+        ExistenceFilter filter = new ExistenceFilter("items",
+                action -> itemService.forEachItem(item -> action.accept(item.getId())),
+                itemService::getItemCount, bitsPerId, rebuildDelayMs);
+        itemService.addChangeListener(filter);
+        filter.start();
+        return filter;
+    }
+
+    /**
+     * Builds the first filter in the background.
+     */
+    public void start() {
+        rebuildScheduled.set(true);
+        rebuilder.execute(this::runScheduledRebuild);
+    }
+
+    /**
+     * Checks whether an ID may exist. A false answer is definite: the caller
+     * can report the ID missing without a store lookup.
+     *
+     * @param id The ID
+     * @return false if the ID definitely does not exist
+     */
+    public boolean mightContain(String id) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return true;
+        }
+        if (current.mightContain(id)) {
+            passed.increment();
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * Checks whether the first build finished. Until then every ID passes.
+     *
+     * @return true once lookups are filtered
+     */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * Records that an ID which passed the filter was not in the store.
+     */
+    public void recordFalsePositive() {
+        if (filter != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Builds a new filter from a scan of the store and swaps it in.
+     * Runs on the calling thread.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long deletesBefore = deletesSinceBuild.get();
+        BloomFilter built = new BloomFilter(Math.max(MIN_CAPACITY, 2L * idCount.getAsInt()), bitsPerId);
+
+        // Saves from now on reach the new filter as well; the scan finds everything saved before
+        next = built;
+        long[] ids = new long[1];
+        try {
+            idSource.accept(id -> {
+                built.add(id);
+                ids[0]++;
+            });
+            // Lookups switch before the listeners stop writing to the new filter
+            filter = built;
+        } finally {
+            next = null;
+        }
+
+        deletesSinceBuild.addAndGet(-deletesBefore);
+        idsAtBuild = ids[0];
+        lastBuildMillis = System.currentTimeMillis() - start;
+        rebuilds.incrementAndGet();
+        System.out.println("Existence filter built for " + name + ": " + ids[0] + " IDs, "
+                + built.getSizeBytes() / 1024 + " KB in " + lastBuildMillis + " ms");
+    }
+
+    @Override
+    public void onUserSaved(User user) {
+        add(user.getId());
+    }
+
+    @Override
+    public void onUserDeleted(String id) {
+        deleted();
+    }
+
+    @Override
+    public void onUsersCleared() {
+        cleared();
+    }
+
+    @Override
+    public void onItemSaved(Item item, Item previous) {
+        if (previous == null) {
+            add(item.getId());
+        }
+    }
+
+    @Override
+    public void onItemDeleted(Item item) {
+        deleted();
+    }
+
+    @Override
+    public void onItemsCleared() {
+        cleared();
+    }
+
+    /**
+     * Adds a saved ID to the filter in use and to the one being built.
+     * The new filter is read first: a rebuild publishes it as the filter in
+     * use before it stops being the one being built.
+     */
+    private void add(String id) {
+        BloomFilter building = next;
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(id);
+        }
+        if (building != null && building != current) {
+            building.add(id);
+        }
+
+        if (current != null && savesSinceCheck.incrementAndGet() % GROWTH_CHECK_INTERVAL == 0
+                && idCount.getAsInt() > current.getCapacity()) {
+            scheduleRebuild();
+        }
+    }
+
+    private void deleted() {
+        if (deletesSinceBuild.incrementAndGet() >= Math.max(MIN_CAPACITY, idsAtBuild / 10)) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Starts over with an empty filter of the same size. A rebuild already
+     * scanning may still add IDs removed by the clear, which only costs
+     * store lookups until the rebuild after it.
+     */
+    private void cleared() {
+        BloomFilter current = filter;
+        if (current != null) {
+            filter = new BloomFilter(current.getCapacity(), bitsPerId);
+            deletesSinceBuild.set(0);
+            idsAtBuild = 0;
+        }
+    }
+
+    /**
+     * Schedules a rebuild unless one is already waiting.
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.schedule(this::runScheduledRebuild, rebuildDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runScheduledRebuild() {
+        // Changes after this point schedule another rebuild
+        rebuildScheduled.set(false);
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("Existence filter rebuild for " + name + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the filter statistics: lookups answered without the store,
+     * lookups passed to it, passed IDs that were missing, and the measured
+     * false-positive rate (missing IDs that passed, out of all missing IDs
+     * looked up), next to the rate estimated from the bits set.
+     *
+     * @return Statistics by name
+     */
+    public Map<String, Object> getStats() {
+        long misses = definiteMisses.sum();
+        long falsePositiveCount = falsePositives.sum();
+        long absentLookups = misses + falsePositiveCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        BloomFilter current = filter;
+        stats.put("ready", current != null);
+        stats.put("definiteMisses", misses);
+        stats.put("passed", passed.sum());
+        stats.put("falsePositives", falsePositiveCount);
+        stats.put("falsePositiveRate", absentLookups > 0 ? (double) falsePositiveCount / absentLookups : 0.0);
+        if (current != null) {
+            stats.put("estimatedFalsePositiveRate", current.estimateFalsePositiveRate());
+            stats.put("capacity", current.getCapacity());
+            stats.put("sizeBytes", current.getSizeBytes());
+        }
+        stats.put("idsAtBuild", idsAtBuild);
+        stats.put("deletesSinceBuild", deletesSinceBuild.get());
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("lastBuildMillis", lastBuildMillis);
+        return stats;
+    }
+}
@@ -0,0 +1,86 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.util.JsonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Default item store: one concurrent map of Item objects on the heap.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class InMemoryItemStore implements ItemStore {
+
+    // In-memory storage for items (simulates a database)
+    private final Map<String, Item> itemsMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Item get(String id) {
+        return itemsMap.get(id);
+    }
+
+    @Override
+    public byte[] getJson(String id) {
+        Item item = itemsMap.get(id);
+        return item == null ? null : JsonUtil.toJson(item).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return itemsMap.containsKey(id);
+    }
+
+    @Override
+    public List<Item> list() {
+        return new ArrayList<>(itemsMap.values());
+    }
+
+    @Override
+    public void forEach(Consumer<Item> action) {
+        itemsMap.values().forEach(action);
+    }
+
+    @Override
+    public Spliterator<Item> spliterator() {
+        // Splits by hash table bins
+        return itemsMap.values().spliterator();
+    }
+
+    @Override
+    public int count() {
+        return itemsMap.size();
+    }
+
+    @Override
+    public void put(Item item) {
+        itemsMap.put(item.getId(), item);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return itemsMap.remove(id) != null;
+    }
+
+    @Override
+    public void clear() {
+        itemsMap.clear();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+}
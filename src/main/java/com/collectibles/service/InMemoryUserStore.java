@@ -0,0 +1,108 @@
+package com.collectibles.service;
+
+import com.collectibles.model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default user store: one concurrent map.
+ * Reads are lock-free; mutations are serialized on the store so listeners see
+ * changes in exactly the order they were applied.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class InMemoryUserStore implements UserStore {
+
+    // In-memory storage for users (simulates a database)
+    private final Map<String, User> usersMap = new ConcurrentHashMap<>();
+    private final UserChangeListener listener;
+
+    /**
+     * Creates an empty store.
+     *
+     * @param listener Listener notified of every change
+     */
+    InMemoryUserStore(UserChangeListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public User get(String id) {
+        return usersMap.get(id);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return usersMap.containsKey(id);
+    }
+
+    @Override
+    public List<User> list() {
+        return new ArrayList<>(usersMap.values());
+    }
+
+    @Override
+    public int count() {
+        return usersMap.size();
+    }
+
+    @Override
+    public synchronized User add(User user) {
+        if (usersMap.containsKey(user.getId())) {
+            throw new IllegalArgumentException("User with ID " + user.getId() + " already exists");
+        }
+        usersMap.put(user.getId(), user);
+        listener.onUserSaved(user);
+        return user;
+    }
+
+    @Override
+    public synchronized User update(String id, User user) {
+        if (!usersMap.containsKey(id)) {
+            throw new IllegalArgumentException("User with ID " + id + " does not exist");
+        }
+        usersMap.put(id, user);
+        listener.onUserSaved(user);
+        return user;
+    }
+
+    @Override
+    public synchronized User upsert(User user) {
+        usersMap.put(user.getId(), user);
+        listener.onUserSaved(user);
+        return user;
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        boolean deleted = usersMap.remove(id) != null;
+        if (deleted) {
+            listener.onUserDeleted(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized void clear() {
+        usersMap.clear();
+        listener.onUsersCleared();
+    }
+
+    @Override
+    public synchronized void replaceAll(Collection<User> users) {
+        clear();
+        for (User user : users) {
+            upsert(user);
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+}
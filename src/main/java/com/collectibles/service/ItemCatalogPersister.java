@@ -0,0 +1,279 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the item catalog to a JSON file after item changes.
+ *
+ * Change callbacks only bump a version counter and, if no flush is waiting,
+ * schedule one on a background thread after a short delay. A burst of
+ * writes is therefore folded into one flush, and request threads never touch
+ * the disk. A flush writes the whole catalog (one entry per item, so the file
+ * never grows with the number of updates) to a temporary file, forces it to
+ * disk, and renames it over the previous file. A crash at any point leaves
+ * either the old or the new complete file, never a partial one.
+ *
+ * The file has the same format as the bundled items.json, so it can also be
+ * used as ITEM_CATALOG_SOURCE for the memory-mapped catalog.
+ *
+ * Changes are durable once the flush that follows them completes: at most
+ * the flush delay plus the time to write the catalog after they were made.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemCatalogPersister implements ItemChangeListener {
+
+    private final ItemService itemService;
+    private final Path file;
+    private final Path tempFile;
+    private final long flushDelayMs;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Number of changes applied so far, and how many of them are on disk
+    private final AtomicLong changeVersion = new AtomicLong();
+    private volatile long persistedVersion;
+
+    private volatile long flushCount;
+    private volatile long lastFlushMillis;
+    private volatile long lastFlushBytes;
+
+    /**
+     * Creates the persister. Register it with {@link ItemService#addChangeListener}.
+     *
+     * @param itemService The catalog to save
+     * @param file The JSON file to write
+     * @param flushDelayMs Delay between the first change and the flush it triggers
+     */
+    public ItemCatalogPersister(ItemService itemService, Path file, long flushDelayMs) {
+        this.itemService = itemService;
+        this.file = file.toAbsolutePath();
+        this.tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        this.flushDelayMs = flushDelayMs;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-catalog-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads a catalog file written by {@link #flush()} (or any file in the items.json format).
+     *
+     * @param file The JSON file
+     * @return The items, in file order
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static List<Item> load(Path file) throws IOException {
+        Gson gson = JsonUtil.getCompactGson();
+        List<Item> items = new ArrayList<>();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(reader)) {
+            json.beginArray();
+            while (json.hasNext()) {
+                items.add(gson.fromJson(json, Item.class));
+            }
+            json.endArray();
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid item catalog " + file + ": " + e.getMessage(), e);
+        }
+        return items;
+    }
+
+    /**
+     * Writes the current catalog to disk now, on the calling thread.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        // Every change up to this version is visible to the scan below
+        long version = changeVersion.get();
+        long start = System.currentTimeMillis();
+
+        Files.createDirectories(file.getParent());
+        long[] count = new long[1];
+        try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+            JsonWriter json = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536));
+            Gson gson = JsonUtil.getCompactGson();
+            json.beginArray();
+            itemService.forEachItem(item -> {
+                gson.toJson(item, Item.class, json);
+                count[0]++;
+            });
+            json.endArray();
+            json.flush();
+
+            // The data must be on disk before the rename makes it the catalog
+            out.getFD().sync();
+        }
+        long bytes = Files.size(tempFile);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.getParent());
+
+        persistedVersion = Math.max(persistedVersion, version);
+        flushCount++;
+        lastFlushBytes = bytes;
+        lastFlushMillis = System.currentTimeMillis() - start;
+        System.out.println("Item catalog saved: " + count[0] + " items, " + bytes + " bytes in "
+                + lastFlushMillis + " ms");
+    }
+
+    /**
+     * Writes any unsaved changes and stops the background writer.
+     * Call on shutdown, after the last item change.
+     *
+     * @throws IOException if the final flush fails
+     */
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (getPendingChanges() > 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Gets the number of changes made so far.
+     *
+     * @return Change version
+     */
+    public long getChangeVersion() {
+        return changeVersion.get();
+    }
+
+    /**
+     * Gets the number of changes that are safely on disk.
+     *
+     * @return Version covered by the last completed flush
+     */
+    public long getPersistedVersion() {
+        return persistedVersion;
+    }
+
+    /**
+     * Gets the number of changes not yet on disk.
+     *
+     * @return Unsaved changes
+     */
+    public long getPendingChanges() {
+        return changeVersion.get() - persistedVersion;
+    }
+
+    /**
+     * Gets the number of completed flushes.
+     *
+     * @return Flush count
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Gets the duration of the last flush.
+     *
+     * @return Flush time in milliseconds
+     */
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    /**
+     * Gets the size of the file written by the last flush.
+     *
+     * @return File size in bytes
+     */
+    public long getLastFlushBytes() {
+        return lastFlushBytes;
+    }
+
+    @Override
+    public void onItemSaved(Item item, Item previous) {
+        changed();
+    }
+
+    @Override
+    public void onItemDeleted(Item item) {
+        changed();
+    }
+
+    @Override
+    public void onItemsCleared() {
+        changed();
+    }
+
+    /**
+     * Records a change and schedules a flush unless one is already waiting.
+     */
+    private void changed() {
+        changeVersion.incrementAndGet();
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(this::runScheduledFlush, flushDelayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closed: the change stays pending and is reported by getPendingChanges()
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs a scheduled flush. Changes arriving while it runs schedule the next one;
+     * after a failure the flush is retried after the same delay.
+     */
+    private void runScheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Error saving item catalog to " + file + ": " + e.getMessage());
+            if (flushScheduled.compareAndSet(false, true) && !writer.isShutdown()) {
+                writer.schedule(this::runScheduledFlush, flushDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Forces a directory entry change (the rename) to disk.
+     * Not supported on every platform; there the rename is left to the OS.
+     *
+     * @param directory The directory to sync
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for sync on some platforms (e.g. Windows)
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+
+/**
+ * Listener notified of every change applied to the item catalog.
+ * Callbacks run on the writing thread while the catalog is locked, in the
+ * same order the changes were applied. Implementations must be quick,
+ * thread-safe and must not call back into ItemService mutations.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public interface ItemChangeListener {
+
+    /**
+     * Called after an item was added or updated.
+     *
+     * @param item The item as now stored
+     * @param previous The item it replaced, or null if it is new
+     */
+    void onItemSaved(Item item, Item previous);
+
+    /**
+     * Called after an item was deleted.
+     *
+     * @param item The item as it was stored
+     */
+    void onItemDeleted(Item item);
+
+    /**
+     * Called after all items were removed.
+     */
+    void onItemsCleared();
+}
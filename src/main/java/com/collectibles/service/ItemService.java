@@ -1,34 +1,118 @@
 package com.collectibles.service;
 
 import com.collectibles.model.Item;
+import com.collectibles.storage.KeyValueRepository;
 import com.collectibles.util.JsonUtil;
+import com.collectibles.util.TopK;
 import com.google.gson.reflect.TypeToken;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Service class for managing Item entities.
  * Handles all business logic related to items including
  * loading from JSON, CRUD operations, and searching.
  *
+ * Reads are lock-free. Mutations are serialized so that change listeners
+ * (e.g. the change feed) observe changes in exactly the order they were applied.
+ * Items are kept in an on-heap map (default), in a read-only, memory-mapped
+ * catalog for catalogs larger than the heap, or in a storage repository.
+ *
  * @author Rafael
  * @version 1.0.0
  */
 public class ItemService {
 
-    // In-memory storage for items (simulates a database)
-    private final Map<String, Item> itemsMap;
+    // Storage for items: on-heap map or memory-mapped catalog
+    private final ItemStore store;
+
+    // Count, price range and histogram, updated on every change
+    private final ItemStatistics statistics = new ItemStatistics();
+
+    // Catalogs with at least this many items are scanned in parallel (fork-join common pool)
+    private volatile int parallelThreshold = Integer.MAX_VALUE;
+
+    // Listeners notified of every change, in apply order
+    private final List<ItemChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor that initializes the service and loads items from JSON.
      */
     public ItemService() {
-        this.itemsMap = new HashMap<>();
+        this.store = new InMemoryItemStore();
         loadItemsFromJson();
+        computeStatistics();
+    }
+
+    /**
+     * Constructor that starts from the given items instead of the bundled JSON
+     * (e.g. a catalog saved by {@link ItemCatalogPersister}).
+     *
+     * @param items The initial items; a later item replaces an earlier one with the same ID
+     */
+    public ItemService(List<Item> items) {
+        this.store = new InMemoryItemStore();
+        for (Item item : items) {
+            store.put(item);
+        }
+        computeStatistics();
+    }
+
+    /**
+     * Constructor that serves items from a memory-mapped catalog built by
+     * {@link MappedCatalogBuilder}. The catalog is read-only.
+     *
+     * @param catalogBase Path prefix of the catalog files
+     * @throws IOException if the catalog cannot be opened
+     */
+    public ItemService(Path catalogBase) throws IOException {
+        this.store = new MappedItemStore(catalogBase);
+        System.out.println("Opened memory-mapped item catalog with " + store.count() + " items");
+        computeStatistics();
+    }
+
+    /**
+     * Constructor that keeps the items in a storage repository (e.g. the
+     * embedded on-disk store). An empty repository is filled from the bundled
+     * JSON first.
+     *
+     * @param repository The repository holding the items
+     */
+    public ItemService(KeyValueRepository<Item> repository) {
+        this.store = new RepositoryItemStore(repository);
+        if (store.count() == 0) {
+            loadItemsFromJson();
+        } else {
+            System.out.println("Opened item repository with " + store.count() + " items");
+        }
+        computeStatistics();
+    }
+
+    /**
+     * Builds the statistics from the items already in the store.
+     * Runs once at startup; afterwards every mutation updates them incrementally.
+     */
+    private void computeStatistics() {
+        store.forEach(statistics::add);
+    }
+
+    /**
+     * Registers a listener for item changes.
+     *
+     * @param listener The listener to notify
+     */
+    public void addChangeListener(ItemChangeListener listener) {
+        changeListeners.add(listener);
     }
 
     /**
@@ -45,7 +129,7 @@ public class ItemService {
 
             // Store items in the map for quick lookup by ID
             for (Item item : items) {
-                itemsMap.put(item.getId(), item);
+                store.put(item);
             }
 
             System.out.println("Successfully loaded " + items.size() + " items from JSON");
@@ -62,7 +146,17 @@ public class ItemService {
      * @return List of all items
      */
     public List<Item> getAllItems() {
-        return new ArrayList<>(itemsMap.values());
+        return store.list();
+    }
+
+    /**
+     * Visits every item without copying them into a list
+     * (for the memory-mapped catalog, one item at a time).
+     *
+     * @param action Called once per item
+     */
+    public void forEachItem(Consumer<Item> action) {
+        store.forEach(action);
     }
 
     /**
@@ -72,7 +166,75 @@ public class ItemService {
      * @return The item if found, null otherwise
      */
     public Item getItemById(String id) {
-        return itemsMap.get(id);
+        return store.get(id);
+    }
+
+    /**
+     * Retrieves the JSON of an item as served by GET /items/:id.
+     * With the memory-mapped catalog the stored bytes are copied out directly,
+     * without creating an Item object.
+     *
+     * @param id The ID of the item to retrieve
+     * @return Pretty-printed UTF-8 JSON, or null if not found
+     */
+    public byte[] getItemJson(String id) {
+        return store.getJson(id);
+    }
+
+    /**
+     * Retrieves several items by ID in one pass over the store.
+     * IDs that do not exist are left out; duplicates are resolved once.
+     *
+     * @param ids The IDs to look up
+     * @return Found items keyed by ID, in the order the IDs were given
+     */
+    public Map<String, Item> getItemsByIds(Collection<String> ids) {
+        Map<String, Item> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            Item item = store.get(id);
+            if (item != null) {
+                found.put(id, item);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Retrieves the first items in a sort order, optionally filtered by name
+     * (case-insensitive partial match).
+     *
+     * Instead of sorting the whole catalog, one scan keeps the best items in a
+     * bounded heap: O(N log limit) time and O(limit) memory. Catalogs at or
+     * above the parallel threshold are scanned in parallel: each fork-join task
+     * selects from its own partition of the store and the partial results are
+     * merged.
+     *
+     * @param sort Field to sort by
+     * @param descending true for largest first
+     * @param limit Maximum number of items to return (at least 1)
+     * @param nameFilter Term the name must contain, or null for all items
+     * @return Up to limit items in the requested order
+     */
+    public List<Item> findTopItems(ItemSort sort, boolean descending, int limit, String nameFilter) {
+        boolean parallel = store.count() >= parallelThreshold;
+        Stream<Item> items = StreamSupport.stream(store.spliterator(), parallel);
+
+        // Apply the name filter inside the same scan
+        if (nameFilter != null && !nameFilter.trim().isEmpty()) {
+            String lowerTerm = nameFilter.toLowerCase().trim();
+            items = items.filter(item -> item.getName() != null && item.getName().toLowerCase().contains(lowerTerm));
+        }
+
+        return items.collect(TopK.collector(limit, sort.comparator(descending)));
+    }
+
+    /**
+     * Sets the catalog size from which sorted queries scan in parallel.
+     *
+     * @param parallelThreshold Minimum item count for a parallel scan
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
     }
 
     /**
@@ -82,7 +244,7 @@ public class ItemService {
      * @return true if the item exists, false otherwise
      */
     public boolean itemExists(String id) {
-        return itemsMap.containsKey(id);
+        return store.contains(id);
     }
 
     /**
@@ -91,23 +253,71 @@ public class ItemService {
      *
      * @param item The item to add or update
      * @return The added/updated item
+     * @throws UnsupportedOperationException if the catalog is read-only
      */
-    public Item saveItem(Item item) {
+    public synchronized Item saveItem(Item item) {
         if (item == null || item.getId() == null) {
             throw new IllegalArgumentException("Item and item ID cannot be null");
         }
-        itemsMap.put(item.getId(), item);
+        Item previous = store.get(item.getId());
+        store.put(item);
+        statistics.replace(previous, item);
+        for (ItemChangeListener listener : changeListeners) {
+            listener.onItemSaved(item, previous);
+        }
         return item;
     }
 
+    /**
+     * Adds a new item.
+     *
+     * @param item The item to add
+     * @return The added item
+     * @throws IllegalArgumentException if an item with the same ID already exists
+     * @throws UnsupportedOperationException if the catalog is read-only
+     */
+    public synchronized Item addItem(Item item) {
+        if (item != null && item.getId() != null && store.contains(item.getId())) {
+            throw new IllegalArgumentException("Item already exists with ID: " + item.getId());
+        }
+        return saveItem(item);
+    }
+
+    /**
+     * Replaces an existing item.
+     *
+     * @param id The ID of the item to update
+     * @param updatedItem The new item data
+     * @return The updated item
+     * @throws IllegalArgumentException if no item exists with the ID
+     * @throws UnsupportedOperationException if the catalog is read-only
+     */
+    public synchronized Item updateItem(String id, Item updatedItem) {
+        if (!store.contains(id)) {
+            throw new IllegalArgumentException("Item not found with ID: " + id);
+        }
+        // Ensure the ID doesn't change
+        updatedItem.setId(id);
+        return saveItem(updatedItem);
+    }
+
     /**
      * Deletes an item by its ID.
      *
      * @param id The ID of the item to delete
      * @return true if the item was deleted, false if it didn't exist
+     * @throws UnsupportedOperationException if the catalog is read-only
      */
-    public boolean deleteItem(String id) {
-        return itemsMap.remove(id) != null;
+    public synchronized boolean deleteItem(String id) {
+        Item previous = store.get(id);
+        boolean deleted = store.delete(id);
+        if (deleted) {
+            statistics.remove(previous);
+            for (ItemChangeListener listener : changeListeners) {
+                listener.onItemDeleted(previous);
+            }
+        }
+        return deleted;
     }
 
     /**
@@ -116,7 +326,17 @@ public class ItemService {
      * @return The count of items
      */
     public int getItemCount() {
-        return itemsMap.size();
+        return store.count();
+    }
+
+    /**
+     * Gets the catalog statistics (count, price range, mean and histogram).
+     * They are maintained incrementally, so reading them does not scan the catalog.
+     *
+     * @return The live statistics
+     */
+    public ItemStatistics getStatistics() {
+        return statistics;
     }
 
     /**
@@ -132,16 +352,41 @@ public class ItemService {
 
         String lowerSearchTerm = searchTerm.toLowerCase().trim();
 
-        return itemsMap.values().stream()
+        return store.list().stream()
                 .filter(item -> item.getName().toLowerCase().contains(lowerSearchTerm))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Checks whether items can be added, changed or deleted.
+     *
+     * @return true when serving a read-only memory-mapped catalog
+     */
+    public boolean isReadOnly() {
+        return store.isReadOnly();
+    }
+
+    /**
+     * Checks whether the item store keeps its own files, so items need no
+     * separate saving (catalog file or snapshot).
+     *
+     * @return true for the memory-mapped catalog and the embedded on-disk store
+     */
+    public boolean isPersistent() {
+        return store.isPersistent();
+    }
+
     /**
      * Clears all items from memory.
      * Useful for testing or resetting the application.
+     *
+     * @throws UnsupportedOperationException if the catalog is read-only
      */
-    public void clearAllItems() {
-        itemsMap.clear();
+    public synchronized void clearAllItems() {
+        store.clear();
+        statistics.clear();
+        for (ItemChangeListener listener : changeListeners) {
+            listener.onItemsCleared();
+        }
     }
 }
\ No newline at end of file
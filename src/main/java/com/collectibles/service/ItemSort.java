@@ -0,0 +1,108 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+
+import java.util.Comparator;
+
+/**
+ * Fields GET /items can be sorted by.
+ *
+ * Every order ends with the item ID, so results are deterministic and
+ * pages taken from the same data never disagree.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public enum ItemSort {
+
+    /**
+     * By price amount. Items whose price is not in the "$123.45 USD" format
+     * come last in both directions.
+     */
+    PRICE("price"),
+
+    /**
+     * By name, ignoring case. Items without a name come last in both directions.
+     */
+    NAME("name");
+
+    private final String value;
+
+    ItemSort(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets the query parameter value of this field.
+     *
+     * @return Lower-case field name
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the comparator for this field.
+     *
+     * @param descending true for largest first
+     * @return Comparator that orders items as requested, then by ID
+     */
+    public Comparator<Item> comparator(boolean descending) {
+        Comparator<Item> byField = this == PRICE ? comparePrice(descending) : compareName(descending);
+        return byField.thenComparing(Item::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Looks up a sort field by its query parameter value (case-insensitive).
+     *
+     * @param value Field name, may be null
+     * @return The field, or null if it is not sortable
+     */
+    public static ItemSort fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (ItemSort sort : values()) {
+            if (sort.value.equalsIgnoreCase(value.trim())) {
+                return sort;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares prices, keeping unstructured prices last.
+     *
+     * @param descending true for the most expensive first
+     * @return The comparator
+     */
+    private static Comparator<Item> comparePrice(boolean descending) {
+        return (a, b) -> {
+            boolean aPriced = a.hasStructuredPrice();
+            boolean bPriced = b.hasStructuredPrice();
+            if (aPriced != bPriced) {
+                return aPriced ? -1 : 1;
+            }
+            int result = Long.compare(a.getPriceMinor(), b.getPriceMinor());
+            return descending ? -result : result;
+        };
+    }
+
+    /**
+     * Compares names ignoring case, keeping missing names last.
+     *
+     * @param descending true for Z to A
+     * @return The comparator
+     */
+    private static Comparator<Item> compareName(boolean descending) {
+        return (a, b) -> {
+            String aName = a.getName();
+            String bName = b.getName();
+            if (aName == null || bName == null) {
+                return aName == bName ? 0 : (aName == null ? 1 : -1);
+            }
+            int result = String.CASE_INSENSITIVE_ORDER.compare(aName, bName);
+            return descending ? -result : result;
+        };
+    }
+}
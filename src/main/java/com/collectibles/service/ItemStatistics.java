@@ -0,0 +1,202 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Catalog statistics kept up to date as items are saved and deleted, so that
+ * GET /items/stats never scans the catalog.
+ *
+ * Prices are aggregated per currency (sums of different currencies make no
+ * sense). Each currency keeps a count, a sum, a fixed price histogram and an
+ * ordered multiset of prices (price to number of items) so that min and max
+ * stay correct when the cheapest or most expensive item is deleted.
+ * Items whose price is not in the "$123.45 USD" format are only counted.
+ *
+ * Updates cost O(log distinct prices); {@link #toMap()} costs
+ * O(currencies x buckets), independent of the catalog size.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemStatistics {
+
+    // Lower bounds of the histogram buckets in minor units ($0, $100, $250, ... $10,000+)
+    static final long[] BUCKET_BOUNDS = {0L, 10000L, 25000L, 50000L, 75000L, 100000L, 250000L, 500000L, 1000000L};
+
+    private final Map<String, PriceAggregate> byCurrency = new TreeMap<>();
+    private long itemCount;
+    private long unpricedCount;
+
+    /**
+     * Adds an item to the aggregates.
+     *
+     * @param item The item as stored
+     */
+    public synchronized void add(Item item) {
+        itemCount++;
+        if (!item.hasStructuredPrice()) {
+            unpricedCount++;
+            return;
+        }
+        byCurrency.computeIfAbsent(item.getCurrency(), currency -> new PriceAggregate())
+                .add(item.getPriceMinor());
+    }
+
+    /**
+     * Removes an item from the aggregates.
+     *
+     * @param item The item as it was stored
+     */
+    public synchronized void remove(Item item) {
+        itemCount--;
+        if (!item.hasStructuredPrice()) {
+            unpricedCount--;
+            return;
+        }
+        PriceAggregate aggregate = byCurrency.get(item.getCurrency());
+        if (aggregate != null) {
+            aggregate.remove(item.getPriceMinor());
+            if (aggregate.count == 0) {
+                byCurrency.remove(item.getCurrency());
+            }
+        }
+    }
+
+    /**
+     * Replaces an item in the aggregates.
+     *
+     * @param previous The item that was stored, or null for a new item
+     * @param current The item now stored
+     */
+    public synchronized void replace(Item previous, Item current) {
+        if (previous != null) {
+            remove(previous);
+        }
+        add(current);
+    }
+
+    /**
+     * Resets all aggregates to an empty catalog.
+     */
+    public synchronized void clear() {
+        byCurrency.clear();
+        itemCount = 0;
+        unpricedCount = 0;
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return Item count
+     */
+    public synchronized long getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Converts the statistics to a map for JSON responses.
+     * Prices are given in major units (e.g. 621.34) next to their currency.
+     *
+     * @return Ordered map with "count", "unpriced" and per-currency "prices"
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> prices = new LinkedHashMap<>();
+        for (Map.Entry<String, PriceAggregate> entry : byCurrency.entrySet()) {
+            prices.put(entry.getKey(), entry.getValue().toMap());
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", itemCount);
+        map.put("unpriced", unpricedCount);
+        map.put("prices", prices);
+        return map;
+    }
+
+    /**
+     * Finds the histogram bucket of a price.
+     *
+     * @param priceMinor Price in minor units
+     * @return Bucket index
+     */
+    static int bucketOf(long priceMinor) {
+        int bucket = 0;
+        while (bucket + 1 < BUCKET_BOUNDS.length && priceMinor >= BUCKET_BOUNDS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Converts minor units to a decimal amount.
+     *
+     * @param minor Amount in minor units
+     * @return Amount with two decimals
+     */
+    private static BigDecimal major(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    /**
+     * Aggregates of the prices in one currency.
+     */
+    private static final class PriceAggregate {
+
+        // Ordered multiset: price in minor units -> number of items with that price
+        private final TreeMap<Long, Integer> prices = new TreeMap<>();
+        private final long[] histogram = new long[BUCKET_BOUNDS.length];
+        private long count;
+        private long sum;
+
+        void add(long priceMinor) {
+            prices.merge(priceMinor, 1, Integer::sum);
+            histogram[bucketOf(priceMinor)]++;
+            count++;
+            sum += priceMinor;
+        }
+
+        void remove(long priceMinor) {
+            Integer existing = prices.get(priceMinor);
+            if (existing == null) {
+                return;
+            }
+            if (existing == 1) {
+                prices.remove(priceMinor);
+            } else {
+                prices.put(priceMinor, existing - 1);
+            }
+            histogram[bucketOf(priceMinor)]--;
+            count--;
+            sum -= priceMinor;
+        }
+
+        Map<String, Object> toMap() {
+            List<Map<String, Object>> buckets = new ArrayList<>();
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                Map<String, Object> bucket = new LinkedHashMap<>();
+                bucket.put("from", major(BUCKET_BOUNDS[i]));
+                // The last bucket is open-ended and has no "to"
+                if (i + 1 < BUCKET_BOUNDS.length) {
+                    bucket.put("to", major(BUCKET_BOUNDS[i + 1]));
+                }
+                bucket.put("count", histogram[i]);
+                buckets.add(bucket);
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("min", major(prices.firstKey()));
+            map.put("max", major(prices.lastKey()));
+            map.put("mean", BigDecimal.valueOf(sum).divide(BigDecimal.valueOf(count * 100), 2, RoundingMode.HALF_UP));
+            map.put("histogram", buckets);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage strategy behind ItemService.
+ * ItemService serializes mutations and notifies change listeners; stores only
+ * hold the data.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+interface ItemStore {
+
+    /**
+     * Gets an item by ID.
+     *
+     * @param id The item ID
+     * @return The item, or null if absent
+     */
+    Item get(String id);
+
+    /**
+     * Gets the JSON representation of an item, as served by GET /items/:id.
+     *
+     * @param id The item ID
+     * @return Pretty-printed UTF-8 JSON, or null if absent
+     */
+    byte[] getJson(String id);
+
+    /**
+     * Checks whether an item exists.
+     *
+     * @param id The item ID
+     * @return true if present
+     */
+    boolean contains(String id);
+
+    /**
+     * Lists all items.
+     *
+     * @return A new list with every item
+     */
+    List<Item> list();
+
+    /**
+     * Visits every item without collecting them into a list.
+     *
+     * @param action Called once per item
+     */
+    void forEach(Consumer<Item> action);
+
+    /**
+     * Gets a spliterator over all items. It splits into partitions of the
+     * store, so parallel streams scan different parts on different threads.
+     *
+     * @return Spliterator over the items
+     */
+    Spliterator<Item> spliterator();
+
+    /**
+     * Counts the items.
+     *
+     * @return Number of items
+     */
+    int count();
+
+    /**
+     * Adds or replaces an item.
+     *
+     * @param item The item
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    void put(Item item);
+
+    /**
+     * Deletes an item.
+     *
+     * @param id The item ID
+     * @return true if it existed
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    boolean delete(String id);
+
+    /**
+     * Removes all items.
+     *
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    void clear();
+
+    /**
+     * Checks whether the store accepts mutations.
+     *
+     * @return true if put, delete and clear are not supported
+     */
+    boolean isReadOnly();
+
+    /**
+     * Checks whether the store keeps its own data across restarts.
+     *
+     * @return true if the items live in files the store manages
+     */
+    boolean isPersistent();
+}
@@ -0,0 +1,275 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Builds the memory-mapped item catalog from the items JSON format
+ * (a JSON array of {"id", "name", "description", "price"} objects).
+ *
+ * The input is streamed one item at a time, so catalogs far larger than the
+ * heap can be converted. Two files are written next to each other:
+ * <ul>
+ *   <li>{@code <base>.data} - a header and one record per item:
+ *       [int idLength][id UTF-8][int jsonLength][pretty JSON UTF-8].
+ *       The JSON is exactly what GET /items/:id returns. Records never cross
+ *       a 1 GiB segment boundary; the gap before a boundary is zero-filled.</li>
+ *   <li>{@code <base>.index} - a header and an open-addressing hash table of
+ *       16-byte slots [long idHash][long recordOffset], linear probing,
+ *       at most half full. When an ID appears twice, the later record wins.</li>
+ * </ul>
+ * Both files are written under temporary names and moved into place at the end.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class MappedCatalogBuilder {
+
+    static final int DATA_MAGIC = 0x434C4344;   // "CLCD"
+    static final int INDEX_MAGIC = 0x434C4349;  // "CLCI"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int SLOT_SIZE = 16;
+
+    /**
+     * Builds the catalog from a JSON file.
+     *
+     * @param source JSON file with an array of items
+     * @param base Path prefix of the catalog files (".data" and ".index" are appended)
+     * @return Number of items written
+     * @throws IOException if reading or writing fails
+     */
+    public static long build(Path source, Path base) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return build(in, base);
+        }
+    }
+
+    /**
+     * Builds the catalog from a JSON stream.
+     *
+     * @param source Stream with an array of items
+     * @param base Path prefix of the catalog files (".data" and ".index" are appended)
+     * @return Number of items written
+     * @throws IOException if reading or writing fails
+     */
+    public static long build(InputStream source, Path base) throws IOException {
+        Path dataPath = dataPath(base);
+        Path indexPath = indexPath(base);
+        Path tmpData = Paths.get(dataPath + ".tmp");
+        Path tmpIndex = Paths.get(indexPath + ".tmp");
+        if (base.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(base.toAbsolutePath().getParent());
+        }
+
+        long count = writeData(source, tmpData);
+        writeIndex(tmpData, tmpIndex, count);
+
+        Files.move(tmpData, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(tmpIndex, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Streams items from JSON into the data file.
+     *
+     * @param source Stream with an array of items
+     * @param dataPath Data file to write
+     * @return Number of records written
+     * @throws IOException if reading or writing fails
+     */
+    private static long writeData(InputStream source, Path dataPath) throws IOException {
+        Gson gson = JsonUtil.getCompactGson();
+        long count = 0;
+        long position = HEADER_SIZE;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(source, StandardCharsets.UTF_8));
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(dataPath), 1 << 16))) {
+            // Header placeholder, filled in once the record count is known
+            out.write(new byte[HEADER_SIZE]);
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Item item = gson.fromJson(reader, Item.class);
+                if (item == null || item.getId() == null || item.getId().isEmpty()) {
+                    continue;
+                }
+                byte[] id = item.getId().getBytes(StandardCharsets.UTF_8);
+                byte[] json = JsonUtil.toJson(item).getBytes(StandardCharsets.UTF_8);
+                long recordSize = 8L + id.length + json.length;
+                if (recordSize > MappedFile.SEGMENT_SIZE) {
+                    throw new IOException("Item " + item.getId() + " is too large for the catalog");
+                }
+
+                // Keep the record inside one segment
+                long remaining = MappedFile.remainingInSegment(position);
+                if (recordSize > remaining) {
+                    pad(out, remaining);
+                    position += remaining;
+                }
+
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeInt(json.length);
+                out.write(json);
+                position += recordSize;
+                count++;
+            }
+            reader.endArray();
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(dataPath.toFile(), "rw")) {
+            file.writeInt(DATA_MAGIC);
+            file.writeInt(FORMAT_VERSION);
+            file.writeLong(count);
+            file.writeLong(position);
+        }
+        return count;
+    }
+
+    /**
+     * Builds the hash index by scanning the finished data file.
+     *
+     * @param dataPath Data file
+     * @param indexPath Index file to write
+     * @param count Number of records
+     * @throws IOException if reading or writing fails
+     */
+    private static void writeIndex(Path dataPath, Path indexPath, long count) throws IOException {
+        long slots = Long.highestOneBit(Math.max(16, count * 2 - 1)) << 1;
+        try (RandomAccessFile file = new RandomAccessFile(indexPath.toFile(), "rw")) {
+            file.setLength(HEADER_SIZE + slots * SLOT_SIZE);
+            file.writeInt(INDEX_MAGIC);
+            file.writeInt(FORMAT_VERSION);
+            file.writeLong(slots);
+            file.writeLong(count);
+        }
+
+        try (MappedFile data = new MappedFile(dataPath, false);
+             MappedFile index = new MappedFile(indexPath, true)) {
+            long end = data.getLong(16);
+            long position = HEADER_SIZE;
+            long mask = slots - 1;
+            long distinct = 0;
+            while (position < end) {
+                int idLength = MappedFile.remainingInSegment(position) < 4 ? 0 : data.getInt(position);
+                if (idLength == 0) {
+                    // Padding up to the next segment
+                    position += MappedFile.remainingInSegment(position);
+                    continue;
+                }
+                byte[] id = data.getBytes(position + 4, idLength);
+                long hash = hash(id);
+                long slot = hash & mask;
+                boolean replaced = false;
+                while (index.getLong(slotOffset(slot)) != 0) {
+                    // A later record with the same ID replaces the earlier one, as in a map
+                    long existing = index.getLong(slotOffset(slot) + 8);
+                    if (index.getLong(slotOffset(slot)) == hash && data.getInt(existing) == idLength
+                            && data.bytesEqual(existing + 4, id)) {
+                        replaced = true;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                index.putLong(slotOffset(slot), hash);
+                index.putLong(slotOffset(slot) + 8, position);
+                if (!replaced) {
+                    distinct++;
+                }
+
+                int jsonLength = data.getInt(position + 4 + idLength);
+                position += 8L + idLength + jsonLength;
+            }
+            index.putLong(16, distinct);
+            index.force();
+        }
+    }
+
+    /**
+     * Writes zero bytes.
+     *
+     * @param out The stream
+     * @param length Number of zero bytes
+     * @throws IOException if writing fails
+     */
+    private static void pad(OutputStream out, long length) throws IOException {
+        byte[] zeros = new byte[8192];
+        while (length > 0) {
+            int chunk = (int) Math.min(zeros.length, length);
+            out.write(zeros, 0, chunk);
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Gets the file offset of an index slot.
+     *
+     * @param slot Slot number
+     * @return File offset
+     */
+    static long slotOffset(long slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Hashes an ID (64-bit FNV-1a with a final mix). Never returns 0, which marks an empty slot.
+     *
+     * @param id UTF-8 bytes of the ID
+     * @return Non-zero hash
+     */
+    static long hash(byte[] id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : id) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Gets the data file path for a catalog.
+     *
+     * @param base Catalog path prefix
+     * @return Data file path
+     */
+    public static Path dataPath(Path base) {
+        return Paths.get(base + ".data");
+    }
+
+    /**
+     * Gets the index file path for a catalog.
+     *
+     * @param base Catalog path prefix
+     * @return Index file path
+     */
+    public static Path indexPath(Path base) {
+        return Paths.get(base + ".index");
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MappedCatalogBuilder() {
+        // Utility class, should not be instantiated
+    }
+}
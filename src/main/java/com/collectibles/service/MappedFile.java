@@ -0,0 +1,148 @@
+package com.collectibles.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory in 1 GiB segments, addressed with long offsets.
+ * A single MappedByteBuffer is limited to 2 GiB, so large catalogs are split;
+ * writers make sure no record or index slot crosses a segment boundary.
+ *
+ * The mapped pages live outside the Java heap: the garbage collector never
+ * scans or copies them, and the OS pages them in and out as needed.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class MappedFile implements Closeable {
+
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    /**
+     * Maps a whole file.
+     *
+     * @param path The file
+     * @param writable true to map read-write, false for read-only
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedFile(Path path, boolean writable) throws IOException {
+        this.channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[count];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * Gets the file size.
+     *
+     * @return Size in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Reads an int at an absolute offset.
+     *
+     * @param position File offset
+     * @return The value
+     */
+    int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Reads a long at an absolute offset.
+     *
+     * @param position File offset
+     * @return The value
+     */
+    long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Writes a long at an absolute offset (read-write mappings only).
+     *
+     * @param position File offset
+     * @param value The value
+     */
+    void putLong(long position, long value) {
+        segments[(int) (position >>> SEGMENT_SHIFT)].putLong((int) (position & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Copies bytes out of the mapping.
+     *
+     * @param position File offset of the first byte
+     * @param length Number of bytes
+     * @return A new array with the bytes
+     */
+    byte[] getBytes(long position, int length) {
+        ByteBuffer view = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+        view.position((int) (position & SEGMENT_MASK));
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Compares mapped bytes with an array without copying them.
+     *
+     * @param position File offset of the first byte
+     * @param expected Bytes to compare with
+     * @return true if the mapped bytes equal expected
+     */
+    boolean bytesEqual(long position, byte[] expected) {
+        MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+        int base = (int) (position & SEGMENT_MASK);
+        for (int i = 0; i < expected.length; i++) {
+            if (segment.get(base + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of bytes from an offset to the end of its segment.
+     *
+     * @param position File offset
+     * @return Bytes left in the segment
+     */
+    static long remainingInSegment(long position) {
+        return SEGMENT_SIZE - (position & SEGMENT_MASK);
+    }
+
+    /**
+     * Flushes changes of a read-write mapping to disk.
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,227 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.util.JsonUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Read-only item store backed by the memory-mapped catalog files written by
+ * {@link MappedCatalogBuilder}.
+ *
+ * Item records and the ID index both live in mapped files outside the Java
+ * heap, so the catalog can be far larger than the heap and adds nothing for
+ * the garbage collector to trace. A lookup hashes the ID, probes the index and
+ * compares the stored ID bytes in place. {@link #getJson} copies the stored
+ * JSON straight out of the mapping without creating an Item; only
+ * {@link #get} and {@link #list} parse records into objects.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class MappedItemStore implements ItemStore {
+
+    private final MappedFile data;
+    private final MappedFile index;
+    private final long slotMask;
+    private final int count;
+
+    /**
+     * Opens an existing catalog.
+     *
+     * @param base Path prefix of the catalog files
+     * @throws IOException if the files are missing or not a catalog
+     */
+    MappedItemStore(Path base) throws IOException {
+        this.data = new MappedFile(MappedCatalogBuilder.dataPath(base), false);
+        this.index = new MappedFile(MappedCatalogBuilder.indexPath(base), false);
+
+        if (data.getInt(0) != MappedCatalogBuilder.DATA_MAGIC
+                || index.getInt(0) != MappedCatalogBuilder.INDEX_MAGIC
+                || data.getInt(4) != MappedCatalogBuilder.FORMAT_VERSION
+                || index.getInt(4) != MappedCatalogBuilder.FORMAT_VERSION) {
+            throw new IOException("Not an item catalog (or an unsupported version): " + base);
+        }
+        this.slotMask = index.getLong(8) - 1;
+        long distinct = index.getLong(16);
+        if (distinct > Integer.MAX_VALUE) {
+            throw new IOException("Catalog has more items than can be counted in an int: " + distinct);
+        }
+        this.count = (int) distinct;
+    }
+
+    @Override
+    public Item get(String id) {
+        long record = find(id);
+        return record < 0 ? null : parse(record);
+    }
+
+    @Override
+    public byte[] getJson(String id) {
+        long record = find(id);
+        if (record < 0) {
+            return null;
+        }
+        int idLength = data.getInt(record);
+        long jsonPosition = record + 4 + idLength;
+        return data.getBytes(jsonPosition + 4, data.getInt(jsonPosition));
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return find(id) >= 0;
+    }
+
+    @Override
+    public List<Item> list() {
+        List<Item> items = new ArrayList<>(count);
+        forEach(items::add);
+        return items;
+    }
+
+    @Override
+    public void forEach(Consumer<Item> action) {
+        for (long slot = 0; slot <= slotMask; slot++) {
+            long slotOffset = MappedCatalogBuilder.slotOffset(slot);
+            if (index.getLong(slotOffset) != 0) {
+                action.accept(parse(index.getLong(slotOffset + 8)));
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new SlotSpliterator(0, slotMask + 1);
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public void put(Item item) {
+        throw new UnsupportedOperationException("The mapped item catalog is read-only");
+    }
+
+    @Override
+    public boolean delete(String id) {
+        throw new UnsupportedOperationException("The mapped item catalog is read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("The mapped item catalog is read-only");
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * Finds the record of an ID through the index.
+     *
+     * @param id The item ID
+     * @return File offset of the record, or -1 if absent
+     */
+    private long find(String id) {
+        if (id == null) {
+            return -1;
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        long hash = MappedCatalogBuilder.hash(key);
+        long slot = hash & slotMask;
+        while (true) {
+            long slotOffset = MappedCatalogBuilder.slotOffset(slot);
+            long slotHash = index.getLong(slotOffset);
+            if (slotHash == 0) {
+                return -1;
+            }
+            if (slotHash == hash) {
+                long record = index.getLong(slotOffset + 8);
+                if (data.getInt(record) == key.length && data.bytesEqual(record + 4, key)) {
+                    return record;
+                }
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Parses a stored record into an Item.
+     *
+     * @param record File offset of the record
+     * @return The item
+     */
+    private Item parse(long record) {
+        int idLength = data.getInt(record);
+        long jsonPosition = record + 4 + idLength;
+        byte[] json = data.getBytes(jsonPosition + 4, data.getInt(jsonPosition));
+        return JsonUtil.fromJson(new String(json, StandardCharsets.UTF_8), Item.class);
+    }
+
+    /**
+     * Spliterator over a range of index slots. Splits the range in half, so
+     * each fork-join task reads its own part of the index.
+     */
+    private final class SlotSpliterator implements Spliterator<Item> {
+
+        // Below this many slots a range is not split further
+        private static final long MIN_SPLIT_SLOTS = 4096;
+
+        private long next;
+        private final long end;
+
+        SlotSpliterator(long from, long end) {
+            this.next = from;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            while (next < end) {
+                long slotOffset = MappedCatalogBuilder.slotOffset(next++);
+                if (index.getLong(slotOffset) != 0) {
+                    action.accept(parse(index.getLong(slotOffset + 8)));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Item> trySplit() {
+            long remaining = end - next;
+            if (remaining < MIN_SPLIT_SLOTS) {
+                return null;
+            }
+            long middle = next + remaining / 2;
+            SlotSpliterator prefix = new SlotSpliterator(next, middle);
+            next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // The index is at most half full; scale the slot range by the load factor
+            return (long) ((end - next) * ((double) count / (slotMask + 1)));
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.storage.KeyValueRepository;
+import com.collectibles.util.JsonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Item store backed by a {@link KeyValueRepository}, keyed by item ID.
+ * Scans visit items in ID order.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class RepositoryItemStore implements ItemStore {
+
+    private final KeyValueRepository<Item> repository;
+
+    /**
+     * Creates a store over a repository.
+     *
+     * @param repository The repository holding the items
+     */
+    RepositoryItemStore(KeyValueRepository<Item> repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Item get(String id) {
+        return repository.get(id);
+    }
+
+    @Override
+    public byte[] getJson(String id) {
+        Item item = repository.get(id);
+        return item == null ? null : JsonUtil.toJson(item).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return repository.get(id) != null;
+    }
+
+    @Override
+    public List<Item> list() {
+        List<Item> items = new ArrayList<>(count());
+        repository.scan((id, item) -> items.add(item));
+        return items;
+    }
+
+    @Override
+    public void forEach(Consumer<Item> action) {
+        repository.scan((id, item) -> action.accept(item));
+    }
+
+    @Override
+    public Spliterator<Item> spliterator() {
+        // A merged scan does not split; parallel queries partition the collected list
+        return list().spliterator();
+    }
+
+    @Override
+    public int count() {
+        return (int) repository.count();
+    }
+
+    @Override
+    public void put(Item item) {
+        repository.put(item.getId(), item);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return repository.delete(id);
+    }
+
+    @Override
+    public void clear() {
+        repository.clear();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return repository.isPersistent();
+    }
+}
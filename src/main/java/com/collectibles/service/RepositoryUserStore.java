@@ -0,0 +1,115 @@
+package com.collectibles.service;
+
+import com.collectibles.model.User;
+import com.collectibles.storage.KeyValueRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * User store backed by a {@link KeyValueRepository}, keyed by user ID.
+ * Reads go straight to the repository; mutations are serialized on the store
+ * so listeners see changes in exactly the order they were applied, and use
+ * the repository's conditional writes for the add and update checks.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class RepositoryUserStore implements UserStore {
+
+    private final KeyValueRepository<User> repository;
+    private final UserChangeListener listener;
+
+    /**
+     * Creates a store over a repository.
+     *
+     * @param repository The repository holding the users
+     * @param listener Listener notified of every change
+     */
+    RepositoryUserStore(KeyValueRepository<User> repository, UserChangeListener listener) {
+        this.repository = repository;
+        this.listener = listener;
+    }
+
+    @Override
+    public User get(String id) {
+        return repository.get(id);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return repository.get(id) != null;
+    }
+
+    @Override
+    public List<User> list() {
+        List<User> users = new ArrayList<>(count());
+        repository.scan((id, user) -> users.add(user));
+        return users;
+    }
+
+    @Override
+    public int count() {
+        return (int) repository.count();
+    }
+
+    @Override
+    public synchronized User add(User user) {
+        if (!repository.putIfAbsent(user.getId(), user)) {
+            throw new IllegalArgumentException("User with ID " + user.getId() + " already exists");
+        }
+        listener.onUserSaved(user);
+        return user;
+    }
+
+    @Override
+    public synchronized User update(String id, User user) {
+        // Mutations are serialized here, so the only competing writers are other stores on the same repository
+        while (true) {
+            User current = repository.get(id);
+            if (current == null) {
+                throw new IllegalArgumentException("User with ID " + id + " does not exist");
+            }
+            if (repository.compareAndReplace(id, current, user)) {
+                listener.onUserSaved(user);
+                return user;
+            }
+        }
+    }
+
+    @Override
+    public synchronized User upsert(User user) {
+        repository.put(user.getId(), user);
+        listener.onUserSaved(user);
+        return user;
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        boolean deleted = repository.delete(id);
+        if (deleted) {
+            listener.onUserDeleted(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized void clear() {
+        repository.clear();
+        listener.onUsersCleared();
+    }
+
+    @Override
+    public synchronized void replaceAll(Collection<User> users) {
+        clear();
+        for (User user : users) {
+            upsert(user);
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return repository.isPersistent();
+    }
+}
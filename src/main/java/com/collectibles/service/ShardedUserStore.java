@@ -0,0 +1,247 @@
+package com.collectibles.service;
+
+import com.collectibles.model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * User store hash-partitioned across N shards, each owned by a single writer thread.
+ *
+ * Every mutation is sent to the mailbox (executor queue) of the shard that owns
+ * the user ID and runs on that shard's writer thread, so writes to one shard
+ * never contend with writes to another and need no locks of their own. Reads go
+ * straight to the shard's concurrent map without touching the writer.
+ *
+ * Operations over the whole store fan out: list and count merge the shards,
+ * while clear and replaceAll pause every writer at a barrier so listeners see
+ * them at a single point in the change order.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class ShardedUserStore implements UserStore {
+
+    private final Shard[] shards;
+    private final UserChangeListener listener;
+
+    /**
+     * Creates an empty store with the given number of shards.
+     *
+     * @param shardCount Number of shards (and writer threads)
+     * @param listener Listener notified of every change, on the shard's writer thread
+     */
+    ShardedUserStore(int shardCount, UserChangeListener listener) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.listener = listener;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Picks the shard that owns a user ID.
+     *
+     * @param id The user ID
+     * @return The owning shard
+     */
+    private Shard shardFor(String id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return shards[Math.floorMod(h, shards.length)];
+    }
+
+    @Override
+    public User get(String id) {
+        return shardFor(id).users.get(id);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return shardFor(id).users.containsKey(id);
+    }
+
+    @Override
+    public List<User> list() {
+        List<User> all = new ArrayList<>(count());
+        for (Shard shard : shards) {
+            all.addAll(shard.users.values());
+        }
+        return all;
+    }
+
+    @Override
+    public int count() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.users.size();
+        }
+        return total;
+    }
+
+    @Override
+    public User add(User user) {
+        Shard shard = shardFor(user.getId());
+        return shard.write(() -> {
+            if (shard.users.containsKey(user.getId())) {
+                throw new IllegalArgumentException("User with ID " + user.getId() + " already exists");
+            }
+            shard.users.put(user.getId(), user);
+            listener.onUserSaved(user);
+            return user;
+        });
+    }
+
+    @Override
+    public User update(String id, User user) {
+        Shard shard = shardFor(id);
+        return shard.write(() -> {
+            if (!shard.users.containsKey(id)) {
+                throw new IllegalArgumentException("User with ID " + id + " does not exist");
+            }
+            shard.users.put(id, user);
+            listener.onUserSaved(user);
+            return user;
+        });
+    }
+
+    @Override
+    public User upsert(User user) {
+        Shard shard = shardFor(user.getId());
+        return shard.write(() -> {
+            shard.users.put(user.getId(), user);
+            listener.onUserSaved(user);
+            return user;
+        });
+    }
+
+    @Override
+    public boolean delete(String id) {
+        Shard shard = shardFor(id);
+        return shard.write(() -> {
+            boolean deleted = shard.users.remove(id) != null;
+            if (deleted) {
+                listener.onUserDeleted(id);
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public void clear() {
+        runWithAllWritersPaused(this::clearShards);
+    }
+
+    @Override
+    public void replaceAll(Collection<User> users) {
+        runWithAllWritersPaused(() -> {
+            clearShards();
+            for (User user : users) {
+                shardFor(user.getId()).users.put(user.getId(), user);
+                listener.onUserSaved(user);
+            }
+        });
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    /**
+     * Clears every shard and notifies listeners once.
+     * Only called while all writers are paused.
+     */
+    private void clearShards() {
+        for (Shard shard : shards) {
+            shard.users.clear();
+        }
+        listener.onUsersCleared();
+    }
+
+    /**
+     * Parks every shard writer at a barrier, runs the action, then releases them.
+     * Pending writes queued before the barrier complete first; writes queued after
+     * it run after the action.
+     *
+     * @param action Whole-store mutation to run
+     */
+    private synchronized void runWithAllWritersPaused(Runnable action) {
+        CountDownLatch arrived = new CountDownLatch(shards.length);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (Shard shard : shards) {
+            shard.writer.execute(() -> {
+                arrived.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        try {
+            arrived.await();
+            action.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pausing shard writers", e);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * One partition: a concurrent map for lock-free reads and a single writer thread.
+     */
+    private static final class Shard {
+
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+        private final ExecutorService writer;
+
+        /**
+         * Creates a shard with its own daemon writer thread.
+         *
+         * @param index Shard number, used in the thread name
+         */
+        Shard(int index) {
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * Runs a mutation on this shard's writer thread and waits for the result.
+         *
+         * @param <T> Result type
+         * @param mutation The mutation
+         * @return The mutation's result
+         * @throws IllegalArgumentException if the mutation rejected the change
+         */
+        <T> T write(Supplier<T> mutation) {
+            try {
+                return CompletableFuture.supplyAsync(mutation, writer).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
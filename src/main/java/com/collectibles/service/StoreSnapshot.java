@@ -0,0 +1,290 @@
+package com.collectibles.service;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the item and user stores, written on graceful shutdown
+ * and loaded on the next start instead of parsing JSON and seeding users.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * [int magic "CLSN"][int version][long createdMillis][byte itemsIncluded][byte usersIncluded]
+ * records: [byte type (1 = item, 2 = user)][strings...]
+ * trailer: [byte 0][int itemCount][int userCount][long CRC32 of everything before it]
+ * </pre>
+ * An item record holds id, name, description and price; a user record holds
+ * id, name, email and role. Each string is [int byteLength, -1 for null][UTF-8].
+ * A store is left out when it keeps its own files (the read-only memory-mapped
+ * catalog or the embedded on-disk store), since it starts from those.
+ *
+ * The file is written under a temporary name, forced to disk and renamed, like
+ * the item catalog. It is loaded through a read-only memory mapping, so
+ * reading is a single pass over the page cache with no stream buffering or
+ * JSON parsing; the checksum and counts are verified before it is used.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class StoreSnapshot {
+
+    static final int MAGIC = 0x434C534E;  // "CLSN"
+    static final int FORMAT_VERSION = 2;
+
+    private static final byte END = 0;
+    private static final byte ITEM = 1;
+    private static final byte USER = 2;
+
+    // Trailer: end marker, two counts and the checksum
+    private static final int TRAILER_SIZE = 1 + 4 + 4 + 8;
+
+    private final long createdMillis;
+    private final List<Item> items;
+    private final List<User> users;
+
+    private StoreSnapshot(long createdMillis, List<Item> items, List<User> users) {
+        this.createdMillis = createdMillis;
+        this.items = items;
+        this.users = users;
+    }
+
+    /**
+     * Writes a snapshot of both stores.
+     * Call once no more changes are expected (after the server stopped).
+     *
+     * @param file Snapshot file to replace
+     * @param itemService Item store; its items are skipped when it is persistent
+     * @param userService User store; its users are skipped when it is persistent
+     * @return Size of the snapshot in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(Path file, ItemService itemService, UserService userService) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path tempFile = Paths.get(absolute + ".tmp");
+        Files.createDirectories(absolute.getParent());
+
+        boolean includeItems = !itemService.isPersistent();
+        boolean includeUsers = !userService.isPersistent();
+        int[] itemCount = new int[1];
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile.toFile())) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(fileOut, 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeByte(includeItems ? 1 : 0);
+            out.writeByte(includeUsers ? 1 : 0);
+
+            // Items
+            if (includeItems) {
+                IOException[] failure = new IOException[1];
+                itemService.forEachItem(item -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        out.writeByte(ITEM);
+                        writeString(out, item.getId());
+                        writeString(out, item.getName());
+                        writeString(out, item.getDescription());
+                        writeString(out, item.getPrice());
+                        itemCount[0]++;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+            }
+
+            // Users
+            List<User> users = includeUsers ? userService.getAllUsers() : Collections.<User>emptyList();
+            for (User user : users) {
+                out.writeByte(USER);
+                writeString(out, user.getId());
+                writeString(out, user.getName());
+                writeString(out, user.getEmail());
+                writeString(out, user.getRole());
+            }
+
+            // Trailer; the checksum itself is not part of the checksum
+            out.writeByte(END);
+            out.writeInt(itemCount[0]);
+            out.writeInt(users.size());
+            out.flush();
+            DataOutputStream trailer = new DataOutputStream(fileOut);
+            trailer.writeLong(crc.getValue());
+            trailer.flush();
+
+            // The data must be on disk before the rename makes it the snapshot
+            fileOut.getFD().sync();
+        }
+        long bytes = Files.size(tempFile);
+        Files.move(tempFile, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ItemCatalogPersister.syncDirectory(absolute.getParent());
+        return bytes;
+    }
+
+    /**
+     * Loads a snapshot.
+     *
+     * @param file Snapshot file
+     * @return The snapshot contents
+     * @throws IOException if the file cannot be read, is larger than 2 GiB, or is damaged
+     */
+    public static StoreSnapshot load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is larger than 2 GiB: " + size + " bytes");
+            }
+            if (size < 18 + TRAILER_SIZE) {
+                throw new IOException("Snapshot is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // Verify the checksum before trusting any length in the file
+            int checkedSize = (int) size - 8;
+            CRC32 crc = new CRC32();
+            ByteBuffer checked = buffer.duplicate();
+            checked.limit(checkedSize);
+            crc.update(checked);
+            if (crc.getValue() != buffer.getLong(checkedSize)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            buffer.limit(checkedSize);
+
+            try {
+                return read(buffer);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("Snapshot is damaged", e);
+            }
+        }
+    }
+
+    /**
+     * Gets when the snapshot was written.
+     *
+     * @return Epoch milliseconds
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Gets the snapshot's items.
+     *
+     * @return The items, or null if the item store was persistent
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the snapshot's users.
+     *
+     * @return The users, or null if the user store was persistent
+     */
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Gets the same snapshot without its items, e.g. when the items were
+     * saved elsewhere after the snapshot was written.
+     *
+     * @return A snapshot with the users only
+     */
+    public StoreSnapshot withoutItems() {
+        return new StoreSnapshot(createdMillis, null, users);
+    }
+
+    /**
+     * Reads the header, the records and the counts from the trailer.
+     */
+    private static StoreSnapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long createdMillis = buffer.getLong();
+        boolean includesItems = buffer.get() != 0;
+        boolean includesUsers = buffer.get() != 0;
+
+        List<Item> items = includesItems ? new ArrayList<>() : null;
+        List<User> users = includesUsers ? new ArrayList<>() : null;
+        byte[] scratch = new byte[256];
+        while (true) {
+            byte type = buffer.get();
+            if (type == END) {
+                break;
+            }
+            String id = readString(buffer, scratch);
+            String name = readString(buffer, scratch);
+            String third = readString(buffer, scratch);
+            String fourth = readString(buffer, scratch);
+            if (type == ITEM && items != null) {
+                items.add(new Item(id, name, third, fourth));
+            } else if (type == USER && users != null) {
+                users.add(new User(id, name, third, fourth));
+            } else {
+                throw new IOException("Unknown snapshot record type " + type);
+            }
+        }
+
+        int itemCount = buffer.getInt();
+        int userCount = buffer.getInt();
+        if ((items != null ? items.size() : 0) != itemCount || (users != null ? users.size() : 0) != userCount) {
+            throw new IOException("Snapshot record counts do not match");
+        }
+        return new StoreSnapshot(createdMillis, items, users != null ? Collections.unmodifiableList(users) : null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string, decoding through the shared scratch array unless it is longer.
+     */
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
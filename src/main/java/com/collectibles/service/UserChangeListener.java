@@ -0,0 +1,34 @@
+package com.collectibles.service;
+
+import com.collectibles.model.User;
+
+/**
+ * Listener notified of every change applied to the user store.
+ * Callbacks run on the writing thread, while the user's store (or shard) is
+ * locked, in the same order the changes were applied. Implementations must be
+ * quick, thread-safe and must not call back into UserService mutations.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public interface UserChangeListener {
+
+    /**
+     * Called after a user was added, updated or replaced.
+     *
+     * @param user The user as now stored
+     */
+    void onUserSaved(User user);
+
+    /**
+     * Called after a user was deleted.
+     *
+     * @param id The ID of the deleted user
+     */
+    void onUserDeleted(String id);
+
+    /**
+     * Called after all users were removed.
+     */
+    void onUsersCleared();
+}
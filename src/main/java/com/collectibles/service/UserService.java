@@ -1,31 +1,95 @@
 package com.collectibles.service;
 
 import com.collectibles.model.User;
+import com.collectibles.storage.KeyValueRepository;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Service class for managing User entities.
  * Handles all business logic related to users including
  * CRUD operations and user validation.
  *
+ * Reads are lock-free. Mutations are ordered per user so that change listeners
+ * (e.g. replication) observe changes in exactly the order they were applied.
+ * Storage is a single concurrent map, a hash-partitioned store with one
+ * writer thread per shard when a shard count is given, or a storage repository.
+ *
  * @author Rafael
  * @version 1.0.0
  */
 public class UserService {
 
     // In-memory storage for users (simulates a database)
-    private final Map<String, User> usersMap;
+    private final UserStore store;
+
+    // Listeners notified of every change, in apply order
+    private final List<UserChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor that initializes the service.
      */
     public UserService() {
-        this.usersMap = new HashMap<>();
-        initializeSampleUsers();
+        this(0);
+    }
+
+    /**
+     * Constructor that initializes the service with a partitioned store.
+     *
+     * @param shardCount Number of single-writer shards; 0 keeps a single map
+     */
+    public UserService(int shardCount) {
+        this(shardCount, null);
+    }
+
+    /**
+     * Constructor that initializes the service with the given users instead
+     * of the sample users (e.g. from a snapshot).
+     *
+     * @param shardCount Number of single-writer shards; 0 keeps a single map
+     * @param users The initial users, or null for the sample users
+     */
+    public UserService(int shardCount, Collection<User> users) {
+        UserChangeListener notifier = new ChangeNotifier();
+        this.store = shardCount > 0
+                ? new ShardedUserStore(shardCount, notifier)
+                : new InMemoryUserStore(notifier);
+        if (users != null) {
+            store.replaceAll(users);
+        } else {
+            initializeSampleUsers();
+        }
+        if (shardCount > 0) {
+            System.out.println("User store partitioned into " + shardCount + " shards");
+        }
+    }
+
+    /**
+     * Constructor that keeps the users in a storage repository (e.g. the
+     * embedded on-disk store). An empty repository gets the sample users.
+     *
+     * @param repository The repository holding the users
+     */
+    public UserService(KeyValueRepository<User> repository) {
+        this.store = new RepositoryUserStore(repository, new ChangeNotifier());
+        if (store.count() == 0) {
+            initializeSampleUsers();
+        } else {
+            System.out.println("Opened user repository with " + store.count() + " users");
+        }
+    }
+
+    /**
+     * Registers a listener for user changes.
+     *
+     * @param listener The listener to notify
+     */
+    public void addChangeListener(UserChangeListener listener) {
+        changeListeners.add(listener);
     }
 
     /**
@@ -38,11 +102,11 @@ public class UserService {
         User buyer1 = new User("user2", "John Collector", "john@email.com", "buyer");
         User seller1 = new User("user3", "Ramon Organizer", "ramon@email.com", "seller");
 
-        usersMap.put(admin.getId(), admin);
-        usersMap.put(buyer1.getId(), buyer1);
-        usersMap.put(seller1.getId(), seller1);
+        store.upsert(admin);
+        store.upsert(buyer1);
+        store.upsert(seller1);
 
-        System.out.println("Initialized " + usersMap.size() + " sample users");
+        System.out.println("Initialized " + store.count() + " sample users");
     }
 
     /**
@@ -51,7 +115,7 @@ public class UserService {
      * @return List of all users
      */
     public List<User> getAllUsers() {
-        return new ArrayList<>(usersMap.values());
+        return store.list();
     }
 
     /**
@@ -61,7 +125,25 @@ public class UserService {
      * @return The user if found, null otherwise
      */
     public User getUserById(String id) {
-        return usersMap.get(id);
+        return store.get(id);
+    }
+
+    /**
+     * Retrieves several users by ID in one pass over the store.
+     * IDs that do not exist are left out; duplicates are resolved once.
+     *
+     * @param ids The IDs to look up
+     * @return Found users keyed by ID, in the order the IDs were given
+     */
+    public Map<String, User> getUsersByIds(Collection<String> ids) {
+        Map<String, User> found = new LinkedHashMap<>();
+        for (String id : ids) {
+            User user = store.get(id);
+            if (user != null) {
+                found.put(id, user);
+            }
+        }
+        return found;
     }
 
     /**
@@ -71,7 +153,7 @@ public class UserService {
      * @return true if the user exists, false otherwise
      */
     public boolean userExists(String id) {
-        return usersMap.containsKey(id);
+        return store.contains(id);
     }
 
     /**
@@ -85,13 +167,7 @@ public class UserService {
         if (user == null || user.getId() == null) {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
-
-        if (usersMap.containsKey(user.getId())) {
-            throw new IllegalArgumentException("User with ID " + user.getId() + " already exists");
-        }
-
-        usersMap.put(user.getId(), user);
-        return user;
+        return store.add(user);
     }
 
     /**
@@ -103,14 +179,34 @@ public class UserService {
      * @throws IllegalArgumentException if user doesn't exist
      */
     public User updateUser(String id, User updatedUser) {
-        if (!usersMap.containsKey(id)) {
-            throw new IllegalArgumentException("User with ID " + id + " does not exist");
-        }
-
         // Ensure the ID doesn't change
         updatedUser.setId(id);
-        usersMap.put(id, updatedUser);
-        return updatedUser;
+        return store.update(id, updatedUser);
+    }
+
+    /**
+     * Adds a user or replaces the existing one with the same ID.
+     * Used when applying changes that were already validated elsewhere (e.g. replication).
+     *
+     * @param user The user to store
+     * @return The stored user
+     * @throws IllegalArgumentException if user or user ID is null
+     */
+    public User upsertUser(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        return store.upsert(user);
+    }
+
+    /**
+     * Replaces the whole user store with the given users.
+     * Used to install a snapshot (e.g. on a replication follower).
+     *
+     * @param users The users that make up the new store contents
+     */
+    public void replaceAllUsers(Collection<User> users) {
+        store.replaceAll(users);
     }
 
     /**
@@ -120,7 +216,7 @@ public class UserService {
      * @return true if the user was deleted, false if they didn't exist
      */
     public boolean deleteUser(String id) {
-        return usersMap.remove(id) != null;
+        return store.delete(id);
     }
 
     /**
@@ -129,7 +225,17 @@ public class UserService {
      * @return The count of users
      */
     public int getUserCount() {
-        return usersMap.size();
+        return store.count();
+    }
+
+    /**
+     * Checks whether the user store keeps its own files, so users need no
+     * separate saving (snapshot).
+     *
+     * @return true for the embedded on-disk store
+     */
+    public boolean isPersistent() {
+        return store.isPersistent();
     }
 
     /**
@@ -151,6 +257,33 @@ public class UserService {
      * Useful for testing or resetting the application.
      */
     public void clearAllUsers() {
-        usersMap.clear();
+        store.clear();
+    }
+
+    /**
+     * Forwards store changes to the registered listeners.
+     */
+    private final class ChangeNotifier implements UserChangeListener {
+
+        @Override
+        public void onUserSaved(User user) {
+            for (UserChangeListener listener : changeListeners) {
+                listener.onUserSaved(user);
+            }
+        }
+
+        @Override
+        public void onUserDeleted(String id) {
+            for (UserChangeListener listener : changeListeners) {
+                listener.onUserDeleted(id);
+            }
+        }
+
+        @Override
+        public void onUsersCleared() {
+            for (UserChangeListener listener : changeListeners) {
+                listener.onUsersCleared();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package com.collectibles.service;
+
+import com.collectibles.model.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage strategy behind UserService.
+ * Implementations notify the change listener for every mutation, in the order
+ * the mutations are applied to each user.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+interface UserStore {
+
+    /**
+     * Gets a user by ID.
+     *
+     * @param id The user ID
+     * @return The user, or null if absent
+     */
+    User get(String id);
+
+    /**
+     * Checks whether a user exists.
+     *
+     * @param id The user ID
+     * @return true if present
+     */
+    boolean contains(String id);
+
+    /**
+     * Lists all users.
+     *
+     * @return A new list with every user
+     */
+    List<User> list();
+
+    /**
+     * Counts the users.
+     *
+     * @return Number of users
+     */
+    int count();
+
+    /**
+     * Adds a user that must not exist yet.
+     *
+     * @param user The user to add
+     * @return The added user
+     * @throws IllegalArgumentException if a user with the same ID exists
+     */
+    User add(User user);
+
+    /**
+     * Replaces a user that must already exist.
+     *
+     * @param id The user ID
+     * @param user The new user state
+     * @return The stored user
+     * @throws IllegalArgumentException if the user does not exist
+     */
+    User update(String id, User user);
+
+    /**
+     * Adds or replaces a user.
+     *
+     * @param user The user to store
+     * @return The stored user
+     */
+    User upsert(User user);
+
+    /**
+     * Deletes a user.
+     *
+     * @param id The user ID
+     * @return true if the user existed
+     */
+    boolean delete(String id);
+
+    /**
+     * Removes every user.
+     */
+    void clear();
+
+    /**
+     * Replaces the whole contents of the store.
+     *
+     * @param users The new contents
+     */
+    void replaceAll(Collection<User> users);
+
+    /**
+     * Checks whether the store keeps its own data across restarts.
+     *
+     * @return true if the users live in files the store manages
+     */
+    boolean isPersistent();
+}
@@ -0,0 +1,99 @@
+package com.collectibles.storage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Repository held in a concurrent sorted map on the heap.
+ * Reads are lock-free; compare-and-replace locks the repository to compare
+ * and swap atomically.
+ *
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class InMemoryRepository<V> implements KeyValueRepository<V> {
+
+    private final ConcurrentSkipListMap<String, V> entries = new ConcurrentSkipListMap<>();
+    private final ValueCodec<V> codec;
+
+    /**
+     * Creates an empty repository.
+     *
+     * @param codec Used to compare contents in compare-and-replace
+     */
+    public InMemoryRepository(ValueCodec<V> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public V get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public synchronized boolean putIfAbsent(String key, V value) {
+        return entries.putIfAbsent(key, value) == null;
+    }
+
+    @Override
+    public synchronized boolean compareAndReplace(String key, V expected, V replacement) {
+        V current = entries.get(key);
+        if (current == null || !Arrays.equals(codec.encode(current), codec.encode(expected))) {
+            return false;
+        }
+        entries.put(key, replacement);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String key) {
+        return entries.remove(key) != null;
+    }
+
+    @Override
+    public void range(String fromInclusive, String toExclusive, BiConsumer<String, V> action) {
+        NavigableMap<String, V> view = entries;
+        if (fromInclusive != null && toExclusive != null) {
+            if (fromInclusive.compareTo(toExclusive) >= 0) {
+                return;
+            }
+            view = entries.subMap(fromInclusive, true, toExclusive, false);
+        } else if (fromInclusive != null) {
+            view = entries.tailMap(fromInclusive, true);
+        } else if (toExclusive != null) {
+            view = entries.headMap(toExclusive, false);
+        }
+        for (Map.Entry<String, V> entry : view.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public long count() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
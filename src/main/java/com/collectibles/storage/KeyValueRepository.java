@@ -0,0 +1,131 @@
+package com.collectibles.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage SPI behind the item and user services: a map from string keys to
+ * values, kept in key order.
+ *
+ * Every operation on one key is atomic. Compare-and-replace compares the
+ * stored contents (the values' encoded form), not {@code equals}, since the
+ * model classes compare by ID only. Iteration visits keys in ascending
+ * {@link String#compareTo} order and sees each key once, but is not a
+ * point-in-time snapshot: changes made while it runs may or may not be seen.
+ *
+ * Implementations must pass {@link RepositoryConformance}.
+ *
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public interface KeyValueRepository<V> extends Closeable {
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key
+     * @return The value, or null if absent
+     */
+    V get(String key);
+
+    /**
+     * Stores a value, replacing any previous one.
+     *
+     * @param key The key
+     * @param value The value (not null)
+     */
+    void put(String key, V value);
+
+    /**
+     * Stores a value only if the key is absent.
+     *
+     * @param key The key
+     * @param value The value (not null)
+     * @return true if stored, false if the key already had a value
+     */
+    boolean putIfAbsent(String key, V value);
+
+    /**
+     * Replaces a value only if the current one has the same contents as {@code expected}.
+     *
+     * @param key The key
+     * @param expected The value the caller last read
+     * @param replacement The new value (not null)
+     * @return true if replaced, false if the key is absent or holds something else
+     */
+    boolean compareAndReplace(String key, V expected, V replacement);
+
+    /**
+     * Deletes a key.
+     *
+     * @param key The key
+     * @return true if it had a value
+     */
+    boolean delete(String key);
+
+    /**
+     * Applies several writes at once. The batch is not atomic: a crash can
+     * keep part of it. Persistent implementations make all of it durable
+     * together, paying for one disk sync instead of one per write.
+     *
+     * @param writes Keys and their new values; a null value deletes the key
+     */
+    default void writeBatch(Map<String, V> writes) {
+        for (Map.Entry<String, V> write : writes.entrySet()) {
+            if (write.getValue() == null) {
+                delete(write.getKey());
+            } else {
+                put(write.getKey(), write.getValue());
+            }
+        }
+    }
+
+    /**
+     * Visits the entries with {@code fromInclusive <= key < toExclusive}, in key order.
+     *
+     * @param fromInclusive Lower bound, or null for the first key
+     * @param toExclusive Upper bound, or null for no bound
+     * @param action Called once per entry
+     */
+    void range(String fromInclusive, String toExclusive, BiConsumer<String, V> action);
+
+    /**
+     * Visits every entry, in key order.
+     *
+     * @param action Called once per entry
+     */
+    default void scan(BiConsumer<String, V> action) {
+        range(null, null, action);
+    }
+
+    /**
+     * Counts the entries.
+     *
+     * @return Number of keys with a value
+     */
+    long count();
+
+    /**
+     * Removes every entry.
+     */
+    void clear();
+
+    /**
+     * Checks whether the data survives a restart.
+     *
+     * @return true if the repository is backed by files
+     */
+    boolean isPersistent();
+
+    /**
+     * Releases files and background threads. Persistent repositories make
+     * every write durable first.
+     *
+     * @throws IOException if the final write fails
+     */
+    @Override
+    void close() throws IOException;
+}
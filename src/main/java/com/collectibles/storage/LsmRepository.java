@@ -0,0 +1,869 @@
+package com.collectibles.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Embedded log-structured merge repository: data lives in files under one
+ * directory and only the newest writes are held on the heap.
+ *
+ * <ul>
+ *   <li>Writes are appended to a write-ahead log and applied to the memtable,
+ *       a sorted in-memory map. Deletions are stored as tombstones.</li>
+ *   <li>When the memtable reaches its size budget it is frozen and a new one
+ *       (with a new log) takes over. A background thread writes the frozen
+ *       memtable to an immutable sorted {@link Segment} and deletes its log.
+ *       If the previous flush is still running, the next rotation waits for
+ *       it, which keeps at most two memtables on the heap.</li>
+ *   <li>Once there are enough segments, the same background thread merges all
+ *       of them into one, keeping the newest value of each key and dropping
+ *       tombstones.</li>
+ * </ul>
+ *
+ * Reads check the memtables, then the segments from newest to oldest, and
+ * never take a lock. A read holds a reference on each segment it uses, so a
+ * segment replaced by a compaction stays open until the reads that started
+ * before the compaction are done. Mutations are serialized on the repository. Opening a
+ * directory replays any logs whose memtable was never flushed; with
+ * {@code syncWrites} off, the last writes before a power loss can be lost,
+ * but never a write followed by a clean {@link #close()}. With it on, every
+ * write is synced before it returns, and a {@link #writeBatch} is synced once.
+ *
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class LsmRepository<V> implements KeyValueRepository<V> {
+
+    // Marks a deleted key in memtables, logs and segments (compared by identity)
+    static final byte[] TOMBSTONE = new byte[0];
+
+    // Approximate heap cost of a memtable entry beyond its key and value
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Path directory;
+    private final ValueCodec<V> codec;
+    private final long memtableBytes;
+    private final int compactionSegments;
+    private final boolean syncWrites;
+
+    // Runs flushes and compactions, one at a time
+    private final ExecutorService background;
+
+    // Guards replacing the state (writers rotate, the background thread installs segments)
+    private final Object stateLock = new Object();
+    private volatile State state;
+
+    // Guarded by this
+    private WriteAheadLog log;
+    private long activeSeq;
+    private long nextSeq;
+    private long activeBytes;
+    private Future<?> pendingFlush;
+    private boolean closed;
+
+    // Computed by the first count(), then maintained by the mutations; -1 until then
+    private volatile long count = -1;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    /**
+     * Opens (or creates) a repository in a directory, replaying any unflushed logs.
+     *
+     * @param directory Directory holding the repository's files
+     * @param codec Converts values to and from bytes
+     * @param memtableBytes Approximate heap size at which the memtable is flushed
+     * @param compactionSegments Number of segments that triggers a compaction
+     * @param syncWrites Whether every write is forced to disk before it returns
+     * @throws IOException if the directory or its files cannot be read
+     */
+    public LsmRepository(Path directory, ValueCodec<V> codec, long memtableBytes, int compactionSegments,
+                         boolean syncWrites) throws IOException {
+        if (memtableBytes <= 0 || compactionSegments < 2) {
+            throw new IllegalArgumentException("Memtable size must be positive and compaction needs 2+ segments");
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.memtableBytes = memtableBytes;
+        this.compactionSegments = compactionSegments;
+        this.syncWrites = syncWrites;
+        Files.createDirectories(directory);
+
+        List<Segment> segments = recover();
+        long maxSeq = 0;
+        for (Segment segment : segments) {
+            maxSeq = Math.max(maxSeq, segment.getSeq());
+        }
+        this.nextSeq = maxSeq + 1;
+        this.activeSeq = nextSeq++;
+        this.log = new WriteAheadLog(WriteAheadLog.path(directory, activeSeq), syncWrites);
+        this.state = new State(new ConcurrentSkipListMap<>(), null, segments);
+
+        this.background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lsm-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (segments.size() >= compactionSegments) {
+            background.execute(this::compactQuietly);
+        }
+        System.out.println("Opened LSM repository " + directory + " with " + segments.size() + " segments");
+    }
+
+    /**
+     * Opens the segments in the directory and turns leftover logs into segments.
+     *
+     * @return Live segments, newest first
+     */
+    private List<Segment> recover() throws IOException {
+        TreeMap<Long, Path> segmentFiles = new TreeMap<>();
+        TreeMap<Long, Path> logFiles = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // An interrupted flush or compaction; its inputs are still there
+                    Files.delete(file);
+                } else if (name.endsWith(Segment.SUFFIX)) {
+                    segmentFiles.put(parseSeq(name, Segment.SUFFIX), file);
+                } else if (name.endsWith(WriteAheadLog.SUFFIX)) {
+                    logFiles.put(parseSeq(name, WriteAheadLog.SUFFIX), file);
+                }
+            }
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        for (Map.Entry<Long, Path> entry : segmentFiles.descendingMap().entrySet()) {
+            long seq = entry.getKey();
+            if (isCovered(segments, seq)) {
+                // Input of a compaction that finished before its inputs were deleted
+                Files.delete(entry.getValue());
+                continue;
+            }
+            segments.add(Segment.open(entry.getValue(), seq));
+        }
+
+        for (Map.Entry<Long, Path> entry : logFiles.entrySet()) {
+            long seq = entry.getKey();
+            if (!isCovered(segments, seq) && !segmentFiles.containsKey(seq)) {
+                ConcurrentSkipListMap<String, byte[]> memtable = new ConcurrentSkipListMap<>();
+                int replayed = WriteAheadLog.replay(entry.getValue(), memtable);
+                if (replayed > 0) {
+                    segments.add(Segment.write(Segment.path(directory, seq), seq, seq,
+                            memtable.entrySet().iterator(), false));
+                    System.out.println("Recovered " + replayed + " writes from " + entry.getValue().getFileName());
+                }
+            }
+            Files.delete(entry.getValue());
+        }
+
+        segments.sort(Comparator.comparingLong(Segment::getSeq).reversed());
+        return segments;
+    }
+
+    private static boolean isCovered(List<Segment> segments, long seq) {
+        for (Segment segment : segments) {
+            if (segment.getMinSeq() <= seq && seq <= segment.getSeq()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseSeq(String name, String suffix) throws IOException {
+        try {
+            return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in repository directory: " + name);
+        }
+    }
+
+    @Override
+    public V get(String key) {
+        byte[] value = lookup(key);
+        return value == null || value == TOMBSTONE ? null : codec.decode(value);
+    }
+
+    /**
+     * Finds the newest stored bytes of a key.
+     *
+     * @param key The key
+     * @return The value, {@link #TOMBSTONE} if deleted, or null if never written
+     */
+    private byte[] lookup(String key) {
+        while (true) {
+            State current = state;
+            byte[] value = current.active.get(key);
+            if (value == null && current.flushing != null) {
+                value = current.flushing.get(key);
+            }
+            if (value != null) {
+                return value;
+            }
+            boolean replaced = false;
+            for (Segment segment : current.segments) {
+                if (!segment.retain()) {
+                    // Compacted away since this read started; retry with the new state
+                    replaced = true;
+                    break;
+                }
+                try {
+                    value = segment.get(key);
+                } finally {
+                    segment.release();
+                }
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (!replaced) {
+                return null;
+            }
+            checkReplaced(current);
+        }
+    }
+
+    /**
+     * Takes a reference on every segment of the current state, so a scan can
+     * read them however long it takes. Release them with {@link #release}.
+     *
+     * @return The state whose segments are now retained
+     */
+    private State retainState() {
+        while (true) {
+            State current = state;
+            List<Segment> segments = current.segments;
+            int retained = 0;
+            while (retained < segments.size() && segments.get(retained).retain()) {
+                retained++;
+            }
+            if (retained == segments.size()) {
+                return current;
+            }
+            // A segment was compacted away in between; retry with the new state
+            release(segments.subList(0, retained));
+            checkReplaced(current);
+        }
+    }
+
+    /**
+     * Called when a segment of a state could not be retained: that only
+     * happens once the state was replaced, unless the repository was closed.
+     *
+     * @param current The state a read started from
+     * @throws IllegalStateException if the state is still current (the repository is closed)
+     */
+    private void checkReplaced(State current) {
+        if (state == current) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+
+    private static void release(List<Segment> segments) {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+    }
+
+    private static boolean isLive(byte[] value) {
+        return value != null && value != TOMBSTONE;
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        byte[] encoded = codec.encode(value);
+        boolean existed = count >= 0 && isLive(lookup(key));
+        write(key, encoded);
+        if (count >= 0 && !existed) {
+            count++;
+        }
+        sync();
+    }
+
+    @Override
+    public synchronized boolean putIfAbsent(String key, V value) {
+        if (isLive(lookup(key))) {
+            return false;
+        }
+        write(key, codec.encode(value));
+        if (count >= 0) {
+            count++;
+        }
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean compareAndReplace(String key, V expected, V replacement) {
+        byte[] current = lookup(key);
+        if (!isLive(current) || !Arrays.equals(current, codec.encode(expected))) {
+            return false;
+        }
+        write(key, codec.encode(replacement));
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String key) {
+        if (!isLive(lookup(key))) {
+            return false;
+        }
+        write(key, TOMBSTONE);
+        if (count >= 0) {
+            count--;
+        }
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized void writeBatch(Map<String, V> writes) {
+        for (Map.Entry<String, V> entry : writes.entrySet()) {
+            String key = entry.getKey();
+            boolean existed = isLive(lookup(key));
+            if (entry.getValue() != null) {
+                write(key, codec.encode(entry.getValue()));
+                if (count >= 0 && !existed) {
+                    count++;
+                }
+            } else if (existed) {
+                write(key, TOMBSTONE);
+                if (count >= 0) {
+                    count--;
+                }
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Makes the logged writes durable before they are acknowledged (if syncWrites is on).
+     * Called with the repository locked.
+     */
+    private void sync() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Logs a write and applies it to the memtable. Called with the repository
+     * locked; the caller syncs the log afterwards.
+     *
+     * @param key The key
+     * @param value Encoded value or {@link #TOMBSTONE}
+     */
+    private void write(String key, byte[] value) {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+        try {
+            // Rotate before applying, so a failed flush rejects this write instead of losing track of it
+            if (activeBytes >= memtableBytes) {
+                rotate();
+            }
+            log.append(key, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        state.active.put(key, value);
+        activeBytes += key.length() * 2L + value.length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Freezes the memtable and hands it to the background thread. Waits for the
+     * previous flush first. Called with the repository locked.
+     */
+    private void rotate() throws IOException {
+        awaitPendingFlush();
+
+        ConcurrentSkipListMap<String, byte[]> frozen = state.active;
+        long frozenSeq = activeSeq;
+        Path frozenLog = log.getFile();
+        WriteAheadLog next = new WriteAheadLog(WriteAheadLog.path(directory, nextSeq), syncWrites);
+        log.sync();
+        log.close();
+        log = next;
+        activeSeq = nextSeq++;
+        activeBytes = 0;
+
+        synchronized (stateLock) {
+            state = new State(new ConcurrentSkipListMap<>(), frozen, state.segments);
+        }
+        pendingFlush = background.submit(() -> {
+            flush(frozen, frozenSeq, frozenLog);
+            if (state.segments.size() >= compactionSegments) {
+                compactQuietly();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the last submitted flush. Called with the repository locked.
+     *
+     * @throws IOException if that flush failed (its memtable stays readable and its log is kept)
+     */
+    private void awaitPendingFlush() throws IOException {
+        if (pendingFlush == null) {
+            return;
+        }
+        try {
+            pendingFlush.get();
+            pendingFlush = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a memtable flush", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Memtable flush failed", e.getCause());
+        }
+    }
+
+    /**
+     * Writes a frozen memtable to a segment and makes it visible in place of the memtable.
+     */
+    private void flush(NavigableMap<String, byte[]> memtable, long seq, Path logFile) throws IOException {
+        // With no older segment there is nothing for a tombstone to hide
+        boolean dropTombstones = state.segments.isEmpty();
+        Segment segment = Segment.write(Segment.path(directory, seq), seq, seq,
+                memtable.entrySet().iterator(), dropTombstones);
+        synchronized (stateLock) {
+            List<Segment> segments = new ArrayList<>(state.segments.size() + 1);
+            segments.add(segment);
+            segments.addAll(state.segments);
+            State current = state;
+            state = new State(current.active, current.flushing == memtable ? null : current.flushing, segments);
+        }
+        Files.deleteIfExists(logFile);
+        flushes.incrementAndGet();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // The segments are left as they were; the next flush tries again
+            System.err.println("LSM compaction failed in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Merges every segment into one. Runs on the background thread.
+     * The output takes the newest input's name, replacing it atomically; the
+     * older inputs are deleted after the new state is installed.
+     */
+    private void compact() throws IOException {
+        List<Segment> inputs = state.segments;
+        if (inputs.size() < 2) {
+            return;
+        }
+        Segment newest = inputs.get(0);
+        long minSeq = Long.MAX_VALUE;
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+        for (Segment segment : inputs) {
+            minSeq = Math.min(minSeq, segment.getMinSeq());
+            sources.add(new SegmentIterator(segment.cursor(null)));
+        }
+
+        // Every older version is an input, so tombstones have nothing left to hide
+        Segment output = Segment.write(newest.getFile(), newest.getSeq(), minSeq,
+                new MergeIterator(sources), true);
+        synchronized (stateLock) {
+            List<Segment> segments = new ArrayList<>();
+            for (Segment segment : state.segments) {
+                if (!inputs.contains(segment)) {
+                    segments.add(segment);
+                }
+            }
+            segments.add(output);
+            state = new State(state.active, state.flushing, segments);
+        }
+        for (Segment segment : inputs) {
+            if (segment != newest) {
+                Files.deleteIfExists(segment.getFile());
+            }
+        }
+        // Scans that started before the swap keep their inputs open until they finish
+        release(inputs);
+        compactions.incrementAndGet();
+    }
+
+    @Override
+    public void range(String fromInclusive, String toExclusive, BiConsumer<String, V> action) {
+        if (fromInclusive != null && toExclusive != null && fromInclusive.compareTo(toExclusive) >= 0) {
+            return;
+        }
+        try (Scan entries = scan(fromInclusive, toExclusive)) {
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                if (entry.getValue() != TOMBSTONE) {
+                    action.accept(entry.getKey(), codec.decode(entry.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the memtables and segments of the current state in key order.
+     * The segments stay open until the scan is closed.
+     *
+     * @return The newest version of each key in the range, tombstones included
+     */
+    private Scan scan(String fromInclusive, String toExclusive) {
+        State current = retainState();
+        try {
+            List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+            sources.add(view(current.active, fromInclusive, toExclusive).entrySet().iterator());
+            if (current.flushing != null) {
+                sources.add(view(current.flushing, fromInclusive, toExclusive).entrySet().iterator());
+            }
+            for (Segment segment : current.segments) {
+                sources.add(new SegmentIterator(segment.cursor(fromInclusive)));
+            }
+            return new Scan(new MergeIterator(sources), toExclusive, current.segments);
+        } catch (RuntimeException e) {
+            release(current.segments);
+            throw e;
+        }
+    }
+
+    private static NavigableMap<String, byte[]> view(ConcurrentSkipListMap<String, byte[]> map,
+                                                     String fromInclusive, String toExclusive) {
+        if (fromInclusive != null && toExclusive != null) {
+            return map.subMap(fromInclusive, true, toExclusive, false);
+        } else if (fromInclusive != null) {
+            return map.tailMap(fromInclusive, true);
+        } else if (toExclusive != null) {
+            return map.headMap(toExclusive, false);
+        }
+        return map;
+    }
+
+    @Override
+    public long count() {
+        long known = count;
+        if (known >= 0) {
+            return known;
+        }
+        synchronized (this) {
+            if (count < 0) {
+                long live = 0;
+                try (Scan entries = scan(null, null)) {
+                    while (entries.hasNext()) {
+                        if (entries.next().getValue() != TOMBSTONE) {
+                            live++;
+                        }
+                    }
+                }
+                count = live;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+        try {
+            awaitPendingFlush();
+            awaitBackgroundIdle();
+            List<Segment> cleared = state.segments;
+            for (Segment segment : cleared) {
+                Files.deleteIfExists(segment.getFile());
+            }
+
+            log.close();
+            Files.deleteIfExists(log.getFile());
+            activeSeq = nextSeq++;
+            log = new WriteAheadLog(WriteAheadLog.path(directory, activeSeq), syncWrites);
+            activeBytes = 0;
+            synchronized (stateLock) {
+                state = new State(new ConcurrentSkipListMap<>(), null, Collections.<Segment>emptyList());
+            }
+            count = 0;
+
+            // Running scans keep the old segments open until they finish
+            release(cleared);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the memtable to a segment now and waits for the flush and any
+     * compaction it triggers.
+     *
+     * @throws IOException if the flush fails
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+        if (!state.active.isEmpty()) {
+            rotate();
+        }
+        awaitPendingFlush();
+        awaitBackgroundIdle();
+    }
+
+    private void awaitBackgroundIdle() throws IOException {
+        try {
+            background.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for background work", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            awaitPendingFlush();
+            awaitBackgroundIdle();
+            background.shutdown();
+
+            // Flush the last memtable so the next open has no log to replay
+            log.close();
+            if (!state.active.isEmpty()) {
+                flush(state.active, activeSeq, log.getFile());
+            } else {
+                Files.deleteIfExists(log.getFile());
+            }
+        } finally {
+            release(state.segments);
+        }
+    }
+
+    /**
+     * Gets the number of segment files.
+     *
+     * @return Segment count
+     */
+    public int getSegmentCount() {
+        return state.segments.size();
+    }
+
+    /**
+     * Gets the number of memtable flushes since open.
+     *
+     * @return Flush count
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Gets the number of compactions since open.
+     *
+     * @return Compaction count
+     */
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    /**
+     * Gets the size of the segment files.
+     *
+     * @return Bytes on disk, excluding the write-ahead log
+     */
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (Segment segment : state.segments) {
+            bytes += segment.getFileSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * What reads see: the active memtable, the memtable being flushed (if any)
+     * and the segments, newest first. Replaced as a whole, never modified.
+     */
+    private static final class State {
+
+        private final ConcurrentSkipListMap<String, byte[]> active;
+        private final ConcurrentSkipListMap<String, byte[]> flushing;
+        private final List<Segment> segments;
+
+        State(ConcurrentSkipListMap<String, byte[]> active, ConcurrentSkipListMap<String, byte[]> flushing,
+              List<Segment> segments) {
+            this.active = active;
+            this.flushing = flushing;
+            this.segments = Collections.unmodifiableList(segments);
+        }
+    }
+
+    /**
+     * Adapts a segment cursor to an iterator.
+     */
+    private static final class SegmentIterator implements Iterator<Map.Entry<String, byte[]>> {
+
+        private final Segment.Cursor cursor;
+
+        SegmentIterator(Segment.Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasCurrent();
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            if (!cursor.hasCurrent()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> entry = new AbstractMap.SimpleImmutableEntry<>(cursor.key(), cursor.value());
+            cursor.advance();
+            return entry;
+        }
+    }
+
+    /**
+     * Merged entries of a range, up to its end key. Holds references on the
+     * segments it reads until it is closed.
+     */
+    private static final class Scan implements Iterator<Map.Entry<String, byte[]>>, AutoCloseable {
+
+        private final Iterator<Map.Entry<String, byte[]>> merged;
+        private final String toExclusive;
+        private final List<Segment> segments;
+        private Map.Entry<String, byte[]> next;
+
+        Scan(Iterator<Map.Entry<String, byte[]>> merged, String toExclusive, List<Segment> segments) {
+            this.merged = merged;
+            this.toExclusive = toExclusive;
+            this.segments = segments;
+            this.next = advance();
+        }
+
+        private Map.Entry<String, byte[]> advance() {
+            if (!merged.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, byte[]> entry = merged.next();
+            return toExclusive == null || entry.getKey().compareTo(toExclusive) < 0 ? entry : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> entry = next;
+            next = advance();
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            release(segments);
+        }
+    }
+
+    /**
+     * K-way merge of sorted sources. When several sources hold a key, the
+     * entry from the earliest source in the list (the newest) wins.
+     */
+    private static final class MergeIterator implements Iterator<Map.Entry<String, byte[]>> {
+
+        private final PriorityQueue<Head> heads;
+
+        MergeIterator(List<Iterator<Map.Entry<String, byte[]>>> sources) {
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int comparison = a.entry.getKey().compareTo(b.entry.getKey());
+                return comparison != 0 ? comparison : Integer.compare(a.rank, b.rank);
+            });
+            for (int rank = 0; rank < sources.size(); rank++) {
+                Iterator<Map.Entry<String, byte[]>> source = sources.get(rank);
+                if (source.hasNext()) {
+                    heads.add(new Head(rank, source, source.next()));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            Head winner = heads.poll();
+            if (winner == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> entry = winner.entry;
+
+            // Skip the older versions of the same key
+            while (!heads.isEmpty() && heads.peek().entry.getKey().equals(entry.getKey())) {
+                advance(heads.poll());
+            }
+            advance(winner);
+            return entry;
+        }
+
+        private void advance(Head head) {
+            if (head.source.hasNext()) {
+                head.entry = head.source.next();
+                heads.add(head);
+            }
+        }
+
+        private static final class Head {
+            private final int rank;
+            private final Iterator<Map.Entry<String, byte[]>> source;
+            private Map.Entry<String, byte[]> entry;
+
+            Head(int rank, Iterator<Map.Entry<String, byte[]>> source, Map.Entry<String, byte[]> entry) {
+                this.rank = rank;
+                this.source = source;
+                this.entry = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.collectibles.storage;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codecs for the model classes. Each value is stored as four nullable
+ * length-prefixed UTF-8 strings, the same fields the snapshot file keeps:
+ * id, name, description, price for items and id, name, email, role for users.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class ModelCodecs {
+
+    /**
+     * Codec for items.
+     */
+    public static final ValueCodec<Item> ITEMS = new ValueCodec<Item>() {
+        @Override
+        public byte[] encode(Item item) {
+            return encodeFields(item.getId(), item.getName(), item.getDescription(), item.getPrice());
+        }
+
+        @Override
+        public Item decode(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new Item(readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+        }
+    };
+
+    /**
+     * Codec for users.
+     */
+    public static final ValueCodec<User> USERS = new ValueCodec<User>() {
+        @Override
+        public byte[] encode(User user) {
+            return encodeFields(user.getId(), user.getName(), user.getEmail(), user.getRole());
+        }
+
+        @Override
+        public User decode(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new User(readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+        }
+    };
+
+    private ModelCodecs() {
+    }
+
+    private static byte[] encodeFields(String... fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int size = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+                size += encoded[i].length;
+            }
+            size += 4;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] field : encoded) {
+            if (field == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(field.length);
+                buffer.put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,444 @@
+package com.collectibles.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable sorted file of key-value records, written once by a memtable
+ * flush or a compaction.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * records: [int keyLength][key UTF-8][int valueLength, -1 = deleted][value]   sorted by key
+ * index:   [int count] then [int keyLength][key UTF-8][long recordOffset]     every 16th record
+ * footer:  [long indexOffset][long recordCount][long minSeq][int version][int magic]
+ * </pre>
+ * Only the sparse index is kept on the heap. A lookup binary-searches it and
+ * reads one block of at most 16 records with a positional read, so the data
+ * itself stays on disk (and in the OS page cache).
+ *
+ * A segment is named after its sequence number. A compaction output keeps
+ * the number of its newest input and records the oldest one as minSeq, so
+ * after a crash any leftover input it covers can be recognized and removed.
+ *
+ * The file stays open while anyone holds a reference: the repository state
+ * holds one for as long as the segment is live, and every read takes its own
+ * with {@link #retain()}. A segment replaced by a compaction is therefore
+ * closed only when the last read still using it finishes.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+final class Segment {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x434C5347;  // "CLSG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FOOTER_SIZE = 8 + 8 + 8 + 4 + 4;
+    private static final int INDEX_INTERVAL = 16;
+
+    // Positional reads of at least this size when iterating
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long seq;
+    private final long minSeq;
+    private final FileChannel channel;
+    private final String[] indexKeys;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final long recordCount;
+    private final long fileSize;
+
+    // The repository state's reference plus one per running read; closed at 0
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private Segment(Path file, long seq, long minSeq, FileChannel channel, String[] indexKeys,
+                    long[] indexOffsets, long dataEnd, long recordCount, long fileSize) {
+        this.file = file;
+        this.seq = seq;
+        this.minSeq = minSeq;
+        this.channel = channel;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.dataEnd = dataEnd;
+        this.recordCount = recordCount;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Gets the file name of a segment.
+     *
+     * @param directory Repository directory
+     * @param seq Sequence number
+     * @return The segment path
+     */
+    static Path path(Path directory, long seq) {
+        return directory.resolve(String.format("%012d", seq) + SUFFIX);
+    }
+
+    /**
+     * Writes sorted entries to a new segment and opens it. The file is written
+     * under a temporary name, forced to disk and renamed into place (replacing
+     * any file of the same name).
+     *
+     * @param file Target path
+     * @param seq Sequence number of the segment
+     * @param minSeq Oldest sequence number whose data it contains
+     * @param entries Entries in ascending key order; {@link LsmRepository#TOMBSTONE} marks a deletion
+     * @param dropTombstones Whether deletions can be left out (nothing older remains)
+     * @return The opened segment
+     * @throws IOException if writing fails
+     */
+    static Segment write(Path file, long seq, long minSeq, Iterator<Map.Entry<String, byte[]>> entries,
+                         boolean dropTombstones) throws IOException {
+        Path tempFile = Paths.get(file + ".tmp");
+        List<byte[]> indexKeys = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        long count = 0;
+        long offset = 0;
+
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                byte[] value = entry.getValue();
+                if (value == LsmRepository.TOMBSTONE && dropTombstones) {
+                    continue;
+                }
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                if (count % INDEX_INTERVAL == 0) {
+                    indexKeys.add(key);
+                    indexOffsets.add(offset);
+                }
+                out.writeInt(key.length);
+                out.write(key);
+                if (value == LsmRepository.TOMBSTONE) {
+                    out.writeInt(-1);
+                    offset += 8 + key.length;
+                } else {
+                    out.writeInt(value.length);
+                    out.write(value);
+                    offset += 8 + key.length + value.length;
+                }
+                count++;
+            }
+
+            // Sparse index and footer
+            long indexOffset = offset;
+            out.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeInt(indexKeys.get(i).length);
+                out.write(indexKeys.get(i));
+                out.writeLong(indexOffsets.get(i));
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(count);
+            out.writeLong(minSeq);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(MAGIC);
+            out.flush();
+
+            // The data must be on disk before the rename makes it part of the repository
+            fileOut.getFD().sync();
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file, seq);
+    }
+
+    /**
+     * Opens a segment and loads its sparse index.
+     *
+     * @param file Segment path
+     * @param seq Sequence number (from the file name)
+     * @return The segment
+     * @throws IOException if the file cannot be read or is not a complete segment
+     */
+    static Segment open(Path file, long seq) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE + 4) {
+                throw new IOException("Segment is truncated: " + file);
+            }
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            long recordCount = footer.getLong();
+            long minSeq = footer.getLong();
+            int version = footer.getInt();
+            if (footer.getInt() != MAGIC || version != FORMAT_VERSION
+                    || indexOffset < 0 || indexOffset > size - FOOTER_SIZE - 4) {
+                throw new IOException("Not a segment file: " + file);
+            }
+
+            ByteBuffer index = readFully(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset));
+            int entries = index.getInt();
+            String[] keys = new String[entries];
+            long[] offsets = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                byte[] key = new byte[index.getInt()];
+                index.get(key);
+                keys[i] = new String(key, StandardCharsets.UTF_8);
+                offsets[i] = index.getLong();
+            }
+            return new Segment(file, seq, minSeq, channel, keys, offsets, indexOffset, recordCount, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Damaged segment " + file, e);
+        }
+    }
+
+    /**
+     * Looks up a key.
+     *
+     * @param key The key
+     * @return The value, {@link LsmRepository#TOMBSTONE} if deleted here, or null if not in this segment
+     * @throws UncheckedIOException if reading fails
+     */
+    byte[] get(String key) {
+        int block = floorBlock(key);
+        if (block < 0) {
+            return null;
+        }
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+        try {
+            ByteBuffer buffer = readFully(channel, start, (int) (end - start));
+            while (buffer.hasRemaining()) {
+                String recordKey = readKey(buffer);
+                int valueLength = buffer.getInt();
+                int comparison = recordKey.compareTo(key);
+                if (comparison == 0) {
+                    if (valueLength < 0) {
+                        return LsmRepository.TOMBSTONE;
+                    }
+                    byte[] value = new byte[valueLength];
+                    buffer.get(value);
+                    return value;
+                }
+                if (comparison > 0) {
+                    return null;
+                }
+                if (valueLength > 0) {
+                    buffer.position(buffer.position() + valueLength);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Iterates the records from the first key that is not below {@code fromKey}.
+     *
+     * @param fromKey Start key, or null for the first record
+     * @return Cursor positioned on the first such record (or exhausted)
+     */
+    Cursor cursor(String fromKey) {
+        int block = fromKey == null ? 0 : Math.max(0, floorBlock(fromKey));
+        Cursor cursor = new Cursor(indexOffsets.length == 0 ? dataEnd : indexOffsets[block]);
+        while (cursor.hasCurrent() && fromKey != null && cursor.key().compareTo(fromKey) < 0) {
+            cursor.advance();
+        }
+        return cursor;
+    }
+
+    long getSeq() {
+        return seq;
+    }
+
+    long getMinSeq() {
+        return minSeq;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Takes a reference for a read, keeping the file open until {@link #release()}.
+     *
+     * @return false if the segment was already closed (it left the repository state)
+     */
+    boolean retain() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops a reference; the last one closes the file.
+     */
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Finds the last index entry whose key is not above {@code key}.
+     *
+     * @return Block number, or -1 if the key sorts before the first record
+     */
+    private int floorBlock(String key) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexKeys[mid].compareTo(key) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private static String readKey(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String key = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return key;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads records in order with large positional reads. Not thread-safe.
+     */
+    final class Cursor {
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+        private long nextRead;
+        private String key;
+        private byte[] value;
+
+        private Cursor(long start) {
+            this.nextRead = start;
+            advance();
+        }
+
+        boolean hasCurrent() {
+            return key != null;
+        }
+
+        String key() {
+            return key;
+        }
+
+        /**
+         * Gets the current value.
+         *
+         * @return The value, or {@link LsmRepository#TOMBSTONE}
+         */
+        byte[] value() {
+            return value;
+        }
+
+        /**
+         * Gets the segment's sequence number, used to order sources in a merge.
+         *
+         * @return Sequence number
+         */
+        long seq() {
+            return seq;
+        }
+
+        void advance() {
+            try {
+                if (!ensure(8)) {
+                    key = null;
+                    value = null;
+                    return;
+                }
+                int keyLength = buffer.getInt(buffer.position());
+                if (!ensure(8 + keyLength)) {
+                    throw new IOException("Truncated record in " + file);
+                }
+                key = readKey(buffer);
+                int valueLength = buffer.getInt();
+                if (valueLength < 0) {
+                    value = LsmRepository.TOMBSTONE;
+                } else {
+                    if (!ensure(valueLength)) {
+                        throw new IOException("Truncated record in " + file);
+                    }
+                    value = new byte[valueLength];
+                    buffer.get(value);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Makes at least {@code bytes} unread bytes available, reading more of the file if needed.
+         *
+         * @return false if the data section ends first
+         */
+        private boolean ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            long available = buffer.remaining() + (dataEnd - nextRead);
+            if (available < bytes) {
+                return false;
+            }
+            int toRead = (int) Math.min(dataEnd - nextRead, Math.max(READ_BUFFER_SIZE, bytes));
+            ByteBuffer next = ByteBuffer.allocate(buffer.remaining() + toRead);
+            next.put(buffer);
+            ByteBuffer chunk = readFully(channel, nextRead, toRead);
+            next.put(chunk);
+            next.flip();
+            nextRead += toRead;
+            buffer = next;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.collectibles.storage;
+
+/**
+ * Converts repository values to and from bytes. The encoded form is what
+ * files store and what compare-and-replace compares.
+ *
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * Encodes a value.
+     *
+     * @param value The value
+     * @return Its bytes; equal contents must give equal bytes
+     */
+    byte[] encode(V value);
+
+    /**
+     * Decodes a value.
+     *
+     * @param bytes Bytes produced by {@link #encode}
+     * @return The value
+     */
+    V decode(byte[] bytes);
+}
@@ -0,0 +1,454 @@
+package com.collectibles.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Write-behind layer in front of a (slower) repository.
+ *
+ * Mutations are checked against and recorded in a dirty map on the heap and
+ * return without touching the backing repository. A background flusher
+ * writes the dirty entries to it with {@link KeyValueRepository#writeBatch}
+ * every flush interval, or as soon as a batch worth of keys is dirty. A key
+ * written several times between flushes is written once, with its last
+ * value (or as a single delete).
+ *
+ * Reads see the dirty entries first, so every write is visible to the next
+ * read (read-your-writes); scans merge them into the backing repository's
+ * entries and hold off flushes while they run. When the dirty map reaches its limit, each writer that finds it
+ * full writes one batch to the backing repository before taking the layer's
+ * lock, which bounds the heap used by unflushed writes without stalling
+ * readers or making one writer drain the whole map. If that batch fails, the
+ * write is still accepted (the map grows past its limit until the backing
+ * repository recovers) and the failure is counted.
+ *
+ * Acknowledged writes not yet flushed are lost if the process dies;
+ * {@link #close()} flushes everything first. The layer must be the only
+ * writer of the backing repository.
+ *
+ * @param <V> Value type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class WriteBehindRepository<V> implements KeyValueRepository<V> {
+
+    private final KeyValueRepository<V> backing;
+    private final ValueCodec<V> codec;
+    private final int batchSize;
+    private final int maxDirty;
+
+    // Latest unflushed write per key
+    private final Map<String, Pending<V>> dirty = new ConcurrentHashMap<>();
+
+    // Held while a batch is written and removed from the dirty map
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Maintained by the mutations (guarded by this)
+    private volatile long count;
+    private boolean closed;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong inlineFlushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * Creates the layer and starts its flusher thread.
+     *
+     * @param backing The repository written behind
+     * @param codec Used to compare contents in compare-and-replace
+     * @param flushIntervalMs Longest time a write stays only in memory (unless a flush fails)
+     * @param batchSize Dirty keys that trigger a flush before the interval ends, and the batch size
+     * @param maxDirty Dirty keys at which writers flush a batch inline instead of returning at once
+     */
+    public WriteBehindRepository(KeyValueRepository<V> backing, ValueCodec<V> codec, long flushIntervalMs,
+                                 int batchSize, int maxDirty) {
+        if (flushIntervalMs <= 0 || batchSize <= 0 || maxDirty < batchSize) {
+            throw new IllegalArgumentException("Flush interval and batch size must be positive, max dirty >= batch size");
+        }
+        this.backing = backing;
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.maxDirty = maxDirty;
+        this.count = backing.count();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public V get(String key) {
+        Pending<V> pending = dirty.get(key);
+        if (pending != null) {
+            return pending.value;
+        }
+        // A flush writes the backing repository before it removes the dirty entry
+        return backing.get(key);
+    }
+
+    @Override
+    public void put(String key, V value) {
+        awaitCapacity();
+        synchronized (this) {
+            putLocked(key, value);
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        awaitCapacity();
+        synchronized (this) {
+            if (get(key) != null) {
+                return false;
+            }
+            record(key, value);
+            count++;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean compareAndReplace(String key, V expected, V replacement) {
+        awaitCapacity();
+        synchronized (this) {
+            V current = get(key);
+            if (current == null || !Arrays.equals(codec.encode(current), codec.encode(expected))) {
+                return false;
+            }
+            record(key, replacement);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        awaitCapacity();
+        synchronized (this) {
+            return deleteLocked(key);
+        }
+    }
+
+    /**
+     * Applies a batch of writes under one lock. The batch is checked against
+     * the limit once, so a large batch can take the dirty map past it.
+     *
+     * @param batch Writes by key; a null value deletes the key
+     */
+    @Override
+    public void writeBatch(Map<String, V> batch) {
+        awaitCapacity();
+        synchronized (this) {
+            for (Map.Entry<String, V> write : batch.entrySet()) {
+                if (write.getValue() == null) {
+                    deleteLocked(write.getKey());
+                } else {
+                    putLocked(write.getKey(), write.getValue());
+                }
+            }
+        }
+    }
+
+    private void putLocked(String key, V value) {
+        boolean existed = get(key) != null;
+        record(key, value);
+        if (!existed) {
+            count++;
+        }
+    }
+
+    private boolean deleteLocked(String key) {
+        if (get(key) == null) {
+            return false;
+        }
+        record(key, null);
+        count--;
+        return true;
+    }
+
+    /**
+     * Backpressure: while the dirty map is at its limit, the calling writer
+     * writes one batch to the backing repository before it takes the layer's
+     * lock. Writers that find the map full at the same time take turns on
+     * the flush lock, one batch each, so none of them waits for a full drain.
+     * A failed batch is logged and counted, and the write goes ahead.
+     */
+    private void awaitCapacity() {
+        if (dirty.size() < maxDirty) {
+            return;
+        }
+        inlineFlushes.incrementAndGet();
+        try {
+            flushBatch();
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            System.err.println("Write-behind inline flush failed, accepting write over the limit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a write in the dirty map. Called with the layer locked.
+     *
+     * @param key The key
+     * @param value The new value, or null for a delete
+     */
+    private void record(String key, V value) {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+        if (dirty.put(key, new Pending<>(value)) != null) {
+            coalesced.incrementAndGet();
+        }
+        writes.incrementAndGet();
+        if (dirty.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * Writes every dirty entry to the backing repository, in batches.
+     *
+     * @throws RuntimeException if the backing repository fails; unwritten entries stay dirty
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (flushBatch()) {
+                // Each pass writes up to one batch
+            }
+        }
+    }
+
+    /**
+     * Writes up to one batch of dirty entries to the backing repository and
+     * removes them from the dirty map.
+     *
+     * @return true if a batch was written, false if nothing was dirty
+     * @throws RuntimeException if the backing repository fails; the entries stay dirty
+     */
+    private boolean flushBatch() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) {
+                return false;
+            }
+            Map<String, V> batch = new LinkedHashMap<>();
+            List<Map.Entry<String, Pending<V>>> taken = new ArrayList<>();
+            for (Map.Entry<String, Pending<V>> entry : dirty.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue().value);
+                taken.add(entry);
+                if (batch.size() >= batchSize) {
+                    break;
+                }
+            }
+            backing.writeBatch(batch);
+
+            // Keep entries written again since they were taken; the next batch writes them
+            for (Map.Entry<String, Pending<V>> entry : taken) {
+                dirty.remove(entry.getKey(), entry.getValue());
+            }
+            flushedWrites.addAndGet(batch.size());
+            batches.incrementAndGet();
+            return true;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // The entries stay dirty and the next interval retries
+            System.err.println("Write-behind flush failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Visits the entries in a key range, with the dirty entries merged in.
+     * The flush lock is held from the moment the dirty entries are captured
+     * until the backing scan ends, so no flush can write a newer value to the
+     * backing repository in between and have the captured one replace it.
+     * Flushes (and writers over the limit) wait for the scan; writes that
+     * arrive during it stay dirty and are not visited.
+     *
+     * @param fromInclusive First key, or null from the start
+     * @param toExclusive Key to stop before, or null to the end
+     * @param action Called once per live entry in key order; must not write to this repository
+     */
+    @Override
+    public void range(String fromInclusive, String toExclusive, BiConsumer<String, V> action) {
+        if (fromInclusive != null && toExclusive != null && fromInclusive.compareTo(toExclusive) >= 0) {
+            return;
+        }
+
+        synchronized (flushLock) {
+            // Dirty entries in range, sorted; they replace the backing repository's version
+            TreeMap<String, Pending<V>> overlay = new TreeMap<>();
+            for (Map.Entry<String, Pending<V>> entry : dirty.entrySet()) {
+                String key = entry.getKey();
+                if ((fromInclusive == null || key.compareTo(fromInclusive) >= 0)
+                        && (toExclusive == null || key.compareTo(toExclusive) < 0)) {
+                    overlay.put(key, entry.getValue());
+                }
+            }
+            if (overlay.isEmpty()) {
+                backing.range(fromInclusive, toExclusive, action);
+                return;
+            }
+
+            OverlayMerge merge = new OverlayMerge(overlay.entrySet().iterator(), action);
+            backing.range(fromInclusive, toExclusive, merge);
+            merge.emitBefore(null);
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public synchronized void clear() {
+        synchronized (flushLock) {
+            dirty.clear();
+            backing.clear();
+            count = 0;
+        }
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return backing.isPersistent();
+    }
+
+    /**
+     * Stops the flusher, writes every dirty entry and closes the backing repository.
+     *
+     * @throws IOException if the backing repository cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            backing.close();
+        }
+    }
+
+    /**
+     * Gets the number of writes not yet in the backing repository.
+     *
+     * @return Dirty key count
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Gets statistics since creation: writes accepted, writes collapsed into a
+     * later write of the same key, writes sent to the backing repository,
+     * batches, batches written inline by writers because of backpressure,
+     * and inline batches that failed (the write was accepted anyway).
+     *
+     * @return Statistics by name
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("writes", writes.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("flushedWrites", flushedWrites.get());
+        stats.put("batches", batches.get());
+        stats.put("inlineFlushes", inlineFlushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("dirty", (long) dirty.size());
+        return stats;
+    }
+
+    /**
+     * Merges the sorted dirty entries into the backing repository's entries
+     * as they are visited. A dirty entry replaces the stored one; a dirty
+     * delete hides it.
+     */
+    private final class OverlayMerge implements BiConsumer<String, V> {
+
+        private final Iterator<Map.Entry<String, Pending<V>>> overlay;
+        private final BiConsumer<String, V> action;
+        private Map.Entry<String, Pending<V>> head;
+
+        OverlayMerge(Iterator<Map.Entry<String, Pending<V>>> overlay, BiConsumer<String, V> action) {
+            this.overlay = overlay;
+            this.action = action;
+            this.head = overlay.hasNext() ? overlay.next() : null;
+        }
+
+        @Override
+        public void accept(String key, V value) {
+            emitBefore(key);
+            if (head != null && head.getKey().equals(key)) {
+                emitHead();
+            } else {
+                action.accept(key, value);
+            }
+        }
+
+        /**
+         * Emits the dirty entries sorting before a key.
+         *
+         * @param limit Key to stop at, or null for all remaining entries
+         */
+        void emitBefore(String limit) {
+            while (head != null && (limit == null || head.getKey().compareTo(limit) < 0)) {
+                emitHead();
+            }
+        }
+
+        private void emitHead() {
+            if (head.getValue().value != null) {
+                action.accept(head.getKey(), head.getValue().value);
+            }
+            head = overlay.hasNext() ? overlay.next() : null;
+        }
+    }
+
+    /**
+     * An unflushed write. Compared by identity, so a flush only removes the
+     * exact write it sent.
+     */
+    private static final class Pending<V> {
+        private final V value;
+
+        Pending(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.collectibles.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Utility class for CBOR (RFC 8949), a compact binary encoding of the JSON data model.
+ *
+ * Encoding reuses Gson's type adapters: objects are written through a JsonWriter
+ * that emits CBOR bytes instead of text, so the field names and values are the
+ * same as in the JSON responses. Decoding builds a Gson JsonElement tree that is
+ * then bound with the shared Gson instance.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class CborUtil {
+
+    // CBOR major types (high 3 bits of the initial byte); 7 is floats and simple values
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+
+    // Single-byte items
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int UNDEFINED = 0xF7;
+    private static final int FLOAT16 = 0xF9;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+    private static final int BREAK = 0xFF;
+    private static final int INDEFINITE = 31;
+
+    // Same Gson configuration as JSON responses, minus pretty printing
+    private static final Gson gson = JsonUtil.getCompactGson();
+
+    /**
+     * Converts a Java object to CBOR bytes.
+     *
+     * @param object The object to convert
+     * @return CBOR encoding of the object
+     */
+    public static byte[] toCbor(Object object) {
+        CborWriter writer = new CborWriter();
+        if (object == null) {
+            writer.out.write(NULL);
+        } else {
+            gson.toJson(object, object.getClass(), writer);
+        }
+        return writer.out.toByteArray();
+    }
+
+    /**
+     * Converts CBOR bytes to a Java object.
+     *
+     * @param <T> The type of object to create
+     * @param cbor The CBOR bytes
+     * @param classOfT The class of the object to create
+     * @return Object parsed from the CBOR bytes
+     * @throws JsonParseException if the bytes are not valid CBOR
+     */
+    public static <T> T fromCbor(byte[] cbor, Class<T> classOfT) {
+        return gson.fromJson(toJsonTree(cbor), classOfT);
+    }
+
+    /**
+     * Decodes CBOR bytes into a Gson JSON tree.
+     *
+     * @param cbor The CBOR bytes
+     * @return The decoded tree
+     * @throws JsonParseException if the bytes are not valid CBOR
+     */
+    public static JsonElement toJsonTree(byte[] cbor) {
+        Decoder decoder = new Decoder(cbor);
+        JsonElement element = decoder.readItem();
+        if (decoder.position != cbor.length) {
+            throw new JsonParseException("Trailing bytes after CBOR item at offset " + decoder.position);
+        }
+        return element;
+    }
+
+    /**
+     * Minimal growable byte buffer (no synchronization, unlike ByteArrayOutputStream).
+     */
+    private static final class ByteBuffer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] b) {
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeHeader(int major, long length) {
+            int type = major << 5;
+            if (length < 24) {
+                write(type | (int) length);
+            } else if (length <= 0xFFL) {
+                write(type | 24);
+                write((int) length);
+            } else if (length <= 0xFFFFL) {
+                write(type | 25);
+                write((int) (length >>> 8));
+                write((int) length);
+            } else if (length <= 0xFFFFFFFFL) {
+                write(type | 26);
+                for (int shift = 24; shift >= 0; shift -= 8) {
+                    write((int) (length >>> shift));
+                }
+            } else {
+                write(type | 27);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    write((int) (length >>> shift));
+                }
+            }
+        }
+
+        void writeLong(long value) {
+            if (value >= 0) {
+                writeHeader(MAJOR_UNSIGNED, value);
+            } else {
+                writeHeader(MAJOR_NEGATIVE, -1 - value);
+            }
+        }
+
+        void writeDouble(double value) {
+            write(FLOAT64);
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+
+        void writeText(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeHeader(MAJOR_TEXT, utf8.length);
+            write(utf8);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * JsonWriter that emits CBOR. Objects and arrays are written with indefinite
+     * length so no buffering is needed; names are deferred so that null fields
+     * can be dropped the same way Gson drops them in JSON.
+     */
+    private static final class CborWriter extends JsonWriter {
+
+        private static final Writer UNUSED = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        private final ByteBuffer out = new ByteBuffer();
+        private String deferredName;
+
+        CborWriter() {
+            super(UNUSED);
+        }
+
+        private void writeDeferredName() {
+            if (deferredName != null) {
+                out.writeText(deferredName);
+                deferredName = null;
+            }
+        }
+
+        @Override
+        public JsonWriter beginArray() {
+            writeDeferredName();
+            out.write((MAJOR_ARRAY << 5) | INDEFINITE);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endArray() {
+            out.write(BREAK);
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginObject() {
+            writeDeferredName();
+            out.write((MAJOR_MAP << 5) | INDEFINITE);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endObject() {
+            out.write(BREAK);
+            return this;
+        }
+
+        @Override
+        public JsonWriter name(String name) {
+            if (name == null) {
+                throw new NullPointerException("name == null");
+            }
+            deferredName = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) {
+            if (value == null) {
+                return nullValue();
+            }
+            writeDeferredName();
+            out.writeText(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            if (value == null) {
+                return nullValue();
+            }
+            writeDeferredName();
+            out.writeText(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter nullValue() {
+            if (deferredName != null && !getSerializeNulls()) {
+                // Drop the whole name/value pair, like Gson does for JSON
+                deferredName = null;
+                return this;
+            }
+            writeDeferredName();
+            out.write(NULL);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(boolean value) {
+            writeDeferredName();
+            out.write(value ? TRUE : FALSE);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) {
+            return value == null ? nullValue() : value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(float value) {
+            return value((double) value);
+        }
+
+        @Override
+        public JsonWriter value(double value) {
+            writeDeferredName();
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                out.writeLong((long) value);
+            } else {
+                out.writeDouble(value);
+            }
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) {
+            writeDeferredName();
+            out.writeLong(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) {
+            if (value == null) {
+                return nullValue();
+            }
+            if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                return value(value.longValue());
+            }
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+                return value(value.longValue());
+            }
+            return value(value.doubleValue());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Recursive-descent CBOR decoder producing Gson JSON elements.
+     */
+    private static final class Decoder {
+
+        private final byte[] data;
+        private int position;
+        private int depth;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        JsonElement readItem() {
+            int initial = readByte();
+            int major = initial >>> 5;
+            int info = initial & 0x1F;
+
+            switch (major) {
+                case MAJOR_UNSIGNED:
+                    return unsigned(readArgument(info));
+                case MAJOR_NEGATIVE:
+                    long n = readArgument(info);
+                    return n >= 0 ? new JsonPrimitive(-1 - n)
+                            : new JsonPrimitive(new BigInteger(Long.toUnsignedString(n)).negate().subtract(BigInteger.ONE));
+                case MAJOR_BYTES:
+                    return new JsonPrimitive(Base64.getEncoder().encodeToString(readString(MAJOR_BYTES, info)));
+                case MAJOR_TEXT:
+                    return new JsonPrimitive(new String(readString(MAJOR_TEXT, info), StandardCharsets.UTF_8));
+                case MAJOR_ARRAY:
+                    return readArray(info);
+                case MAJOR_MAP:
+                    return readMap(info);
+                case MAJOR_TAG:
+                    // Tags only annotate the following item; the data model ignores them
+                    readArgument(info);
+                    return readItem();
+                default:
+                    return readSimple(initial, info);
+            }
+        }
+
+        private JsonArray readArray(int info) {
+            enter();
+            JsonArray array = new JsonArray();
+            if (info == INDEFINITE) {
+                while (peekByte() != BREAK) {
+                    array.add(readItem());
+                }
+                position++;
+            } else {
+                long length = readArgument(info);
+                for (long i = 0; i < length; i++) {
+                    array.add(readItem());
+                }
+            }
+            depth--;
+            return array;
+        }
+
+        private JsonObject readMap(int info) {
+            enter();
+            JsonObject object = new JsonObject();
+            if (info == INDEFINITE) {
+                while (peekByte() != BREAK) {
+                    object.add(readKey(), readItem());
+                }
+                position++;
+            } else {
+                long length = readArgument(info);
+                for (long i = 0; i < length; i++) {
+                    object.add(readKey(), readItem());
+                }
+            }
+            depth--;
+            return object;
+        }
+
+        private String readKey() {
+            JsonElement key = readItem();
+            if (!key.isJsonPrimitive()) {
+                throw new JsonParseException("CBOR map keys must be strings or numbers");
+            }
+            return key.getAsString();
+        }
+
+        private JsonElement readSimple(int initial, int info) {
+            switch (initial) {
+                case FALSE:
+                    return new JsonPrimitive(false);
+                case TRUE:
+                    return new JsonPrimitive(true);
+                case NULL:
+                case UNDEFINED:
+                    return JsonNull.INSTANCE;
+                case FLOAT16:
+                    return new JsonPrimitive(halfToFloat((int) readFixed(2)));
+                case FLOAT32:
+                    return new JsonPrimitive(Float.intBitsToFloat((int) readFixed(4)));
+                case FLOAT64:
+                    return new JsonPrimitive(Double.longBitsToDouble(readFixed(8)));
+                default:
+                    throw new JsonParseException("Unsupported CBOR simple value " + info);
+            }
+        }
+
+        private byte[] readString(int major, int info) {
+            if (info != INDEFINITE) {
+                int length = toLength(readArgument(info));
+                if (length > data.length - position) {
+                    throw new JsonParseException("CBOR string longer than input");
+                }
+                byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+                position += length;
+                return bytes;
+            }
+            // Indefinite-length string: concatenate definite-length chunks
+            ByteBuffer chunks = new ByteBuffer();
+            while (peekByte() != BREAK) {
+                int chunk = readByte();
+                if ((chunk >>> 5) != major || (chunk & 0x1F) == INDEFINITE) {
+                    throw new JsonParseException("Invalid chunk in indefinite-length CBOR string");
+                }
+                chunks.write(readString(major, chunk & 0x1F));
+            }
+            position++;
+            return chunks.toByteArray();
+        }
+
+        private long readArgument(int info) {
+            if (info < 24) {
+                return info;
+            }
+            switch (info) {
+                case 24:
+                    return readFixed(1);
+                case 25:
+                    return readFixed(2);
+                case 26:
+                    return readFixed(4);
+                case 27:
+                    return readFixed(8);
+                default:
+                    throw new JsonParseException("Invalid CBOR additional info " + info);
+            }
+        }
+
+        private long readFixed(int bytes) {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        private int readByte() {
+            if (position >= data.length) {
+                throw new JsonParseException("Unexpected end of CBOR input");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private int peekByte() {
+            if (position >= data.length) {
+                throw new JsonParseException("Unexpected end of CBOR input");
+            }
+            return data[position] & 0xFF;
+        }
+
+        private void enter() {
+            // Guard against stack exhaustion from hostile nesting
+            if (++depth > 256) {
+                throw new JsonParseException("CBOR nesting too deep");
+            }
+        }
+
+        private static JsonPrimitive unsigned(long value) {
+            return value >= 0 ? new JsonPrimitive(value) : new JsonPrimitive(new BigInteger(Long.toUnsignedString(value)));
+        }
+
+        private static int toLength(long length) {
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new JsonParseException("CBOR length out of range: " + length);
+            }
+            return (int) length;
+        }
+
+        private static float halfToFloat(int half) {
+            int exponent = (half >>> 10) & 0x1F;
+            int mantissa = half & 0x3FF;
+            float value;
+            if (exponent == 0) {
+                value = (float) (mantissa * Math.pow(2, -24));
+            } else if (exponent == 31) {
+                value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            } else {
+                value = (float) ((mantissa + 1024) * Math.pow(2, exponent - 25));
+            }
+            return (half & 0x8000) != 0 ? -value : value;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private CborUtil() {
+        // Utility class, should not be instantiated
+    }
+}
@@ -27,6 +27,9 @@ public class JsonUtil {
             .setPrettyPrinting()
             .create();
 
+    // Compact Gson instance for machine-to-machine traffic (no whitespace)
+    private static final Gson compactGson = new Gson();
+
     /**
      * Gets the shared Gson instance.
      *
@@ -36,6 +39,15 @@ public class JsonUtil {
         return gson;
     }
 
+    /**
+     * Gets the shared compact (non pretty-printing) Gson instance.
+     *
+     * @return Compact Gson instance
+     */
+    public static Gson getCompactGson() {
+        return compactGson;
+    }
+
     /**
      * Reads a JSON file from the resources folder and converts it to a list of objects.
      *
@@ -84,6 +96,16 @@ public class JsonUtil {
         return gson.toJson(object);
     }
 
+    /**
+     * Converts a Java object to a single-line JSON string.
+     *
+     * @param object The object to convert
+     * @return Compact JSON string representation of the object
+     */
+    public static String toCompactJson(Object object) {
+        return compactGson.toJson(object);
+    }
+
     /**
      * Converts a JSON string to a Java object.
      *
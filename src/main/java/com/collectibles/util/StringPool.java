@@ -0,0 +1,50 @@
+package com.collectibles.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded pool that de-duplicates frequently repeated strings (currency codes,
+ * unrecognized role names) so entities share one instance instead of each
+ * holding its own copy parsed from JSON.
+ *
+ * Once the pool is full, new strings are returned as-is; it never grows past
+ * its limit, so it cannot be used to exhaust memory with random values.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class StringPool {
+
+    // Plenty for currency codes and role names
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pooled instance equal to the given string.
+     *
+     * @param value The string, may be null
+     * @return The shared instance, or value itself if it is null or the pool is full
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = POOL.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (POOL.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        pooled = POOL.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private StringPool() {
+        // Utility class, should not be instantiated
+    }
+}
@@ -0,0 +1,104 @@
+package com.collectibles.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the first k elements of a stream in a given order without sorting
+ * the whole stream.
+ *
+ * A bounded heap holds the current best k with the worst of them on top, so
+ * each element costs at most O(log k) and memory stays O(k). Partial results
+ * from different partitions can be merged, which makes it usable as a
+ * parallel stream collector.
+ *
+ * @param <T> Element type
+ * @author Rafael
+ * @version 1.0.0
+ */
+public final class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param k Number of elements to keep (at least 1)
+     * @param order Order of the result; the first k in this order are kept
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.k = k;
+        this.order = order;
+        // Reversed so that the head is the worst element kept, the one to replace first
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, Collections.reverseOrder(order));
+    }
+
+    /**
+     * Offers an element, keeping it only if it is among the best k so far.
+     *
+     * @param element The element
+     */
+    public void offer(T element) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * Gets the element that the next better element would replace.
+     *
+     * @return The worst element kept, or null while fewer than k are kept
+     */
+    public T worstKept() {
+        return heap.size() < k ? null : heap.peek();
+    }
+
+    /**
+     * Merges the elements of another selection into this one.
+     *
+     * @param other Selection over another partition
+     * @return This selection
+     */
+    public TopK<T> merge(TopK<T> other) {
+        for (T element : other.heap) {
+            offer(element);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the selected elements in order.
+     *
+     * @return A new list of at most k elements
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * Creates a collector that returns the first k elements of a stream in order.
+     * Works for sequential and parallel streams.
+     *
+     * @param k Number of elements to keep
+     * @param order Order of the result
+     * @param <T> Element type
+     * @return The collector
+     */
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> order) {
+        return Collector.of(() -> new TopK<T>(k, order), TopK::offer, TopK::merge, TopK::toList);
+    }
+}
@@ -0,0 +1,134 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Role;
+import com.collectibles.security.Principal;
+import com.collectibles.security.TokenAuthenticator;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures the per-request cost of bearer token authentication, as done by
+ * the route dispatcher for every request that carries an Authorization
+ * header, and the heap it allocates. Each request builds a fresh header
+ * string, as the HTTP parser does; the "header copy" row is that cost alone.
+ * <ul>
+ *   <li>cached - callers reuse their tokens and all fit in the cache</li>
+ *   <li>cache churn - more distinct tokens than cache slots, so most are verified again</li>
+ *   <li>no cache - every request verifies the HMAC and decodes the claims</li>
+ *   <li>forged - the signature does not match (nothing is decoded or cached)</li>
+ * </ul>
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java -Dexec.mainClass=com.collectibles.benchmark.AuthBenchmark \
+ *     -Dexec.args="[iterations] [rounds] [cacheSize]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class AuthBenchmark {
+
+    private static final byte[] SECRET = "benchmark-secret-benchmark-secret-0123".getBytes(StandardCharsets.UTF_8);
+    private static final Role[] ROLES = {Role.ADMIN, Role.BUYER, Role.SELLER};
+
+    // Keeps the JIT from removing the verifications
+    private static long sink;
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional iterations per round (default 2,000,000), rounds (default 5)
+     *             and cache size (default 4096)
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int cacheSize = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+
+        TokenAuthenticator cached = new TokenAuthenticator(SECRET, cacheSize);
+        TokenAuthenticator uncached = new TokenAuthenticator(SECRET, 0);
+        String[] hot = headers(cached, cacheSize / 4);
+        String[] churn = headers(cached, cacheSize * 16);
+        String[] forged = new String[hot.length];
+        for (int i = 0; i < hot.length; i++) {
+            // Flip one signature character
+            char last = hot[i].charAt(hot[i].length() - 1);
+            forged[i] = hot[i].substring(0, hot[i].length() - 1) + (last == 'A' ? 'B' : 'A');
+        }
+        System.out.printf("%,d iterations x %d rounds, %d cache slots, token header %d chars%n",
+                iterations, rounds, cached.getStats().get("cacheSlots"), hot[0].length());
+
+        for (int round = 1; round <= rounds; round++) {
+            boolean report = round == rounds;
+            if (report) {
+                System.out.printf("%-14s %10s %12s %12s%n", "mode", "ns/op", "bytes/op", "cache hits");
+            }
+            run("header copy", null, hot, iterations, report);
+            run("cached", cached, hot, iterations, report);
+            run("cache churn", cached, churn, iterations, report);
+            run("no cache", uncached, hot, iterations, report);
+            run("forged", uncached, forged, iterations, report);
+        }
+        System.out.println("stats: " + cached.getStats());
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Creates Authorization header values for distinct users.
+     */
+    private static String[] headers(TokenAuthenticator authenticator, int count) {
+        String[] headers = new String[Math.max(1, count)];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = TokenAuthenticator.BEARER_PREFIX
+                    + authenticator.issue("user" + i, ROLES[i % ROLES.length], 3600);
+        }
+        return headers;
+    }
+
+    /**
+     * Authenticates the headers round-robin.
+     *
+     * @param authenticator The authenticator, or null to only build the header strings
+     */
+    private static void run(String mode, TokenAuthenticator authenticator, String[] headers, int iterations,
+                            boolean report) {
+        char[][] requests = new char[headers.length][];
+        for (int i = 0; i < headers.length; i++) {
+            requests[i] = headers[i].toCharArray();
+        }
+
+        long hitsBefore = authenticator != null ? authenticator.getStats().get("cacheHits") : 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            // A new string per request, so its hash is not cached
+            String header = new String(requests[i % requests.length]);
+            if (authenticator == null) {
+                sink += header.length();
+            } else {
+                Principal principal = authenticator.authenticate(header);
+                sink += principal != null ? principal.getExpiresAt() : 1;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        if (report) {
+            String hits = "-";
+            if (authenticator != null && authenticator.getStats().get("cacheSlots") > 0) {
+                hits = String.format("%.1f%%", 100.0 * (authenticator.getStats().get("cacheHits") - hitsBefore)
+                        / iterations);
+            }
+            System.out.printf("%-14s %10.1f %12.1f %12s%n", mode, elapsed / (double) iterations,
+                    allocated / (double) iterations, hits);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
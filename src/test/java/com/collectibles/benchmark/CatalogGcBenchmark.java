@@ -0,0 +1,211 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.service.ItemService;
+import com.collectibles.service.MappedCatalogBuilder;
+import com.google.gson.stream.JsonWriter;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares GC behaviour of the on-heap item map with the memory-mapped catalog
+ * while serving GET /items/:id style lookups.
+ *
+ * Run each mode in its own JVM with the same heap size. The benchmark loads
+ * the catalog, runs lookups on several threads while a separate thread
+ * measures stalls (how late a 1 ms sleep wakes up, which includes GC pauses),
+ * and finally times one full GC, which has to trace every live object.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java -Dexec.mainClass=com.collectibles.benchmark.CatalogGcBenchmark \
+ *     -Dexec.args="heap|mapped [items] [seconds] [threads]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class CatalogGcBenchmark {
+
+    private static final Path WORK_DIR = Paths.get("target", "catalog");
+
+    /**
+     * Entry point.
+     *
+     * @param args Mode ("heap" or "mapped"), then optional item count, seconds and lookup threads
+     * @throws Exception if the catalog cannot be built or the run is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "mapped";
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        long loadStart = System.currentTimeMillis();
+        ItemService itemService = "heap".equals(mode) ? loadHeap(items) : loadMapped(items);
+        long loadMillis = System.currentTimeMillis() - loadStart;
+        System.out.println("Loaded " + itemService.getItemCount() + " items (" + mode + ") in " + loadMillis + " ms");
+
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        Histogram stalls = new Histogram(60000000000L, 3);
+        LongAdder lookups = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1000000000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long sink = 0;
+                while (System.nanoTime() < deadline) {
+                    byte[] json = itemService.getItemJson("item" + random.nextInt(items));
+                    sink += json == null ? 0 : json.length;
+                    lookups.increment();
+                }
+                if (sink == 42) {
+                    System.out.println();
+                }
+            }, "lookup-" + t);
+            workers[t].start();
+        }
+
+        // Stall detector: any delay beyond the 1 ms sleep is time the JVM was not running us
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            Thread.sleep(1);
+            long overshoot = System.nanoTime() - start - 1000000L;
+            stalls.recordValue(Math.max(0, overshoot));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTime() - gcTimeBefore;
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        long fullGcStart = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - fullGcStart) / 1000000L;
+        long liveHeap = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.printf("mode=%s items=%d threads=%d seconds=%d%n", mode, items, threads, seconds);
+        System.out.printf("lookups/s:          %,.0f%n", lookups.sum() / (double) seconds);
+        System.out.printf("GCs during run:     %d (%d ms total)%n", gcCount, gcTime);
+        System.out.printf("stall p99 / p99.9 / max: %.2f / %.2f / %.2f ms%n",
+                stalls.getValueAtPercentile(99) / 1e6, stalls.getValueAtPercentile(99.9) / 1e6,
+                stalls.getMaxValue() / 1e6);
+        System.out.printf("heap used at end:   %,d MB%n", heapUsed / 1048576);
+        System.out.printf("live heap after GC: %,d MB%n", liveHeap / 1048576);
+        System.out.printf("full GC pause:      %d ms%n", fullGcMillis);
+    }
+
+    /**
+     * Loads the generated items into the on-heap store.
+     *
+     * @param items Number of items
+     * @return Item service with the items
+     */
+    private static ItemService loadHeap(int items) {
+        ItemService itemService = new ItemService();
+        for (int i = 0; i < items; i++) {
+            itemService.saveItem(generate(i));
+        }
+        return itemService;
+    }
+
+    /**
+     * Builds (if needed) and opens the memory-mapped catalog of the generated items.
+     *
+     * @param items Number of items
+     * @return Item service backed by the mapped catalog
+     * @throws IOException if the catalog cannot be built or opened
+     */
+    private static ItemService loadMapped(int items) throws IOException {
+        Path base = WORK_DIR.resolve("bench-" + items);
+        if (!Files.exists(MappedCatalogBuilder.indexPath(base))) {
+            Path source = WORK_DIR.resolve("bench-" + items + ".json");
+            writeJson(source, items);
+            long count = MappedCatalogBuilder.build(source, base);
+            Files.delete(source);
+            System.out.println("Built catalog with " + count + " items");
+        }
+        return new ItemService(base);
+    }
+
+    /**
+     * Writes the generated items as a JSON array, streaming.
+     *
+     * @param path Output file
+     * @param items Number of items
+     * @throws IOException if writing fails
+     */
+    private static void writeJson(Path path, int items) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            writer.beginArray();
+            for (int i = 0; i < items; i++) {
+                Item item = generate(i);
+                writer.beginObject();
+                writer.name("id").value(item.getId());
+                writer.name("name").value(item.getName());
+                writer.name("description").value(item.getDescription());
+                writer.name("price").value(item.getPrice());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Generates item i deterministically.
+     *
+     * @param i Item number
+     * @return The item
+     */
+    private static Item generate(int i) {
+        Random random = new Random(i);
+        return new Item("item" + i, "Signed collectible #" + i,
+                "An autographed collectible from the archive, lot " + i + ", shelf " + random.nextInt(1000) + ".",
+                "$" + (10 + random.nextInt(990)) + "." + (10 + random.nextInt(90)) + " USD");
+    }
+
+    /**
+     * Sums the collection counts of all collectors.
+     *
+     * @return Number of collections so far
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Sums the collection times of all collectors.
+     *
+     * @return Milliseconds spent in GC so far
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,112 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.diagnostics.FlightRecordings;
+import com.collectibles.diagnostics.RequestPhaseEvent;
+import com.collectibles.diagnostics.RequestPhases;
+import com.collectibles.model.Item;
+import com.collectibles.util.JsonUtil;
+
+import java.io.OutputStream;
+import java.time.Duration;
+
+/**
+ * Measures the cost of the request phase events, alone (an empty phase) and
+ * around a typical phase (serializing one item to JSON):
+ * <ul>
+ *   <li>plain - no events</li>
+ *   <li>events, no recording - the normal production state</li>
+ *   <li>events, recording - while an on-demand flight recording runs</li>
+ * </ul>
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.DiagnosticsOverheadBenchmark \
+ *     -Dexec.args="[iterations] [rounds]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class DiagnosticsOverheadBenchmark {
+
+    private static final Item ITEM = new Item("item1", "Gorra autografiada por Peso Pluma",
+            "Una gorra autografiada por el famoso Peso Pluma.", "$621.34 USD");
+
+    // Keeps the JIT from removing the serialization
+    private static long sink;
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional iterations per round (default 500,000) and rounds (default 5)
+     * @throws Exception if the recording cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.printf("%-24s %16s %16s%n", "mode", "empty ns/phase", "json ns/phase");
+        double plain = 0;
+        double disabled = 0;
+        double emptyDisabled = 0;
+        for (int round = 0; round < rounds; round++) {
+            plain = run(iterations, false);
+            disabled = run(iterations, true);
+            emptyDisabled = runEmpty(iterations * 20);
+        }
+        System.out.printf("%-24s %16s %16.1f%n", "plain", "-", plain);
+        System.out.printf("%-24s %16.1f %16.1f%n", "events, no recording", emptyDisabled, disabled);
+
+        if (!FlightRecordings.isAvailable()) {
+            System.out.println("Flight Recorder not available; skipping the recording run");
+            return;
+        }
+        FlightRecordings recordings = new FlightRecordings(64L * 1024 * 1024);
+        recordings.start(Duration.ofMinutes(5));
+        double recording = 0;
+        double emptyRecording = 0;
+        for (int round = 0; round < rounds; round++) {
+            recording = run(iterations, true);
+            emptyRecording = runEmpty(iterations);
+        }
+        System.out.printf("%-24s %16.1f %16.1f%n", "events, recording", emptyRecording, recording);
+
+        // Dump to nowhere, just to stop holding the data
+        recordings.dump(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        System.out.println(sink == 0 ? "" : "done");
+    }
+
+    private static double runEmpty(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            RequestPhaseEvent phase = RequestPhases.begin(RequestPhases.SERVICE);
+            RequestPhases.end(phase, null);
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double run(int iterations, boolean events) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (events) {
+                RequestPhaseEvent phase = RequestPhases.begin(RequestPhases.SERIALIZE);
+                total += JsonUtil.toJson(ITEM).length();
+                RequestPhases.end(phase, null);
+            } else {
+                total += JsonUtil.toJson(ITEM).length();
+            }
+        }
+        sink += total;
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
@@ -0,0 +1,213 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.cache.BloomFilter;
+import com.collectibles.model.User;
+import com.collectibles.service.ExistenceFilter;
+import com.collectibles.service.UserService;
+import com.collectibles.storage.LsmRepository;
+import com.collectibles.storage.ModelCodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures the existence filter in front of the on-disk (LSM) user store:
+ * <ul>
+ *   <li>the false-positive rate of the blocked Bloom filter per bits-per-ID
+ *       setting, measured and predicted</li>
+ *   <li>the cost of checking an ID that does not exist, with the store
+ *       alone and with the filter first, and what the filter adds to a
+ *       lookup of an ID that does exist</li>
+ *   <li>concurrent adds from several threads</li>
+ *   <li>the time to rebuild the filter from a scan of the store</li>
+ * </ul>
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.ExistenceFilterBenchmark \
+ *     -Dexec.args="[users] [lookups] [bitsPerId]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ExistenceFilterBenchmark {
+
+    private static final String[] ROLES = {"admin", "buyer", "seller"};
+
+    // Keeps the JIT from removing the lookups
+    private static long sink;
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional user count (default 1,000,000), lookups per phase (default 1,000,000)
+     *             and bits per ID of the store's filter (default 10)
+     * @throws Exception if the store cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int bitsPerId = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.out.printf("%,d users, %,d lookups per phase%n", users, lookups);
+        measureFalsePositives(users, lookups);
+        measureConcurrentAdds(users);
+
+        Path directory = Files.createTempDirectory("existence-filter");
+        try (LsmRepository<User> repository = new LsmRepository<>(directory, ModelCodecs.USERS,
+                4 * 1024 * 1024, 4, false)) {
+            Map<String, User> load = new LinkedHashMap<>();
+            for (int i = 0; i < users; i++) {
+                load.put(id(i), new User(id(i), "User " + i, "user" + i + "@example.com", ROLES[i % ROLES.length]));
+                if (load.size() == 10000) {
+                    repository.writeBatch(load);
+                    load.clear();
+                }
+            }
+            repository.writeBatch(load);
+            repository.flush();
+
+            UserService userService = new UserService(repository);
+            ExistenceFilter filter = ExistenceFilter.forUsers(userService, bitsPerId, 1000);
+            while (!filter.isReady()) {
+                Thread.sleep(10);
+            }
+            measureLookups(userService, filter, users, lookups);
+
+            long start = System.nanoTime();
+            filter.rebuild();
+            System.out.printf("rebuild from a store scan: %.0f ms%n", (System.nanoTime() - start) / 1e6);
+            System.out.println("filter stats: " + filter.getStats());
+        } finally {
+            deleteRecursively(directory);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Fills filters of several sizes to capacity and probes them with IDs that were never added.
+     */
+    private static void measureFalsePositives(int users, int probes) {
+        System.out.printf("%-12s %12s %12s %12s%n", "bits per ID", "measured", "predicted", "KB");
+        for (int bits : new int[] {6, 8, 10, 12, 16}) {
+            BloomFilter filter = new BloomFilter(users, bits);
+            for (int i = 0; i < users; i++) {
+                filter.add(id(i));
+            }
+            int positives = 0;
+            for (int i = 0; i < probes; i++) {
+                positives += filter.mightContain(missingId(i)) ? 1 : 0;
+            }
+            System.out.printf("%-12d %11.3f%% %11.3f%% %,12d%n", bits, 100.0 * positives / probes,
+                    100.0 * filter.estimateFalsePositiveRate(), filter.getSizeBytes() / 1024);
+        }
+    }
+
+    /**
+     * Adds every ID from four threads at once and checks that none was lost.
+     */
+    private static void measureConcurrentAdds(int users) throws InterruptedException {
+        BloomFilter filter = new BloomFilter(users, 10);
+        int threads = 4;
+        Thread[] writers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            writers[t] = new Thread(() -> {
+                for (int i = offset; i < users; i += threads) {
+                    filter.add(id(i));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int lost = 0;
+        for (int i = 0; i < users; i++) {
+            lost += filter.mightContain(id(i)) ? 0 : 1;
+        }
+        System.out.printf("concurrent adds (%d threads): %,.0f adds/s, %d IDs lost%n", threads, users / seconds, lost);
+    }
+
+    /**
+     * Compares existence checks against the store with and without the filter.
+     */
+    private static void measureLookups(UserService userService, ExistenceFilter filter, int users, int lookups) {
+        Random random = new Random(42);
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            if (report) {
+                System.out.printf("%-28s %10s%n", "existence check", "ns/op");
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                sink += userService.userExists(missingId(random.nextInt(users))) ? 1 : 0;
+            }
+            report(report, "missing ID, store only", start, lookups);
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                String id = missingId(random.nextInt(users));
+                if (filter.mightContain(id)) {
+                    boolean exists = userService.userExists(id);
+                    if (!exists) {
+                        filter.recordFalsePositive();
+                    }
+                    sink += exists ? 1 : 0;
+                }
+            }
+            report(report, "missing ID, filter first", start, lookups);
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                sink += userService.userExists(id(random.nextInt(users))) ? 1 : 0;
+            }
+            report(report, "existing ID, store only", start, lookups);
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                String id = id(random.nextInt(users));
+                sink += filter.mightContain(id) && userService.userExists(id) ? 1 : 0;
+            }
+            report(report, "existing ID, filter first", start, lookups);
+        }
+    }
+
+    private static void report(boolean report, String phase, long start, int lookups) {
+        if (report) {
+            System.out.printf("%-28s %10.0f%n", phase, (System.nanoTime() - start) / (double) lookups);
+        }
+    }
+
+    private static String id(int i) {
+        char[] key = {'u', 's', 'e', 'r', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int position = key.length - 1; i > 0; position--, i /= 10) {
+            key[position] = (char) ('0' + i % 10);
+        }
+        return new String(key);
+    }
+
+    // Sorts between two stored IDs, so the store has to read a block to rule it out
+    private static String missingId(int i) {
+        return id(i) + "-";
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
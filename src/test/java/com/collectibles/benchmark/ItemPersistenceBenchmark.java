@@ -0,0 +1,170 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.service.ItemCatalogPersister;
+import com.collectibles.service.ItemService;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures item write throughput with and without the debounced catalog
+ * persister, and the durability window: how long after a write the flush
+ * that covers it has reached the disk.
+ *
+ * For comparison, the time of one flush is what every write would wait for
+ * if the catalog were saved synchronously on each request.
+ *
+ * Usage:
+ * <pre>
+ * MAVEN_OPTS=-Xmx2g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.ItemPersistenceBenchmark \
+ *     -Dexec.args="[items] [seconds] [writerThreads] [flushDelayMs]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemPersistenceBenchmark {
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional item count (default 100,000), seconds per run (default 10),
+     *             writer threads (default 4) and flush delay (default 500 ms)
+     * @throws Exception if the catalog file cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int flushDelayMs = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        ItemService itemService = new ItemService();
+        itemService.clearAllItems();
+        for (int i = 0; i < items; i++) {
+            itemService.saveItem(randomItem(i));
+        }
+
+        Path directory = Files.createTempDirectory("item-persistence");
+        Path file = directory.resolve("items.json");
+        System.out.printf("Catalog: %,d items, %d writer threads, flush delay %d ms, file %s%n",
+                items, threads, flushDelayMs, file);
+
+        // Baseline: writes without persistence
+        long baseline = runWriters(itemService, items, threads, seconds, null);
+        System.out.printf("memory only:     %,12.0f writes/s%n", baseline / (double) seconds);
+
+        // Same writes with the persister listening
+        ItemCatalogPersister persister = new ItemCatalogPersister(itemService, file, flushDelayMs);
+        itemService.addChangeListener(persister);
+        Histogram window = new Histogram(3);
+        long persisted = runWriters(itemService, items, threads, seconds, () -> sampleWindow(persister, window));
+        persister.close();
+
+        System.out.printf("with persister:  %,12.0f writes/s (%.1f%% of memory only)%n",
+                persisted / (double) seconds, 100.0 * persisted / baseline);
+        System.out.printf("flushes: %,d for %,d writes, last %,d ms for %,.1f MB%n",
+                persister.getFlushCount(), persisted, persister.getLastFlushMillis(),
+                persister.getLastFlushBytes() / 1048576.0);
+        System.out.printf("durability window: p50 %,d ms, p99 %,d ms, max %,d ms%n",
+                window.getValueAtPercentile(50), window.getValueAtPercentile(99), window.getMaxValue());
+
+        // The file must round-trip to the same catalog
+        List<Item> reloaded = ItemCatalogPersister.load(file);
+        System.out.printf("reloaded %,d items (catalog has %,d)%n", reloaded.size(), itemService.getItemCount());
+
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Updates random items from several threads for a fixed time.
+     *
+     * @param itemService The catalog
+     * @param items Number of item IDs to pick from
+     * @param threads Writer threads
+     * @param seconds Duration
+     * @param sampler Runs on its own thread until the writers stop, or null
+     * @return Total number of writes
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static long runWriters(ItemService itemService, int items, int threads, int seconds,
+                                   Runnable sampler) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong writes = new AtomicLong();
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            writers[t] = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    itemService.saveItem(randomItem(ThreadLocalRandom.current().nextInt(items)));
+                    count++;
+                }
+                writes.addAndGet(count);
+            });
+            writers[t].start();
+        }
+
+        Thread samplerThread = null;
+        if (sampler != null) {
+            samplerThread = new Thread(() -> {
+                while (running.get()) {
+                    sampler.run();
+                }
+            });
+            samplerThread.start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        if (samplerThread != null) {
+            samplerThread.join();
+        }
+        return writes.get();
+    }
+
+    /**
+     * Notes the latest change and waits until a flush covers it.
+     *
+     * @param persister The persister
+     * @param window Receives the wait in milliseconds
+     */
+    private static void sampleWindow(ItemCatalogPersister persister, Histogram window) {
+        long version = persister.getChangeVersion();
+        long start = System.nanoTime();
+        while (persister.getPersistedVersion() < version) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (System.nanoTime() - start > 60_000_000_000L) {
+                return;
+            }
+        }
+        window.recordValue((System.nanoTime() - start) / 1000000);
+        try {
+            // Sample roughly every 50 ms
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Item randomItem(int index) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Item("item" + index, "Collectible " + Integer.toHexString(random.nextInt()),
+                "Benchmark item " + index, "$" + random.nextInt(100000) + "." + (10 + random.nextInt(90)) + " USD");
+    }
+}
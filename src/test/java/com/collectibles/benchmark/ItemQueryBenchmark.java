@@ -0,0 +1,105 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.service.ItemService;
+import com.collectibles.service.ItemSort;
+import org.HdrHistogram.Histogram;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures the latency of GET /items?sort=price&amp;order=desc&amp;limit=20 style
+ * queries on a large on-heap catalog:
+ * <ul>
+ *   <li>full sort - copy getAllItems() and sort it (the naive approach)</li>
+ *   <li>top-k - one sequential scan with a bounded heap</li>
+ *   <li>top-k parallel - the same scan split across the fork-join pool</li>
+ * </ul>
+ *
+ * Usage:
+ * <pre>
+ * MAVEN_OPTS=-Xmx2g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.ItemQueryBenchmark \
+ *     -Dexec.args="[items] [k] [iterations]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ItemQueryBenchmark {
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional item count (default 1,000,000), k (default 20) and iterations (default 30)
+     */
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        ItemService itemService = new ItemService();
+        Random random = new Random(42);
+        for (int i = 0; i < items; i++) {
+            itemService.saveItem(new Item("item" + i, "Collectible " + Integer.toHexString(random.nextInt()),
+                    "Benchmark item " + i, "$" + random.nextInt(100000) + "." + (10 + random.nextInt(90)) + " USD"));
+        }
+        System.out.println("Catalog: " + itemService.getItemCount() + " items, k=" + k + ", cores="
+                + Runtime.getRuntime().availableProcessors());
+
+        Comparator<Item> order = ItemSort.PRICE.comparator(true);
+        List<Item> expected = fullSort(itemService, order, k);
+
+        System.out.printf("%-18s %10s %10s %10s%n", "strategy", "p50 ms", "p99 ms", "max ms");
+        run("full sort", iterations, expected, () -> fullSort(itemService, order, k));
+
+        itemService.setParallelThreshold(Integer.MAX_VALUE);
+        run("top-k", iterations, expected, () -> itemService.findTopItems(ItemSort.PRICE, true, k, null));
+
+        itemService.setParallelThreshold(0);
+        run("top-k parallel", iterations, expected, () -> itemService.findTopItems(ItemSort.PRICE, true, k, null));
+    }
+
+    /**
+     * Sorts a copy of the whole catalog and takes the first k items.
+     *
+     * @param itemService The catalog
+     * @param order Sort order
+     * @param k Number of items
+     * @return First k items
+     */
+    private static List<Item> fullSort(ItemService itemService, Comparator<Item> order, int k) {
+        List<Item> all = itemService.getAllItems();
+        all.sort(order);
+        return all.subList(0, Math.min(k, all.size()));
+    }
+
+    /**
+     * Times a query strategy, after a warmup, and checks its result.
+     *
+     * @param label Row label
+     * @param iterations Measured runs
+     * @param expected Correct result
+     * @param query The query
+     */
+    private static void run(String label, int iterations, List<Item> expected, Supplier<List<Item>> query) {
+        for (int i = 0; i < Math.max(3, iterations / 5); i++) {
+            query.get();
+        }
+        Histogram histogram = new Histogram(3);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            List<Item> result = query.get();
+            histogram.recordValue(System.nanoTime() - start);
+            if (!result.equals(expected)) {
+                throw new IllegalStateException(label + " returned a different result");
+            }
+        }
+        System.out.printf("%-18s %10.2f %10.2f %10.2f%n", label,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+}
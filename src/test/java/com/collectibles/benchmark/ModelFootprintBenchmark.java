@@ -0,0 +1,143 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the retained heap of users and items in the compact model
+ * (role enum, price as minor units plus pooled currency) against the previous
+ * all-String layout.
+ *
+ * Every entity is parsed from its own JSON document, as when loading data or
+ * receiving requests, so each String field is a separate copy just like in a
+ * running server.
+ *
+ * Usage (give the JVM enough heap for the baseline, e.g. -Xmx3g):
+ * <pre>
+ * MAVEN_OPTS=-Xmx3g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.ModelFootprintBenchmark -Dexec.args="[count]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ModelFootprintBenchmark {
+
+    private static final String[] ROLES = {"buyer", "seller", "admin"};
+    private static final String[] ARTISTS = {"Peso Pluma", "Rosalia", "Bad Bunny", "Karol G", "Shakira"};
+
+    /**
+     * Entry point: prints retained bytes per entity for each layout.
+     *
+     * @param args Optional: number of entities per run (default 1,000,000)
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        Gson gson = JsonUtil.getCompactGson();
+
+        System.out.printf("%-18s %12s %14s%n", "layout", "MB", "bytes/entity");
+        measure("users (strings)", count, i -> gson.fromJson(userJson(i), LegacyUser.class));
+        measure("users (compact)", count, i -> gson.fromJson(userJson(i), User.class));
+        measure("items (strings)", count, i -> gson.fromJson(itemJson(i), LegacyItem.class));
+        measure("items (compact)", count, i -> gson.fromJson(itemJson(i), Item.class));
+    }
+
+    /**
+     * Builds count entities, keeps them reachable and reports the heap they retain.
+     *
+     * @param label Row label
+     * @param count Number of entities
+     * @param factory Creates entity i
+     */
+    private static void measure(String label, int count, IntFunction<Object> factory) {
+        long before = usedHeapAfterGc();
+        Object[] retained = new Object[count];
+        for (int i = 0; i < count; i++) {
+            retained[i] = factory.apply(i);
+        }
+        long after = usedHeapAfterGc();
+
+        // Do not count the holder array itself
+        long bytes = after - before - (16L + 4L * count);
+        System.out.printf("%-18s %12.1f %14.1f%n", label, bytes / 1048576.0, bytes / (double) count);
+
+        // Keep the array alive until after the measurement
+        if (retained[count - 1] == null) {
+            System.out.println("unexpected null");
+        }
+    }
+
+    /**
+     * Runs full GCs until the used heap settles.
+     *
+     * @return Used heap in bytes
+     */
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Generates the JSON document of user i.
+     *
+     * @param i User number
+     * @return JSON text
+     */
+    private static String userJson(int i) {
+        return "{\"id\":\"user" + i + "\",\"name\":\"Collector " + i + "\",\"email\":\"collector" + i
+                + "@email.com\",\"role\":\"" + ROLES[i % ROLES.length] + "\"}";
+    }
+
+    /**
+     * Generates the JSON document of item i.
+     *
+     * @param i Item number
+     * @return JSON text
+     */
+    private static String itemJson(int i) {
+        Random random = new Random(i);
+        String artist = ARTISTS[i % ARTISTS.length];
+        return "{\"id\":\"item" + i + "\",\"name\":\"Cap autographed by " + artist + " #" + i
+                + "\",\"description\":\"A cap autographed by the famous " + artist + ", item " + i
+                + ".\",\"price\":\"$" + (10 + random.nextInt(990)) + "." + (10 + random.nextInt(90)) + " USD\"}";
+    }
+
+    /**
+     * The previous user layout: every field a String.
+     */
+    static final class LegacyUser {
+        String id;
+        String name;
+        String email;
+        String role;
+    }
+
+    /**
+     * The previous item layout: every field a String.
+     */
+    static final class LegacyItem {
+        String id;
+        String name;
+        String description;
+        String price;
+    }
+}
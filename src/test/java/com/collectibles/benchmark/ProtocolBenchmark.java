@@ -0,0 +1,169 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.Main;
+import com.collectibles.config.ServerConfig;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import spark.Spark;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares HTTP/1.1 and h2c against the same in-process server.
+ * It replays the frontend pattern of many small GET /items/:id calls with a
+ * fixed number of requests in flight, and reports throughput and latency.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java -Dexec.mainClass=com.collectibles.benchmark.ProtocolBenchmark \
+ *     -Dexec.args="[requests] [inFlight] [http1Connections]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class ProtocolBenchmark {
+
+    // Only in-flight requests are ever queued, so this just has to exceed inFlight
+    private static final int MAX_QUEUED = 4096;
+
+    private static final String[] ITEM_IDS = {
+            "item1", "item2", "item3", "item4", "item5", "item6", "item7"
+    };
+
+    /**
+     * Entry point: starts the server, runs both protocols and prints a summary.
+     *
+     * @param args Optional: total requests, requests in flight, HTTP/1.1 connection limit
+     * @throws Exception if the server or client cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int http1Connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        if (inFlight > MAX_QUEUED) {
+            throw new IllegalArgumentException("inFlight must be at most " + MAX_QUEUED);
+        }
+
+        System.setProperty("REQUEST_LOGGING", "false");
+        Main.main(new String[0]);
+        Spark.awaitInitialization();
+
+        String baseUrl = "http://localhost:" + ServerConfig.getPort();
+
+        // Warm up both paths before measuring
+        run("warmup HTTP/1.1", http1Client(http1Connections), baseUrl, requests / 10, inFlight, false);
+        run("warmup h2c", http2Client(), baseUrl, requests / 10, inFlight, false);
+
+        run("HTTP/1.1 (" + http1Connections + " connections)",
+                http1Client(http1Connections), baseUrl, requests, inFlight, true);
+        run("h2c (1 connection)", http2Client(), baseUrl, requests, inFlight, true);
+
+        Spark.stop();
+        Spark.awaitStop();
+    }
+
+    /**
+     * Creates an HTTP/1.1 client limited to the given number of connections.
+     *
+     * @param connections Maximum connections to the server
+     * @return Unstarted client
+     */
+    private static HttpClient http1Client(int connections) {
+        HttpClient client = new HttpClient(new HttpClientTransportOverHTTP(1), null);
+        client.setMaxConnectionsPerDestination(connections);
+        client.setMaxRequestsQueuedPerDestination(MAX_QUEUED);
+        return client;
+    }
+
+    /**
+     * Creates an h2c client that multiplexes all requests over one connection.
+     *
+     * @return Unstarted client
+     */
+    private static HttpClient http2Client() {
+        HttpClientTransport transport = new HttpClientTransportOverHTTP2(new HTTP2Client());
+        HttpClient client = new HttpClient(transport, null);
+        client.setMaxConnectionsPerDestination(1);
+        client.setMaxRequestsQueuedPerDestination(MAX_QUEUED);
+        return client;
+    }
+
+    /**
+     * Sends the given number of GET /items/:id requests, keeping a fixed number in flight.
+     *
+     * @param label Name printed with the results
+     * @param client Client to use (started and stopped here)
+     * @param baseUrl Server base URL
+     * @param requests Number of requests to send
+     * @param inFlight Maximum requests in flight
+     * @param report Whether to print the results
+     * @throws Exception if the client fails
+     */
+    private static void run(String label, HttpClient client, String baseUrl,
+                            int requests, int inFlight, boolean report) throws Exception {
+        client.start();
+
+        long[] latencies = new long[requests];
+        Semaphore permits = new Semaphore(inFlight);
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicInteger errors = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            permits.acquire();
+            final int index = i;
+            final long sentAt = System.nanoTime();
+            client.newRequest(baseUrl + "/items/" + ITEM_IDS[i % ITEM_IDS.length])
+                    .timeout(30, TimeUnit.SECONDS)
+                    .send(new BufferingResponseListener() {
+                        @Override
+                        public void onComplete(Result result) {
+                            latencies[index] = System.nanoTime() - sentAt;
+                            if (result.isFailed() || result.getResponse().getStatus() != 200) {
+                                errors.incrementAndGet();
+                            }
+                            permits.release();
+                            done.countDown();
+                        }
+                    });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+
+        client.stop();
+
+        if (report) {
+            Arrays.sort(latencies);
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%-28s %9.0f req/s  p50=%6.3f ms  p99=%6.3f ms  p99.9=%6.3f ms  errors=%d%n",
+                    label,
+                    requests / seconds,
+                    percentile(latencies, 50.0) / 1e6,
+                    percentile(latencies, 99.0) / 1e6,
+                    percentile(latencies, 99.9) / 1e6,
+                    errors.get());
+        }
+    }
+
+    /**
+     * Reads a percentile from a sorted array.
+     *
+     * @param sorted Sorted values
+     * @param percentile Percentile between 0 and 100
+     * @return Value at the percentile
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
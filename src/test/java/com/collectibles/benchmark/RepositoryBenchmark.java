@@ -0,0 +1,157 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.User;
+import com.collectibles.storage.InMemoryRepository;
+import com.collectibles.storage.KeyValueRepository;
+import com.collectibles.storage.LsmRepository;
+import com.collectibles.storage.ModelCodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Runs the same workload against every storage repository implementation:
+ * loading users, random point reads (hits and misses), compare-and-replace,
+ * short range scans, a full scan, deletes, and (for the on-disk store)
+ * reopening the directory.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java -Dexec.mainClass=com.collectibles.benchmark.RepositoryBenchmark \
+ *     -Dexec.args="[users] [operations] [memtableBytes]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class RepositoryBenchmark {
+
+    private static final String[] ROLES = {"admin", "buyer", "seller"};
+
+    // Keeps the JIT from removing the reads
+    private static long sink;
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional user count (default 1,000,000), operations per phase
+     *             (default 200,000) and LSM memtable size (default 4 MiB)
+     * @throws IOException if the on-disk store cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int memtableBytes = args.length > 2 ? Integer.parseInt(args[2]) : 4 * 1024 * 1024;
+
+        System.out.printf("%,d users, %,d operations per phase%n", users, operations);
+        run("in-memory", new InMemoryRepository<>(ModelCodecs.USERS), users, operations);
+
+        Path directory = Files.createTempDirectory("repository-benchmark");
+        try {
+            LsmRepository<User> lsm = new LsmRepository<>(directory, ModelCodecs.USERS, memtableBytes, 4, false);
+            run("lsm", lsm, users, operations);
+            System.out.printf("  %d segments, %,.1f MB on disk, %d flushes, %d compactions%n",
+                    lsm.getSegmentCount(), lsm.getDiskBytes() / 1048576.0, lsm.getFlushCount(),
+                    lsm.getCompactionCount());
+            long start = System.nanoTime();
+            lsm.close();
+            System.out.printf("  %-24s %10.0f ms%n", "close", millisSince(start));
+
+            start = System.nanoTime();
+            try (LsmRepository<User> reopened = new LsmRepository<>(directory, ModelCodecs.USERS,
+                    memtableBytes, 4, false)) {
+                User user = reopened.get(key(users / 2));
+                System.out.printf("  %-24s %10.0f ms (first read %s)%n", "reopen",
+                        millisSince(start), user != null ? "found" : "missing");
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(String name, KeyValueRepository<User> repository, int users, int operations) {
+        System.out.println(name + ":");
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            repository.put(key(i), user(i, 0));
+        }
+        report("put (load)", users, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            User user = repository.get(key(random.nextInt(users)));
+            sink += user.getName().length();
+        }
+        report("get (hit)", operations, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            // Sorts between two stored keys, so the on-disk store has to read a block
+            sink += repository.get(key(random.nextInt(users)) + "-") == null ? 1 : 0;
+        }
+        report("get (miss)", operations, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int id = random.nextInt(users);
+            User current = repository.get(key(id));
+            sink += repository.compareAndReplace(key(id), current, user(id, i + 1)) ? 1 : 0;
+        }
+        report("get + compareAndReplace", operations, start);
+
+        int ranges = Math.max(1, operations / 100);
+        start = System.nanoTime();
+        for (int i = 0; i < ranges; i++) {
+            int from = random.nextInt(Math.max(1, users - 100));
+            repository.range(key(from), key(from + 100), (key, user) -> sink++);
+        }
+        report("range of 100", ranges, start);
+
+        start = System.nanoTime();
+        repository.scan((key, user) -> sink++);
+        report("scan (all)", users, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            sink += repository.delete(key(random.nextInt(users))) ? 1 : 0;
+        }
+        report("delete", operations, start);
+        System.out.printf("  %-24s %,10d%n", "count", repository.count());
+    }
+
+    private static String key(int i) {
+        char[] key = {'u', 's', 'e', 'r', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int position = key.length - 1; i > 0; position--, i /= 10) {
+            key[position] = (char) ('0' + i % 10);
+        }
+        return new String(key);
+    }
+
+    private static User user(int i, int version) {
+        return new User(key(i), "User " + i + " v" + version, "user" + i + "@example.com", ROLES[i % ROLES.length]);
+    }
+
+    private static void report(String phase, int count, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-24s %,10.0f ops/s %10.0f ms%n", phase, count / seconds, seconds * 1000);
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
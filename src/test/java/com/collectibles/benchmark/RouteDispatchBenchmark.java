@@ -0,0 +1,218 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.config.ServerConfig;
+import com.collectibles.controller.RouteDispatcher;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import spark.FilterImpl;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import spark.RouteImpl;
+import spark.route.HttpMethod;
+import spark.route.Routes;
+import spark.routematch.RouteMatch;
+import spark.utils.SparkUtils;
+
+import java.util.List;
+
+/**
+ * Compares the per-request routing work of the previous chain with the
+ * route dispatcher, for small requests:
+ * <ul>
+ *   <li>spark chain - Spark's route list with every route of RouteConfig,
+ *       the global before/after filters, path parameters split out of the
+ *       matched route, and the before/after filters' headers set one by one
+ *       with the Cache-Control string checks</li>
+ *   <li>dispatcher - Spark's route list with only the catch-all routes, the
+ *       prefix-tree lookup, and the precomputed header fields added in one loop</li>
+ * </ul>
+ * Route handlers are not run, and response headers go into a fresh Jetty
+ * header list per request, so only the routing and header work is measured.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.RouteDispatchBenchmark \
+ *     -Dexec.args="[iterations] [rounds]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class RouteDispatchBenchmark {
+
+    private static final String ACCEPT = "*/*";
+
+    // The routes of RouteConfig, in registration order
+    private static final String[][] ROUTES = {
+            {"OPTIONS", "/*"},
+            {"GET", "/items"}, {"GET", "/items/stats"}, {"GET", "/items/search"}, {"GET", "/items/suggest"},
+            {"GET", "/items/:id"}, {"POST", "/items/:id"}, {"PUT", "/items/:id"}, {"DELETE", "/items/:id"},
+            {"GET", "/users"}, {"GET", "/users/:id"}, {"POST", "/users/_mget"}, {"POST", "/users/:id"},
+            {"PUT", "/users/:id"}, {"DELETE", "/users/:id"}, {"OPTIONS", "/users/:id"}, {"GET", "/cache/stats"},
+            {"GET", "/changes"}, {"GET", "/changes/status"},
+            {"GET", "/"}, {"GET", "/health"}, {"GET", "/replication/status"},
+            {"GET", "/debug/runtime"}, {"POST", "/debug/runtime/recording"}, {"GET", "/debug/runtime/recording"},
+    };
+
+    private static final Route NO_OP = (request, response) -> "";
+
+    // Keeps the JIT from removing the lookups
+    private static long sink;
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional iterations per round (default 1,000,000) and rounds (default 5)
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Routes sparkChain = createSparkChain();
+        Routes catchAll = createCatchAll();
+        HttpField[] publicHeaders = fixedHeaders(ServerConfig.CACHE_CONTROL_PUBLIC);
+        HttpField[] noCacheHeaders = fixedHeaders(ServerConfig.CACHE_CONTROL_NO_CACHE);
+        RouteDispatcher dispatcher = new RouteDispatcher(
+                (method, path) -> "GET".equals(method) && path.startsWith("/items") ? publicHeaders : noCacheHeaders,
+                noCacheHeaders, false);
+        for (String[] route : ROUTES) {
+            dispatcher.add(route[0], route[1], NO_OP);
+        }
+
+        String[][] requests = {{"GET", "/health"}, {"GET", "/items/item42"}, {"PUT", "/users/user3"}};
+        System.out.printf("%-22s %18s %18s %8s%n", "request", "spark chain ns", "dispatcher ns", "speedup");
+        for (String[] request : requests) {
+            double spark = 0;
+            double trie = 0;
+            for (int round = 0; round < rounds; round++) {
+                spark = runSparkChain(sparkChain, request[0], request[1], iterations);
+                trie = runDispatcher(catchAll, dispatcher, request[0], request[1], iterations);
+            }
+            System.out.printf("%-22s %18.1f %18.1f %7.1fx%n",
+                    request[0] + " " + request[1], spark, trie, spark / trie);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * The previous chain: filters and routes matched by Spark, headers set one by one.
+     */
+    private static double runSparkChain(Routes routes, String method, String uri, int iterations) {
+        HttpMethod httpMethod = HttpMethod.get(method.toLowerCase());
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<RouteMatch> before = routes.findMultiple(HttpMethod.before, uri, ACCEPT);
+            RouteMatch match = routes.find(httpMethod, uri, ACCEPT);
+            List<RouteMatch> after = routes.findMultiple(HttpMethod.after, uri, ACCEPT);
+            List<RouteMatch> afterAfter = routes.findMultiple(HttpMethod.afterafter, uri, ACCEPT);
+
+            // Spark's Request splits both paths to extract the parameters
+            List<String> requestParts = SparkUtils.convertRouteToList(match.getRequestURI());
+            List<String> matchParts = SparkUtils.convertRouteToList(match.getMatchUri());
+
+            // Before filter headers
+            HttpFields fields = new HttpFields();
+            fields.put("Access-Control-Allow-Origin", ServerConfig.ALLOWED_ORIGINS);
+            fields.put("Access-Control-Allow-Methods", ServerConfig.ALLOWED_METHODS);
+            fields.put("Access-Control-Allow-Headers", ServerConfig.ALLOWED_HEADERS);
+            fields.put("Access-Control-Expose-Headers", ServerConfig.EXPOSED_HEADERS);
+            fields.put("Access-Control-Max-Age", ServerConfig.MAX_AGE);
+            fields.put("X-Content-Type-Options", ServerConfig.X_CONTENT_TYPE_OPTIONS);
+            fields.put("X-Frame-Options", ServerConfig.X_FRAME_OPTIONS);
+            fields.put("X-XSS-Protection", ServerConfig.X_XSS_PROTECTION);
+            fields.put("Server", ServerConfig.SERVER_NAME);
+
+            // After filter cache policy
+            if (method.equals("GET")) {
+                if (uri.startsWith("/items")) {
+                    fields.put("Cache-Control", ServerConfig.CACHE_CONTROL_PUBLIC);
+                } else {
+                    fields.put("Cache-Control", ServerConfig.CACHE_CONTROL_NO_CACHE);
+                }
+            } else {
+                fields.put("Cache-Control", ServerConfig.CACHE_CONTROL_NO_CACHE);
+            }
+            sink += before.size() + after.size() + afterAfter.size() + requestParts.size() + matchParts.size()
+                    + fields.size();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    /**
+     * The dispatcher: one catch-all route matched by Spark, then the tree and the prebuilt headers.
+     */
+    private static double runDispatcher(Routes routes, RouteDispatcher dispatcher, String method, String uri,
+                                        int iterations) {
+        HttpMethod httpMethod = HttpMethod.get(method.toLowerCase());
+        String[] params = new String[RouteDispatcher.Match.MAX_PARAMS];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<RouteMatch> before = routes.findMultiple(HttpMethod.before, uri, ACCEPT);
+            RouteMatch catchAll = routes.find(httpMethod, uri, ACCEPT);
+            List<RouteMatch> after = routes.findMultiple(HttpMethod.after, uri, ACCEPT);
+            List<RouteMatch> afterAfter = routes.findMultiple(HttpMethod.afterafter, uri, ACCEPT);
+
+            RouteDispatcher.Match match = dispatcher.find(method, uri, params);
+            HttpFields fields = new HttpFields();
+            for (HttpField header : match.getHeaders()) {
+                fields.add(header);
+            }
+            sink += before.size() + after.size() + afterAfter.size() + (catchAll != null ? 1 : 0)
+                    + match.getParamCount() + fields.size();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    /**
+     * All routes of RouteConfig plus the global before and after filters.
+     */
+    private static Routes createSparkChain() {
+        Routes routes = Routes.create();
+        routes.add(HttpMethod.before, noOpFilter());
+        routes.add(HttpMethod.after, noOpFilter());
+        for (String[] route : ROUTES) {
+            routes.add(HttpMethod.get(route[0].toLowerCase()), RouteImpl.create(route[1], NO_OP));
+        }
+        return routes;
+    }
+
+    /**
+     * The catch-all routes that hand every request to the dispatcher.
+     */
+    private static Routes createCatchAll() {
+        Routes routes = Routes.create();
+        for (String method : new String[] {"get", "head", "post", "put", "delete", "options", "patch"}) {
+            routes.add(HttpMethod.get(method), RouteImpl.create("/*", NO_OP));
+        }
+        return routes;
+    }
+
+    private static FilterImpl noOpFilter() {
+        return new FilterImpl(SparkUtils.ALL_PATHS, ACCEPT) {
+            @Override
+            public void handle(Request request, Response response) {
+                // Not run
+            }
+        };
+    }
+
+    private static HttpField[] fixedHeaders(String cacheControl) {
+        return new HttpField[] {
+                new PreEncodedHttpField("Access-Control-Allow-Origin", ServerConfig.ALLOWED_ORIGINS),
+                new PreEncodedHttpField("Access-Control-Allow-Methods", ServerConfig.ALLOWED_METHODS),
+                new PreEncodedHttpField("Access-Control-Allow-Headers", ServerConfig.ALLOWED_HEADERS),
+                new PreEncodedHttpField("Access-Control-Expose-Headers", ServerConfig.EXPOSED_HEADERS),
+                new PreEncodedHttpField("Access-Control-Max-Age", ServerConfig.MAX_AGE),
+                new PreEncodedHttpField("X-Content-Type-Options", ServerConfig.X_CONTENT_TYPE_OPTIONS),
+                new PreEncodedHttpField("X-Frame-Options", ServerConfig.X_FRAME_OPTIONS),
+                new PreEncodedHttpField("X-XSS-Protection", ServerConfig.X_XSS_PROTECTION),
+                new PreEncodedHttpField("Server", ServerConfig.SERVER_NAME),
+                new PreEncodedHttpField("Cache-Control", cacheControl)
+        };
+    }
+}
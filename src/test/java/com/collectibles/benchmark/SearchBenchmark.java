@@ -0,0 +1,156 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.search.InvertedIndex;
+import com.collectibles.search.SearchResult;
+import com.collectibles.service.ItemService;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures full-text index build time, posting list size and BM25 query
+ * latency on a synthetic catalog, exact and typo-tolerant (fuzzy), against a
+ * plain substring scan over name and description.
+ *
+ * Usage:
+ * <pre>
+ * MAVEN_OPTS=-Xmx3g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.SearchBenchmark \
+ *     -Dexec.args="[items] [iterations]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SearchBenchmark {
+
+    private static final String[] ARTISTS = {"Peso Pluma", "Rosalia", "Bad Bunny", "Karol G", "Shakira",
+            "Coldplay", "Fernando Delgadillo", "Natalia Lafourcade", "Soda Stereo", "Cafe Tacvba"};
+    private static final String[] OBJECTS = {"Cap", "Guitar", "Helmet", "Jersey", "Vinyl", "Poster",
+            "Drumsticks", "Jacket", "Microphone", "Ticket"};
+    private static final String[] SPANISH = {"gorra autografiada", "guitarra firmada", "edicion limitada",
+            "camiseta de la gira", "disco de vinilo", "coleccion privada"};
+    private static final String[] ALBUMS = {"MOTOMAMI", "El Mal Querer", "Un Verano Sin Ti", "Genesis",
+            "Parachutes", "Dreams", "Re", "Canción Animal"};
+
+    private static final String[] SYLLABLES = {"ka", "ro", "li", "ma", "to", "sa", "ne", "vi", "pu", "go",
+            "ra", "mi", "lo", "te", "bu", "chi", "da", "fe", "ju", "nu", "bel", "dor", "man", "tis"};
+
+    private static final String[] QUERIES = {"autographed guitar", "MOTOMAMI", "guitarra firmada",
+            "limited edition vinyl", "rosalia helmet", "signed jacket coldplay tour", "canciones",
+            // Misspelled: only fuzzy mode finds these
+            "autografed gitar", "MOTOMAMY", "rosalai helmet", "coldpaly", "shakria jersey"};
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional item count (default 1,000,000) and iterations per query (default 50)
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        List<Item> items = generate(count);
+
+        long start = System.currentTimeMillis();
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (Item item : items) {
+            builder.add(item.getId(), new String[] {item.getName(), item.getDescription()}, new int[] {2, 1});
+        }
+        InvertedIndex index = builder.build();
+        long buildMillis = System.currentTimeMillis() - start;
+
+        System.out.printf("Indexed %,d items in %,d ms: %,d terms (%,d fuzzy-matchable), %,.1f MB of postings (%.1f bytes/item)%n",
+                index.getDocumentCount(), buildMillis, index.getTermCount(), index.getFuzzyTermCount(),
+                index.getPostingBytes() / 1048576.0, index.getPostingBytes() / (double) count);
+
+        System.out.printf("%-28s %10s %9s %9s %10s %9s %9s %12s%n", "query", "matches", "p50 ms", "p99 ms",
+                "fuzzy hits", "fuzzy p50", "fuzzy p99", "scan p50 ms");
+        for (String query : QUERIES) {
+            Histogram search = new Histogram(3);
+            Histogram fuzzy = new Histogram(3);
+            Histogram scan = new Histogram(3);
+            long matches = 0;
+            long fuzzyMatches = 0;
+            for (int i = 0; i < iterations + 5; i++) {
+                long t0 = System.nanoTime();
+                SearchResult result = index.search(query, 20);
+                long t1 = System.nanoTime();
+                SearchResult fuzzyResult = index.search(query, 20, true);
+                long t2 = System.nanoTime();
+                if (i >= 5) {
+                    search.recordValue(t1 - t0);
+                    fuzzy.recordValue(t2 - t1);
+                }
+                matches = result.getTotalMatches();
+                fuzzyMatches = fuzzyResult.getTotalMatches();
+            }
+            // The substring scan is slow; a few runs are enough
+            for (int i = 0; i < 5; i++) {
+                long t0 = System.nanoTime();
+                substringScan(items, query);
+                scan.recordValue(System.nanoTime() - t0);
+            }
+            System.out.printf("%-28s %,10d %9.2f %9.2f %,10d %9.2f %9.2f %12.2f%n", query, matches,
+                    search.getValueAtPercentile(50) / 1e6, search.getValueAtPercentile(99) / 1e6, fuzzyMatches,
+                    fuzzy.getValueAtPercentile(50) / 1e6, fuzzy.getValueAtPercentile(99) / 1e6,
+                    scan.getValueAtPercentile(50) / 1e6);
+        }
+    }
+
+    /**
+     * The previous approach: case-insensitive substring match of the whole query.
+     *
+     * @param items The catalog
+     * @param query The query
+     * @return Number of matching items
+     */
+    private static int substringScan(List<Item> items, String query) {
+        String term = query.toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (Item item : items) {
+            if (item.getName().toLowerCase(Locale.ROOT).contains(term)
+                    || item.getDescription().toLowerCase(Locale.ROOT).contains(term)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Generates a catalog with English and Spanish descriptions.
+     *
+     * @param count Number of items
+     * @return The items
+     */
+    private static List<Item> generate(int count) {
+        Random random = new Random(7);
+
+        // Maker names give the fuzzy matcher a realistically large vocabulary
+        String[] makers = new String[100000];
+        for (int i = 0; i < makers.length; i++) {
+            StringBuilder maker = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                maker.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            makers[i] = maker.toString();
+        }
+
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String artist = ARTISTS[random.nextInt(ARTISTS.length)];
+            String object = OBJECTS[random.nextInt(OBJECTS.length)];
+            String name = object + (random.nextBoolean() ? " autographed by " : " signed by ") + artist;
+            String description = "A " + object.toLowerCase(Locale.ROOT) + " from the "
+                    + ALBUMS[random.nextInt(ALBUMS.length)] + " tour, " + SPANISH[random.nextInt(SPANISH.length)]
+                    + (random.nextInt(10) == 0 ? ", limited edition" : "") + ". Maker "
+                    + makers[random.nextInt(makers.length)] + ", lot " + i + ".";
+            items.add(new Item("item" + i, name, description, "$" + random.nextInt(1000) + ".00 USD"));
+        }
+        return items;
+    }
+}
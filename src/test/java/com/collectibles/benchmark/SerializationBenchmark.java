@@ -0,0 +1,115 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+import com.collectibles.util.CborUtil;
+import com.collectibles.util.JsonUtil;
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares payload size and encode/decode cost of the response formats:
+ * pretty-printed JSON (the default), compact JSON and CBOR.
+ * Payloads are a single User, a single Item and a list of items.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.SerializationBenchmark \
+ *     -Dexec.args="[iterations] [listSize]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SerializationBenchmark {
+
+    // Consumed after each run so the JIT cannot drop the work
+    private static long blackhole;
+
+    /**
+     * Entry point: prints one row per payload and format.
+     *
+     * @param args Optional: iterations per measurement, items in the list payload
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int listSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        User user = new User("user42", "Ramon Organizer", "ramon@email.com", "seller");
+        Item item = new Item("item2", "Helmet autographed by Rosalia",
+                "A helmet autographed by the famous singer Rosalia, a true MOTOMAMI!", "$734.57 USD");
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < listSize; i++) {
+            items.add(new Item("item" + i, item.getName(), item.getDescription(), item.getPrice()));
+        }
+
+        System.out.printf("%-10s %-12s %8s %12s %12s%n", "payload", "format", "bytes", "encode ns", "decode ns");
+        compare("User", user, User.class, iterations);
+        compare("Item", item, Item.class, iterations);
+        compare("Item x" + listSize, items, Item[].class, Math.max(1, iterations / listSize));
+        System.out.println("(blackhole " + blackhole + ")");
+    }
+
+    /**
+     * Measures one payload in all formats.
+     *
+     * @param label Payload name
+     * @param value Payload object
+     * @param type Class used to decode
+     * @param iterations Iterations per measurement
+     */
+    private static void compare(String label, Object value, Class<?> type, int iterations) {
+        Gson pretty = JsonUtil.getGson();
+        Gson compact = JsonUtil.getCompactGson();
+
+        byte[] prettyBytes = pretty.toJson(value).getBytes(StandardCharsets.UTF_8);
+        byte[] compactBytes = compact.toJson(value).getBytes(StandardCharsets.UTF_8);
+        byte[] cborBytes = CborUtil.toCbor(value);
+
+        row(label, "json-pretty", prettyBytes.length,
+                time(iterations, () -> pretty.toJson(value).getBytes(StandardCharsets.UTF_8)),
+                time(iterations, () -> pretty.fromJson(new String(prettyBytes, StandardCharsets.UTF_8), type)));
+        row(label, "json", compactBytes.length,
+                time(iterations, () -> compact.toJson(value).getBytes(StandardCharsets.UTF_8)),
+                time(iterations, () -> compact.fromJson(new String(compactBytes, StandardCharsets.UTF_8), type)));
+        row(label, "cbor", cborBytes.length,
+                time(iterations, () -> CborUtil.toCbor(value)),
+                time(iterations, () -> CborUtil.fromCbor(cborBytes, type)));
+    }
+
+    /**
+     * Prints one result row.
+     *
+     * @param label Payload name
+     * @param format Format name
+     * @param bytes Encoded size
+     * @param encodeNanos Average encode time
+     * @param decodeNanos Average decode time
+     */
+    private static void row(String label, String format, int bytes, double encodeNanos, double decodeNanos) {
+        System.out.printf("%-10s %-12s %8d %12.0f %12.0f%n", label, format, bytes, encodeNanos, decodeNanos);
+    }
+
+    /**
+     * Times an operation: one warmup pass, then a measured pass.
+     *
+     * @param iterations Number of calls per pass
+     * @param operation The operation
+     * @return Average nanoseconds per call in the measured pass
+     */
+    private static double time(int iterations, Supplier<Object> operation) {
+        for (int i = 0; i < iterations; i++) {
+            blackhole += operation.get().hashCode();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            blackhole += operation.get().hashCode();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
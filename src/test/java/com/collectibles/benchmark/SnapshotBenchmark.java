@@ -0,0 +1,108 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.model.User;
+import com.collectibles.service.ItemCatalogPersister;
+import com.collectibles.service.ItemService;
+import com.collectibles.service.StoreSnapshot;
+import com.collectibles.service.UserService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the restart path: writing the shutdown snapshot of both stores,
+ * loading it, and rebuilding the services from it, compared with loading the
+ * same items from the JSON catalog file.
+ *
+ * Usage:
+ * <pre>
+ * MAVEN_OPTS=-Xmx4g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.SnapshotBenchmark \
+ *     -Dexec.args="[items] [users] [rounds]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional item count (default 1,000,000), user count (default 1,000,000)
+     *             and number of load rounds (default 3)
+     * @throws Exception if the files cannot be written or read
+     */
+    public static void main(String[] args) throws Exception {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        List<Item> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new Item("item" + i, "Collectible " + i, "Signed collectible number " + i,
+                    "$" + (10 + i % 990) + "." + (10 + i % 90)));
+        }
+        List<User> users = new ArrayList<>(userCount);
+        String[] roles = {"admin", "buyer", "seller"};
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User("user" + i, "User " + i, "user" + i + "@example.com", roles[i % roles.length]));
+        }
+        ItemService itemService = new ItemService(items);
+        UserService userService = new UserService(0, users);
+        items = null;
+        users = null;
+
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path snapshotFile = directory.resolve("snapshot.bin");
+        Path jsonFile = directory.resolve("items.json");
+        System.out.printf("Stores: %,d items, %,d users, files in %s%n", itemCount, userCount, directory);
+
+        // Write both formats
+        long start = System.nanoTime();
+        long snapshotBytes = StoreSnapshot.write(snapshotFile, itemService, userService);
+        System.out.printf("snapshot write:       %,8.0f ms, %,.1f MB%n", millisSince(start), snapshotBytes / 1048576.0);
+        ItemCatalogPersister persister = new ItemCatalogPersister(itemService, jsonFile, 0);
+        start = System.nanoTime();
+        persister.flush();
+        System.out.printf("items JSON write:     %,8.0f ms, %,.1f MB%n", millisSince(start), Files.size(jsonFile) / 1048576.0);
+        persister.close();
+        itemService = null;
+        userService = null;
+
+        // Load each a few times; the first round includes reading the files from disk
+        for (int round = 1; round <= rounds; round++) {
+            System.gc();
+            start = System.nanoTime();
+            StoreSnapshot snapshot = StoreSnapshot.load(snapshotFile);
+            double loadMs = millisSince(start);
+            ItemService restoredItems = new ItemService(snapshot.getItems());
+            UserService restoredUsers = new UserService(0, snapshot.getUsers());
+            double totalMs = millisSince(start);
+            System.out.printf("round %d snapshot:     %,8.0f ms load, %,8.0f ms with services (%,d items, %,d users)%n",
+                    round, loadMs, totalMs, restoredItems.getItemCount(), restoredUsers.getUserCount());
+            snapshot = null;
+            restoredItems = null;
+            restoredUsers = null;
+
+            System.gc();
+            start = System.nanoTime();
+            List<Item> loaded = ItemCatalogPersister.load(jsonFile);
+            double jsonLoadMs = millisSince(start);
+            ItemService jsonItems = new ItemService(loaded);
+            System.out.printf("round %d items JSON:   %,8.0f ms load, %,8.0f ms with service (%,d items, users not saved)%n",
+                    round, jsonLoadMs, millisSince(start), jsonItems.getItemCount());
+        }
+
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(jsonFile);
+        Files.deleteIfExists(directory);
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+}
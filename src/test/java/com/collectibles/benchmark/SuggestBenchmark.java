@@ -0,0 +1,135 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.Item;
+import com.collectibles.search.ItemSuggester;
+import com.collectibles.search.PrefixTrie;
+import com.collectibles.service.ItemService;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the typeahead trie: heap per term, build time, per-keystroke
+ * latency (p50/p99/max over random prefixes of real words), the cost of an
+ * incremental update, and a substring scan over all names for comparison.
+ *
+ * Usage:
+ * <pre>
+ * MAVEN_OPTS=-Xmx2g mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.SuggestBenchmark \
+ *     -Dexec.args="[items] [distinctWords] [lookups]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class SuggestBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "ro", "li", "ma", "to", "sa", "ne", "vi", "pu", "go",
+            "ra", "mi", "lo", "te", "bu", "chi", "da", "fe", "ju", "nu"};
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional item count (default 1,000,000), distinct words (default 200,000)
+     *             and lookups (default 200,000)
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int distinctWords = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        Random random = new Random(11);
+        String[] words = new String[distinctWords];
+        for (int i = 0; i < distinctWords; i++) {
+            words[i] = word(random);
+        }
+
+        ItemService itemService = new ItemService();
+        itemService.clearAllItems();
+        for (int i = 0; i < count; i++) {
+            itemService.saveItem(new Item("item" + i, name(random, words), "", "$1.00 USD"));
+        }
+
+        long before = usedHeapAfterGc();
+        long start = System.currentTimeMillis();
+        ItemSuggester suggester = new ItemSuggester(itemService, 2000);
+        long buildMillis = System.currentTimeMillis() - start;
+        long after = usedHeapAfterGc();
+        int terms = suggester.getTermCount();
+        System.out.printf("Trie: %,d terms from %,d items in %,d ms, %,.1f MB, %.1f bytes/term%n",
+                terms, count, buildMillis, (after - before) / 1048576.0, (after - before) / (double) terms);
+
+        // Per-keystroke lookups: prefixes of 1 to 4 characters of real words
+        Histogram latency = new Histogram(3);
+        for (int i = 0; i < lookups; i++) {
+            String word = words[random.nextInt(distinctWords)];
+            String prefix = word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+            long t0 = System.nanoTime();
+            List<PrefixTrie.Completion> completions = suggester.suggest(prefix, 10);
+            long elapsed = System.nanoTime() - t0;
+            if (i >= lookups / 10) {
+                latency.recordValue(elapsed);
+            }
+            if (completions.isEmpty()) {
+                throw new IllegalStateException("No completion for " + prefix);
+            }
+        }
+        System.out.printf("suggest (limit 10): p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                latency.getMaxValue() / 1e3);
+
+        // Incremental updates: rename random items
+        Histogram updates = new Histogram(3);
+        for (int i = 0; i < 100000; i++) {
+            String id = "item" + random.nextInt(count);
+            long t0 = System.nanoTime();
+            itemService.saveItem(new Item(id, name(random, words), "", "$1.00 USD"));
+            updates.recordValue(System.nanoTime() - t0);
+        }
+        System.out.printf("rename item (all listeners): p50 %.1f us, p99 %.1f us%n",
+                updates.getValueAtPercentile(50) / 1e3, updates.getValueAtPercentile(99) / 1e3);
+
+        // Baseline: one substring scan over all names
+        long t0 = System.nanoTime();
+        int matches = 0;
+        String term = words[0].substring(0, 2);
+        for (Item item : itemService.getAllItems()) {
+            if (item.getName().toLowerCase(Locale.ROOT).contains(term)) {
+                matches++;
+            }
+        }
+        System.out.printf("substring scan of all names: %.1f ms (%,d matches)%n", (System.nanoTime() - t0) / 1e6, matches);
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String name(Random random, String[] words) {
+        // Zipf-like: low indexes are much more common
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            double u = random.nextDouble();
+            int index = (int) (Math.pow(u, 3) * words.length);
+            name.append(i == 0 ? "" : " ").append(words[index]);
+        }
+        return name.toString();
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
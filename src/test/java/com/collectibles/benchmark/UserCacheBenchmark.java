@@ -0,0 +1,204 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.cache.CacheStats;
+import com.collectibles.cache.TinyLfuCache;
+import com.collectibles.model.User;
+import com.collectibles.util.JsonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the GET /users/:id response cache.
+ *
+ * Part 1 compares the cost of a cache hit with the cost of a miss (serializing
+ * the user with the pretty-printing Gson used by the routes).
+ * Part 2 replays a skewed (Zipf) request stream over many user IDs and
+ * compares the hit ratio of the W-TinyLFU cache with a plain LRU cache of the
+ * same byte budget.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java -Dexec.mainClass=com.collectibles.benchmark.UserCacheBenchmark \
+ *     -Dexec.args="[users] [budgetBytes] [requests] [zipfExponent]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class UserCacheBenchmark {
+
+    // Consumed after each run so the JIT cannot drop the work
+    private static long blackhole;
+
+    /**
+     * Entry point: prints hit/miss cost and hit ratios.
+     *
+     * @param args Optional: distinct users, cache budget in bytes, requests, Zipf exponent
+     */
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 1024 * 1024;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2000000;
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 0.9;
+
+        User[] population = new User[users];
+        for (int i = 0; i < users; i++) {
+            String id = "user" + i;
+            population[i] = new User(id, "Collector " + i, id + "@email.com", i % 10 == 0 ? "seller" : "buyer");
+        }
+
+        compareHitAndMiss(population[0]);
+        compareHitRatio(population, budget, requests, exponent);
+        System.out.println("(blackhole " + blackhole + ")");
+    }
+
+    /**
+     * Times a cache hit against serializing the user.
+     *
+     * @param user The user to serve
+     */
+    private static void compareHitAndMiss(User user) {
+        TinyLfuCache<String, byte[]> cache = new TinyLfuCache<>(1024 * 1024, 128, body -> body.length);
+        cache.put(user.getId(), serialize(user));
+        int iterations = 1000000;
+
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                blackhole += serialize(user).length;
+            }
+            long missNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                blackhole += cache.get(user.getId()).length;
+            }
+            long hitNanos = System.nanoTime() - start;
+
+            if (pass == 1) {
+                System.out.printf("miss (serialize): %8.0f ns%n", missNanos / (double) iterations);
+                System.out.printf("hit  (cached):    %8.0f ns%n", hitNanos / (double) iterations);
+            }
+        }
+    }
+
+    /**
+     * Replays a Zipf-distributed request stream against W-TinyLFU and LRU.
+     *
+     * @param population Users that can be requested
+     * @param budget Cache budget in bytes
+     * @param requests Number of requests
+     * @param exponent Zipf skew
+     */
+    private static void compareHitRatio(User[] population, long budget, int requests, double exponent) {
+        byte[][] bodies = new byte[population.length][];
+        for (int i = 0; i < population.length; i++) {
+            bodies[i] = serialize(population[i]);
+        }
+
+        Zipf zipf = new Zipf(population.length, exponent, new Random(42));
+        int[] trace = new int[requests];
+        for (int i = 0; i < requests; i++) {
+            trace[i] = zipf.next();
+        }
+
+        TinyLfuCache<String, byte[]> tinyLfu = new TinyLfuCache<>(budget, 128, body -> body.length);
+        LruCache lru = new LruCache(budget);
+        for (int index : trace) {
+            String id = population[index].getId();
+            if (tinyLfu.get(id) == null) {
+                tinyLfu.put(id, bodies[index]);
+            }
+            if (lru.get(id) == null) {
+                lru.put(id, bodies[index]);
+            }
+        }
+
+        CacheStats stats = tinyLfu.stats();
+        System.out.printf("users=%d budget=%d bytes requests=%d zipf=%.2f%n",
+                population.length, budget, requests, exponent);
+        System.out.printf("W-TinyLFU hit ratio: %.4f  (%d entries, %d evictions, %d rejections)%n",
+                stats.getHitRatio(), stats.getEntries(), stats.getEvictions(), stats.getRejections());
+        System.out.printf("LRU       hit ratio: %.4f  (%d entries)%n", lru.hitRatio(), lru.entries.size());
+    }
+
+    /**
+     * Serializes a user the way the routes do without the cache.
+     *
+     * @param user The user
+     * @return JSON bytes
+     */
+    private static byte[] serialize(User user) {
+        return JsonUtil.toJson(user).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Byte-budgeted LRU cache used as the baseline.
+     */
+    private static final class LruCache {
+        private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long budget;
+        private long weight;
+        private long hits;
+        private long misses;
+
+        LruCache(long budget) {
+            this.budget = budget;
+        }
+
+        byte[] get(String key) {
+            byte[] value = entries.get(key);
+            if (value == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return value;
+        }
+
+        void put(String key, byte[] value) {
+            entries.put(key, value);
+            weight += value.length + 96;
+            Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+            while (weight > budget && it.hasNext()) {
+                weight -= it.next().getValue().length + 96;
+                it.remove();
+            }
+        }
+
+        double hitRatio() {
+            return (double) hits / (hits + misses);
+        }
+    }
+
+    /**
+     * Zipf-distributed ranks drawn by inverting the cumulative distribution.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+        private final Random random;
+
+        Zipf(int n, double exponent, Random random) {
+            this.random = random;
+            this.cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next() {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
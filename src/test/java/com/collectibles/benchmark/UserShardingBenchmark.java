@@ -0,0 +1,104 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.User;
+import com.collectibles.service.UserService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures user write throughput for different shard counts.
+ * A fixed number of writer threads run bulk-signup style traffic (add a user,
+ * then change its role) against a fresh UserService for each configuration.
+ * Shard count 0 is the single-map store.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.UserShardingBenchmark \
+ *     -Dexec.args="[threads] [seconds] [shardCounts, e.g. 0,1,2,4,8]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class UserShardingBenchmark {
+
+    private static final String[] ROLES = {"buyer", "seller", "admin"};
+
+    /**
+     * Entry point: runs each shard configuration and prints the throughput.
+     *
+     * @param args Optional: writer threads, seconds per run, comma-separated shard counts
+     * @throws InterruptedException if interrupted while waiting for writers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] shardCounts = (args.length > 2 ? args[2] : "0,1,2,4,8").split(",");
+
+        System.out.println("Writers: " + threads + ", cores: " + Runtime.getRuntime().availableProcessors()
+                + ", " + seconds + "s per run");
+
+        // One untimed pass so every configuration runs on warmed-up code
+        run(threads, 1, Integer.parseInt(shardCounts[shardCounts.length - 1].trim()));
+
+        double baseline = 0;
+        for (String count : shardCounts) {
+            int shards = Integer.parseInt(count.trim());
+            double opsPerSecond = run(threads, seconds, shards);
+            if (baseline == 0) {
+                baseline = opsPerSecond;
+            }
+            System.out.printf("shards=%-3s %12.0f writes/s  (%.2fx)%n",
+                    shards == 0 ? "map" : String.valueOf(shards), opsPerSecond, opsPerSecond / baseline);
+        }
+    }
+
+    /**
+     * Runs the write workload against one store configuration.
+     *
+     * @param threads Number of writer threads
+     * @param seconds How long to run
+     * @param shards Shard count (0 for the single-map store)
+     * @return Writes per second
+     * @throws InterruptedException if interrupted while waiting for writers
+     */
+    private static double run(int threads, int seconds, int shards) throws InterruptedException {
+        UserService userService = new UserService(shards);
+        LongAdder writes = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int t = 0; t < threads; t++) {
+            final int writer = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long n = 0;
+                    while (System.nanoTime() < deadline) {
+                        String id = "bench-" + writer + "-" + n;
+                        userService.addUser(new User(id, "Bench User", id + "@example.com", "buyer"));
+                        userService.updateUser(id, new User(id, "Bench User", id + "@example.com",
+                                ROLES[(int) (n % ROLES.length)]));
+                        writes.add(2);
+                        n++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-writer-" + t);
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        return writes.sum() / elapsed;
+    }
+}
@@ -0,0 +1,167 @@
+package com.collectibles.benchmark;
+
+import com.collectibles.model.User;
+import com.collectibles.service.UserService;
+import com.collectibles.storage.KeyValueRepository;
+import com.collectibles.storage.LsmRepository;
+import com.collectibles.storage.ModelCodecs;
+import com.collectibles.storage.WriteBehindRepository;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Compares the latency of UserService.updateUser on the LSM user store with
+ * write-through (every update is logged and synced before it returns) and
+ * with the write-behind layer (updates are acknowledged from memory and
+ * synced in batches). Write-through without syncing is shown for reference.
+ *
+ * Updates are skewed like real traffic: 80% go to 1% of the users, so the
+ * write-behind layer can collapse repeated updates of the same user.
+ *
+ * Usage:
+ * <pre>
+ * mvn -q -Pbenchmark test-compile exec:java \
+ *     -Dexec.mainClass=com.collectibles.benchmark.WriteBehindBenchmark \
+ *     -Dexec.args="[users] [seconds] [writerThreads] [flushIntervalMs]"
+ * </pre>
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+public class WriteBehindBenchmark {
+
+    private static final String[] ROLES = {"admin", "buyer", "seller"};
+
+    /**
+     * Entry point.
+     *
+     * @param args Optional user count (default 100,000), seconds per mode (default 10),
+     *             writer threads (default 4) and flush interval (default 100 ms)
+     * @throws Exception if the store cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int flushIntervalMs = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        System.out.printf("%,d users, %d writer threads, %d s per mode, flush interval %d ms%n",
+                users, threads, seconds, flushIntervalMs);
+        System.out.printf("%-24s %12s %10s %10s %10s %10s%n",
+                "mode", "updates/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        run("write-through, sync", users, seconds, threads, true, 0);
+        run("write-behind, sync", users, seconds, threads, true, flushIntervalMs);
+        run("write-through, no sync", users, seconds, threads, false, 0);
+    }
+
+    /**
+     * Runs the writers against a fresh store.
+     *
+     * @param flushIntervalMs Write-behind flush interval, or 0 for write-through
+     */
+    private static void run(String mode, int users, int seconds, int threads, boolean sync,
+                            int flushIntervalMs) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("write-behind");
+        try {
+            LsmRepository<User> lsm = new LsmRepository<>(directory, ModelCodecs.USERS, 4 * 1024 * 1024, 4, sync);
+            Map<String, User> load = new LinkedHashMap<>();
+            for (int i = 0; i < users; i++) {
+                load.put(id(i), user(i, 0));
+                if (load.size() == 10000) {
+                    lsm.writeBatch(load);
+                    load.clear();
+                }
+            }
+            lsm.writeBatch(load);
+
+            KeyValueRepository<User> repository = lsm;
+            WriteBehindRepository<User> writeBehind = null;
+            if (flushIntervalMs > 0) {
+                writeBehind = new WriteBehindRepository<>(lsm, ModelCodecs.USERS, flushIntervalMs, 512, 10000);
+                repository = writeBehind;
+            }
+            UserService userService = new UserService(repository);
+
+            Histogram latency = new Histogram(60000000000L, 3);
+            long updates = runWriters(userService, users, seconds, threads, latency);
+            System.out.printf("%-24s %,12.0f %10.1f %10.1f %10.1f %10.1f%n", mode, updates / (double) seconds,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0, latency.getMaxValue() / 1000.0);
+
+            long start = System.nanoTime();
+            repository.close();
+            if (writeBehind != null) {
+                System.out.printf("%24s %s, final flush and close %.0f ms%n", "", writeBehind.getStats(),
+                        (System.nanoTime() - start) / 1e6);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Updates skewed random users from several threads for a fixed time.
+     *
+     * @param latency Receives each update's latency in nanoseconds
+     * @return Total number of updates
+     */
+    private static long runWriters(UserService userService, int users, int seconds, int threads,
+                                   Histogram latency) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[] counts = new long[threads];
+        Histogram[] histograms = new Histogram[threads];
+        Thread[] writers = new Thread[threads];
+        int hotUsers = Math.max(1, users / 100);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            histograms[t] = new Histogram(60000000000L, 3);
+            writers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (running.get()) {
+                    int i = random.nextInt(100) < 80 ? random.nextInt(hotUsers) : random.nextInt(users);
+                    User updated = user(i, count);
+                    long start = System.nanoTime();
+                    userService.updateUser(updated.getId(), updated);
+                    histograms[index].recordValue(System.nanoTime() - start);
+                    count++;
+                }
+                counts[index] = count;
+            });
+            writers[t].start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            writers[t].join();
+            latency.add(histograms[t]);
+            total += counts[t];
+        }
+        return total;
+    }
+
+    private static String id(int i) {
+        return "user" + i;
+    }
+
+    private static User user(int i, long version) {
+        return new User(id(i), "User " + i + " v" + version, "user" + i + "@example.com", ROLES[i % ROLES.length]);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
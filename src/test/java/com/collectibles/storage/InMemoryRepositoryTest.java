@@ -0,0 +1,19 @@
+package com.collectibles.storage;
+
+import com.collectibles.model.User;
+
+import java.nio.file.Path;
+
+/**
+ * Runs the repository conformance tests against {@link InMemoryRepository}.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class InMemoryRepositoryTest extends RepositoryConformanceTest {
+
+    @Override
+    protected KeyValueRepository<User> open(Path directory) {
+        return new InMemoryRepository<>(ModelCodecs.USERS);
+    }
+}
@@ -0,0 +1,31 @@
+package com.collectibles.storage;
+
+import com.collectibles.model.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Runs the repository conformance tests against {@link LsmRepository}, with
+ * a tiny memtable and compaction threshold so they cross flushes and
+ * compactions.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class LsmRepositoryTest extends RepositoryConformanceTest {
+
+    @Override
+    protected KeyValueRepository<User> open(Path directory) throws IOException {
+        return openLsm(directory);
+    }
+
+    @Override
+    protected boolean recoversUnclosedWrites() {
+        return true;
+    }
+
+    static LsmRepository<User> openLsm(Path directory) throws IOException {
+        return new LsmRepository<>(directory, ModelCodecs.USERS, 4 * 1024, 3, false);
+    }
+}
@@ -0,0 +1,281 @@
+package com.collectibles.storage;
+
+import com.collectibles.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Conformance tests every {@link KeyValueRepository} implementation must pass:
+ * point operations, conditional writes, range bounds and order, counting,
+ * batches, clearing and concurrent compare-and-replace. Persistent
+ * implementations are also tested across flushes, compactions and
+ * reopening, and those that acknowledge writes only once they are logged
+ * also for recovery from an unclosed write-ahead log.
+ *
+ * Each implementation has a subclass that opens it; every test gets a fresh
+ * repository in its own temporary directory.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+abstract class RepositoryConformanceTest {
+
+    @TempDir
+    Path directory;
+
+    private KeyValueRepository<User> repository;
+
+    /**
+     * Opens a repository of the implementation under test.
+     *
+     * @param directory Directory for its files, the same on every call within a test
+     * @return The repository
+     * @throws IOException if the repository cannot be opened
+     */
+    protected abstract KeyValueRepository<User> open(Path directory) throws IOException;
+
+    /**
+     * Whether writes are on disk once acknowledged, so a repository that is
+     * never closed loses none of them.
+     *
+     * @return true if unclosed writes are recovered on the next open
+     */
+    protected boolean recoversUnclosedWrites() {
+        return false;
+    }
+
+    @BeforeEach
+    void openRepository() throws IOException {
+        repository = open(directory);
+    }
+
+    @AfterEach
+    void closeRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void pointOperations() {
+        assertNull(repository.get("a"), "get of a missing key returns null");
+        assertFalse(repository.delete("a"), "delete of a missing key returns false");
+        repository.put("a", user("a", "first"));
+        assertSame(user("a", "first"), repository.get("a"), "get returns the stored value");
+        repository.put("a", user("a", "second"));
+        assertSame(user("a", "second"), repository.get("a"), "put replaces the value");
+        assertEquals(1, repository.count(), "count after put");
+        assertTrue(repository.delete("a"), "delete of a present key returns true");
+        assertNull(repository.get("a"), "get after delete returns null");
+        assertEquals(0, repository.count(), "count after delete");
+    }
+
+    @Test
+    void conditionalWrites() {
+        assertTrue(repository.putIfAbsent("b", user("b", "one")), "putIfAbsent stores a missing key");
+        assertFalse(repository.putIfAbsent("b", user("b", "two")), "putIfAbsent refuses a present key");
+        assertSame(user("b", "one"), repository.get("b"), "refused putIfAbsent leaves the value");
+
+        // A different object with the same contents matches; same ID with other contents does not
+        assertTrue(repository.compareAndReplace("b", user("b", "one"), user("b", "three")),
+                "compareAndReplace with equal contents replaces");
+        assertFalse(repository.compareAndReplace("b", user("b", "one"), user("b", "four")),
+                "compareAndReplace with stale contents fails");
+        assertSame(user("b", "three"), repository.get("b"), "failed compareAndReplace leaves the value");
+        assertFalse(repository.compareAndReplace("missing", user("missing", "x"), user("missing", "y")),
+                "compareAndReplace of a missing key fails");
+        assertNull(repository.get("missing"), "failed compareAndReplace does not create the key");
+
+        repository.delete("b");
+        assertTrue(repository.putIfAbsent("b", user("b", "five")), "putIfAbsent stores a deleted key");
+    }
+
+    @Test
+    void batch() {
+        repository.put("batch2", user("batch2", "old"));
+        Map<String, User> writes = new LinkedHashMap<>();
+        writes.put("batch1", user("batch1", "new"));
+        writes.put("batch2", null);
+        writes.put("batch3", null);
+        repository.writeBatch(writes);
+        assertSame(user("batch1", "new"), repository.get("batch1"), "writeBatch stores values");
+        assertNull(repository.get("batch2"), "writeBatch deletes keys with a null value");
+        assertEquals(1, repository.count(), "count after writeBatch with a delete of a missing key");
+    }
+
+    @Test
+    void ranges() {
+        for (String key : new String[] {"k3", "k1", "k5", "k2", "k4"}) {
+            repository.put(key, user(key, key));
+        }
+        assertEquals("k1,k2,k3,k4,k5", keys(null, null), "scan visits keys in order");
+        assertEquals("k2,k3", keys("k2", "k4"), "range includes from and excludes to");
+        assertEquals("k3,k4,k5", keys("k25", null), "range from a key between entries");
+        assertEquals("k1,k2", keys(null, "k3"), "range with only an upper bound");
+        assertEquals("", keys("k4", "k2"), "range with from above to is empty");
+        assertEquals("", keys("k3", "k3"), "range with from equal to to is empty");
+        repository.delete("k3");
+        assertEquals("k2,k4", keys("k2", "k5"), "range skips deleted keys");
+    }
+
+    /**
+     * Enough writes to flush and compact the LSM repository several times.
+     */
+    @Test
+    void manyKeys() {
+        int keys = 2000;
+        for (int i = 0; i < keys; i++) {
+            repository.put(key(i), user(key(i), "v0"));
+        }
+        for (int i = 0; i < keys; i += 2) {
+            repository.put(key(i), user(key(i), "v1"));
+        }
+        for (int i = 0; i < keys; i += 3) {
+            repository.delete(key(i));
+        }
+        flush();
+
+        int expectedCount = 0;
+        for (int i = 0; i < keys; i++) {
+            User actual = repository.get(key(i));
+            if (i % 3 == 0) {
+                assertNull(actual, "deleted key " + key(i) + " stays deleted");
+            } else {
+                assertSame(user(key(i), i % 2 == 0 ? "v1" : "v0"), actual, "newest version of " + key(i));
+                expectedCount++;
+            }
+        }
+        assertEquals(expectedCount, repository.count(), "count after overwrites and deletes");
+
+        AtomicInteger visited = new AtomicInteger();
+        StringBuilder previous = new StringBuilder();
+        boolean[] ordered = {true};
+        repository.scan((key, value) -> {
+            ordered[0] &= key.compareTo(previous.toString()) > 0 && key.equals(value.getId());
+            previous.setLength(0);
+            previous.append(key);
+            visited.incrementAndGet();
+        });
+        assertTrue(ordered[0], "scan is strictly ordered and keys match values");
+        assertEquals(expectedCount, visited.get(), "scan visits each live key once");
+    }
+
+    @Test
+    void clear() {
+        for (int i = 0; i < 100; i++) {
+            repository.put(key(i), user(key(i), "v0"));
+        }
+        repository.clear();
+        assertEquals(0, repository.count(), "count after clear");
+        assertNull(repository.get(key(1)), "get after clear");
+        assertEquals("", keys(null, null), "scan after clear");
+        repository.put("c", user("c", "after clear"));
+        assertSame(user("c", "after clear"), repository.get("c"), "put after clear");
+    }
+
+    @Test
+    void concurrentCompareAndReplace() throws InterruptedException {
+        int threads = 4;
+        int increments = 250;
+        repository.put("counter", user("counter", "0"));
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    while (true) {
+                        User current = repository.get("counter");
+                        int value = Integer.parseInt(current.getName());
+                        if (repository.compareAndReplace("counter", current, user("counter", String.valueOf(value + 1)))) {
+                            break;
+                        }
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(String.valueOf(threads * increments), repository.get("counter").getName(),
+                "concurrent compareAndReplace loses no update");
+    }
+
+    @Test
+    void reopen() throws IOException {
+        assumeTrue(repository.isPersistent(), "only persistent repositories keep data across reopening");
+        for (int i = 0; i < 100; i++) {
+            repository.put(key(i), user(key(i), "v0"));
+        }
+        repository.clear();
+        repository.put("kept", user("kept", "survives reopen"));
+        repository.put("gone", user("gone", "deleted before close"));
+        repository.delete("gone");
+        repository.close();
+
+        repository = open(directory);
+        assertSame(user("kept", "survives reopen"), repository.get("kept"), "value survives close and reopen");
+        assertNull(repository.get("gone"), "delete survives reopen");
+        assertNull(repository.get(key(1)), "clear survives reopen");
+        assertEquals(1, repository.count(), "count after reopen");
+    }
+
+    /**
+     * Writes without closing (as a crash would), then opens the directory again.
+     */
+    @Test
+    void logRecovery() throws IOException {
+        assumeTrue(recoversUnclosedWrites(), "only logged repositories recover unclosed writes");
+        repository.put("kept", user("kept", "flushed"));
+        repository.close();
+
+        KeyValueRepository<User> crashed = open(directory);
+        crashed.put("unflushed", user("unflushed", "from the log"));
+        crashed.delete("kept");
+
+        repository = open(directory);
+        assertSame(user("unflushed", "from the log"), repository.get("unflushed"), "write recovered from the log");
+        assertNull(repository.get("kept"), "delete recovered from the log");
+    }
+
+    private void flush() {
+        if (repository instanceof WriteBehindRepository) {
+            ((WriteBehindRepository<User>) repository).flush();
+        } else if (repository instanceof LsmRepository) {
+            try {
+                ((LsmRepository<User>) repository).flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private String keys(String from, String to) {
+        StringBuilder keys = new StringBuilder();
+        repository.range(from, to, (key, value) -> keys.append(keys.length() == 0 ? "" : ",").append(key));
+        return keys.toString();
+    }
+
+    static String key(int i) {
+        return String.format("key%05d", i);
+    }
+
+    static User user(String id, String name) {
+        return new User(id, name, id + "@example.com", "buyer");
+    }
+
+    // Compares contents, since repositories may return a decoded copy
+    private static void assertSame(User expected, User actual, String description) {
+        assertEquals(expected.toString(), actual == null ? null : actual.toString(), description);
+    }
+}
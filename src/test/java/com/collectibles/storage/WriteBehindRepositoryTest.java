@@ -0,0 +1,55 @@
+package com.collectibles.storage;
+
+import com.collectibles.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the repository conformance tests against {@link WriteBehindRepository}
+ * over an LSM repository, with a short interval and small batches so they
+ * cross flushes and backpressure, and checks backpressure against a backing
+ * repository that fails.
+ *
+ * @author Rafael
+ * @version 1.0.0
+ */
+class WriteBehindRepositoryTest extends RepositoryConformanceTest {
+
+    @Override
+    protected KeyValueRepository<User> open(Path directory) throws IOException {
+        return new WriteBehindRepository<>(LsmRepositoryTest.openLsm(directory), ModelCodecs.USERS, 5, 64, 256);
+    }
+
+    @Test
+    void writesOverTheLimitAreAcceptedWhileTheBackingRepositoryFails() throws IOException {
+        AtomicBoolean available = new AtomicBoolean();
+        InMemoryRepository<User> backing = new InMemoryRepository<User>(ModelCodecs.USERS) {
+            @Override
+            public void writeBatch(Map<String, User> writes) {
+                if (!available.get()) {
+                    throw new IllegalStateException("backing repository unavailable");
+                }
+                super.writeBatch(writes);
+            }
+        };
+        // A flush interval long enough that only the writers try to flush
+        WriteBehindRepository<User> writeBehind = new WriteBehindRepository<>(backing, ModelCodecs.USERS, 60000, 10, 20);
+        for (int i = 0; i < 50; i++) {
+            writeBehind.put(key(i), user(key(i), "v0"));
+        }
+        assertEquals(50, writeBehind.count(), "every write is accepted");
+        assertEquals(50, writeBehind.getDirtyCount(), "unwritten entries stay dirty");
+        assertTrue(writeBehind.getStats().get("failedFlushes") > 0, "failed inline flushes are counted");
+
+        available.set(true);
+        writeBehind.close();
+        assertEquals(50, backing.count(), "dirty entries are written once the backing repository recovers");
+    }
+}